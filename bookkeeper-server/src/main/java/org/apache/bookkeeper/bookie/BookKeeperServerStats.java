@@ -52,6 +52,12 @@ public interface BookKeeperServerStats {
     String READ_ENTRY_REQUEST = "READ_ENTRY_REQUEST";
     String READ_ENTRY = "READ_ENTRY";
     String READ_ENTRY_REJECTED = "READ_ENTRY_REJECTED";
+    String RANGE_READ_ENTRY_REQUEST = "RANGE_READ_ENTRY_REQUEST";
+    String RANGE_READ_ENTRY = "RANGE_READ_ENTRY";
+    String RANGE_READ_ENTRY_COUNT = "RANGE_READ_ENTRY_COUNT";
+    String RANGE_ADD_ENTRY_REQUEST = "RANGE_ADD_ENTRY_REQUEST";
+    String RANGE_ADD_ENTRY = "RANGE_ADD_ENTRY";
+    String RANGE_ADD_ENTRY_COUNT = "RANGE_ADD_ENTRY_COUNT";
     String READ_ENTRY_SCHEDULING_DELAY = "READ_ENTRY_SCHEDULING_DELAY";
     String READ_ENTRY_FENCE_REQUEST = "READ_ENTRY_FENCE_REQUEST";
     String READ_ENTRY_FENCE_WAIT = "READ_ENTRY_FENCE_WAIT";
@@ -120,6 +126,12 @@ public interface BookKeeperServerStats {
     String JOURNAL_CREATION_LATENCY = "JOURNAL_CREATION_LATENCY";
     String JOURNAL_MEMORY_MAX = "JOURNAL_MEMORY_MAX";
     String JOURNAL_MEMORY_USED = "JOURNAL_MEMORY_USED";
+    String JOURNAL_ADAPTIVE_GROUP_WAIT_NANOS = "JOURNAL_ADAPTIVE_GROUP_WAIT_NANOS";
+    String JOURNAL_ADAPTIVE_GROUP_TARGET_ENTRIES = "JOURNAL_ADAPTIVE_GROUP_TARGET_ENTRIES";
+    String JOURNAL_REPLAY_TOTAL_BYTES = "JOURNAL_REPLAY_TOTAL_BYTES";
+    String JOURNAL_REPLAY_REPLAYED_BYTES = "JOURNAL_REPLAY_REPLAYED_BYTES";
+    String JOURNAL_REPLAY_BYTES_PER_SEC = "JOURNAL_REPLAY_BYTES_PER_SEC";
+    String JOURNAL_REPLAY_ETA_SEC = "JOURNAL_REPLAY_ETA_SEC";
 
     // Ledger Storage Stats
     String STORAGE_GET_OFFSET = "STORAGE_GET_OFFSET";
@@ -156,6 +168,8 @@ public interface BookKeeperServerStats {
     String MINOR_COMPACTION_COUNT = "MINOR_COMPACTION_COUNT";
     String ACTIVE_LEDGER_COUNT = "ACTIVE_LEDGER_COUNT";
     String DELETED_LEDGER_COUNT = "DELETED_LEDGER_COUNT";
+    String MOVED_COLD_ENTRY_LOG_COUNT = "MOVED_COLD_ENTRY_LOG_COUNT";
+    String MOVED_COLD_ENTRY_LOG_BYTES = "MOVED_COLD_ENTRY_LOG_BYTES";
 
     // Index Related Counters
     String INDEX_INMEM_ILLEGAL_STATE_RESET = "INDEX_INMEM_ILLEGAL_STATE_RESET";
@@ -189,6 +203,7 @@ public interface BookKeeperServerStats {
     String LD_INDEX_SCOPE = "index";
     String LD_WRITABLE_DIRS = "writable_dirs";
     String LD_NUM_DIRS = "num_dirs";
+    String LD_DEGRADED_DIRS = "degraded_dirs";
 
     // EntryLogManagerForEntryLogPerLedger Stats
     String ENTRYLOGGER_SCOPE = "entrylogger";
@@ -197,4 +212,16 @@ public interface BookKeeperServerStats {
     String NUM_OF_WRITE_LEDGERS_REMOVED_CACHE_MAXSIZE = "NUM_OF_WRITE_LEDGERS_REMOVED_CACHE_MAXSIZE";
     String NUM_LEDGERS_HAVING_MULTIPLE_ENTRYLOGS = "NUM_LEDGERS_HAVING_MULTIPLE_ENTRYLOGS";
     String ENTRYLOGS_PER_LEDGER = "ENTRYLOGS_PER_LEDGER";
+
+    // Direct I/O entry log read cache stats
+    String DIRECT_IO_READ_CACHE_HITS = "DIRECT_IO_READ_CACHE_HITS";
+    String DIRECT_IO_READ_CACHE_MISSES = "DIRECT_IO_READ_CACHE_MISSES";
+
+    // Entry log compression stats
+    String ENTRYLOG_COMPRESSION_INPUT_BYTES = "ENTRYLOG_COMPRESSION_INPUT_BYTES";
+    String ENTRYLOG_COMPRESSED_BYTES = "ENTRYLOG_COMPRESSED_BYTES";
+    String ENTRYLOG_COMPRESSION_SKIPPED_ENTRIES = "ENTRYLOG_COMPRESSION_SKIPPED_ENTRIES";
+    String ENTRYLOG_COMPRESSION_RATIO_PERCENT = "ENTRYLOG_COMPRESSION_RATIO_PERCENT";
+    String ENTRYLOG_COMPRESS_TIME = "ENTRYLOG_COMPRESS_TIME";
+    String ENTRYLOG_DECOMPRESS_TIME = "ENTRYLOG_DECOMPRESS_TIME";
 }
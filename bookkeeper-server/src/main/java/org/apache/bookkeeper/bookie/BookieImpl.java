@@ -31,6 +31,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.FileRegion;
+import io.netty.util.ReferenceCounted;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
@@ -48,6 +51,10 @@ import java.util.Optional;
 import java.util.PrimitiveIterator.OfLong;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
@@ -59,6 +66,7 @@ import org.apache.bookkeeper.bookie.LedgerDirsManager.LedgerDirsListener;
 import org.apache.bookkeeper.bookie.LedgerDirsManager.NoWritableLedgerDirException;
 import org.apache.bookkeeper.bookie.stats.BookieStats;
 import org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
 import org.apache.bookkeeper.common.util.Watcher;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.discover.BookieServiceInfo;
@@ -68,6 +76,7 @@ import org.apache.bookkeeper.net.BookieSocketAddress;
 import org.apache.bookkeeper.net.DNS;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
 import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.stats.ThreadRegistry;
 import org.apache.bookkeeper.util.BookKeeperConstants;
@@ -104,6 +113,9 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
     public static final long METAENTRY_ID_FORCE_LEDGER  = -0x4000;
     static final long METAENTRY_ID_LEDGER_EXPLICITLAC  = -0x8000;
 
+    // Max size of the records of a journal directory waiting to be applied, when replaying in parallel
+    private static final int MAX_PENDING_REPLAY_BYTES_PER_JOURNAL = 64 * 1024 * 1024;
+
     private final LedgerDirsManager ledgerDirsManager;
     protected final Supplier<BookieServiceInfo> bookieServiceInfoProvider;
     private final LedgerDirsManager indexDirsManager;
@@ -119,6 +131,7 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
     // Expose Stats
     final StatsLogger statsLogger;
     private final BookieStats bookieStats;
+    private final JournalReplayProgress journalReplayProgress;
 
     private final ByteBufAllocator allocator;
 
@@ -390,6 +403,7 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         super("Bookie-" + conf.getBookiePort());
         this.bookieServiceInfoProvider = bookieServiceInfoProvider;
         this.statsLogger = statsLogger;
+        this.journalReplayProgress = new JournalReplayProgress(statsLogger.scope(JOURNAL_SCOPE));
         this.conf = conf;
         this.journalDirectories = Lists.newArrayList();
         for (File journalDirectory : conf.getJournalDirs()) {
@@ -583,21 +597,75 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
             }
         };
 
-        for (Journal journal : journals) {
-            replay(journal, scanner);
-        }
+        replayJournals(scanner);
+
         long elapsedTs = System.currentTimeMillis() - startTs;
         LOG.info("Finished replaying journal in {} ms.", elapsedTs);
     }
 
     /**
-     * Replay journal files and updates journal's in-memory lastLogMark object.
-     *
-     * @param journal Journal object corresponding to a journalDir
-     * @param scanner Scanner to process replayed entries.
-     * @throws IOException
+     * Replay the journal directories, sequentially or in parallel depending on {@code numJournalReplayThreads}.
      */
-    private void replay(Journal journal, JournalScanner scanner) throws IOException {
+    @VisibleForTesting
+    void replayJournals(JournalScanner scanner) throws IOException {
+        long totalBytes = 0;
+        for (Journal journal : journals) {
+            totalBytes += getJournalBytesToReplay(journal);
+        }
+        journalReplayProgress.start(totalBytes);
+
+        int numReplayThreads = conf.getNumJournalReplayThreads();
+        if (numReplayThreads > 1) {
+            replayInParallel(scanner, numReplayThreads);
+        } else {
+            for (Journal journal : journals) {
+                replay(journal, scanner);
+            }
+        }
+        journalReplayProgress.complete();
+    }
+
+    /**
+     * Replay the journal directories concurrently, each one in its own thread, while the replayed entries are applied
+     * by a pool of threads partitioned by ledger id, so that the entries of a ledger are applied in order.
+     */
+    private void replayInParallel(JournalScanner scanner, int numReplayThreads) throws IOException {
+        LOG.info("Replaying {} journal directories with {} threads", journals.size(), numReplayThreads);
+        OrderedExecutor applyExecutor = OrderedExecutor.newBuilder()
+                .numThreads(numReplayThreads)
+                .name("JournalReplayThread")
+                .build();
+        ExecutorService scanExecutor = Executors.newFixedThreadPool(journals.size(),
+                new DefaultThreadFactory("JournalReplayScanThread"));
+        try {
+            List<Future<Void>> replays = new ArrayList<>(journals.size());
+            for (Journal journal : journals) {
+                replays.add(scanExecutor.submit(() -> {
+                    replay(journal, new ParallelJournalScanner(scanner, applyExecutor,
+                            MAX_PENDING_REPLAY_BYTES_PER_JOURNAL));
+                    return null;
+                }));
+            }
+            for (Future<Void> replay : replays) {
+                try {
+                    replay.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while replaying the journals", e);
+        } finally {
+            scanExecutor.shutdownNow();
+            applyExecutor.shutdown();
+        }
+    }
+
+    private static List<Long> getJournalIdsToReplay(Journal journal) throws IOException {
         final LogMark markedLog = journal.getLastLogMark().getCurMark();
         List<Long> logs = Journal.listJournalIds(journal.getJournalDirectory(), journalId ->
             journalId >= markedLog.getLogFileId());
@@ -608,6 +676,35 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
                 throw new IOException("Recovery log " + markedLog.getLogFileId() + " is missing");
             }
         }
+        return logs;
+    }
+
+    private static long getJournalBytesToReplay(Journal journal) throws IOException {
+        final LogMark markedLog = journal.getLastLogMark().getCurMark();
+        long bytes = 0;
+        for (Long id : getJournalIdsToReplay(journal)) {
+            bytes += getJournalFile(journal, id).length();
+            if (id == markedLog.getLogFileId()) {
+                bytes -= markedLog.getLogFileOffset();
+            }
+        }
+        return Math.max(0, bytes);
+    }
+
+    private static File getJournalFile(Journal journal, long id) {
+        return new File(journal.getJournalDirectory(), Long.toHexString(id) + ".txn");
+    }
+
+    /**
+     * Replay journal files and updates journal's in-memory lastLogMark object.
+     *
+     * @param journal Journal object corresponding to a journalDir
+     * @param scanner Scanner to process replayed entries.
+     * @throws IOException
+     */
+    private void replay(Journal journal, JournalScanner scanner) throws IOException {
+        final LogMark markedLog = journal.getLastLogMark().getCurMark();
+        List<Long> logs = getJournalIdsToReplay(journal);
 
         // TODO: When reading in the journal logs that need to be synced, we
         // should use BufferedChannels instead to minimize the amount of
@@ -617,8 +714,20 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
             if (id == markedLog.getLogFileId()) {
                 logPosition = markedLog.getLogFileOffset();
             }
+            long fileLength = getJournalFile(journal, id).length();
             LOG.info("Replaying journal {} from position {}", id, logPosition);
-            long scanOffset = journal.scanJournal(id, logPosition, scanner);
+            // Progress is tracked with the offsets of the records, in terms of journal file bytes
+            long[] lastOffset = { logPosition };
+            long scanOffset = journal.scanJournal(id, logPosition, (journalVersion, offset, entry) -> {
+                journalReplayProgress.addReplayedBytes(offset - lastOffset[0]);
+                lastOffset[0] = offset;
+                scanner.process(journalVersion, offset, entry);
+            });
+            if (scanner instanceof ParallelJournalScanner) {
+                // The entries of the journal file must be applied before moving the mark past them
+                ((ParallelJournalScanner) scanner).awaitApplied();
+            }
+            journalReplayProgress.addReplayedBytes(Math.max(fileLength, scanOffset) - lastOffset[0]);
             // Update LastLogMark after completely replaying journal
             // scanOffset will point to EOF position
             // After LedgerStorage flush, SyncThread should persist this to disk
@@ -626,6 +735,11 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         }
     }
 
+    @Override
+    public JournalReplayProgress getJournalReplayProgress() {
+        return journalReplayProgress;
+    }
+
     @Override
     public synchronized void start() {
         setDaemon(true);
@@ -910,6 +1024,63 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
 
         // journal `addEntry` should happen after the entry is added to ledger storage.
         // otherwise the journal entry can potentially be rolled before the ledger is created in ledger storage.
+        logMasterKeyIfNeeded(ledgerId, masterKey);
+
+        if (!writeDataToJournal) {
+            cb.writeComplete(0, ledgerId, entryId, null, ctx);
+            return;
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Adding {}@{}", entryId, ledgerId);
+        }
+        getJournal(ledgerId).logAddEntry(entry, ackBeforeSync, cb, ctx);
+    }
+
+    /**
+     * Add a batch of entries to a ledger as specified by handle. All the entries are added to the ledger storage
+     * first, then they are logged in the journal as a group.
+     */
+    private void addEntriesInternal(LedgerDescriptor handle, List<ByteBuf> entries,
+                                    boolean ackBeforeSync, WriteCallback cb, Object ctx, byte[] masterKey)
+            throws IOException, BookieException, InterruptedException {
+        long ledgerId = handle.getLedgerId();
+
+        // Reject a malformed batch as a whole, before any of its entries reaches the ledger storage
+        long firstEntryId = entries.get(0).getLong(entries.get(0).readerIndex() + 8);
+        for (int i = 0; i < entries.size(); i++) {
+            ByteBuf entry = entries.get(i);
+            long entryLedgerId = entry.getLong(entry.readerIndex());
+            long entryId = entry.getLong(entry.readerIndex() + 8);
+            if (entryLedgerId != ledgerId || entryId != firstEntryId + i) {
+                throw new IOException("Entry " + entryLedgerId + "@" + entryId + " doesn't follow "
+                        + ledgerId + "@" + (firstEntryId + i - 1) + " in a batch of entries");
+            }
+        }
+
+        long[] entryIds = new long[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            ByteBuf entry = entries.get(i);
+            entryIds[i] = handle.addEntry(entry);
+            bookieStats.getWriteBytes().add(entry.readableBytes());
+        }
+
+        logMasterKeyIfNeeded(ledgerId, masterKey);
+
+        if (!writeDataToJournal) {
+            for (long entryId : entryIds) {
+                cb.writeComplete(0, ledgerId, entryId, null, ctx);
+            }
+            return;
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Adding {} entries from {}@{}", entries.size(), entryIds[0], ledgerId);
+        }
+        getJournal(ledgerId).logAddEntries(entries, ackBeforeSync, cb, ctx);
+    }
+
+    private void logMasterKeyIfNeeded(long ledgerId, byte[] masterKey) throws InterruptedException {
         if (masterKeyCache.get(ledgerId) == null) {
             // Force the load into masterKey cache
             byte[] oldValue = masterKeyCache.putIfAbsent(ledgerId, masterKey);
@@ -925,16 +1096,6 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
                 getJournal(ledgerId).logAddEntry(bb, false /* ackBeforeSync */, new NopWriteCallback(), null);
             }
         }
-
-        if (!writeDataToJournal) {
-            cb.writeComplete(0, ledgerId, entryId, null, ctx);
-            return;
-        }
-
-        if (LOG.isTraceEnabled()) {
-            LOG.trace("Adding {}@{}", entryId, ledgerId);
-        }
-        getJournal(ledgerId).logAddEntry(entry, ackBeforeSync, cb, ctx);
     }
 
     /**
@@ -1059,6 +1220,64 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         }
     }
 
+    /**
+     * Add a batch of consecutive entries to a ledger. The callback is triggered once per entry.
+     */
+    public void addEntries(List<ByteBuf> entries, boolean ackBeforeSync, WriteCallback cb, Object ctx,
+                           byte[] masterKey)
+            throws IOException, BookieException, InterruptedException {
+        addEntries(entries, false /* isRecoveryAdd */, ackBeforeSync, cb, ctx, masterKey);
+    }
+
+    /**
+     * Add a batch of consecutive entries to a ledger, even if the ledger has previous been fenced.
+     *
+     * @see #recoveryAddEntry(ByteBuf, WriteCallback, Object, byte[])
+     */
+    public void recoveryAddEntries(List<ByteBuf> entries, WriteCallback cb, Object ctx, byte[] masterKey)
+            throws IOException, BookieException, InterruptedException {
+        addEntries(entries, true /* isRecoveryAdd */, false /* ackBeforeSync */, cb, ctx, masterKey);
+    }
+
+    private void addEntries(List<ByteBuf> entries, boolean isRecoveryAdd, boolean ackBeforeSync,
+                            WriteCallback cb, Object ctx, byte[] masterKey)
+            throws IOException, BookieException, InterruptedException {
+        long requestNanos = MathUtils.nowInNano();
+        boolean success = false;
+        try {
+            if (entries.isEmpty()) {
+                throw new IOException("Empty batch of entries");
+            }
+            LedgerDescriptor handle = getLedgerForEntry(entries.get(0), masterKey);
+            synchronized (handle) {
+                if (!isRecoveryAdd && handle.isFenced()) {
+                    throw BookieException
+                            .create(BookieException.Code.LedgerFencedException);
+                }
+                addEntriesInternal(handle, entries, ackBeforeSync, cb, ctx, masterKey);
+            }
+            success = true;
+        } catch (NoWritableLedgerDirException e) {
+            stateManager.transitionToReadOnlyMode();
+            throw new IOException(e);
+        } finally {
+            long elapsedNanos = MathUtils.elapsedNanos(requestNanos);
+            OpStatsLogger addEntryStats = isRecoveryAdd
+                    ? bookieStats.getRecoveryAddEntryStats() : bookieStats.getAddEntryStats();
+            for (int i = 0; i < entries.size(); i++) {
+                ByteBuf entry = entries.get(i);
+                if (success) {
+                    addEntryStats.registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                    bookieStats.getAddBytesStats().registerSuccessfulValue(entry.readableBytes());
+                } else {
+                    addEntryStats.registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                    bookieStats.getAddBytesStats().registerFailedValue(entry.readableBytes());
+                }
+                entry.release();
+            }
+        }
+    }
+
     /**
      * Fences a ledger. From this point on, clients will be unable to
      * write to this ledger. Only recoveryAddEntry will be
@@ -1100,6 +1319,70 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         }
     }
 
+    public List<ByteBuf> readEntries(long ledgerId, long firstEntryId, int maxCount, long maxSize)
+            throws IOException, NoLedgerException, BookieException {
+        long requestNanos = MathUtils.nowInNano();
+        boolean success = false;
+        long entriesSize = 0;
+        try {
+            LedgerDescriptor handle = handles.getReadOnlyHandle(ledgerId);
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Reading {} entries from {}@{}", maxCount, firstEntryId, ledgerId);
+            }
+            List<ByteBuf> entries = handle.readEntries(firstEntryId, maxCount, maxSize);
+            for (int i = 0; i < entries.size(); i++) {
+                entriesSize += entries.get(i).readableBytes();
+            }
+            bookieStats.getReadBytes().add(entriesSize);
+            success = true;
+            return entries;
+        } finally {
+            long elapsedNanos = MathUtils.elapsedNanos(requestNanos);
+            if (success) {
+                bookieStats.getReadEntryStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                bookieStats.getReadBytesStats().registerSuccessfulValue(entriesSize);
+            } else {
+                bookieStats.getReadEntryStats().registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                bookieStats.getReadBytesStats().registerFailedValue(entriesSize);
+            }
+        }
+    }
+
+    public ReferenceCounted readEntryForTransfer(long ledgerId, long entryId, int minRegionSize)
+            throws IOException, NoLedgerException, BookieException {
+        long requestNanos = MathUtils.nowInNano();
+        boolean success = false;
+        long entrySize = 0;
+        try {
+            LedgerDescriptor handle = handles.getReadOnlyHandle(ledgerId);
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Reading {}@{} for transfer", entryId, ledgerId);
+            }
+            ReferenceCounted entry = handle.readEntryForTransfer(entryId, minRegionSize);
+            if (entry instanceof FileRegion) {
+                entrySize = ((FileRegion) entry).count();
+            } else {
+                entrySize = ((ByteBuf) entry).readableBytes();
+            }
+            bookieStats.getReadBytes().add(entrySize);
+            success = true;
+            return entry;
+        } finally {
+            long elapsedNanos = MathUtils.elapsedNanos(requestNanos);
+            if (success) {
+                bookieStats.getReadEntryStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                bookieStats.getReadBytesStats().registerSuccessfulValue(entrySize);
+            } else {
+                bookieStats.getReadEntryStats().registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                bookieStats.getReadBytesStats().registerFailedValue(entrySize);
+            }
+        }
+    }
+
+    public Executor getReadExecutor(long ledgerId, long entryId) {
+        return ledgerStorage.getReadExecutor(ledgerId, entryId);
+    }
+
     public long readLastAddConfirmed(long ledgerId) throws IOException, BookieException {
         LedgerDescriptor handle = handles.getReadOnlyHandle(ledgerId);
         return handle.getLastAddConfirmed();
@@ -62,6 +62,7 @@ import org.apache.bookkeeper.tools.cli.commands.bookie.ListActiveLedgersCommand;
 import org.apache.bookkeeper.tools.cli.commands.bookie.ListFilesOnDiscCommand;
 import org.apache.bookkeeper.tools.cli.commands.bookie.ListLedgersCommand;
 import org.apache.bookkeeper.tools.cli.commands.bookie.LocalConsistencyCheckCommand;
+import org.apache.bookkeeper.tools.cli.commands.bookie.MigrateDBLedgerLocationsIndexCommand;
 import org.apache.bookkeeper.tools.cli.commands.bookie.ReadJournalCommand;
 import org.apache.bookkeeper.tools.cli.commands.bookie.ReadLedgerCommand;
 import org.apache.bookkeeper.tools.cli.commands.bookie.ReadLogCommand;
@@ -156,6 +157,7 @@ public class BookieShell implements Tool {
     static final String CMD_CONVERT_TO_DB_STORAGE = "convert-to-db-storage";
     static final String CMD_CONVERT_TO_INTERLEAVED_STORAGE = "convert-to-interleaved-storage";
     static final String CMD_REBUILD_DB_LEDGER_LOCATIONS_INDEX = "rebuild-db-ledger-locations-index";
+    static final String CMD_MIGRATE_DB_LEDGER_LOCATIONS_INDEX = "migrate-db-ledger-locations-index";
     static final String CMD_REBUILD_DB_LEDGERS_INDEX = "rebuild-db-ledgers-index";
     static final String CMD_CHECK_DB_LEDGERS_INDEX = "check-db-ledgers-index";
     static final String CMD_REGENERATE_INTERLEAVED_STORAGE_INDEX_FILE = "regenerate-interleaved-storage-index-file";
@@ -972,6 +974,7 @@ public class BookieShell implements Tool {
             rlOpts.addOption("e", "entryid", true, "Entry ID");
             rlOpts.addOption("sp", "startpos", true, "Start Position");
             rlOpts.addOption("ep", "endpos", true, "End Position");
+            rlOpts.addOption("i", "index", false, "Print the footer index of the entry log");
         }
 
         @Override
@@ -1006,6 +1009,7 @@ public class BookieShell implements Tool {
             flags.entryId(eId);
             flags.ledgerId(lId);
             flags.msg(printMsg);
+            flags.index(cmdLine.hasOption("i"));
             boolean result = cmd.apply(bkConf, flags);
             return (result) ? 0 : -1;
         }
@@ -1018,7 +1022,8 @@ public class BookieShell implements Tool {
         @Override
         String getUsage() {
             return "readlog      [-msg] <entry_log_id | entry_log_file_name> [-ledgerid <ledgerid> "
-                    + "[-entryid <entryid>]] [-startpos <startEntryLogBytePos> [-endpos <endEntryLogBytePos>]]";
+                    + "[-entryid <entryid>]] [-startpos <startEntryLogBytePos> [-endpos <endEntryLogBytePos>]] "
+                    + "[-index]";
         }
 
         @Override
@@ -2116,6 +2121,46 @@ public class BookieShell implements Tool {
         }
     }
 
+    /**
+     * Migrate DbLedgerStorage locations index to the run-length layout.
+     */
+    class MigrateDbLedgerLocationsIndexCmd extends MyCommand {
+        Options opts = new Options();
+
+        public MigrateDbLedgerLocationsIndexCmd() {
+            super(CMD_MIGRATE_DB_LEDGER_LOCATIONS_INDEX);
+        }
+
+        @Override
+        Options getOptions() {
+            opts.addOption("c", "classic", false, "Convert the index back to the classic layout");
+            return opts;
+        }
+
+        @Override
+        String getDescription() {
+            return "Convert DbLedgerStorage locations index to the run-length layout (or back to the classic layout)";
+        }
+
+        @Override
+        String getUsage() {
+            return CMD_MIGRATE_DB_LEDGER_LOCATIONS_INDEX + " [-classic]";
+        }
+
+        @Override
+        int runCmd(CommandLine cmdLine) throws Exception {
+            MigrateDBLedgerLocationsIndexCommand.MigrateLocationsIndexFlags flags =
+                    new MigrateDBLedgerLocationsIndexCommand.MigrateLocationsIndexFlags();
+            flags.classic(cmdLine.hasOption("c"));
+            MigrateDBLedgerLocationsIndexCommand cmd = new MigrateDBLedgerLocationsIndexCommand();
+            if (cmd.apply(bkConf, flags)) {
+                return 0;
+            } else {
+                return -1;
+            }
+        }
+    }
+
     /**
      * Rebuild DbLedgerStorage ledgers index.
      */
@@ -2295,6 +2340,7 @@ public class BookieShell implements Tool {
         commands.put(CMD_CONVERT_TO_DB_STORAGE, new ConvertToDbStorageCmd());
         commands.put(CMD_CONVERT_TO_INTERLEAVED_STORAGE, new ConvertToInterleavedStorageCmd());
         commands.put(CMD_REBUILD_DB_LEDGER_LOCATIONS_INDEX, new RebuildDbLedgerLocationsIndexCmd());
+        commands.put(CMD_MIGRATE_DB_LEDGER_LOCATIONS_INDEX, new MigrateDbLedgerLocationsIndexCmd());
         commands.put(CMD_REBUILD_DB_LEDGERS_INDEX, new RebuildDbLedgersIndexCmd());
         commands.put(CMD_CHECK_DB_LEDGERS_INDEX, new CheckDbLedgersIndexCmd());
         commands.put(CMD_REGENERATE_INTERLEAVED_STORAGE_INDEX_FILE, new RegenerateInterleavedStorageIndexFile());
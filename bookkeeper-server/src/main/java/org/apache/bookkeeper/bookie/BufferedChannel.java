@@ -87,11 +87,16 @@ public class BufferedChannel extends BufferedReadChannel implements Closeable {
 
     public BufferedChannel(ByteBufAllocator allocator, FileChannel fc, int writeCapacity, int readCapacity,
             long unpersistedBytesBound) throws IOException {
+        this(fc, allocator.directBuffer(writeCapacity), readCapacity, unpersistedBytesBound);
+    }
+
+    protected BufferedChannel(FileChannel fc, ByteBuf writeBuffer, int readCapacity,
+            long unpersistedBytesBound) throws IOException {
         super(fc, readCapacity);
-        this.writeCapacity = writeCapacity;
+        this.writeCapacity = writeBuffer.capacity();
         this.position = fc.position();
         this.writeBufferStartPosition.set(position);
-        this.writeBuffer = allocator.directBuffer(writeCapacity);
+        this.writeBuffer = writeBuffer;
         this.unpersistedBytes = new AtomicLong(0);
         this.unpersistedBytesBound = unpersistedBytesBound;
         this.doRegularFlushes = unpersistedBytesBound > 0;
@@ -145,6 +150,59 @@ public class BufferedChannel extends BufferedReadChannel implements Closeable {
         }
     }
 
+    /**
+     * Write all the data in src straight to the {@link FileChannel}, after the data already
+     * in the write buffer. This avoids copying large batches, that are already serialized
+     * in a direct buffer, through the write buffer.
+     *
+     * @param src The source ByteBuffer which contains the data to be written.
+     * @throws IOException if a write operation fails.
+     */
+    public synchronized void writeDirect(ByteBuffer src) throws IOException {
+        int len = src.remaining();
+        if (writeBuffer.readableBytes() > 0) {
+            flush();
+        }
+        while (src.hasRemaining()) {
+            fileChannel.write(src);
+        }
+        writeBufferStartPosition.set(fileChannel.position());
+        position += len;
+        if (doRegularFlushes) {
+            unpersistedBytes.addAndGet(len);
+        }
+    }
+
+    /**
+     * Copy a region of another file straight to the {@link FileChannel}, after the data already
+     * in the write buffer, with {@link FileChannel#transferTo}. The data is not copied through
+     * the memory of the process.
+     *
+     * @param src The channel of the file to copy from.
+     * @param srcPosition The position of the region in the file to copy from.
+     * @param count The number of bytes to copy.
+     * @throws IOException if the region couldn't be fully copied.
+     */
+    public synchronized void transferFrom(FileChannel src, long srcPosition, long count) throws IOException {
+        if (writeBuffer.readableBytes() > 0) {
+            flush();
+        }
+        long transferred = 0;
+        while (transferred < count) {
+            long bytes = src.transferTo(srcPosition + transferred, count - transferred, fileChannel);
+            if (bytes <= 0) {
+                throw new IOException("Short transfer at " + (srcPosition + transferred) + ": "
+                        + transferred + " of " + count + " bytes");
+            }
+            transferred += bytes;
+        }
+        writeBufferStartPosition.set(fileChannel.position());
+        position += count;
+        if (doRegularFlushes) {
+            unpersistedBytes.addAndGet(count);
+        }
+    }
+
     /**
      * Get the position where the next write operation will begin writing from.
      * @return
@@ -26,6 +26,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
 /**
@@ -100,6 +101,30 @@ public class BufferedReadChannel extends BufferedChannelBase  {
         return (int) (currentPosition - pos);
     }
 
+    /**
+     * Read length bytes into dest starting at position pos, directly from the FileChannel.
+     *
+     * <p>This bypasses the read buffer, so that a large read is done with a single positional read on the
+     * file instead of being split in reads of the read buffer capacity.
+     *
+     * @return The total number of bytes read.
+     * @throws IOException if I/O error occurs
+     */
+    public int readDirect(ByteBuf dest, long pos, int length) throws IOException {
+        FileChannel fc = validateAndGetFileChannel();
+        ByteBuffer buffer = dest.nioBuffer(dest.writerIndex(), length);
+        int readBytes = 0;
+        while (buffer.hasRemaining()) {
+            int n = fc.read(buffer, pos + readBytes);
+            if (n <= 0) {
+                break;
+            }
+            readBytes += n;
+        }
+        dest.writerIndex(dest.writerIndex() + readBytes);
+        return readBytes;
+    }
+
     public synchronized void clear() {
         readBuffer.clear();
     }
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+// CHECKSTYLE.OFF: IllegalImport
+import io.netty.util.internal.PlatformDependent;
+// CHECKSTYLE.ON: IllegalImport
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helpers to access files with direct I/O (O_DIRECT).
+ *
+ * <p>With direct I/O the position, the length and the memory address of every read and write must be
+ * aligned on the block size of the file system. {@link #ALIGNMENT} is a multiple of the block size of
+ * all the common file systems.
+ */
+final class DirectIO {
+    private static final Logger LOG = LoggerFactory.getLogger(DirectIO.class);
+
+    static final int ALIGNMENT = 4096;
+
+    // com.sun.nio.file.ExtendedOpenOption.DIRECT is only available from Java 10
+    private static final OpenOption DIRECT = lookupDirectOption();
+
+    private DirectIO() {}
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static OpenOption lookupDirectOption() {
+        try {
+            Class<? extends Enum> clazz = (Class<? extends Enum>) Class.forName("com.sun.nio.file.ExtendedOpenOption");
+            return (OpenOption) Enum.valueOf(clazz, "DIRECT");
+        } catch (ClassNotFoundException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check whether files can be opened with direct I/O in the given directory.
+     */
+    static boolean isSupported(File dir) {
+        // the memory address of the buffers can only be aligned with unsafe
+        if (DIRECT == null || !PlatformDependent.hasUnsafe()) {
+            LOG.warn("Direct I/O is not supported by this JVM");
+            return false;
+        }
+        File probe = new File(dir, ".directio-probe");
+        try (FileChannel fc = FileChannel.open(probe.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                DIRECT)) {
+            ByteBuffer buffer = allocateAligned(ALIGNMENT);
+            fc.write(buffer, 0);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.warn("Direct I/O is not supported in {} : {}", dir, e.getMessage());
+            return false;
+        } finally {
+            if (probe.exists() && !probe.delete()) {
+                LOG.warn("Could not delete direct I/O probe file {}", probe);
+            }
+        }
+    }
+
+    static FileChannel openForWrite(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.WRITE, DIRECT);
+    }
+
+    static FileChannel openForRead(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.READ, DIRECT);
+    }
+
+    /**
+     * Allocate a direct buffer whose memory address is aligned for direct I/O.
+     */
+    static ByteBuffer allocateAligned(int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(capacity + ALIGNMENT);
+        long address = PlatformDependent.directBufferAddress(buffer);
+        int offset = (int) (alignUp(address) - address);
+        buffer.position(offset);
+        buffer.limit(offset + capacity);
+        return buffer.slice();
+    }
+
+    static long alignUp(long value) {
+        return (value + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    static long alignDown(long value) {
+        return value & -ALIGNMENT;
+    }
+}
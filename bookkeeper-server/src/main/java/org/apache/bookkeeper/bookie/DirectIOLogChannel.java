@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.apache.bookkeeper.bookie.EntryLogger.BufferedLogChannel;
+
+/**
+ * An entry log channel which writes its buffer to the disk with direct I/O.
+ *
+ * <p>The write buffer is aligned in memory and always starts at an aligned position of the file. On
+ * flush, the full blocks of the buffer are written with direct I/O, while the last partial block is
+ * written through the page cache, so that the file never contains any padding. The partial block is
+ * kept at the beginning of the buffer, and it is written again with direct I/O once it is full.
+ *
+ * <p>The regular file channel is still used for the partial blocks, the update of the header, and to
+ * force the writes to the disk.
+ */
+class DirectIOLogChannel extends BufferedLogChannel {
+
+    private final FileChannel directChannel;
+
+    DirectIOLogChannel(FileChannel fc, FileChannel directChannel, int writeCapacity, int readCapacity,
+                       long logId, File logFile, long unpersistedBytesBound) throws IOException {
+        super(fc, Unpooled.wrappedBuffer(DirectIO.allocateAligned(alignCapacity(writeCapacity))).clear(),
+                readCapacity, logId, logFile, unpersistedBytesBound);
+        this.directChannel = directChannel;
+    }
+
+    private static int alignCapacity(int writeCapacity) {
+        // leave room for at least one full block after the partial block kept in the buffer
+        return (int) Math.max(2 * DirectIO.ALIGNMENT, DirectIO.alignUp(writeCapacity));
+    }
+
+    @Override
+    protected void flushBuffer() throws IOException {
+        long startPosition = writeBufferStartPosition.get();
+        int length = writeBuffer.writerIndex();
+        int alignedLength = (int) DirectIO.alignDown(length);
+        int tailLength = length - alignedLength;
+
+        if (alignedLength > 0) {
+            writeFully(directChannel, writeBuffer.nioBuffer(0, alignedLength), startPosition);
+        }
+        if (tailLength > 0) {
+            writeFully(fileChannel, writeBuffer.nioBuffer(alignedLength, tailLength), startPosition + alignedLength);
+            if (alignedLength > 0) {
+                // the partial block is smaller than the blocks before it, so the copy doesn't overlap
+                writeBuffer.setBytes(0, writeBuffer, alignedLength, tailLength);
+            }
+        }
+        writeBuffer.writerIndex(tailLength);
+        writeBufferStartPosition.set(startPosition + alignedLength);
+    }
+
+    /**
+     * The data is copied through the write buffer, since the file is written at aligned positions only.
+     */
+    @Override
+    public synchronized void transferFrom(FileChannel src, long srcPosition, long count) throws IOException {
+        ByteBuf chunk = Unpooled.buffer((int) Math.min(count, writeCapacity));
+        try {
+            long transferred = 0;
+            while (transferred < count) {
+                chunk.clear();
+                int length = (int) Math.min(count - transferred, chunk.capacity());
+                int read = chunk.writeBytes(src, srcPosition + transferred, length);
+                if (read <= 0) {
+                    throw new IOException("Short read at " + (srcPosition + transferred));
+                }
+                write(chunk);
+                transferred += read;
+            }
+        } finally {
+            chunk.release();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            directChannel.close();
+        }
+    }
+}
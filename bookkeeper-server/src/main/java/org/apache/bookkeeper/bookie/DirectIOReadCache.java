@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.DIRECT_IO_READ_CACHE_HITS;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.DIRECT_IO_READ_CACHE_MISSES;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+
+/**
+ * Cache of the blocks read from the entry logs with direct I/O.
+ *
+ * <p>Since direct I/O bypasses the page cache, every read would hit the disk. The blocks read from the
+ * entry logs are kept in a small LRU cache, so that the neighbour entries, and the entries read again
+ * shortly after, are served from memory. The entry logs are append only, so a cached block never
+ * becomes stale, except the first block of a log whose header is updated when the log is closed: this
+ * block is never cached.
+ */
+@StatsDoc(
+    name = BookKeeperServerStats.ENTRYLOGGER_SCOPE,
+    category = CATEGORY_SERVER,
+    help = "Direct I/O entry log read cache stats"
+)
+class DirectIOReadCache {
+
+    private final int blockSize;
+    private final ByteBuf cache;
+    private final int[] validLengths;
+    // block key -> slot in the cache, in access order
+    private final LinkedHashMap<Long, Integer> blocks;
+    private final ArrayDeque<Integer> freeSlots;
+
+    private final ThreadLocal<ByteBuffer> readBuffers;
+
+    @StatsDoc(
+        name = DIRECT_IO_READ_CACHE_HITS,
+        help = "Number of blocks found in the direct I/O read cache"
+    )
+    private final Counter hits;
+    @StatsDoc(
+        name = DIRECT_IO_READ_CACHE_MISSES,
+        help = "Number of blocks read from the disk with direct I/O"
+    )
+    private final Counter misses;
+
+    DirectIOReadCache(int blockSize, long cacheSize, StatsLogger statsLogger) {
+        this.blockSize = (int) Math.max(DirectIO.ALIGNMENT, DirectIO.alignUp(blockSize));
+        int numBlocks = (int) Math.min(cacheSize / this.blockSize, Integer.MAX_VALUE / this.blockSize);
+        this.cache = Unpooled.directBuffer(numBlocks * this.blockSize);
+        this.validLengths = new int[numBlocks];
+        this.blocks = new LinkedHashMap<>(numBlocks, 0.75f, true);
+        this.freeSlots = new ArrayDeque<>(numBlocks);
+        for (int i = 0; i < numBlocks; i++) {
+            freeSlots.add(i);
+        }
+        this.readBuffers = ThreadLocal.withInitial(() -> DirectIO.allocateAligned(this.blockSize));
+        this.hits = statsLogger.getCounter(DIRECT_IO_READ_CACHE_HITS);
+        this.misses = statsLogger.getCounter(DIRECT_IO_READ_CACHE_MISSES);
+    }
+
+    /**
+     * Read length bytes of the given entry log into dest, starting at position pos.
+     *
+     * @param directChannel channel of the entry log opened with direct I/O
+     * @return the number of bytes read, which is less than length if the end of the log is reached
+     */
+    int read(long logId, FileChannel directChannel, ByteBuf dest, long pos, int length) throws IOException {
+        int totalRead = 0;
+        while (length > 0) {
+            long blockIndex = pos / blockSize;
+            int offsetInBlock = (int) (pos - blockIndex * blockSize);
+            int read = readFromCache(key(logId, blockIndex), dest, offsetInBlock, length);
+            if (read < 0) {
+                read = readFromDisk(logId, directChannel, blockIndex, dest, offsetInBlock, length);
+                if (read <= 0) {
+                    // reached the end of the log
+                    break;
+                }
+            }
+            pos += read;
+            length -= read;
+            totalRead += read;
+        }
+        return totalRead;
+    }
+
+    private synchronized int readFromCache(long key, ByteBuf dest, int offsetInBlock, int length) {
+        Integer slot = blocks.get(key);
+        // the last block of a log may have grown since it was cached
+        if (slot == null || offsetInBlock >= validLengths[slot]) {
+            return -1;
+        }
+        hits.inc();
+        int read = Math.min(length, validLengths[slot] - offsetInBlock);
+        dest.writeBytes(cache, slot * blockSize + offsetInBlock, read);
+        return read;
+    }
+
+    private int readFromDisk(long logId, FileChannel directChannel, long blockIndex,
+                             ByteBuf dest, int offsetInBlock, int length) throws IOException {
+        misses.inc();
+        ByteBuffer buffer = readBuffers.get();
+        buffer.clear();
+        long blockStart = blockIndex * blockSize;
+        int n;
+        do {
+            n = directChannel.read(buffer, blockStart + buffer.position());
+            // a read which isn't aligned means that we reached the end of the log
+        } while (n > 0 && buffer.hasRemaining() && buffer.position() % DirectIO.ALIGNMENT == 0);
+        int validLength = buffer.position();
+        if (offsetInBlock >= validLength) {
+            return 0;
+        }
+
+        int read = Math.min(length, validLength - offsetInBlock);
+        buffer.limit(offsetInBlock + read);
+        buffer.position(offsetInBlock);
+        dest.writeBytes(buffer);
+
+        if (blockIndex > 0) {
+            put(key(logId, blockIndex), buffer, validLength);
+        }
+        return read;
+    }
+
+    private synchronized void put(long key, ByteBuffer buffer, int validLength) {
+        Integer slot = blocks.get(key);
+        if (slot == null) {
+            slot = freeSlots.poll();
+            if (slot == null) {
+                Iterator<Map.Entry<Long, Integer>> eldest = blocks.entrySet().iterator();
+                if (!eldest.hasNext()) {
+                    // the cache is disabled
+                    return;
+                }
+                slot = eldest.next().getValue();
+                eldest.remove();
+            }
+            blocks.put(key, slot);
+        }
+        buffer.limit(validLength);
+        buffer.position(0);
+        cache.setBytes(slot * blockSize, buffer);
+        validLengths[slot] = validLength;
+    }
+
+    /**
+     * Drop the cached blocks of a log, once the log is closed or deleted.
+     */
+    synchronized void invalidate(long logId) {
+        Iterator<Map.Entry<Long, Integer>> iterator = blocks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Integer> entry = iterator.next();
+            if ((entry.getKey() >>> 32) == logId) {
+                freeSlots.add(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void close() {
+        blocks.clear();
+        cache.release();
+    }
+
+    private static long key(long logId, long blockIndex) {
+        // entry log ids and block indexes both fit in 32 bits, as in entry locations
+        return (logId << 32) | blockIndex;
+    }
+}
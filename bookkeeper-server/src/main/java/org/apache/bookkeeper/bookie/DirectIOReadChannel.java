@@ -0,0 +1,52 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read channel of an entry log opened with direct I/O. The reads are served by the
+ * {@link DirectIOReadCache} shared by all the entry logs, instead of a per channel read buffer.
+ */
+class DirectIOReadChannel extends BufferedReadChannel {
+
+    private final long logId;
+    private final DirectIOReadCache readCache;
+
+    DirectIOReadChannel(FileChannel directChannel, long logId, DirectIOReadCache readCache) {
+        super(directChannel, 0);
+        this.logId = logId;
+        this.readCache = readCache;
+    }
+
+    @Override
+    public int read(ByteBuf dest, long pos, int length) throws IOException {
+        FileChannel fc = validateAndGetFileChannel();
+        if (pos >= fc.size()) {
+            return -1;
+        }
+        return readCache.read(logId, fc, dest, pos, length);
+    }
+
+    @Override
+    public int readDirect(ByteBuf dest, long pos, int length) throws IOException {
+        return readCache.read(logId, validateAndGetFileChannel(), dest, pos, length);
+    }
+}
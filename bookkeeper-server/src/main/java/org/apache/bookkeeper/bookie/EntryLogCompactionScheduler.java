@@ -0,0 +1,283 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules the compaction of the entry logs selected by the garbage collector.
+ *
+ * <p>The entry logs are compacted in the order of their score, which is the space reclaimed per byte copied,
+ * weighted by the age of the log: the older logs are less likely to lose more entries before being compacted.
+ * Several entry logs are compacted concurrently when there are several compactors, each of them compacting a log of
+ * a different ledger directory, and all of them sharing the same throttler.
+ */
+class EntryLogCompactionScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(EntryLogCompactionScheduler.class);
+
+    private final EntryLogger entryLogger;
+    private final ArrayDeque<AbstractLogCompactor> idleCompactors;
+    private final int numCompactors;
+    // null if the entry logs are compacted one at a time, by the garbage collector thread
+    private final ExecutorService executor;
+
+    private volatile int backlogLogs = 0;
+    private volatile long backlogBytes = 0;
+    private volatile int activeCompactions = 0;
+    private volatile long throughputBytesPerSecond = 0;
+
+    EntryLogCompactionScheduler(EntryLogger entryLogger, List<AbstractLogCompactor> compactors) {
+        this.entryLogger = entryLogger;
+        this.idleCompactors = new ArrayDeque<>(compactors);
+        this.numCompactors = compactors.size();
+        this.executor = numCompactors > 1
+                ? Executors.newFixedThreadPool(numCompactors, new DefaultThreadFactory("EntryLogCompaction"))
+                : null;
+    }
+
+    /**
+     * Score of an entry log: the bytes reclaimed per byte copied by its compaction, doubled for the oldest log.
+     *
+     * @param age the age of the log, relative to the other candidates, from 0 for the newest to 1 for the oldest
+     */
+    static double score(EntryLogMetadata meta, double age) {
+        long copied = meta.getRemainingSize();
+        long reclaimed = meta.getTotalSize() - copied;
+        return reclaimed / (double) Math.max(1L, copied) * (1 + age);
+    }
+
+    /**
+     * Compact the entry logs, by descending score, until they are all compacted, the time limit is reached, or the
+     * garbage collector stops running. This method returns once all the started compactions are completed.
+     *
+     * @param candidates the entry logs to compact
+     * @param maxTimeMillis time after which no more compaction is started, or a negative value for no limit
+     * @param running whether the garbage collector is still running
+     * @param onCompacted called by the calling thread for each entry log compacted
+     */
+    void compact(List<EntryLogMetadata> candidates, long maxTimeMillis, BooleanSupplier running,
+                 Consumer<EntryLogMetadata> onCompacted) {
+        if (candidates.isEmpty()) {
+            backlogLogs = 0;
+            backlogBytes = 0;
+            return;
+        }
+
+        long minLogId = Long.MAX_VALUE;
+        long maxLogId = Long.MIN_VALUE;
+        for (EntryLogMetadata meta : candidates) {
+            minLogId = Math.min(minLogId, meta.getEntryLogId());
+            maxLogId = Math.max(maxLogId, meta.getEntryLogId());
+        }
+        final long oldest = minLogId;
+        final double ageRange = Math.max(1L, maxLogId - minLogId);
+        Map<Long, Double> scores = new HashMap<>();
+        for (EntryLogMetadata meta : candidates) {
+            double age = (ageRange - (meta.getEntryLogId() - oldest)) / ageRange;
+            scores.put(meta.getEntryLogId(), score(meta, age));
+        }
+        List<EntryLogMetadata> queue = new ArrayList<>(candidates);
+        queue.sort(Comparator.comparingDouble((EntryLogMetadata meta) -> scores.get(meta.getEntryLogId()))
+                .reversed());
+
+        int pendingLogs = queue.size();
+        long pendingBytes = 0;
+        for (EntryLogMetadata meta : queue) {
+            pendingBytes += meta.getTotalSize() - meta.getRemainingSize();
+        }
+        backlogLogs = pendingLogs;
+        backlogBytes = pendingBytes;
+
+        long start = System.currentTimeMillis();
+        long copiedBytes = 0;
+        Set<File> busyDirs = new HashSet<>();
+        CompletionService<Compaction> completions = executor != null
+                ? new ExecutorCompletionService<>(executor) : null;
+        int inFlight = 0;
+
+        while (true) {
+            Compaction next = null;
+            boolean canStart = running.getAsBoolean()
+                    && (maxTimeMillis <= 0 || System.currentTimeMillis() - start < maxTimeMillis);
+            if (canStart && inFlight < numCompactors) {
+                next = pollNext(queue, busyDirs);
+            }
+
+            if (next != null) {
+                next.compactor = idleCompactors.poll();
+                busyDirs.add(next.dir);
+                if (completions == null) {
+                    next = next.call();
+                } else {
+                    completions.submit(next);
+                    inFlight++;
+                    activeCompactions = inFlight;
+                    continue;
+                }
+            } else if (inFlight > 0) {
+                next = takeCompleted(completions);
+                inFlight--;
+                activeCompactions = inFlight;
+            } else {
+                break;
+            }
+
+            idleCompactors.add(next.compactor);
+            busyDirs.remove(next.dir);
+            pendingLogs--;
+            pendingBytes -= next.meta.getTotalSize() - next.meta.getRemainingSize();
+            if (next.success) {
+                copiedBytes += next.meta.getRemainingSize();
+                onCompacted.accept(next.meta);
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            throughputBytesPerSecond = elapsed > 0 ? copiedBytes * 1000 / elapsed : 0;
+            backlogLogs = pendingLogs;
+            backlogBytes = pendingBytes;
+        }
+
+        if (LOG.isDebugEnabled() && !queue.isEmpty()) {
+            LOG.debug("Compaction stopped with {} entry logs left to compact", queue.size());
+        }
+    }
+
+    /**
+     * Wait for a compaction to complete. The started compactions must complete before the garbage collector
+     * thread can stop, so the interruptions are deferred.
+     */
+    private static Compaction takeCompleted(CompletionService<Compaction> completions) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return completions.take().get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // The compactions catch their own failures
+                    throw new IllegalStateException(e);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Pick the entry log with the highest score in a ledger directory without compaction in progress.
+     */
+    private Compaction pollNext(List<EntryLogMetadata> queue, Set<File> busyDirs) {
+        Iterator<EntryLogMetadata> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            EntryLogMetadata meta = iterator.next();
+            File dir;
+            try {
+                dir = entryLogger.getDirForLogId(meta.getEntryLogId());
+            } catch (FileNotFoundException e) {
+                // The entry log was removed in the meantime
+                iterator.remove();
+                continue;
+            }
+            if (!busyDirs.contains(dir)) {
+                iterator.remove();
+                return new Compaction(meta, dir);
+            }
+        }
+        return null;
+    }
+
+    int getBacklogLogs() {
+        return backlogLogs;
+    }
+
+    /**
+     * @return the space that would be reclaimed by compacting the entry logs left to compact
+     */
+    long getBacklogBytes() {
+        return backlogBytes;
+    }
+
+    int getActiveCompactions() {
+        return activeCompactions;
+    }
+
+    /**
+     * @return the bytes copied per second by the current or last compaction run
+     */
+    long getThroughputBytesPerSecond() {
+        return throughputBytesPerSecond;
+    }
+
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static class Compaction implements Callable<Compaction> {
+        final EntryLogMetadata meta;
+        final File dir;
+        AbstractLogCompactor compactor;
+        boolean success;
+
+        Compaction(EntryLogMetadata meta, File dir) {
+            this.meta = meta;
+            this.dir = dir;
+        }
+
+        @Override
+        public Compaction call() {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Compacting entry log {} with usage {} in {}", meta.getEntryLogId(), meta.getUsage(), dir);
+            }
+            try {
+                success = compactor.compact(meta);
+            } catch (Exception e) {
+                LOG.error("Failed to compact entry log {} due to unexpected error", meta.getEntryLogId(), e);
+            }
+            return this;
+        }
+    }
+}
@@ -35,6 +35,8 @@ import org.slf4j.LoggerFactory;
  * This is the basic entry log compactor to compact entry logs.
  * The compaction is done by scanning the old entry log file, copy the active ledgers to the
  * current entry logger and remove the old entry log when the scan is over.
+ * When the entries of the old entry log can be located from its footer index, the runs of consecutive
+ * entries of the active ledgers are transferred to the current entry logger without being read.
  */
 public class EntryLogCompactor extends AbstractLogCompactor {
     private static final Logger LOG = LoggerFactory.getLogger(EntryLogCompactor.class);
@@ -43,14 +45,25 @@ public class EntryLogCompactor extends AbstractLogCompactor {
     final EntryLogger entryLogger;
     final CompactableLedgerStorage ledgerStorage;
     private final int maxOutstandingRequests;
+    private final boolean transferEnabled;
 
     public EntryLogCompactor(
             ServerConfiguration conf,
             EntryLogger entryLogger,
             CompactableLedgerStorage ledgerStorage,
             LogRemovalListener logRemover) {
-        super(conf, logRemover);
+        this(conf, entryLogger, ledgerStorage, logRemover, new Throttler(conf));
+    }
+
+    EntryLogCompactor(
+            ServerConfiguration conf,
+            EntryLogger entryLogger,
+            CompactableLedgerStorage ledgerStorage,
+            LogRemovalListener logRemover,
+            Throttler throttler) {
+        super(conf, logRemover, throttler);
         this.maxOutstandingRequests = conf.getCompactionMaxOutstandingRequests();
+        this.transferEnabled = conf.isCompactionTransferEnabled();
         this.entryLogger = entryLogger;
         this.ledgerStorage = ledgerStorage;
     }
@@ -58,8 +71,11 @@ public class EntryLogCompactor extends AbstractLogCompactor {
     @Override
     public boolean compact(EntryLogMetadata entryLogMeta) {
         try {
-            entryLogger.scanEntryLog(entryLogMeta.getEntryLogId(),
-                scannerFactory.newScanner(entryLogMeta));
+            if (!transferEnabled || !entryLogger.transferEntryLog(entryLogMeta.getEntryLogId(),
+                    scannerFactory.newLocationScanner(entryLogMeta))) {
+                entryLogger.scanEntryLog(entryLogMeta.getEntryLogId(),
+                    scannerFactory.newScanner(entryLogMeta));
+            }
             scannerFactory.flush();
             LOG.info("Removing entry log {} after compaction", entryLogMeta.getEntryLogId());
             logRemovalListener.removeEntryLog(entryLogMeta.getEntryLogId());
@@ -106,6 +122,27 @@ public class EntryLogCompactor extends AbstractLogCompactor {
             };
         }
 
+        EntryLogger.EntryLocationScanner newLocationScanner(final EntryLogMetadata meta) {
+
+            return new EntryLogger.EntryLocationScanner() {
+                @Override
+                public boolean accept(long ledgerId) {
+                    return meta.containsLedger(ledgerId);
+                }
+
+                @Override
+                public void process(long ledgerId, long entryId, long newLocation, int entrySize)
+                        throws IOException {
+                    throttler.acquire(entrySize);
+
+                    if (offsets.size() > maxOutstandingRequests) {
+                        flush();
+                    }
+                    offsets.add(new EntryLocation(ledgerId, entryId, newLocation));
+                }
+            };
+        }
+
         void flush() throws IOException {
             if (offsets.isEmpty()) {
                 if (LOG.isDebugEnabled()) {
@@ -0,0 +1,279 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ENTRYLOGGER_SCOPE;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ENTRYLOG_COMPRESSED_BYTES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ENTRYLOG_COMPRESSION_INPUT_BYTES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ENTRYLOG_COMPRESSION_RATIO_PERCENT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ENTRYLOG_COMPRESSION_SKIPPED_ENTRIES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ENTRYLOG_COMPRESS_TIME;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ENTRYLOG_DECOMPRESS_TIME;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.compression.Snappy;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+import org.apache.bookkeeper.util.MathUtils;
+
+/**
+ * Compression of the entries stored in the entry logs.
+ *
+ * <p>The ledger id and the entry id of a compressed entry are kept uncompressed, so that the entry can still be
+ * identified without decompressing it. A compressed entry is stored as:
+ *
+ * <pre>
+ * size | COMPRESSED_ENTRY_FLAG: (4 bytes)
+ * ledger id: (8 bytes)
+ * entry id: (8 bytes)
+ * codec id: (1 byte)
+ * uncompressed size of the rest of the entry: (4 bytes)
+ * compressed blocks of up to BLOCK_SIZE bytes of the rest of the entry, each of them being:
+ *   compressed size of the block: (4 bytes)
+ *   compressed block
+ * </pre>
+ *
+ * <p>The flag is set on the size of the record, so that compressed and uncompressed entries can be mixed in the
+ * same entry log, and an entry that doesn't compress well is just stored as is. The entry logs that may contain
+ * compressed entries also have {@link EntryLogger#HEADER_FLAG_COMPRESSED_ENTRIES} set in their header.
+ */
+@StatsDoc(
+    name = ENTRYLOGGER_SCOPE,
+    category = CATEGORY_SERVER,
+    help = "Entry log compression stats"
+)
+class EntryLogCompression {
+
+    /**
+     * Codecs available to compress the entries.
+     */
+    enum Codec {
+        NONE(0),
+        SNAPPY(1);
+
+        final byte id;
+
+        Codec(int id) {
+            this.id = (byte) id;
+        }
+
+        static Codec fromId(byte id) throws IOException {
+            for (Codec codec : values()) {
+                if (codec.id == id) {
+                    return codec;
+                }
+            }
+            throw new IOException("Unknown entry log compression codec " + id);
+        }
+    }
+
+    static final int COMPRESSED_ENTRY_FLAG = 0x80000000;
+
+    // ledger id, entry id, codec id and uncompressed size
+    static final int COMPRESSED_ENTRY_HEADER_SIZE = 8 + 8 + 1 + 4;
+
+    // The entries are compressed in independent blocks, to bound the back-references of the codec
+    static final int BLOCK_SIZE = 32 * 1024;
+
+    private final Codec codec;
+    private final int minEntrySize;
+    private final ByteBufAllocator allocator;
+
+    @StatsDoc(
+        name = ENTRYLOG_COMPRESSION_INPUT_BYTES,
+        help = "Number of bytes of the entries that went through the compression, before compression"
+    )
+    private final Counter inputBytes;
+    @StatsDoc(
+        name = ENTRYLOG_COMPRESSED_BYTES,
+        help = "Number of bytes written to the entry logs for the entries that went through the compression"
+    )
+    private final Counter compressedBytes;
+    @StatsDoc(
+        name = ENTRYLOG_COMPRESSION_SKIPPED_ENTRIES,
+        help = "Number of entries stored uncompressed because they didn't compress well enough"
+    )
+    private final Counter skippedEntries;
+    @StatsDoc(
+        name = ENTRYLOG_COMPRESSION_RATIO_PERCENT,
+        help = "Size of the compressed entries in percent of their uncompressed size"
+    )
+    private final Gauge<Long> ratioGauge;
+    @StatsDoc(
+        name = ENTRYLOG_COMPRESS_TIME,
+        help = "Time spent to compress an entry"
+    )
+    private final OpStatsLogger compressStats;
+    @StatsDoc(
+        name = ENTRYLOG_DECOMPRESS_TIME,
+        help = "Time spent to decompress an entry"
+    )
+    private final OpStatsLogger decompressStats;
+
+    EntryLogCompression(Codec codec, int minEntrySize, ByteBufAllocator allocator, StatsLogger statsLogger) {
+        this.codec = codec;
+        this.minEntrySize = minEntrySize;
+        this.allocator = allocator;
+        this.inputBytes = statsLogger.getCounter(ENTRYLOG_COMPRESSION_INPUT_BYTES);
+        this.compressedBytes = statsLogger.getCounter(ENTRYLOG_COMPRESSED_BYTES);
+        this.skippedEntries = statsLogger.getCounter(ENTRYLOG_COMPRESSION_SKIPPED_ENTRIES);
+        this.compressStats = statsLogger.getOpStatsLogger(ENTRYLOG_COMPRESS_TIME);
+        this.decompressStats = statsLogger.getOpStatsLogger(ENTRYLOG_DECOMPRESS_TIME);
+        this.ratioGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 100L;
+            }
+
+            @Override
+            public Long getSample() {
+                long input = inputBytes.get();
+                return input == 0 ? 100L : compressedBytes.get() * 100 / input;
+            }
+        };
+        statsLogger.registerGauge(ENTRYLOG_COMPRESSION_RATIO_PERCENT, ratioGauge);
+    }
+
+    static Codec parseCodec(String name) {
+        try {
+            return Codec.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown entry log compression codec: " + name);
+        }
+    }
+
+    boolean isEnabled() {
+        return codec != Codec.NONE;
+    }
+
+    static boolean isCompressed(int entrySizeField) {
+        return (entrySizeField & COMPRESSED_ENTRY_FLAG) != 0;
+    }
+
+    /**
+     * @return the size of the stored entry, without the compression flag
+     */
+    static int storedEntrySize(int entrySizeField) {
+        return entrySizeField & ~COMPRESSED_ENTRY_FLAG;
+    }
+
+    /**
+     * Compress an entry before adding it to an entry log.
+     *
+     * <p>Only the entries that shrink by at least an eighth are compressed, since the others would cost CPU on every
+     * read for little disk space.
+     *
+     * @return the compressed entry, to be stored with {@link #COMPRESSED_ENTRY_FLAG} set on its size, or null if the
+     *         entry must be stored as is
+     */
+    ByteBuf compress(ByteBuf entry) {
+        int entrySize = entry.readableBytes();
+        if (codec == Codec.NONE || entrySize < Math.max(minEntrySize, EntryLogger.MIN_SANE_ENTRY_SIZE)) {
+            return null;
+        }
+
+        long startTime = MathUtils.nowInNano();
+        int payloadSize = entrySize - 16;
+        ByteBuf compressed = allocator.buffer(COMPRESSED_ENTRY_HEADER_SIZE + payloadSize);
+        boolean success = false;
+        try {
+            compressed.writeBytes(entry, entry.readerIndex(), 16);
+            compressed.writeByte(codec.id);
+            compressed.writeInt(payloadSize);
+            Snappy snappy = new Snappy();
+            for (int offset = 0; offset < payloadSize; offset += BLOCK_SIZE) {
+                int blockSize = Math.min(BLOCK_SIZE, payloadSize - offset);
+                int lengthIndex = compressed.writerIndex();
+                compressed.writeInt(0);
+                snappy.encode(entry.slice(entry.readerIndex() + 16 + offset, blockSize), compressed, blockSize);
+                compressed.setInt(lengthIndex, compressed.writerIndex() - lengthIndex - 4);
+            }
+
+            compressStats.registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+
+            inputBytes.add(entrySize);
+            if (compressed.readableBytes() > entrySize - entrySize / 8) {
+                skippedEntries.inc();
+                compressedBytes.add(entrySize);
+                return null;
+            }
+            compressedBytes.add(compressed.readableBytes());
+            success = true;
+            return compressed;
+        } finally {
+            if (!success) {
+                compressed.release();
+            }
+        }
+    }
+
+    /**
+     * Decompress an entry read from an entry log. The compressed entry is not released.
+     *
+     * @param compressed the stored entry, starting with its ledger id
+     * @return the original entry
+     */
+    ByteBuf decompress(ByteBuf compressed) throws IOException {
+        long startTime = MathUtils.nowInNano();
+        if (compressed.readableBytes() < COMPRESSED_ENTRY_HEADER_SIZE) {
+            throw new IOException("Compressed entry too short: " + compressed.readableBytes() + " bytes");
+        }
+        int index = compressed.readerIndex();
+        Codec entryCodec = Codec.fromId(compressed.getByte(index + 16));
+        int payloadSize = compressed.getInt(index + 17);
+        if (entryCodec != Codec.SNAPPY || payloadSize < 0) {
+            throw new IOException("Invalid compressed entry: codec " + entryCodec + ", size " + payloadSize);
+        }
+
+        ByteBuf entry = allocator.buffer(16 + payloadSize, 16 + payloadSize);
+        try {
+            entry.writeBytes(compressed, index, 16);
+            Snappy snappy = new Snappy();
+            int blockIndex = index + COMPRESSED_ENTRY_HEADER_SIZE;
+            int end = compressed.writerIndex();
+            while (blockIndex < end) {
+                int blockLength = compressed.getInt(blockIndex);
+                snappy.reset();
+                snappy.decode(compressed.slice(blockIndex + 4, blockLength), entry);
+                blockIndex += 4 + blockLength;
+            }
+        } catch (RuntimeException e) {
+            entry.release();
+            throw new IOException("Failed to decompress entry " + compressed.getLong(index + 8) + " of ledger "
+                    + compressed.getLong(index), e);
+        }
+        if (entry.readableBytes() != 16 + payloadSize) {
+            entry.release();
+            throw new IOException("Corrupted compressed entry " + compressed.getLong(index + 8) + " of ledger "
+                    + compressed.getLong(index));
+        }
+        decompressStats.registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+        return entry;
+    }
+}
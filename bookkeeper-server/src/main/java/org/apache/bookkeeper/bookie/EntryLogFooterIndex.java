@@ -0,0 +1,309 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import static org.apache.bookkeeper.bookie.EntryLogger.INVALID_LID;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.apache.bookkeeper.bookie.EntryLogger.EntryLocationScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the entries of an entry log, appended to the log when it is sealed, so that the location of all its
+ * entries can be known without scanning the whole log.
+ *
+ * <p>The entries are indexed in runs of consecutive entries of a ledger, that are stored one after the other in the
+ * log. The runs are sorted by ledger id and entry id, and split into several records like the ledgers map. Each
+ * record is composed of:
+ *
+ * <pre>
+ * length: (4 bytes)
+ * ledger id (-1): (8 bytes)
+ * entry id (-3): (8 bytes)
+ * num runs stored in the record: (4 bytes)
+ * runs, each of them being:
+ *   ledger id: (8 bytes)
+ *   first entry id: (8 bytes)
+ *   offset of the first entry, including its size: (8 bytes)
+ *   num entries: (4 bytes)
+ *   stored size of each entry: (4 bytes each)
+ * </pre>
+ *
+ * <p>The records use an invalid ledger id, so they are skipped when scanning the log, and they are written before
+ * the ledgers map, which still extends to the end of the log for the versions that don't know about this index.
+ */
+class EntryLogFooterIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntryLogFooterIndex.class);
+
+    // EntryId used to mark an entry (belonging to INVALID_ID) as a component of the footer index
+    static final long FOOTER_INDEX_ENTRY_ID = -3L;
+
+    static final int RECORD_HEADER_SIZE = 4 + 8 + 8 + 4;
+    static final int RUN_HEADER_SIZE = 8 + 8 + 8 + 4;
+    static final int MAX_RUN_ENTRIES = 16 * 1024;
+    static final int MAX_RECORD_SIZE = RECORD_HEADER_SIZE + 16 * (RUN_HEADER_SIZE + 4 * MAX_RUN_ENTRIES);
+
+    // Bound the memory used for the index of a log. The logs with more entries are sealed without index
+    static final int MAX_INDEXED_ENTRIES = 4 * 1024 * 1024;
+
+    // Bound the memory used for the indexes of all the open logs, which can be many with entryLogPerLedgerEnabled.
+    // The indexes that can't grow within this budget are disabled, and their logs are sealed without index
+    static final long MAX_TOTAL_INDEX_BYTES = 128 * 1024 * 1024;
+    private static final AtomicLong totalIndexBytes = new AtomicLong();
+
+    private long[] runLedgerIds = new long[64];
+    private long[] runFirstEntryIds = new long[64];
+    private long[] runOffsets = new long[64];
+    private int[] runSizes = new int[64];
+    private int numRuns = 0;
+
+    private int[] entrySizes = new int[1024];
+    private int numEntries = 0;
+
+    // offset of the entry following the last one indexed, if it belongs to the same run
+    private long nextOffset = -1;
+    private boolean disabled = false;
+    // memory taken from the global budget, by growing the arrays beyond their initial capacity
+    private long reservedBytes = 0;
+
+    /**
+     * Index an entry added to the log.
+     *
+     * @param offset offset of the entry, including its size
+     * @param entrySize stored size of the entry
+     */
+    synchronized void addEntry(long ledgerId, long entryId, long offset, int entrySize) {
+        if (disabled) {
+            return;
+        }
+        if (numEntries == MAX_INDEXED_ENTRIES) {
+            disable();
+            return;
+        }
+
+        int last = numRuns - 1;
+        if (last < 0 || offset != nextOffset || runLedgerIds[last] != ledgerId
+                || runFirstEntryIds[last] + runSizes[last] != entryId || runSizes[last] == MAX_RUN_ENTRIES) {
+            if (numRuns == runLedgerIds.length) {
+                if (!reserve((long) numRuns * RUN_HEADER_SIZE)) {
+                    disable();
+                    return;
+                }
+                int capacity = numRuns * 2;
+                runLedgerIds = Arrays.copyOf(runLedgerIds, capacity);
+                runFirstEntryIds = Arrays.copyOf(runFirstEntryIds, capacity);
+                runOffsets = Arrays.copyOf(runOffsets, capacity);
+                runSizes = Arrays.copyOf(runSizes, capacity);
+            }
+            runLedgerIds[numRuns] = ledgerId;
+            runFirstEntryIds[numRuns] = entryId;
+            runOffsets[numRuns] = offset;
+            runSizes[numRuns] = 0;
+            numRuns++;
+        }
+        runSizes[numRuns - 1]++;
+
+        if (numEntries == entrySizes.length) {
+            if (!reserve(numEntries * 4L)) {
+                disable();
+                return;
+            }
+            entrySizes = Arrays.copyOf(entrySizes, numEntries * 2);
+        }
+        entrySizes[numEntries++] = entrySize;
+        nextOffset = offset + 4 + entrySize;
+    }
+
+    /**
+     * Stop indexing the entries, so that the log is sealed without index.
+     */
+    synchronized void disable() {
+        disabled = true;
+        runLedgerIds = runFirstEntryIds = runOffsets = null;
+        runSizes = entrySizes = null;
+        releaseReserved();
+    }
+
+    private boolean reserve(long bytes) {
+        if (totalIndexBytes.addAndGet(bytes) > MAX_TOTAL_INDEX_BYTES) {
+            totalIndexBytes.addAndGet(-bytes);
+            return false;
+        }
+        reservedBytes += bytes;
+        return true;
+    }
+
+    private void releaseReserved() {
+        totalIndexBytes.addAndGet(-reservedBytes);
+        reservedBytes = 0;
+    }
+
+    /**
+     * Append the index to the log. The index must not be used anymore once written.
+     *
+     * @return the offset of the index in the log, or 0 if the log has no index
+     */
+    synchronized long write(BufferedChannel bc, ByteBufAllocator allocator) throws IOException {
+        if (disabled || numRuns == 0) {
+            return 0L;
+        }
+
+        // Offset of the sizes of each run, in the order they were added
+        int[] sizesOffsets = new int[numRuns];
+        for (int i = 1; i < numRuns; i++) {
+            sizesOffsets[i] = sizesOffsets[i - 1] + runSizes[i - 1];
+        }
+        int[] sortedRuns = IntStream.range(0, numRuns).boxed()
+                .sorted(Comparator.<Integer>comparingLong(i -> runLedgerIds[i])
+                        .thenComparingLong(i -> runFirstEntryIds[i]))
+                .mapToInt(Integer::intValue).toArray();
+
+        long indexOffset = bc.position();
+        ByteBuf record = allocator.buffer(MAX_RECORD_SIZE);
+        try {
+            int next = 0;
+            while (next < numRuns) {
+                record.clear();
+                record.writeInt(0);
+                record.writeLong(INVALID_LID);
+                record.writeLong(FOOTER_INDEX_ENTRY_ID);
+                record.writeInt(0);
+
+                int runsInRecord = 0;
+                while (next < numRuns) {
+                    int run = sortedRuns[next];
+                    if (record.writerIndex() + RUN_HEADER_SIZE + 4 * runSizes[run] > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    record.writeLong(runLedgerIds[run]);
+                    record.writeLong(runFirstEntryIds[run]);
+                    record.writeLong(runOffsets[run]);
+                    record.writeInt(runSizes[run]);
+                    for (int i = 0; i < runSizes[run]; i++) {
+                        record.writeInt(entrySizes[sizesOffsets[run] + i]);
+                    }
+                    runsInRecord++;
+                    next++;
+                }
+
+                record.setInt(0, record.readableBytes() - 4);
+                record.setInt(RECORD_HEADER_SIZE - 4, runsInRecord);
+                bc.write(record);
+            }
+        } finally {
+            record.release();
+        }
+        releaseReserved();
+        return indexOffset;
+    }
+
+    /**
+     * Read the index of a log and pass all the entries it contains to the scanner. The index is validated before
+     * any entry is passed to the scanner.
+     *
+     * @param indexOffset offset of the index in the log
+     * @param indexEnd end of the index in the log, where the ledgers map starts
+     * @return false if the index could not be read, in which case no entry was passed to the scanner
+     */
+    static boolean read(long logId, BufferedReadChannel bc, long indexOffset, long indexEnd,
+                        ByteBufAllocator allocator, EntryLocationScanner scanner) throws IOException {
+        long length = indexEnd - indexOffset;
+        if (indexOffset < EntryLogger.LOGFILE_HEADER_SIZE || length <= 0 || length > Integer.MAX_VALUE) {
+            LOG.warn("Invalid footer index in entry log {} at {} ending at {}", logId, indexOffset, indexEnd);
+            return false;
+        }
+
+        ByteBuf index = allocator.buffer((int) length, (int) length);
+        try {
+            try {
+                if (bc.read(index, indexOffset, (int) length) != length) {
+                    throw new IOException("Short read at " + indexOffset);
+                }
+                validate(index);
+            } catch (IOException e) {
+                LOG.warn("Failed to read the footer index of entry log {} : {}", logId, e.getMessage());
+                return false;
+            }
+
+            while (index.isReadable()) {
+                index.skipBytes(RECORD_HEADER_SIZE - 4);
+                int runsInRecord = index.readInt();
+                for (int i = 0; i < runsInRecord; i++) {
+                    long ledgerId = index.readLong();
+                    long firstEntryId = index.readLong();
+                    long offset = index.readLong();
+                    int runSize = index.readInt();
+                    if (!scanner.accept(ledgerId)) {
+                        index.skipBytes(4 * runSize);
+                        continue;
+                    }
+                    for (int j = 0; j < runSize; j++) {
+                        int entrySize = index.readInt();
+                        scanner.process(ledgerId, firstEntryId + j, offset, entrySize);
+                        offset += 4 + entrySize;
+                    }
+                }
+            }
+            return true;
+        } finally {
+            index.release();
+        }
+    }
+
+    private static void validate(ByteBuf index) throws IOException {
+        int pos = index.readerIndex();
+        int end = index.writerIndex();
+        while (pos < end) {
+            if (end - pos < RECORD_HEADER_SIZE) {
+                throw new IOException("Truncated footer index record");
+            }
+            int recordEnd = pos + 4 + index.getInt(pos);
+            if (recordEnd > end || recordEnd < pos + RECORD_HEADER_SIZE
+                    || index.getLong(pos + 4) != INVALID_LID || index.getLong(pos + 12) != FOOTER_INDEX_ENTRY_ID) {
+                throw new IOException("Invalid footer index record");
+            }
+            int runsInRecord = index.getInt(pos + 20);
+            pos += RECORD_HEADER_SIZE;
+            for (int i = 0; i < runsInRecord; i++) {
+                if (recordEnd - pos < RUN_HEADER_SIZE) {
+                    throw new IOException("Truncated footer index run");
+                }
+                int runSize = index.getInt(pos + RUN_HEADER_SIZE - 4);
+                if (runSize < 0 || runSize > (recordEnd - pos - RUN_HEADER_SIZE) / 4) {
+                    throw new IOException("Invalid footer index run size " + runSize);
+                }
+                pos += RUN_HEADER_SIZE + 4 * runSize;
+            }
+            if (pos != recordEnd) {
+                throw new IOException("Invalid footer index record size");
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ package org.apache.bookkeeper.bookie;
 import io.netty.buffer.ByteBuf;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.List;
 
 import org.apache.bookkeeper.bookie.EntryLogger.BufferedLogChannel;
@@ -32,9 +33,19 @@ interface EntryLogManager {
 
     /*
      * add entry to the corresponding entrylog and return the position of
-     * the entry in the entrylog
+     * the entry in the entrylog. If compressed is true, the entry has been
+     * compressed with EntryLogCompression and it is flagged as such.
      */
-    long addEntry(long ledger, ByteBuf entry, boolean rollLog) throws IOException;
+    long addEntry(long ledger, ByteBuf entry, boolean compressed, boolean rollLog) throws IOException;
+
+    /*
+     * copy a run of consecutive entries of the ledger, stored with their size
+     * at srcPosition in src, to the corresponding entrylog and return the
+     * position of the first entry in the entrylog. The position of the next
+     * entries follows from their sizes.
+     */
+    long transferEntries(long ledger, FileChannel src, long srcPosition, int length, long firstEntryId,
+                         int[] entrySizes, int numEntries) throws IOException;
 
     /*
      * gets the active logChannel with the given entryLogId. null if it is
@@ -29,6 +29,7 @@ import io.netty.buffer.Unpooled;
 import io.netty.util.concurrent.FastThreadLocal;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.bookie.EntryLogger.BufferedLogChannel;
@@ -67,21 +68,37 @@ abstract class EntryLogManagerBase implements EntryLogManager {
      * should be in the right scope of the lock.
      */
     @Override
-    public long addEntry(long ledger, ByteBuf entry, boolean rollLog) throws IOException {
+    public long addEntry(long ledger, ByteBuf entry, boolean compressed, boolean rollLog) throws IOException {
         int entrySize = entry.readableBytes() + 4; // Adding 4 bytes to prepend the size
         BufferedLogChannel logChannel = getCurrentLogForLedgerForAddEntry(ledger, entrySize, rollLog);
         ByteBuf sizeBuffer = sizeBufferForAdd.get();
         sizeBuffer.clear();
-        sizeBuffer.writeInt(entry.readableBytes());
+        sizeBuffer.writeInt(compressed
+                ? entry.readableBytes() | EntryLogCompression.COMPRESSED_ENTRY_FLAG : entry.readableBytes());
         logChannel.write(sizeBuffer);
 
         long pos = logChannel.position();
         logChannel.write(entry);
-        logChannel.registerWrittenEntry(ledger, entrySize);
+        logChannel.registerWrittenEntry(ledger, pos, entry);
 
         return (logChannel.getLogId() << 32L) | pos;
     }
 
+    /*
+     * This method should be guarded by a lock, so callers of this method
+     * should be in the right scope of the lock.
+     */
+    @Override
+    public long transferEntries(long ledger, FileChannel src, long srcPosition, int length, long firstEntryId,
+                                int[] entrySizes, int numEntries) throws IOException {
+        BufferedLogChannel logChannel = getCurrentLogForLedgerForAddEntry(ledger, length, true);
+        long pos = logChannel.position();
+        logChannel.transferFrom(src, srcPosition, length);
+        logChannel.registerTransferredEntries(ledger, firstEntryId, pos, entrySizes, numEntries);
+
+        return (logChannel.getLogId() << 32L) | (pos + 4);
+    }
+
     boolean reachEntryLogLimit(BufferedLogChannel logChannel, long size) {
         if (logChannel == null) {
             return false;
@@ -172,6 +189,7 @@ abstract class EntryLogManagerBase implements EntryLogManager {
     }
 
     File selectDirForNextEntryLog() throws NoWritableLedgerDirException {
-        return getDirForNextEntryLog(ledgerDirsManager.getWritableLedgerDirsForNewLog());
+        List<File> dirs = ledgerDirsManager.preferHotLedgerDirs(ledgerDirsManager.getWritableLedgerDirsForNewLog());
+        return getDirForNextEntryLog(ledgerDirsManager.preferHealthyLedgerDirs(dirs));
     }
 }
@@ -41,6 +41,7 @@ import io.netty.buffer.ByteBuf;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -619,11 +620,23 @@ class EntryLogManagerForEntryLogPerLedger extends EntryLogManagerBase {
     }
 
     @Override
-    public long addEntry(long ledger, ByteBuf entry, boolean rollLog) throws IOException {
+    public long addEntry(long ledger, ByteBuf entry, boolean compressed, boolean rollLog) throws IOException {
         Lock lock = getLock(ledger);
         lock.lock();
         try {
-            return super.addEntry(ledger, entry, rollLog);
+            return super.addEntry(ledger, entry, compressed, rollLog);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long transferEntries(long ledger, FileChannel src, long srcPosition, int length, long firstEntryId,
+                                int[] entrySizes, int numEntries) throws IOException {
+        Lock lock = getLock(ledger);
+        lock.lock();
+        try {
+            return super.transferEntries(ledger, src, srcPosition, length, firstEntryId, entrySizes, numEntries);
         } finally {
             lock.unlock();
         }
@@ -27,6 +27,7 @@ import static org.apache.bookkeeper.bookie.EntryLogger.UNASSIGNED_LEDGERID;
 import io.netty.buffer.ByteBuf;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -83,8 +84,16 @@ class EntryLogManagerForSingleEntryLog extends EntryLogManagerBase {
     }
 
     @Override
-    public synchronized long addEntry(long ledger, ByteBuf entry, boolean rollLog) throws IOException {
-        return super.addEntry(ledger, entry, rollLog);
+    public synchronized long addEntry(long ledger, ByteBuf entry, boolean compressed, boolean rollLog)
+            throws IOException {
+        return super.addEntry(ledger, entry, compressed, rollLog);
+    }
+
+    @Override
+    public synchronized long transferEntries(long ledger, FileChannel src, long srcPosition, int length,
+                                             long firstEntryId, int[] entrySizes, int numEntries)
+            throws IOException {
+        return super.transferEntries(ledger, src, srcPosition, length, firstEntryId, entrySizes, numEntries);
     }
 
     @Override
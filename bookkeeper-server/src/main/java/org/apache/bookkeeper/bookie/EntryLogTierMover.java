@@ -0,0 +1,176 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import com.google.common.util.concurrent.RateLimiter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves the entry logs from the hot ledger dirs, on the fast storage tier, to the cold ledger dirs, on the slow
+ * storage tier, once they are older than {@link ServerConfiguration#getColdEntryLogAgeThreshold()}.
+ *
+ * <p>The entry logs keep their id when moved, so the locations of their entries don't change and the index doesn't
+ * have to be updated. The mover runs in the garbage collector thread, so that an entry log is never moved while it
+ * is compacted or removed. The channels opened on a moved entry log are closed on the next run, to let the reads in
+ * progress complete on the removed file, which only frees its space on the hot ledger dir at that time.
+ */
+class EntryLogTierMover {
+    private static final Logger LOG = LoggerFactory.getLogger(EntryLogTierMover.class);
+
+    private final EntryLogger entryLogger;
+    private final LedgerDirsManager ledgerDirsManager;
+    private final long ageThresholdMillis;
+    private final RateLimiter rateLimiter;
+    private final Counter movedEntryLogs;
+    private final Counter movedBytes;
+
+    // The entry logs moved by the previous run, whose channels are still opened on the removed files
+    private List<Long> entryLogsToClose = new ArrayList<>();
+
+    EntryLogTierMover(ServerConfiguration conf, EntryLogger entryLogger, LedgerDirsManager ledgerDirsManager,
+                      Counter movedEntryLogs, Counter movedBytes) {
+        this.entryLogger = entryLogger;
+        this.ledgerDirsManager = ledgerDirsManager;
+        this.ageThresholdMillis = TimeUnit.SECONDS.toMillis(conf.getColdEntryLogAgeThreshold());
+        this.rateLimiter = RateLimiter.create(conf.getColdEntryLogMoveRateByBytes());
+        this.movedEntryLogs = movedEntryLogs;
+        this.movedBytes = movedBytes;
+        cleanUp();
+    }
+
+    /**
+     * Remove the copies left by the moves interrupted by a restart. An entry log is only renamed in a cold ledger
+     * dir once fully copied, so its copy left in a hot ledger dir can be removed.
+     */
+    private void cleanUp() {
+        for (File dir : ledgerDirsManager.getAllLedgerDirs()) {
+            File[] files = dir.listFiles((d, name) -> name.endsWith(EntryLogger.MOVING_SUFFIX));
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                LOG.info("Removing the partial copy of entry log {}", file);
+                if (!file.delete()) {
+                    LOG.warn("Could not delete {}", file);
+                }
+            }
+        }
+        for (File coldDir : ledgerDirsManager.getAllLedgerDirs()) {
+            if (!ledgerDirsManager.isColdLedgerDir(coldDir)) {
+                continue;
+            }
+            File[] logs = coldDir.listFiles((d, name) -> name.endsWith(".log"));
+            if (logs == null) {
+                continue;
+            }
+            for (File log : logs) {
+                for (File dir : ledgerDirsManager.getAllLedgerDirs()) {
+                    File copy = new File(dir, log.getName());
+                    if (!ledgerDirsManager.isColdLedgerDir(dir) && copy.exists()) {
+                        LOG.info("Removing entry log {} already moved to {}", copy, coldDir);
+                        if (!copy.delete()) {
+                            LOG.warn("Could not delete {}", copy);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the entry logs old enough from the hot ledger dirs to the cold ledger dirs.
+     *
+     * @param entryLogIds the sealed entry logs
+     * @param running whether the garbage collector is still running
+     */
+    void moveColdEntryLogs(Iterable<Long> entryLogIds, BooleanSupplier running) {
+        for (long entryLogId : entryLogsToClose) {
+            entryLogger.removeFromChannelsAndClose(entryLogId);
+        }
+        entryLogsToClose = new ArrayList<>();
+
+        long now = System.currentTimeMillis();
+        for (long entryLogId : entryLogIds) {
+            if (!running.getAsBoolean()) {
+                return;
+            }
+            File dir;
+            try {
+                dir = entryLogger.getDirForLogId(entryLogId);
+            } catch (FileNotFoundException e) {
+                // The entry log was removed in the meantime
+                continue;
+            }
+            if (ledgerDirsManager.isColdLedgerDir(dir)) {
+                continue;
+            }
+            File logFile = new File(dir, Long.toHexString(entryLogId) + ".log");
+            if (now - logFile.lastModified() < ageThresholdMillis) {
+                continue;
+            }
+
+            File coldDir = pickColdDir(logFile.length());
+            if (coldDir == null) {
+                LOG.warn("No cold ledger dir with enough space to move entry log {}", entryLogId);
+                return;
+            }
+            try {
+                long size = logFile.length();
+                entryLogger.moveEntryLog(entryLogId, coldDir, rateLimiter);
+                entryLogsToClose.add(entryLogId);
+                movedEntryLogs.inc();
+                movedBytes.add(size);
+                LOG.info("Moved entry log {} from {} to {}", entryLogId, dir, coldDir);
+            } catch (IOException e) {
+                LOG.warn("Failed to move entry log {} to {}", entryLogId, coldDir, e);
+            }
+        }
+    }
+
+    /**
+     * Pick the writable cold ledger dir with the most usable space.
+     *
+     * @return the cold ledger dir, or null if none of them can hold the entry log
+     */
+    private File pickColdDir(long size) {
+        File coldDir = null;
+        long maxUsableSpace = size;
+        for (File dir : ledgerDirsManager.getWritableColdLedgerDirs()) {
+            long usableSpace = dir.getUsableSpace();
+            if (usableSpace > maxUsableSpace) {
+                coldDir = dir;
+                maxUsableSpace = usableSpace;
+            }
+        }
+        return coldDir;
+    }
+}
@@ -27,11 +27,14 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
 import io.netty.util.concurrent.FastThreadLocal;
 import java.io.BufferedReader;
 import java.io.File;
@@ -44,7 +47,10 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -62,6 +68,7 @@ import org.apache.bookkeeper.util.DiskChecker;
 import org.apache.bookkeeper.util.IOUtils;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongHashMap;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongHashMap.BiConsumerLong;
+import org.apache.commons.lang3.mutable.MutableInt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,6 +93,10 @@ public class EntryLogger {
         private final EntryLogMetadata entryLogMetadata;
         private final File logFile;
         private long ledgerIdAssigned = UNASSIGNED_LEDGERID;
+        // null if the entries are not indexed in the footer of the log
+        private volatile EntryLogFooterIndex footerIndex;
+        // null if the writes of the log are not accounted in the load of its ledger dir
+        private volatile LedgerDirLoad dirLoad;
 
         public BufferedLogChannel(ByteBufAllocator allocator, FileChannel fc, int writeCapacity, int readCapacity,
                 long logId, File logFile, long unpersistedBytesBound) throws IOException {
@@ -94,6 +105,15 @@ public class EntryLogger {
             this.entryLogMetadata = new EntryLogMetadata(logId);
             this.logFile = logFile;
         }
+
+        protected BufferedLogChannel(FileChannel fc, ByteBuf writeBuffer, int readCapacity,
+                long logId, File logFile, long unpersistedBytesBound) throws IOException {
+            super(fc, writeBuffer, readCapacity, unpersistedBytesBound);
+            this.logId = logId;
+            this.entryLogMetadata = new EntryLogMetadata(logId);
+            this.logFile = logFile;
+        }
+
         public long getLogId() {
             return logId;
         }
@@ -102,8 +122,97 @@ public class EntryLogger {
             return logFile;
         }
 
-        public void registerWrittenEntry(long ledgerId, long entrySize) {
-            entryLogMetadata.addLedgerSize(ledgerId, entrySize);
+        void enableFooterIndex() {
+            this.footerIndex = new EntryLogFooterIndex();
+        }
+
+        void setDirLoad(LedgerDirLoad dirLoad) {
+            this.dirLoad = dirLoad;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            EntryLogFooterIndex index = footerIndex;
+            if (index != null) {
+                // Give back the memory of the index of a log closed before being sealed
+                index.disable();
+                footerIndex = null;
+            }
+            super.close();
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            LedgerDirLoad load = dirLoad;
+            if (load == null) {
+                flushBuffer();
+                return;
+            }
+            long startNanos = load.startIo();
+            try {
+                flushBuffer();
+            } finally {
+                load.writeCompleted(startNanos);
+            }
+        }
+
+        /**
+         * Write the data of the buffer to the file.
+         */
+        protected void flushBuffer() throws IOException {
+            super.flush();
+        }
+
+        @Override
+        public long forceWrite(boolean forceMetadata) throws IOException {
+            LedgerDirLoad load = dirLoad;
+            if (load == null) {
+                return super.forceWrite(forceMetadata);
+            }
+            long startNanos = load.startIo();
+            try {
+                return super.forceWrite(forceMetadata);
+            } finally {
+                load.fsyncCompleted(startNanos);
+            }
+        }
+
+        /**
+         * Register an entry written to the log.
+         *
+         * @param pos position of the entry in the log, after its size
+         * @param entry the entry, as stored in the log
+         */
+        public void registerWrittenEntry(long ledgerId, long pos, ByteBuf entry) {
+            int entrySize = entry.readableBytes();
+            entryLogMetadata.addLedgerSize(ledgerId, entrySize + 4);
+
+            EntryLogFooterIndex index = footerIndex;
+            if (index != null) {
+                if (entrySize < MIN_SANE_ENTRY_SIZE) {
+                    index.disable();
+                } else {
+                    index.addEntry(ledgerId, entry.getLong(entry.readerIndex() + 8), pos - 4, entrySize);
+                }
+            }
+        }
+
+        /**
+         * Register a run of consecutive entries of a ledger transferred to the log.
+         *
+         * @param pos position of the first entry in the log, including its size
+         * @param entrySizes stored size of each entry, without the 4 bytes of its size
+         */
+        void registerTransferredEntries(long ledgerId, long firstEntryId, long pos, int[] entrySizes,
+                                        int numEntries) {
+            EntryLogFooterIndex index = footerIndex;
+            for (int i = 0; i < numEntries; i++) {
+                entryLogMetadata.addLedgerSize(ledgerId, entrySizes[i] + 4);
+                if (index != null) {
+                    index.addEntry(ledgerId, firstEntryId + i, pos, entrySizes[i]);
+                }
+                pos += 4 + entrySizes[i];
+            }
         }
 
         public ConcurrentLongLongHashMap getLedgersMap() {
@@ -128,11 +237,19 @@ public class EntryLogger {
         }
 
         /**
-         * Append the ledger map at the end of the entry log.
-         * Updates the entry log file header with the offset and size of the map.
+         * Append the ledger map at the end of the entry log, preceded by the footer index of the entries if they
+         * were indexed.
+         * Updates the entry log file header with the offset and size of the map, and the offset of the index.
          */
         void appendLedgersMap() throws IOException {
 
+            long footerIndexOffset = 0L;
+            EntryLogFooterIndex index = footerIndex;
+            if (index != null) {
+                footerIndexOffset = index.write(this, ByteBufAllocator.DEFAULT);
+                footerIndex = null;
+            }
+
             long ledgerMapOffset = this.position();
 
             ConcurrentLongLongHashMap ledgersMap = this.getLedgersMap();
@@ -193,7 +310,7 @@ public class EntryLogger {
             // Flush the ledger's map out before we write the header.
             // Otherwise the header might point to something that is not fully
             // written
-            super.flush();
+            flush();
 
             // Update the headers with the map offset and count of ledgers
             ByteBuffer mapInfo = ByteBuffer.allocate(8 + 4);
@@ -201,6 +318,13 @@ public class EntryLogger {
             mapInfo.putInt(numberOfLedgers);
             mapInfo.flip();
             this.fileChannel.write(mapInfo, LEDGERS_MAP_OFFSET_POSITION);
+
+            if (footerIndexOffset != 0L) {
+                ByteBuffer indexInfo = ByteBuffer.allocate(8);
+                indexInfo.putLong(footerIndexOffset);
+                indexInfo.flip();
+                this.fileChannel.write(indexInfo, HEADER_FOOTER_INDEX_OFFSET_POSITION);
+            }
         }
     }
 
@@ -218,22 +342,34 @@ public class EntryLogger {
 
     final EntryLoggerAllocator entryLoggerAllocator;
     private final EntryLogManager entryLogManager;
+    // null if the entry logs are not accessed with direct I/O
+    private final DirectIOReadCache directIOReadCache;
+    // null if the sealed entry logs are not read through memory mappings
+    private final MappedEntryLogCache mappedEntryLogs;
 
     private final CopyOnWriteArrayList<EntryLogListener> listeners = new CopyOnWriteArrayList<EntryLogListener>();
 
     private static final int HEADER_V0 = 0; // Old log file format (no ledgers map index)
-    private static final int HEADER_V1 = 1; // Introduced ledger map index
-    static final int HEADER_CURRENT_VERSION = HEADER_V1;
+    static final int HEADER_V1 = 1; // Introduced ledger map index
+    static final int HEADER_V2 = 2; // Introduced header flags
+    static final int HEADER_CURRENT_VERSION = HEADER_V2;
+
+    // The entry log may contain compressed entries
+    static final int HEADER_FLAG_COMPRESSED_ENTRIES = 0x1;
 
     private static class Header {
         final int version;
         final long ledgersMapOffset;
         final int ledgersCount;
+        final int flags;
+        final long footerIndexOffset;
 
-        Header(int version, long ledgersMapOffset, int ledgersCount) {
+        Header(int version, long ledgersMapOffset, int ledgersCount, int flags, long footerIndexOffset) {
             this.version = version;
             this.ledgersMapOffset = ledgersMapOffset;
             this.ledgersCount = ledgersCount;
+            this.flags = flags;
+            this.footerIndexOffset = footerIndexOffset;
         }
     }
 
@@ -247,13 +383,21 @@ public class EntryLogger {
      * Log file HeaderVersion enum: 4 bytes
      * Ledger map offset: 8 bytes
      * Ledgers Count: 4 bytes
+     * Flags: 4 bytes (since V2)
+     * Footer index offset: 8 bytes (0 if the log has no {@link EntryLogFooterIndex})
      * </pre>
+     *
+     * <p>The logs are only written with the V2 header when they use a feature flagged in the header. The footer
+     * index offset is ignored by the versions that don't know about it, and is 0 in the logs they write, so it
+     * doesn't need a new version.
      */
     static final int LOGFILE_HEADER_SIZE = 1024;
     final ByteBuf logfileHeader = Unpooled.buffer(LOGFILE_HEADER_SIZE);
 
     static final int HEADER_VERSION_POSITION = 4;
     static final int LEDGERS_MAP_OFFSET_POSITION = HEADER_VERSION_POSITION + 4;
+    static final int HEADER_FLAGS_POSITION = LEDGERS_MAP_OFFSET_POSITION + 8 + 4;
+    static final int HEADER_FOOTER_INDEX_OFFSET_POSITION = HEADER_FLAGS_POSITION + 4;
 
     /**
      * Ledgers map is composed of multiple parts that can be split into separated entries. Each of them is composed of:
@@ -280,10 +424,19 @@ public class EntryLogger {
     static final int MIN_SANE_ENTRY_SIZE = 8 + 8;
     static final long MB = 1024 * 1024;
 
+    // Bound the runs of entries copied at once by the compaction, that hold the lock of the entry log they are
+    // copied to
+    static final int MAX_TRANSFER_SIZE = 1024 * 1024;
+
+    // Suffix of an entry log being copied to another ledger dir
+    static final String MOVING_SUFFIX = ".moving";
+
     private final int maxSaneEntrySize;
 
     private final ByteBufAllocator allocator;
 
+    private final EntryLogCompression compression;
+
     final ServerConfiguration conf;
     /**
      * Scan entries in a entry log file.
@@ -313,6 +466,36 @@ public class EntryLogger {
         void process(long ledgerId, long offset, ByteBuf entry) throws IOException;
     }
 
+    /**
+     * Scan the locations of the entries of an entry log, from its footer index.
+     */
+    public interface EntryLocationScanner {
+        /**
+         * Tests whether or not the entries belongs to the specified ledger
+         * should be processed.
+         *
+         * @param ledgerId
+         *          Ledger ID.
+         * @return true if and only the entries of the ledger should be scanned.
+         */
+        boolean accept(long ledgerId);
+
+        /**
+         * Process the location of an entry.
+         *
+         * @param ledgerId
+         *          Ledger ID.
+         * @param entryId
+         *          Entry ID.
+         * @param offset
+         *          File offset of this entry, as passed to {@link EntryLogScanner#process}.
+         * @param entrySize
+         *          Size of the entry as stored in the entry log, without the 4 bytes of its size.
+         * @throws IOException
+         */
+        void process(long ledgerId, long entryId, long offset, int entrySize) throws IOException;
+    }
+
     /**
      * Entry Log Listener.
      */
@@ -372,8 +555,37 @@ public class EntryLogger {
             }
         }
         this.recentlyCreatedEntryLogsStatus = new RecentEntryLogsStatus(logId + 1);
+        boolean directIOEnabled = conf.isEntryLogDirectIOEnabled();
+        if (directIOEnabled) {
+            for (File dir : ledgerDirsManager.getAllLedgerDirs()) {
+                if (!DirectIO.isSupported(dir)) {
+                    LOG.warn("Direct I/O is not supported for {}, falling back to buffered I/O for the entry logs",
+                            dir);
+                    directIOEnabled = false;
+                    break;
+                }
+            }
+        }
+        if (directIOEnabled) {
+            LOG.info("Using direct I/O for the entry logs");
+            this.directIOReadCache = new DirectIOReadCache(conf.getEntryLogDirectIOReadBlockSize(),
+                    conf.getEntryLogDirectIOReadCacheSize(), statsLogger);
+        } else {
+            this.directIOReadCache = null;
+        }
+        this.compression = new EntryLogCompression(
+                EntryLogCompression.parseCodec(conf.getEntryLogCompressionCodec()),
+                conf.getEntryLogCompressionMinEntrySize(), allocator, statsLogger);
+        if (compression.isEnabled()) {
+            LOG.info("Compressing the entry log entries with {}", conf.getEntryLogCompressionCodec());
+        }
         this.entryLoggerAllocator = new EntryLoggerAllocator(conf, ledgerDirsManager, recentlyCreatedEntryLogsStatus,
-                logId, allocator);
+                logId, allocator, directIOEnabled, compression.isEnabled());
+        if (conf.isEntryLogMmapReadEnabled()) {
+            this.mappedEntryLogs = new MappedEntryLogCache(conf.getEntryLogMmapMaxMappedLogs());
+        } else {
+            this.mappedEntryLogs = null;
+        }
         if (entryLogPerLedgerEnabled) {
             this.entryLogManager = new EntryLogManagerForEntryLogPerLedger(conf, ledgerDirsManager,
                     entryLoggerAllocator, listeners, recentlyCreatedEntryLogsStatus, statsLogger);
@@ -466,6 +678,12 @@ public class EntryLogger {
                 LOG.warn("Exception while closing channel for log file:" + logId);
             }
         }
+        if (null != directIOReadCache) {
+            directIOReadCache.invalidate(logId);
+        }
+        if (null != mappedEntryLogs) {
+            mappedEntryLogs.invalidate(logId);
+        }
     }
 
     public BufferedReadChannel getFromChannels(long logId) {
@@ -615,15 +833,24 @@ public class EntryLogger {
     }
 
     long addEntry(long ledger, ByteBuffer entry) throws IOException {
-        return entryLogManager.addEntry(ledger, Unpooled.wrappedBuffer(entry), true);
+        return addEntry(ledger, Unpooled.wrappedBuffer(entry), true);
     }
 
     long addEntry(long ledger, ByteBuf entry) throws IOException {
-        return entryLogManager.addEntry(ledger, entry, true);
+        return addEntry(ledger, entry, true);
     }
 
     public long addEntry(long ledger, ByteBuf entry, boolean rollLog) throws IOException {
-        return entryLogManager.addEntry(ledger, entry, rollLog);
+        // Compress before taking the entry log locks
+        ByteBuf compressed = compression.compress(entry);
+        if (compressed == null) {
+            return entryLogManager.addEntry(ledger, entry, false, rollLog);
+        }
+        try {
+            return entryLogManager.addEntry(ledger, compressed, true, rollLog);
+        } finally {
+            compressed.release();
+        }
     }
 
     private final FastThreadLocal<ByteBuf> sizeBuffer = new FastThreadLocal<ByteBuf>() {
@@ -635,20 +862,31 @@ public class EntryLogger {
     };
 
     long addEntryForCompaction(long ledgerId, ByteBuf entry) throws IOException {
+        ByteBuf compressed = compression.compress(entry);
+        try {
+            return addEntryForCompaction(ledgerId, compressed != null ? compressed : entry, compressed != null);
+        } finally {
+            if (compressed != null) {
+                compressed.release();
+            }
+        }
+    }
+
+    private long addEntryForCompaction(long ledgerId, ByteBuf entry, boolean compressed) throws IOException {
         synchronized (compactionLogLock) {
-            int entrySize = entry.readableBytes() + 4;
             if (compactionLogChannel == null) {
                 createNewCompactionLog();
             }
 
             ByteBuf sizeBuffer = this.sizeBuffer.get();
             sizeBuffer.clear();
-            sizeBuffer.writeInt(entry.readableBytes());
+            sizeBuffer.writeInt(compressed
+                    ? entry.readableBytes() | EntryLogCompression.COMPRESSED_ENTRY_FLAG : entry.readableBytes());
             compactionLogChannel.write(sizeBuffer);
 
             long pos = compactionLogChannel.position();
             compactionLogChannel.write(entry);
-            compactionLogChannel.registerWrittenEntry(ledgerId, entrySize);
+            compactionLogChannel.registerWrittenEntry(ledgerId, pos, entry);
             return (compactionLogChannel.getLogId() << 32L) | pos;
         }
     }
@@ -679,6 +917,137 @@ public class EntryLogger {
         }
     }
 
+    /**
+     * Copy a run of consecutive entries of a ledger to an entry log.
+     */
+    private interface EntriesTransfer {
+        /**
+         * @return the location of the first entry copied
+         */
+        long transfer(long ledgerId, FileChannel src, long srcPosition, int length, long firstEntryId,
+                      int[] entrySizes, int numEntries) throws IOException;
+    }
+
+    /**
+     * Copy the entries of an entry log to the current entry logs, without reading them. The entries are located
+     * from the footer index of the log, and each run of consecutive entries is copied with
+     * {@link FileChannel#transferTo}.
+     *
+     * @param scanner selects the ledgers whose entries are copied, and receives the new location of each entry
+     *                copied, as returned by {@link #addEntry(long, ByteBuf)}, in place of its offset
+     * @return false if the entries of the log can't be located, in which case no entry was copied
+     */
+    boolean transferEntryLog(long entryLogId, EntryLocationScanner scanner) throws IOException {
+        return transferEntryLog(entryLogId, scanner, entryLogManager::transferEntries);
+    }
+
+    /**
+     * Copy the entries of an entry log to the compaction log, like {@link #transferEntryLog}.
+     */
+    boolean transferEntryLogForCompaction(long entryLogId, EntryLocationScanner scanner) throws IOException {
+        return transferEntryLog(entryLogId, scanner, this::transferEntriesForCompaction);
+    }
+
+    private long transferEntriesForCompaction(long ledgerId, FileChannel src, long srcPosition, int length,
+                                              long firstEntryId, int[] entrySizes, int numEntries)
+            throws IOException {
+        synchronized (compactionLogLock) {
+            if (compactionLogChannel == null) {
+                createNewCompactionLog();
+            }
+
+            long pos = compactionLogChannel.position();
+            compactionLogChannel.transferFrom(src, srcPosition, length);
+            compactionLogChannel.registerTransferredEntries(ledgerId, firstEntryId, pos, entrySizes, numEntries);
+            return (compactionLogChannel.getLogId() << 32L) | (pos + 4);
+        }
+    }
+
+    private boolean transferEntryLog(long entryLogId, EntryLocationScanner scanner, EntriesTransfer transfer)
+            throws IOException {
+        try {
+            Header header = getHeaderForLogId(entryLogId);
+            if ((header.flags & HEADER_FLAG_COMPRESSED_ENTRIES) != 0 && !compression.isEnabled()) {
+                // The compressed entries would be copied to entry logs that are not flagged for them
+                return false;
+            }
+        } catch (IOException e) {
+            LOG.info("Failed to read the header of entry log {} : {}", entryLogId, e.getMessage());
+            return false;
+        }
+
+        // The reads of the entry log may use direct I/O, which doesn't work with transferTo
+        try (FileChannel src = new RandomAccessFile(findFile(entryLogId), "r").getChannel()) {
+            EntriesRun run = new EntriesRun(src, scanner, transfer);
+            if (!scanEntryLogFooter(entryLogId, run)) {
+                return false;
+            }
+            run.transfer();
+            return true;
+        }
+    }
+
+    /**
+     * Gather the consecutive entries of a ledger, located from the footer index of an entry log, to copy them at
+     * once.
+     */
+    private static class EntriesRun implements EntryLocationScanner {
+        private final FileChannel src;
+        private final EntryLocationScanner scanner;
+        private final EntriesTransfer transfer;
+
+        private long ledgerId;
+        private long firstEntryId;
+        private long srcPosition;
+        private int length = 0;
+        private int[] entrySizes = new int[64];
+        private int numEntries = 0;
+
+        EntriesRun(FileChannel src, EntryLocationScanner scanner, EntriesTransfer transfer) {
+            this.src = src;
+            this.scanner = scanner;
+            this.transfer = transfer;
+        }
+
+        @Override
+        public boolean accept(long ledgerId) {
+            return scanner.accept(ledgerId);
+        }
+
+        @Override
+        public void process(long ledgerId, long entryId, long offset, int entrySize) throws IOException {
+            if (numEntries > 0 && (ledgerId != this.ledgerId || entryId != firstEntryId + numEntries
+                    || offset != srcPosition + length || length + 4 + entrySize > MAX_TRANSFER_SIZE)) {
+                transfer();
+            }
+            if (numEntries == 0) {
+                this.ledgerId = ledgerId;
+                this.firstEntryId = entryId;
+                this.srcPosition = offset;
+                this.length = 0;
+            }
+            if (numEntries == entrySizes.length) {
+                entrySizes = Arrays.copyOf(entrySizes, numEntries * 2);
+            }
+            entrySizes[numEntries++] = entrySize;
+            length += 4 + entrySize;
+        }
+
+        void transfer() throws IOException {
+            if (numEntries == 0) {
+                return;
+            }
+            long location = transfer.transfer(ledgerId, src, srcPosition, length, firstEntryId, entrySizes,
+                    numEntries);
+            int count = numEntries;
+            numEntries = 0;
+            for (int i = 0; i < count; i++) {
+                scanner.process(ledgerId, firstEntryId + i, location, entrySizes[i]);
+                location += 4 + entrySizes[i];
+            }
+        }
+    }
+
     /**
      * Remove the current compaction log, usually invoked when compaction failed and
      * we need to do some clean up to remove the compaction log file.
@@ -814,7 +1183,7 @@ public class EntryLogger {
 
     private void validateEntry(long ledgerId, long entryId, long entryLogId, long pos, ByteBuf sizeBuff)
             throws IOException, EntryLookupException {
-        int entrySize = sizeBuff.readInt();
+        int entrySize = EntryLogCompression.storedEntrySize(sizeBuff.readInt());
 
         // entrySize does not include the ledgerId
         if (entrySize > maxSaneEntrySize) {
@@ -836,17 +1205,38 @@ public class EntryLogger {
 
     public ByteBuf internalReadEntry(long ledgerId, long entryId, long location, boolean validateEntry)
             throws IOException {
+        return internalReadEntry(ledgerId, entryId, location, validateEntry, null);
+    }
+
+    /**
+     * Read an entry from an entry log.
+     *
+     * @param storedEntrySize if not null, set to the size of the entry in the entry log, which differs from the size
+     *                        of the entry returned when the entry is stored compressed
+     */
+    public ByteBuf internalReadEntry(long ledgerId, long entryId, long location, boolean validateEntry,
+                                     MutableInt storedEntrySize) throws IOException {
         long entryLogId = logIdForOffset(location);
         long pos = posForOffset(location);
 
+        MappedEntryLog mappedLog = getMappedEntryLog(entryLogId);
+        if (null != mappedLog) {
+            try {
+                return readMappedEntry(mappedLog, ledgerId, entryId, pos, validateEntry, storedEntrySize);
+            } finally {
+                mappedLog.release();
+            }
+        }
 
         BufferedReadChannel fc = null;
         int entrySize = -1;
+        boolean compressed = false;
         try {
             fc = getFCForEntryInternal(ledgerId, entryId, entryLogId, pos);
 
             ByteBuf sizeBuff = readEntrySize(ledgerId, entryId, entryLogId, pos, fc);
-            entrySize = sizeBuff.getInt(0);
+            compressed = EntryLogCompression.isCompressed(sizeBuff.getInt(0));
+            entrySize = EntryLogCompression.storedEntrySize(sizeBuff.getInt(0));
             if (validateEntry) {
                 validateEntry(ledgerId, entryId, entryLogId, pos, sizeBuff);
             }
@@ -873,14 +1263,259 @@ public class EntryLogger {
                                               + pos + "(" + rc + "!=" + entrySize + ")", ledgerId, entryId);
         }
         data.writerIndex(entrySize);
+        if (storedEntrySize != null) {
+            storedEntrySize.setValue(entrySize);
+        }
 
-        return data;
+        return compressed ? decompressEntry(data) : data;
+    }
+
+    /**
+     * Decompress a compressed entry read from an entry log, and release it.
+     */
+    private ByteBuf decompressEntry(ByteBuf compressedEntry) throws IOException {
+        try {
+            return compression.decompress(compressedEntry);
+        } finally {
+            compressedEntry.release();
+        }
     }
 
     public ByteBuf readEntry(long ledgerId, long entryId, long location) throws IOException, Bookie.NoEntryException {
         return internalReadEntry(ledgerId, entryId, location, true /* validateEntry */);
     }
 
+    /**
+     * Read consecutive entries of a ledger that are stored one after the other in the same entry log.
+     *
+     * <p>All the entries but the last one are read with a single read on the entry log, covering the span between
+     * the first and the last location. Since the size of the last entry is not known in advance, it is read on its
+     * own.
+     *
+     * @param locations
+     *            locations of the entries, starting from {@code firstEntryId}. They all need to be in the same entry
+     *            log, in increasing order
+     * @return the entries read, in entry id order. The caller is responsible for releasing them
+     */
+    public List<ByteBuf> readEntries(long ledgerId, long firstEntryId, long[] locations, int offset, int count)
+            throws IOException {
+        List<ByteBuf> entries = new ArrayList<>(count);
+        MappedEntryLog mappedLog = getMappedEntryLog(logIdForOffset(locations[offset]));
+        if (null != mappedLog) {
+            try {
+                for (int i = 0; i < count; i++) {
+                    entries.add(readMappedEntry(mappedLog, ledgerId, firstEntryId + i,
+                            posForOffset(locations[offset + i]), true /* validateEntry */, null));
+                }
+                return entries;
+            } catch (IOException | RuntimeException e) {
+                entries.forEach(ByteBuf::release);
+                throw e;
+            } finally {
+                mappedLog.release();
+            }
+        }
+
+        try {
+            if (count > 1) {
+                readEntriesSpan(ledgerId, firstEntryId, locations, offset, count - 1, entries);
+            }
+
+            entries.add(internalReadEntry(ledgerId, firstEntryId + count - 1, locations[offset + count - 1],
+                    true /* validateEntry */));
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            entries.forEach(ByteBuf::release);
+            throw e;
+        }
+    }
+
+    private void readEntriesSpan(long ledgerId, long firstEntryId, long[] locations, int offset, int count,
+                                 List<ByteBuf> entries) throws IOException {
+        long entryLogId = logIdForOffset(locations[offset]);
+        long startPos = posForOffset(locations[offset]) - 4;
+        // The span ends where the size header of the entry following the last one starts
+        long endPos = posForOffset(locations[offset + count]) - 4;
+        int length = (int) (endPos - startPos);
+
+        ByteBuf data = allocator.buffer(length, length);
+        try {
+            int rc;
+            try {
+                BufferedReadChannel fc = getFCForEntryInternal(ledgerId, firstEntryId, entryLogId, startPos + 4);
+                BufferedLogChannel bc = entryLogManager.getCurrentLogIfPresent(entryLogId);
+                if (bc != null) {
+                    // The span might still be in the write buffer of the current log
+                    rc = readFromLogChannel(entryLogId, fc, data, startPos);
+                } else {
+                    rc = fc.readDirect(data, startPos, length);
+                }
+            } catch (EntryLookupException e) {
+                throw new IOException(e.toString());
+            }
+
+            if (rc != length) {
+                throw new Bookie.NoEntryException("Short read for " + ledgerId + "@" + firstEntryId + " in "
+                        + entryLogId + "@" + startPos + "(" + rc + "!=" + length + ")", ledgerId, firstEntryId);
+            }
+
+            for (int i = 0; i < count; i++) {
+                long entryId = firstEntryId + i;
+                long pos = posForOffset(locations[offset + i]);
+                int entryOffset = (int) (pos - 4 - startPos);
+                boolean compressed = EntryLogCompression.isCompressed(data.getInt(entryOffset));
+                int entrySize = EntryLogCompression.storedEntrySize(data.getInt(entryOffset));
+                if (entrySize < MIN_SANE_ENTRY_SIZE || entryOffset + 4 + entrySize > length) {
+                    LOG.error("Read invalid entry length {}", entrySize);
+                    throw new IOException(new EntryLookupException.InvalidEntryLengthException(ledgerId, entryId,
+                            entryLogId, pos).toString());
+                }
+
+                long thisLedgerId = data.getLong(entryOffset + 4);
+                long thisEntryId = data.getLong(entryOffset + 12);
+                if (thisLedgerId != ledgerId || thisEntryId != entryId) {
+                    throw new IOException(new EntryLookupException.WrongEntryException(thisEntryId, thisLedgerId,
+                            ledgerId, entryId, entryLogId, pos).toString());
+                }
+
+                ByteBuf entry = data.retainedSlice(entryOffset + 4, entrySize);
+                entries.add(compressed ? decompressEntry(entry) : entry);
+            }
+        } finally {
+            data.release();
+        }
+    }
+
+    /**
+     * Check whether an entry log is not written anymore and its buffers have been flushed, so that its content
+     * can be read directly from the file.
+     */
+    private boolean isSealedEntryLog(long entryLogId) {
+        return isFlushedEntryLog(entryLogId) && null == entryLogManager.getCurrentLogIfPresent(entryLogId);
+    }
+
+    /**
+     * Get an entry as a region of its entry log file, so that it can be transferred to the network without being
+     * copied in memory. Only the entries of the sealed entry logs are returned as file regions.
+     *
+     * <p>The region keeps its own handle on the file, so it stays readable even if the entry log is deleted before
+     * the region is transferred. The handle is closed when the region is released.
+     *
+     * @param minRegionSize the minimum size of the entries to return as file regions
+     * @return the region of the entry, or null if the entry has to be read with {@link #readEntry(long, long, long)}
+     */
+    public FileRegion getEntryRegion(long ledgerId, long entryId, long location, int minRegionSize) throws IOException {
+        long entryLogId = logIdForOffset(location);
+        long pos = posForOffset(location);
+        if (!isSealedEntryLog(entryLogId)) {
+            return null;
+        }
+
+        FileChannel fc;
+        try {
+            fc = FileChannel.open(findFile(entryLogId).toPath(), StandardOpenOption.READ);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // let the regular read path report the missing log
+            return null;
+        }
+        boolean success = false;
+        try {
+            ByteBuf sizeBuff = allocator.heapBuffer(20, 20);
+            try {
+                ByteBuffer header = sizeBuff.nioBuffer(0, 20);
+                long headerPos = pos - 4;
+                while (header.hasRemaining()) {
+                    int read = fc.read(header, headerPos + header.position());
+                    if (read < 0) {
+                        throw new Bookie.NoEntryException("Short read from entrylog " + entryLogId,
+                                ledgerId, entryId);
+                    }
+                }
+                sizeBuff.writerIndex(20);
+                int entrySize = sizeBuff.getInt(0);
+                try {
+                    validateEntry(ledgerId, entryId, entryLogId, pos, sizeBuff);
+                } catch (EntryLookupException e) {
+                    throw new IOException(e.toString());
+                }
+                if (entrySize < minRegionSize || EntryLogCompression.isCompressed(entrySize)) {
+                    // The compressed entries are sent decompressed
+                    return null;
+                }
+                if (pos + entrySize > fc.size()) {
+                    throw new Bookie.NoEntryException("Short read for " + ledgerId + "@"
+                            + entryId + " in " + entryLogId + "@" + pos, ledgerId, entryId);
+                }
+                success = true;
+                return new DefaultFileRegion(fc, pos, entrySize);
+            } finally {
+                sizeBuff.release();
+            }
+        } finally {
+            if (!success) {
+                fc.close();
+            }
+        }
+    }
+
+    /**
+     * Get the memory mapping of an entry log, if the memory mapped reads are enabled and the log is sealed.
+     * The caller must release the returned mapping.
+     *
+     * @return the mapping, or null if the log has to be read through its channel
+     */
+    private MappedEntryLog getMappedEntryLog(long entryLogId) throws IOException {
+        if (null == mappedEntryLogs) {
+            return null;
+        }
+        MappedEntryLog mappedLog = mappedEntryLogs.getIfPresent(entryLogId);
+        if (null != mappedLog) {
+            return mappedLog;
+        }
+        if (!isSealedEntryLog(entryLogId)) {
+            return null;
+        }
+        File file;
+        try {
+            file = findFile(entryLogId);
+        } catch (FileNotFoundException e) {
+            // let the regular read path report the missing log
+            return null;
+        }
+        return mappedEntryLogs.get(entryLogId, file);
+    }
+
+    /**
+     * Read an entry as a zero-copy slice of the mapping of its entry log.
+     */
+    private ByteBuf readMappedEntry(MappedEntryLog mappedLog, long ledgerId, long entryId, long pos,
+                                    boolean validateEntry, MutableInt storedEntrySize) throws IOException {
+        long entryLogId = mappedLog.getLogId();
+        long entrySizePos = pos - 4;
+        if (entrySizePos < 0 || entrySizePos + 20 > mappedLog.size()) {
+            throw new Bookie.NoEntryException("Short read from entrylog " + entryLogId, ledgerId, entryId);
+        }
+        ByteBuf sizeBuff = mappedLog.content().slice((int) entrySizePos, 20);
+        boolean compressed = EntryLogCompression.isCompressed(sizeBuff.getInt(0));
+        int entrySize = EntryLogCompression.storedEntrySize(sizeBuff.getInt(0));
+        if (validateEntry) {
+            try {
+                validateEntry(ledgerId, entryId, entryLogId, pos, sizeBuff);
+            } catch (EntryLookupException e) {
+                throw new IOException(e.toString());
+            }
+        }
+        if (entrySize < 0 || pos + entrySize > mappedLog.size()) {
+            throw new Bookie.NoEntryException("Short read for " + ledgerId + "@"
+                    + entryId + " in " + entryLogId + "@" + pos, ledgerId, entryId);
+        }
+        ByteBuf entry = mappedLog.retainedSlice((int) pos, entrySize);
+        if (storedEntrySize != null) {
+            storedEntrySize.setValue(entrySize);
+        }
+        return compressed ? decompressEntry(entry) : entry;
+    }
+
     /**
      * Read the header of an entry log.
      */
@@ -902,7 +1537,9 @@ public class EntryLogger {
 
             long ledgersMapOffset = headers.readLong();
             int ledgersCount = headers.readInt();
-            return new Header(headerVersion, ledgersMapOffset, ledgersCount);
+            int flags = headerVersion >= HEADER_V2 ? headers.readInt() : 0;
+            long footerIndexOffset = headers.getLong(HEADER_FOOTER_INDEX_OFFSET_POSITION);
+            return new Header(headerVersion, ledgersMapOffset, ledgersCount, flags, footerIndexOffset);
         } finally {
             headers.release();
         }
@@ -910,21 +1547,27 @@ public class EntryLogger {
 
     private BufferedReadChannel getChannelForLogId(long entryLogId) throws IOException {
         BufferedReadChannel fc = getFromChannels(entryLogId);
-        if (fc != null) {
+        // The channel is closed once the entry log is moved to another ledger dir, or removed
+        if (fc != null && fc.fileChannel.isOpen()) {
             return fc;
         }
         File file = findFile(entryLogId);
         // get channel is used to open an existing entry log file
         // it would be better to open using read mode
-        FileChannel newFc = new RandomAccessFile(file, "r").getChannel();
+        FileChannel newFc = null != directIOReadCache
+                ? DirectIO.openForRead(file) : new RandomAccessFile(file, "r").getChannel();
         FileChannel oldFc = logid2FileChannel.putIfAbsent(entryLogId, newFc);
         if (null != oldFc) {
             newFc.close();
             newFc = oldFc;
         }
-        // We set the position of the write buffer of this buffered channel to Long.MAX_VALUE
-        // so that there are no overlaps with the write buffer while reading
-        fc = new BufferedReadChannel(newFc, conf.getReadBufferBytes());
+        if (null != directIOReadCache) {
+            fc = new DirectIOReadChannel(newFc, entryLogId, directIOReadCache);
+        } else {
+            // We set the position of the write buffer of this buffered channel to Long.MAX_VALUE
+            // so that there are no overlaps with the write buffer while reading
+            fc = new BufferedReadChannel(newFc, conf.getReadBufferBytes());
+        }
         putInReadChannels(entryLogId, fc);
         return fc;
     }
@@ -981,6 +1624,67 @@ public class EntryLogger {
         throw new FileNotFoundException("No file for log " + Long.toHexString(logId));
     }
 
+    /**
+     * Get the directory holding an entry log.
+     */
+    File getDirForLogId(long logId) throws FileNotFoundException {
+        return findFile(logId).getParentFile();
+    }
+
+    /**
+     * Move a sealed entry log to another ledger dir. The entry log keeps its id, so the locations of its entries
+     * stay valid, and the entry log is found in its new dir by the reads opening it after the move.
+     *
+     * <p>The entry log is copied to a temporary file, which is renamed once synced, before removing the entry log
+     * from its previous dir. The channels already opened on the entry log keep reading the removed file, until they
+     * are closed by {@link #removeFromChannelsAndClose(long)}, so that the reads in progress are not failed.
+     *
+     * @param rateLimiter bounds the rate at which the entry log is copied, in bytes per second
+     * @return the entry log in its new dir
+     */
+    File moveEntryLog(long entryLogId, File destDir, RateLimiter rateLimiter) throws IOException {
+        File src = findFile(entryLogId);
+        File dest = new File(destDir, src.getName());
+        if (dest.equals(src)) {
+            return dest;
+        }
+
+        File tmp = new File(destDir, src.getName() + MOVING_SUFFIX);
+        try (FileChannel in = new RandomAccessFile(src, "r").getChannel();
+             FileChannel out = new RandomAccessFile(tmp, "rw").getChannel()) {
+            out.truncate(0);
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long count = Math.min(MAX_TRANSFER_SIZE, size - position);
+                rateLimiter.acquire((int) count);
+                long transferred = in.transferTo(position, count, out);
+                if (transferred <= 0) {
+                    throw new IOException("Failed to copy entry log " + src + " at " + position);
+                }
+                position += transferred;
+            }
+            out.force(true);
+        } catch (IOException e) {
+            if (!tmp.delete()) {
+                LOG.warn("Could not delete {}", tmp);
+            }
+            throw e;
+        }
+
+        if (!tmp.renameTo(dest)) {
+            if (!tmp.delete()) {
+                LOG.warn("Could not delete {}", tmp);
+            }
+            throw new IOException("Failed to rename " + tmp + " to " + dest);
+        }
+        if (!src.delete()) {
+            // Both copies are identical, the remaining one is removed with the entry log
+            LOG.warn("Could not delete entry log file {} moved to {}", src, destDir);
+        }
+        return dest;
+    }
+
     /**
      * Scan entry log.
      *
@@ -989,6 +1693,16 @@ public class EntryLogger {
      * @throws IOException
      */
     public void scanEntryLog(long entryLogId, EntryLogScanner scanner) throws IOException {
+        scanEntryLog(entryLogId, scanner, true);
+    }
+
+    /**
+     * Scan entry log.
+     *
+     * @param decompress whether the compressed entries are decompressed before being processed, or passed as
+     *                   stored in the entry log
+     */
+    private void scanEntryLog(long entryLogId, EntryLogScanner scanner, boolean decompress) throws IOException {
         // Buffer where to read the entrySize (4 bytes) and the ledgerId (8 bytes)
         ByteBuf headerBuffer = Unpooled.buffer(4 + 8);
         BufferedReadChannel bc;
@@ -1020,7 +1734,8 @@ public class EntryLogger {
                 }
                 long offset = pos;
                 pos += 4;
-                int entrySize = headerBuffer.readInt();
+                int sizeField = headerBuffer.readInt();
+                int entrySize = EntryLogCompression.storedEntrySize(sizeField);
                 long ledgerId = headerBuffer.readLong();
                 headerBuffer.clear();
 
@@ -1044,7 +1759,16 @@ public class EntryLogger {
                     return;
                 }
                 // process the entry
-                scanner.process(ledgerId, offset, data);
+                if (decompress && EntryLogCompression.isCompressed(sizeField)) {
+                    ByteBuf entry = decompressEntry(data.retain());
+                    try {
+                        scanner.process(ledgerId, offset, entry);
+                    } finally {
+                        entry.release();
+                    }
+                } else {
+                    scanner.process(ledgerId, offset, data);
+                }
 
                 // Advance position to the next entry
                 pos += entrySize;
@@ -1054,6 +1778,34 @@ public class EntryLogger {
         }
     }
 
+    /**
+     * Scan the locations of the entries of an entry log from its footer index, without reading the entries.
+     *
+     * <p>The index is fully read and validated before any entry is passed to the scanner, so the caller can fall
+     * back to {@link #scanEntryLog(long, EntryLogScanner)} when this method returns false.
+     *
+     * @param entryLogId Entry Log Id
+     * @param scanner Entry Location Scanner
+     * @return false if the entry log has no valid footer index, in which case no entry was passed to the scanner
+     * @throws IOException if the scanner failed to process an entry
+     */
+    public boolean scanEntryLogFooter(long entryLogId, EntryLocationScanner scanner) throws IOException {
+        BufferedReadChannel bc;
+        Header header;
+        try {
+            header = getHeaderForLogId(entryLogId);
+            if (header.footerIndexOffset == 0L || header.ledgersMapOffset == 0L) {
+                return false;
+            }
+            bc = getChannelForLogId(entryLogId);
+        } catch (IOException e) {
+            LOG.info("Failed to read the footer index of entry log {} : {}", entryLogId, e.getMessage());
+            return false;
+        }
+        return EntryLogFooterIndex.read(entryLogId, bc, header.footerIndexOffset, header.ledgersMapOffset,
+                allocator, scanner);
+    }
+
     public EntryLogMetadata getEntryLogMetadata(long entryLogId) throws IOException {
         // First try to extract the EntryLogMetadata from the index, if there's no index then fallback to scanning the
         // entry log
@@ -1173,7 +1925,29 @@ public class EntryLogger {
         throws IOException {
         final EntryLogMetadata meta = new EntryLogMetadata(entryLogId);
 
-        // Read through the entry log file and extract the entry log meta
+        // The ledgers map may be unreadable while the footer index is still valid, which avoids reading the
+        // entries
+        boolean indexed = scanEntryLogFooter(entryLogId, new EntryLocationScanner() {
+            @Override
+            public void process(long ledgerId, long entryId, long offset, int entrySize) {
+                meta.addLedgerSize(ledgerId, entrySize + 4);
+            }
+
+            @Override
+            public boolean accept(long ledgerId) {
+                return ledgerId >= 0;
+            }
+        });
+        if (indexed) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Retrieved entry log meta data from footer index entryLogId: {}, meta: {}",
+                        entryLogId, meta);
+            }
+            return meta;
+        }
+
+        // Read through the entry log file and extract the entry log meta. The entries are not decompressed, to
+        // account for the space they use in the entry log.
         scanEntryLog(entryLogId, new EntryLogScanner() {
             @Override
             public void process(long ledgerId, long offset, ByteBuf entry) throws IOException {
@@ -1188,7 +1962,7 @@ public class EntryLogger {
             public boolean accept(long ledgerId) {
                 return ledgerId >= 0;
             }
-        });
+        }, false);
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("Retrieved entry log meta data entryLogId: {}, meta: {}", entryLogId, meta);
@@ -1231,6 +2005,12 @@ public class EntryLogger {
         }
         // shutdown the pre-allocation thread
         entryLoggerAllocator.stop();
+        if (null != directIOReadCache) {
+            directIOReadCache.close();
+        }
+        if (null != mappedEntryLogs) {
+            mappedEntryLogs.close();
+        }
     }
 
     protected LedgerDirsManager getLedgerDirsManager() {
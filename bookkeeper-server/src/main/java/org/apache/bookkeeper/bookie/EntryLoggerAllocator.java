@@ -64,12 +64,16 @@ class EntryLoggerAllocator {
     private final EntryLogger.RecentEntryLogsStatus recentlyCreatedEntryLogsStatus;
     private final boolean entryLogPreAllocationEnabled;
     private final ByteBufAllocator byteBufAllocator;
+    private final boolean directIOEnabled;
+    private final boolean footerIndexEnabled;
     final ByteBuf logfileHeader = Unpooled.buffer(EntryLogger.LOGFILE_HEADER_SIZE);
 
     EntryLoggerAllocator(ServerConfiguration conf, LedgerDirsManager ledgerDirsManager,
             EntryLogger.RecentEntryLogsStatus recentlyCreatedEntryLogsStatus, long logId,
-            ByteBufAllocator byteBufAllocator) {
+            ByteBufAllocator byteBufAllocator, boolean directIOEnabled, boolean compressionEnabled) {
         this.conf = conf;
+        this.directIOEnabled = directIOEnabled;
+        this.footerIndexEnabled = conf.isEntryLogFooterIndexEnabled();
         this.byteBufAllocator = byteBufAllocator;
         this.ledgerDirsManager = ledgerDirsManager;
         this.preallocatedLogId = logId;
@@ -83,7 +87,13 @@ class EntryLoggerAllocator {
         // so there can be race conditions when entry logs are rolled over and
         // this header buffer is cleared before writing it into the new logChannel.
         logfileHeader.writeBytes("BKLO".getBytes(UTF_8));
-        logfileHeader.writeInt(EntryLogger.HEADER_CURRENT_VERSION);
+        if (compressionEnabled) {
+            logfileHeader.writeInt(EntryLogger.HEADER_V2);
+            logfileHeader.setInt(EntryLogger.HEADER_FLAGS_POSITION, EntryLogger.HEADER_FLAG_COMPRESSED_ENTRIES);
+        } else {
+            // Keep writing the V1 header, which older bookies know about
+            logfileHeader.writeInt(EntryLogger.HEADER_V1);
+        }
         logfileHeader.writerIndex(EntryLogger.LOGFILE_HEADER_SIZE);
 
     }
@@ -166,8 +176,19 @@ class EntryLoggerAllocator {
         File newLogFile = new File(dirForNextEntryLog, logFileName);
         FileChannel channel = new RandomAccessFile(newLogFile, "rw").getChannel();
 
-        BufferedLogChannel logChannel = new BufferedLogChannel(byteBufAllocator, channel, conf.getWriteBufferBytes(),
-                conf.getReadBufferBytes(), preallocatedLogId, newLogFile, conf.getFlushIntervalInBytes());
+        BufferedLogChannel logChannel;
+        if (directIOEnabled) {
+            logChannel = new DirectIOLogChannel(channel, DirectIO.openForWrite(newLogFile),
+                    conf.getWriteBufferBytes(), conf.getReadBufferBytes(), preallocatedLogId, newLogFile,
+                    conf.getFlushIntervalInBytes());
+        } else {
+            logChannel = new BufferedLogChannel(byteBufAllocator, channel, conf.getWriteBufferBytes(),
+                    conf.getReadBufferBytes(), preallocatedLogId, newLogFile, conf.getFlushIntervalInBytes());
+        }
+        if (footerIndexEnabled) {
+            logChannel.enableFooterIndex();
+        }
+        logChannel.setDirLoad(ledgerDirsManager.getDirLoad(dirForNextEntryLog));
         logfileHeader.readerIndex(0);
         logChannel.write(logfileHeader);
 
@@ -44,4 +44,13 @@ public class GarbageCollectionStatus {
     private long lastMinorCompactionTime;
     private long majorCompactionCounter;
     private long minorCompactionCounter;
+
+    // number of entry logs being compacted concurrently.
+    private int activeCompactions;
+    // number of entry logs left to compact, and space their compaction would reclaim.
+    private int compactionBacklogLogs;
+    private long compactionBacklogBytes;
+    // bytes copied per second by the current or last compaction.
+    private long compactionThroughputBytesPerSecond;
+    private long reclaimedSpaceViaCompaction;
 }
@@ -28,6 +28,8 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
@@ -49,7 +51,6 @@ import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.util.SafeRunnable;
 import org.apache.commons.lang3.mutable.MutableBoolean;
-import org.apache.commons.lang3.mutable.MutableLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,6 +92,9 @@ public class GarbageCollectorThread extends SafeRunnable {
     // Entry Logger Handle
     final EntryLogger entryLogger;
     final AbstractLogCompactor compactor;
+    final EntryLogCompactionScheduler compactionScheduler;
+    // null if all the ledger dirs are on the same storage tier
+    final EntryLogTierMover tierMover;
 
     // Stats loggers for garbage collection operations
     private final GarbageCollectorStats gcStats;
@@ -212,13 +216,35 @@ public class GarbageCollectorThread extends SafeRunnable {
                 }
             }
         };
+        List<AbstractLogCompactor> compactors = new ArrayList<>();
         if (conf.getUseTransactionalCompaction()) {
+            // The transactional compaction goes through a single compaction log
             this.compactor = new TransactionalEntryLogCompactor(conf, entryLogger, ledgerStorage, remover);
+            compactors.add(compactor);
+            if (conf.getNumCompactionThreads() > 1) {
+                LOG.info("Transactional compaction enabled, compacting one entry log at a time");
+            }
         } else {
-            this.compactor = new EntryLogCompactor(conf, entryLogger, ledgerStorage, remover);
+            // The concurrent compactions share the compaction rate
+            AbstractLogCompactor.Throttler compactionThrottler = new AbstractLogCompactor.Throttler(conf);
+            this.compactor = new EntryLogCompactor(conf, entryLogger, ledgerStorage, remover, compactionThrottler);
+            compactors.add(compactor);
+            // At most one entry log is compacted at a time in each ledger dir
+            int numCompactors = Math.min(conf.getNumCompactionThreads(), ledgerDirsManager.getAllLedgerDirs().size());
+            if (numCompactors < conf.getNumCompactionThreads()) {
+                LOG.info("Compacting at most {} entry logs concurrently, one per ledger directory", numCompactors);
+            }
+            for (int i = 1; i < numCompactors; i++) {
+                compactors.add(new EntryLogCompactor(conf, entryLogger, ledgerStorage, remover, compactionThrottler));
+            }
         }
+        this.compactionScheduler = new EntryLogCompactionScheduler(entryLogger, compactors);
 
         this.throttler = new AbstractLogCompactor.Throttler(conf);
+        this.tierMover = ledgerDirsManager.hasColdLedgerDirs()
+                ? new EntryLogTierMover(conf, entryLogger, ledgerDirsManager,
+                        gcStats.getMovedColdEntryLogCounter(), gcStats.getMovedColdEntryLogBytes())
+                : null;
         if (minorCompactionInterval > 0 && minorCompactionThreshold > 0) {
             if (minorCompactionThreshold > 1.0f) {
                 throw new IOException("Invalid minor compaction threshold "
@@ -442,6 +468,13 @@ public class GarbageCollectorThread extends SafeRunnable {
                     minorCompacting.set(false);
                 }
             }
+
+            if (tierMover != null && running) {
+                // Move the entry logs left after the compaction
+                List<Long> entryLogIds = new ArrayList<>();
+                entryLogMetaMap.forEach((entryLogId, meta) -> entryLogIds.add(entryLogId));
+                tierMover.moveColdEntryLogs(entryLogIds, () -> running);
+            }
             gcStats.getGcThreadRuntime().registerSuccessfulEvent(
                     MathUtils.nowInNano() - threadStart, TimeUnit.NANOSECONDS);
         } catch (EntryLogMetadataMapException e) {
@@ -523,7 +556,8 @@ public class GarbageCollectorThread extends SafeRunnable {
      * Compact entry logs if necessary.
      *
      * <p>
-     * Compaction will be executed from low unused space to high unused space.
+     * Compaction will be executed from the highest to the lowest space reclaimed per byte copied, as scheduled by
+     * the {@link EntryLogCompactionScheduler}.
      * Those entry log files whose remaining size percentage is higher than threshold
      * would not be compacted.
      * </p>
@@ -536,41 +570,33 @@ public class GarbageCollectorThread extends SafeRunnable {
         int[] entryLogUsageBuckets = new int[numBuckets];
         int[] compactedBuckets = new int[numBuckets];
 
-        long start = System.currentTimeMillis();
-        MutableLong end = new MutableLong(start);
-        MutableLong timeDiff = new MutableLong(0);
-
+        List<EntryLogMetadata> candidates = new ArrayList<>();
         entryLogMetaMap.forEach((entryLogId, meta) -> {
-            int bucketIndex = calculateUsageIndex(numBuckets, meta.getUsage());
-            entryLogUsageBuckets[bucketIndex]++;
-
-            if (timeDiff.getValue() < maxTimeMillis) {
-                end.setValue(System.currentTimeMillis());
-                timeDiff.setValue(end.getValue() - start);
-            }
-            if (meta.getUsage() >= threshold || (maxTimeMillis > 0 && timeDiff.getValue() >= maxTimeMillis)
-                    || !running) {
-                // We allow the usage limit calculation to continue so that we get a accurate
-                // report of where the usage was prior to running compaction.
-                return;
+            // We allow the usage limit calculation to cover all the entry logs so that we get a accurate
+            // report of where the usage was prior to running compaction.
+            entryLogUsageBuckets[calculateUsageIndex(numBuckets, meta.getUsage())]++;
+            if (meta.getUsage() < threshold) {
+                candidates.add(meta);
             }
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Compacting entry log {} with usage {} below threshold {}",
-                        meta.getEntryLogId(), meta.getUsage(), threshold);
-            }
-
-            long priorRemainingSize = meta.getRemainingSize();
-            compactEntryLog(meta);
-            gcStats.getReclaimedSpaceViaCompaction().add(meta.getTotalSize() - priorRemainingSize);
-            compactedBuckets[bucketIndex]++;
         });
-        if (LOG.isDebugEnabled()) {
-            if (!running) {
-                LOG.debug("Compaction exited due to gc not running");
-            }
-            if (timeDiff.getValue() > maxTimeMillis) {
-                LOG.debug("Compaction ran for {}ms but was limited by {}ms", timeDiff, maxTimeMillis);
+
+        // Similar with Sync Thread
+        // try to mark compacting flag to make sure it would not be interrupted
+        // by shutdown during compaction. otherwise it will receive
+        // ClosedByInterruptException which may cause index file & entry logger
+        // closed and corrupted.
+        if (running && compacting.compareAndSet(false, true)) {
+            try {
+                compactionScheduler.compact(candidates, maxTimeMillis, () -> running, meta -> {
+                    gcStats.getReclaimedSpaceViaCompaction().add(meta.getTotalSize() - meta.getRemainingSize());
+                    compactedBuckets[calculateUsageIndex(numBuckets, meta.getUsage())]++;
+                });
+            } finally {
+                // Mark compaction done
+                compacting.set(false);
             }
+        } else if (LOG.isDebugEnabled()) {
+            LOG.debug("Compaction skipped due to gc not running");
         }
         LOG.info(
                 "Compaction: entry log usage buckets[10% 20% 30% 40% 50% 60% 70% 80% 90% 100%] = {}, compacted {}",
@@ -602,14 +628,16 @@ public class GarbageCollectorThread extends SafeRunnable {
         }
         LOG.info("Shutting down GarbageCollectorThread");
 
+        // Don't start any new compaction
+        this.running = false;
         while (!compacting.compareAndSet(false, true)) {
             // Wait till the thread stops compacting
             Thread.sleep(100);
         }
 
-        this.running = false;
         // Interrupt GC executor thread
         gcExecutor.shutdownNow();
+        compactionScheduler.shutdown();
         try {
             entryLogMetaMap.close();
         } catch (Exception e) {
@@ -632,34 +660,6 @@ public class GarbageCollectorThread extends SafeRunnable {
         }
     }
 
-    /**
-     * Compact an entry log.
-     *
-     * @param entryLogMeta
-     */
-    protected void compactEntryLog(EntryLogMetadata entryLogMeta) {
-        // Similar with Sync Thread
-        // try to mark compacting flag to make sure it would not be interrupted
-        // by shutdown during compaction. otherwise it will receive
-        // ClosedByInterruptException which may cause index file & entry logger
-        // closed and corrupted.
-        if (!compacting.compareAndSet(false, true)) {
-            // set compacting flag failed, means compacting is true now
-            // indicates that compaction is in progress for this EntryLogId.
-            return;
-        }
-
-        try {
-            // Do the actual compaction
-            compactor.compact(entryLogMeta);
-        } catch (Exception e) {
-            LOG.error("Failed to compact entry log {} due to unexpected error", entryLogMeta.getEntryLogId(), e);
-        } finally {
-            // Mark compaction done
-            compacting.set(false);
-        }
-    }
-
     /**
      * Method to read in all of the entry logs (those that we haven't done so yet),
      * and find the set of ledger ID's that make up each entry log file.
@@ -744,6 +744,11 @@ public class GarbageCollectorThread extends SafeRunnable {
             .lastMinorCompactionTime(lastMinorCompactionTime)
             .majorCompactionCounter(gcStats.getMajorCompactionCounter().get())
             .minorCompactionCounter(gcStats.getMinorCompactionCounter().get())
+            .activeCompactions(compactionScheduler.getActiveCompactions())
+            .compactionBacklogLogs(compactionScheduler.getBacklogLogs())
+            .compactionBacklogBytes(compactionScheduler.getBacklogBytes())
+            .compactionThroughputBytesPerSecond(compactionScheduler.getThroughputBytesPerSecond())
+            .reclaimedSpaceViaCompaction(gcStats.getReclaimedSpaceViaCompaction().get())
             .build();
     }
 }
\ No newline at end of file
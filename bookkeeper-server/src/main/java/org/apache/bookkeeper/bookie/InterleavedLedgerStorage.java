@@ -196,6 +196,10 @@ public class InterleavedLedgerStorage implements CompactableLedgerStorage, Entry
                 null == indexDirsManager ? ledgerDirsManager : indexDirsManager, statsLogger);
         gcThread = new GarbageCollectorThread(conf, ledgerManager, ledgerDirsManager,
             this, statsLogger.scope("gc"));
+        if (conf.getColdLedgerDirs().length > 0 && !ledgerDirsManager.hasColdLedgerDirs()) {
+            LOG.warn("coldLedgerDirectories {} is ignored: the cold directories must be some but not all of the"
+                    + " ledger directories {}", conf.getColdLedgerDirs(), ledgerDirsManager.getAllLedgerDirs());
+        }
         pageSize = conf.getPageSize();
         ledgerDirsManager.addLedgerDirsListener(getLedgerDirsListener());
         // Expose Stats
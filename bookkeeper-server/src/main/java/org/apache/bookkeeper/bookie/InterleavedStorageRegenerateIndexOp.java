@@ -30,6 +30,7 @@ import java.util.PrimitiveIterator.OfLong;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.bookkeeper.bookie.EntryLogger.EntryLocationScanner;
 import org.apache.bookkeeper.bookie.EntryLogger.EntryLogScanner;
 import org.apache.bookkeeper.common.util.Watcher;
 import org.apache.bookkeeper.conf.ServerConfiguration;
@@ -114,26 +115,11 @@ public class InterleavedStorageRegenerateIndexOp {
         Map<Long, RecoveryStats> stats = new HashMap<>();
         for (long entryLogId : entryLogs) {
             LOG.info("Scanning {}", entryLogId);
-            entryLogger.scanEntryLog(entryLogId, new EntryLogScanner() {
+            // The entries of the sealed entry logs are located from their footer index, without reading them
+            boolean indexed = entryLogger.scanEntryLogFooter(entryLogId, new EntryLocationScanner() {
                 @Override
-                public void process(long ledgerId, long offset, ByteBuf entry) throws IOException {
-                    long entryId = entry.getLong(8);
-
-                    stats.computeIfAbsent(ledgerId, (ignore) -> new RecoveryStats()).registerEntry(entryId);
-
-                    // Actual location indexed is pointing past the entry size
-                    long location = (entryLogId << 32L) | (offset + 4);
-
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("Rebuilding {}:{} at location {} / {}", ledgerId, entryId, location >> 32,
-                                location & (Integer.MAX_VALUE - 1));
-                    }
-
-                    if (!ledgerCache.ledgerExists(ledgerId)) {
-                        ledgerCache.setMasterKey(ledgerId, masterKey);
-                        ledgerCache.setFenced(ledgerId);
-                    }
-                    ledgerCache.putEntryOffset(ledgerId, entryId, location);
+                public void process(long ledgerId, long entryId, long offset, int entrySize) throws IOException {
+                    regenerateEntry(ledgerCache, stats, entryLogId, ledgerId, entryId, offset);
                 }
 
                 @Override
@@ -141,6 +127,19 @@ public class InterleavedStorageRegenerateIndexOp {
                     return ledgerIds.contains(ledgerId);
                 }
             });
+            if (!indexed) {
+                entryLogger.scanEntryLog(entryLogId, new EntryLogScanner() {
+                    @Override
+                    public void process(long ledgerId, long offset, ByteBuf entry) throws IOException {
+                        regenerateEntry(ledgerCache, stats, entryLogId, ledgerId, entry.getLong(8), offset);
+                    }
+
+                    @Override
+                    public boolean accept(long ledgerId) {
+                        return ledgerIds.contains(ledgerId);
+                    }
+                });
+            }
 
             ledgerCache.flushLedger(true);
 
@@ -163,6 +162,24 @@ public class InterleavedStorageRegenerateIndexOp {
                          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
     }
 
+    private void regenerateEntry(LedgerCache ledgerCache, Map<Long, RecoveryStats> stats, long entryLogId,
+                                 long ledgerId, long entryId, long offset) throws IOException {
+        stats.computeIfAbsent(ledgerId, (ignore) -> new RecoveryStats()).registerEntry(entryId);
+
+        // Actual location indexed is pointing past the entry size
+        long location = (entryLogId << 32L) | (offset + 4);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Rebuilding {}:{} at location {} / {}", ledgerId, entryId, location >> 32,
+                    location & (Integer.MAX_VALUE - 1));
+        }
+
+        if (!ledgerCache.ledgerExists(ledgerId)) {
+            ledgerCache.setMasterKey(ledgerId, masterKey);
+            ledgerCache.setFenced(ledgerId);
+        }
+        ledgerCache.putEntryOffset(ledgerId, entryId, location);
+    }
 
     static class DryRunLedgerCache implements LedgerCache {
         @Override
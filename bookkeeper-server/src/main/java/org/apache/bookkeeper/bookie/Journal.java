@@ -383,8 +383,12 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             try {
                 if (shouldForceWrite) {
                     this.logFile.forceWrite(false);
+                    long forceWriteNanos = MathUtils.elapsedNanos(startTime);
                     journalStats.getJournalSyncStats()
-                        .registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+                        .registerSuccessfulEvent(forceWriteNanos, TimeUnit.NANOSECONDS);
+                    if (groupCommitController != null) {
+                        groupCommitController.recordForceWrite(forceWriteNanos);
+                    }
                 }
                 lastLogMark.setCurLogMark(this.logId, this.lastFlushedPosition);
 
@@ -628,6 +632,9 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
 
     static final long MB = 1024 * 1024L;
     static final int KB = 1024;
+    // Checkpointed journal files waiting to be reused
+    static final String RECYCLED_JOURNAL_SUFFIX = ".recycled";
+    private static final int MAX_RECYCLED_JOURNALS = 2;
     // max journal file size
     final long maxJournalSize;
     // pre-allocation size for the journal files
@@ -683,6 +690,12 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
     private final LedgerDirsManager ledgerDirsManager;
     private final ByteBufAllocator allocator;
     private final MemoryLimitController memoryLimitController;
+    // Shared ring where the adding threads serialize the journal records, if enabled
+    private final JournalWriteRing writeRing;
+    // Adapts the group commit window to the force write latency, if enabled
+    private final JournalGroupCommitController groupCommitController;
+    // Should checkpointed journal files be recycled instead of deleted
+    private final boolean reuseFiles;
 
     // Expose Stats
     private final JournalStats journalStats;
@@ -712,6 +725,15 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         // Adjust the journal max memory in case there are multiple journals configured.
         long journalMaxMemory = conf.getJournalMaxMemorySizeMb() / conf.getJournalDirNames().length * 1024 * 1024;
         this.memoryLimitController = new MemoryLimitController(journalMaxMemory);
+        if (conf.isJournalWriteRingEnabled()) {
+            // The ring must always be able to hold a couple of entries of the max size
+            long ringSize = Math.max(conf.getJournalWriteRingSizeMb() * MB,
+                    2L * (conf.getNettyMaxFrameSizeBytes() + 4));
+            this.writeRing = new JournalWriteRing(allocator, ringSize);
+            journalMaxMemory = writeRing.capacity();
+        } else {
+            this.writeRing = null;
+        }
         this.ledgerDirsManager = ledgerDirsManager;
         this.conf = conf;
         this.journalDirectory = journalDirectory;
@@ -725,8 +747,30 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         this.maxGroupWaitInNanos = TimeUnit.MILLISECONDS.toNanos(conf.getJournalMaxGroupWaitMSec());
         this.bufferedWritesThreshold = conf.getJournalBufferedWritesThreshold();
         this.bufferedEntriesThreshold = conf.getJournalBufferedEntriesThreshold();
-        this.journalFormatVersionToWrite = conf.getJournalFormatVersionToWrite();
+        int formatVersionToWrite = conf.getJournalFormatVersionToWrite();
+        boolean reuseFiles = conf.getJournalReuseFiles();
+        if (writeRing != null && (reuseFiles || formatVersionToWrite >= JournalChannel.V7)) {
+            // The records in the ring are serialized before knowing the journal file, and so the epoch, they go to
+            LOG.warn("Journal files can't be reused with the journal write ring, writing journal format {}",
+                    JournalChannel.V6);
+            reuseFiles = false;
+            formatVersionToWrite = Math.min(formatVersionToWrite, JournalChannel.V6);
+        } else if (reuseFiles && formatVersionToWrite < JournalChannel.V6) {
+            LOG.warn("Journal files can only be reused with journalFormatVersionToWrite >= {},"
+                    + " disabling journalReuseFiles", JournalChannel.V6);
+            reuseFiles = false;
+        } else if (reuseFiles) {
+            // Reused journal files need the records to be tagged with the journal epoch
+            formatVersionToWrite = JournalChannel.V7;
+        }
+        this.reuseFiles = reuseFiles;
+        this.journalFormatVersionToWrite = formatVersionToWrite;
         this.journalAlignmentSize = conf.getJournalAlignmentSize();
+        if (conf.getJournalAdaptiveGroupWrites() && conf.isJournalAdaptiveGroupWaitEnabled()) {
+            this.groupCommitController = new JournalGroupCommitController(maxGroupWaitInNanos, journalStatsLogger);
+        } else {
+            this.groupCommitController = null;
+        }
         this.journalPageCacheFlushIntervalMSec = conf.getJournalPageCacheFlushIntervalMSec();
         if (conf.getNumJournalCallbackThreads() > 0) {
             this.cbThreadPool = Executors.newFixedThreadPool(conf.getNumJournalCallbackThreads(),
@@ -764,7 +808,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
 
         // Expose Stats
         this.journalStats = new JournalStats(journalStatsLogger, journalMaxMemory,
-                () -> memoryLimitController.currentUsage());
+                () -> getMemoryUsage());
     }
 
     JournalStats getJournalStats() {
@@ -824,6 +868,10 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                     // make sure the journal id is smaller than marked journal id
                     if (id < mark.getCurMark().getLogFileId()) {
                         File journalFile = new File(journalDirectory, Long.toHexString(id) + ".txn");
+                        if (reuseFiles && recycleJournalFile(journalFile)) {
+                            LOG.info("recycled journal " + journalFile.getName());
+                            continue;
+                        }
                         if (!journalFile.delete()) {
                             LOG.warn("Could not delete old journal file {}", journalFile);
                         }
@@ -834,6 +882,48 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         }
     }
 
+    /**
+     * Move a checkpointed journal file to the pool of recycled journal files, unless the pool is full.
+     *
+     * @return whether the file was recycled
+     */
+    private synchronized boolean recycleJournalFile(File journalFile) {
+        File[] recycled = journalDirectory.listFiles((dir, name) -> name.endsWith(RECYCLED_JOURNAL_SUFFIX));
+        if (recycled == null || recycled.length >= MAX_RECYCLED_JOURNALS) {
+            return false;
+        }
+        File recycledFile = new File(journalDirectory, journalFile.getName() + RECYCLED_JOURNAL_SUFFIX);
+        return journalFile.renameTo(recycledFile);
+    }
+
+    /**
+     * Delete the pool of recycled journal files, left over from a run with journalReuseFiles enabled. Each of them
+     * holds the space of a whole preallocated journal.
+     */
+    private synchronized void deleteRecycledJournalFiles() {
+        File[] recycled = journalDirectory.listFiles((dir, name) -> name.endsWith(RECYCLED_JOURNAL_SUFFIX));
+        if (recycled == null) {
+            return;
+        }
+        for (File journalFile : recycled) {
+            if (journalFile.delete()) {
+                LOG.info("Deleted recycled journal {}", journalFile.getName());
+            } else {
+                LOG.warn("Could not delete recycled journal {}", journalFile);
+            }
+        }
+    }
+
+    /**
+     * Take a journal file from the pool of recycled journal files.
+     *
+     * @return the recycled journal file, or null if the pool is empty
+     */
+    private synchronized File takeRecycledJournalFile() {
+        File[] recycled = journalDirectory.listFiles((dir, name) -> name.endsWith(RECYCLED_JOURNAL_SUFFIX));
+        return recycled == null || recycled.length == 0 ? null : recycled[0];
+    }
+
     /**
      * Scan the journal.
      *
@@ -854,6 +944,9 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                     journalPos, conf, fileChannelProvider);
         }
         int journalVersion = recLog.getFormatVersion();
+        // From V7 the journal file might be a reused one, so the end of the valid records is found by checking their
+        // epoch, and anything that doesn't look like a valid record is the end of the journal
+        boolean checkEpoch = journalVersion >= JournalChannel.V7;
         try {
             ByteBuffer lenBuff = ByteBuffer.allocate(4);
             ByteBuffer recBuff = ByteBuffer.allocate(64 * 1024);
@@ -871,6 +964,21 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                 if (len == 0) {
                     break;
                 }
+                if (checkEpoch && len != PADDING_MASK) {
+                    if (len < 0 || len > recLog.fc.size() - recLog.fc.position()) {
+                        break;
+                    }
+                    lenBuff.clear();
+                    fullRead(recLog, lenBuff);
+                    if (lenBuff.remaining() != 0) {
+                        break;
+                    }
+                    lenBuff.flip();
+                    if (lenBuff.getInt() != recLog.getEpoch()) {
+                        // Record left by a previous use of the journal file
+                        break;
+                    }
+                }
                 boolean isPaddingRecord = false;
                 if (len < 0) {
                     if (len == PADDING_MASK && journalVersion >= JournalChannel.V5) {
@@ -885,6 +993,9 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                         if (len == 0) {
                             continue;
                         }
+                        if (checkEpoch && (len < 0 || len > recLog.fc.size() - recLog.fc.position())) {
+                            break;
+                        }
                         isPaddingRecord = true;
                     } else {
                         LOG.error("Invalid record found with negative length: {}", len);
@@ -931,13 +1042,21 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
     public void logAddEntry(long ledgerId, long entryId, ByteBuf entry,
                             boolean ackBeforeSync, WriteCallback cb, Object ctx)
             throws InterruptedException {
-        // Retain entry until it gets written to journal
-        entry.retain();
+        if (writeRing != null) {
+            // Serialize the entry in the calling thread, the journal thread only gets the callback
+            appendToWriteRing(entryId, entry);
+            entry = null;
+        } else {
+            // Retain entry until it gets written to journal
+            entry.retain();
+        }
 
         journalStats.getJournalQueueSize().inc();
         journalStats.getJournalCbQueueSize().inc();
 
-        memoryLimitController.reserveMemory(entry.readableBytes());
+        if (entry != null) {
+            memoryLimitController.reserveMemory(entry.readableBytes());
+        }
 
         queue.put(QueueEntry.create(
                 entry, ackBeforeSync,  ledgerId, entryId, cb, ctx, MathUtils.nowInNano(),
@@ -946,6 +1065,54 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                 callbackTime));
     }
 
+    /**
+     * record a batch of add entry operations in journal. The entries are queued back to back, so that they are
+     * usually written and synced in the same journal group.
+     */
+    public void logAddEntries(List<ByteBuf> entries, boolean ackBeforeSync, WriteCallback cb, Object ctx)
+            throws InterruptedException {
+        long totalSize = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            ByteBuf entry = entries.get(i);
+            if (writeRing != null) {
+                appendToWriteRing(entry.getLong(entry.readerIndex() + 8), entry);
+            } else {
+                // Retain entry until it gets written to journal
+                entry.retain();
+                totalSize += entry.readableBytes();
+            }
+        }
+
+        journalStats.getJournalQueueSize().add(entries.size());
+        journalStats.getJournalCbQueueSize().add(entries.size());
+
+        if (writeRing == null) {
+            memoryLimitController.reserveMemory(totalSize);
+        }
+
+        long enqueueTime = MathUtils.nowInNano();
+        for (int i = 0; i < entries.size(); i++) {
+            ByteBuf entry = entries.get(i);
+            long ledgerId = entry.getLong(entry.readerIndex() + 0);
+            long entryId = entry.getLong(entry.readerIndex() + 8);
+            queue.put(QueueEntry.create(
+                    writeRing != null ? null : entry, ackBeforeSync, ledgerId, entryId, cb, ctx, enqueueTime,
+                    journalStats.getJournalAddEntryStats(),
+                    journalStats.getJournalCbQueueSize(),
+                    callbackTime));
+        }
+    }
+
+    private void appendToWriteRing(long entryId, ByteBuf entry) {
+        if (entryId == BookieImpl.METAENTRY_ID_LEDGER_EXPLICITLAC
+                && journalFormatVersionToWrite < JournalChannel.V6) {
+            // Explicit LAC entries can't be written with the older journal formats
+            return;
+        }
+        journalStats.getJournalWriteBytes().add(entry.readableBytes());
+        writeRing.append(entry);
+    }
+
     void forceLedger(long ledgerId, WriteCallback cb, Object ctx) {
         queue.add(QueueEntry.create(
                 null, false /* ackBeforeSync */, ledgerId,
@@ -997,7 +1164,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
 
         RecyclableArrayList<QueueEntry> toFlush = entryListRecycler.newInstance();
         int numEntriesToFlush = 0;
-        ByteBuf lenBuff = Unpooled.buffer(4);
+        ByteBuf lenBuff = Unpooled.buffer(8);
         ByteBuf paddingBuff = Unpooled.buffer(2 * conf.getJournalAlignmentSize());
         paddingBuff.writeZero(paddingBuff.capacity());
 
@@ -1008,6 +1175,9 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         Stopwatch journalFlushWatcher = Stopwatch.createUnstarted();
         long batchSize = 0;
         try {
+            if (!reuseFiles) {
+                deleteRecycledJournalFiles();
+            }
             List<Long> journalIds = listJournalIds(journalDirectory, null);
             // Should not use MathUtils.now(), which use System.nanoTime() and
             // could only be used to measure elapsed time.
@@ -1031,7 +1201,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                     logFile = new JournalChannel(journalDirectory, logId, journalPreAllocSize, journalWriteBufferSize,
                                         journalAlignmentSize, removePagesFromCache,
                                         journalFormatVersionToWrite, getBufferedChannelBuilder(),
-                                        conf, fileChannelProvider);
+                                        conf, fileChannelProvider, reuseFiles ? takeRecycledJournalFile() : null);
 
                     journalStats.getJournalCreationStats().registerSuccessfulEvent(
                             journalCreationWatcher.stop().elapsed(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
@@ -1055,10 +1225,23 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                         journalStats.getJournalQueueSize().dec();
                         journalStats.getJournalQueueStats()
                             .registerSuccessfulEvent(MathUtils.elapsedNanos(qe.enqueueTime), TimeUnit.NANOSECONDS);
+                        if (groupCommitController != null) {
+                            groupCommitController.recordArrival(qe.enqueueTime);
+                        }
                     } else {
-                        long pollWaitTimeNanos = maxGroupWaitInNanos
+                        long groupWaitNanos = maxGroupWaitInNanos;
+                        boolean flushOnEmptyQueue = flushWhenQueueEmpty;
+                        long targetGroupEntries = Long.MAX_VALUE;
+                        if (groupCommitController != null) {
+                            groupWaitNanos = groupCommitController.getGroupWaitNanos();
+                            // Without a window, the group can't wait for more entries
+                            flushOnEmptyQueue = flushWhenQueueEmpty || groupWaitNanos <= 0;
+                            targetGroupEntries = groupCommitController.getTargetGroupEntries();
+                        }
+
+                        long pollWaitTimeNanos = groupWaitNanos
                                 - MathUtils.elapsedNanos(toFlush.get(0).enqueueTime);
-                        if (flushWhenQueueEmpty || pollWaitTimeNanos < 0) {
+                        if (flushOnEmptyQueue || pollWaitTimeNanos < 0) {
                             pollWaitTimeNanos = 0;
                         }
                         qe = queue.poll(pollWaitTimeNanos, TimeUnit.NANOSECONDS);
@@ -1068,17 +1251,20 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                             journalStats.getJournalQueueSize().dec();
                             journalStats.getJournalQueueStats()
                                 .registerSuccessfulEvent(MathUtils.elapsedNanos(qe.enqueueTime), TimeUnit.NANOSECONDS);
+                            if (groupCommitController != null) {
+                                groupCommitController.recordArrival(qe.enqueueTime);
+                            }
                         }
 
                         boolean shouldFlush = false;
                         // We should issue a forceWrite if any of the three conditions below holds good
                         // 1. If the oldest pending entry has been pending for longer than the max wait time
-                        if (maxGroupWaitInNanos > 0 && !groupWhenTimeout && (MathUtils
-                                .elapsedNanos(toFlush.get(0).enqueueTime) > maxGroupWaitInNanos)) {
+                        if (groupWaitNanos > 0 && !groupWhenTimeout && (MathUtils
+                                .elapsedNanos(toFlush.get(0).enqueueTime) > groupWaitNanos)) {
                             groupWhenTimeout = true;
-                        } else if (maxGroupWaitInNanos > 0 && groupWhenTimeout
+                        } else if (groupWaitNanos > 0 && groupWhenTimeout
                             && (qe == null // no entry to group
-                                || MathUtils.elapsedNanos(qe.enqueueTime) < maxGroupWaitInNanos)) {
+                                || MathUtils.elapsedNanos(qe.enqueueTime) < groupWaitNanos)) {
                             // when group timeout, it would be better to look forward, as there might be lots of
                             // entries already timeout
                             // due to a previous slow write (writing to filesystem which impacted by force write).
@@ -1090,12 +1276,14 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                             journalStats.getFlushMaxWaitCounter().inc();
                         } else if (qe != null
                                 && ((bufferedEntriesThreshold > 0 && toFlush.size() > bufferedEntriesThreshold)
-                                || (bc.position() > lastFlushPosition + bufferedWritesThreshold))) {
+                                || toFlush.size() >= targetGroupEntries
+                                || (bc.position() + pendingRingBytes()
+                                    > lastFlushPosition + bufferedWritesThreshold))) {
                             // 2. If we have buffered more than the buffWriteThreshold or bufferedEntriesThreshold
                             groupWhenTimeout = false;
                             shouldFlush = true;
                             journalStats.getFlushMaxOutstandingBytesCounter().inc();
-                        } else if (qe == null && flushWhenQueueEmpty) {
+                        } else if (qe == null && flushOnEmptyQueue) {
                             // We should get here only if we flushWhenQueueEmpty is true else we would wait
                             // for timeout that would put is past the maxWait threshold
                             // 3. If the queue is empty i.e. no benefit of grouping. This happens when we have one
@@ -1107,6 +1295,11 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
 
                         // toFlush is non null and not empty so should be safe to access getFirst
                         if (shouldFlush) {
+                            if (writeRing != null) {
+                                long ringBytes = writeRing.pendingBytes();
+                                logFile.preAllocIfNeeded(ringBytes);
+                                batchSize += writeRing.writeTo(bc);
+                            }
                             if (journalFormatVersionToWrite >= JournalChannel.V5) {
                                 writePaddingBytes(logFile, paddingBuff, journalAlignmentSize);
                             }
@@ -1182,7 +1375,9 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                 if (qe == null) { // no more queue entry
                     continue;
                 }
-                if ((qe.entryId == BookieImpl.METAENTRY_ID_LEDGER_EXPLICITLAC)
+                if (qe.entry == null) {
+                    // Force ledger request, or entry already serialized in the write ring
+                } else if ((qe.entryId == BookieImpl.METAENTRY_ID_LEDGER_EXPLICITLAC)
                         && (journalFormatVersionToWrite < JournalChannel.V6)) {
                     /*
                      * this means we are using new code which supports
@@ -1197,13 +1392,17 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                     int entrySize = qe.entry.readableBytes();
                     journalStats.getJournalWriteBytes().add(entrySize);
 
-                    batchSize += (4 + entrySize);
+                    int recordHeaderSize = logFile.getRecordHeaderSize();
+                    batchSize += (recordHeaderSize + entrySize);
 
                     lenBuff.clear();
                     lenBuff.writeInt(entrySize);
+                    if (recordHeaderSize > 4) {
+                        lenBuff.writeInt(logFile.getEpoch());
+                    }
 
                     // preAlloc based on size
-                    logFile.preAllocIfNeeded(4 + entrySize);
+                    logFile.preAllocIfNeeded(recordHeaderSize + entrySize);
 
                     bc.write(lenBuff);
                     bc.write(qe.entry);
@@ -1227,6 +1426,9 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             // close will flush the file system cache making any previous
             // cached writes durable so this is fine as well.
             IOUtils.close(LOG, bc);
+            if (writeRing != null) {
+                writeRing.close();
+            }
         }
         LOG.info("Journal exited loop!");
     }
@@ -1289,7 +1491,16 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         join();
     }
 
+    @VisibleForTesting
+    JournalGroupCommitController getGroupCommitController() {
+        return groupCommitController;
+    }
+
+    private long pendingRingBytes() {
+        return writeRing != null ? writeRing.pendingBytes() : 0L;
+    }
+
     long getMemoryUsage() {
-        return memoryLimitController.currentUsage();
+        return writeRing != null ? writeRing.pendingBytes() : memoryLimitController.currentUsage();
     }
 }
@@ -31,6 +31,8 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 import org.apache.bookkeeper.conf.ServerConfiguration;
@@ -52,6 +54,7 @@ class JournalChannel implements Closeable {
     final FileChannel fc;
     final BufferedChannel bc;
     final int formatVersion;
+    final int epoch;
     long nextPrealloc = 0;
 
     final byte[] magicWord = "BKLG".getBytes(UTF_8);
@@ -73,11 +76,13 @@ class JournalChannel implements Closeable {
     static final int V5 = 5;
     // Adding explicitlac entry
     public static final int V6 = 6;
+    // Adding the journal epoch to each record, so that journal files can be reused
+    static final int V7 = 7;
 
     static final int HEADER_SIZE = SECTOR_SIZE; // align header to sector size
     static final int VERSION_HEADER_SIZE = 8; // 4byte magic word, 4 byte version
     static final int MIN_COMPAT_JOURNAL_FORMAT_VERSION = V1;
-    static final int CURRENT_JOURNAL_FORMAT_VERSION = V6;
+    static final int CURRENT_JOURNAL_FORMAT_VERSION = V7;
 
     private final long preAllocSize;
     private final int journalAlignSize;
@@ -108,7 +113,7 @@ class JournalChannel implements Closeable {
                    FileChannelProvider provider) throws IOException {
          this(journalDirectory, logId, preAllocSize, writeBufferSize, SECTOR_SIZE,
                  position, false, V5, Journal.BufferedChannelBuilder.DEFAULT_BCBUILDER,
-             conf, provider);
+             conf, provider, null);
     }
 
     // Open journal to write
@@ -126,7 +131,18 @@ class JournalChannel implements Closeable {
                    Journal.BufferedChannelBuilder bcBuilder, ServerConfiguration conf,
                    FileChannelProvider provider) throws IOException {
         this(journalDirectory, logId, preAllocSize, writeBufferSize, journalAlignSize,
-                START_OF_FILE, fRemoveFromPageCache, formatVersionToWrite, bcBuilder, conf, provider);
+                START_OF_FILE, fRemoveFromPageCache, formatVersionToWrite, bcBuilder, conf, provider, null);
+    }
+
+    // Open journal to write, reusing the given recycled journal file
+    JournalChannel(File journalDirectory, long logId,
+                   long preAllocSize, int writeBufferSize, int journalAlignSize,
+                   boolean fRemoveFromPageCache, int formatVersionToWrite,
+                   Journal.BufferedChannelBuilder bcBuilder, ServerConfiguration conf,
+                   FileChannelProvider provider, File recycledFile) throws IOException {
+        this(journalDirectory, logId, preAllocSize, writeBufferSize, journalAlignSize,
+                START_OF_FILE, fRemoveFromPageCache, formatVersionToWrite, bcBuilder, conf, provider,
+                recycledFile);
     }
 
     /**
@@ -149,6 +165,8 @@ class JournalChannel implements Closeable {
      *          whether to remove cached pages from page cache.
      * @param formatVersionToWrite
      *          format version to write
+     * @param recycledFile
+     *          recycled journal file to reuse for the new journal file, or null
      * @throws IOException
      */
     private JournalChannel(File journalDirectory, long logId,
@@ -156,23 +174,34 @@ class JournalChannel implements Closeable {
                            long position, boolean fRemoveFromPageCache,
                            int formatVersionToWrite, Journal.BufferedChannelBuilder bcBuilder,
                            ServerConfiguration conf,
-                           FileChannelProvider provider) throws IOException {
+                           FileChannelProvider provider, File recycledFile) throws IOException {
         this.journalAlignSize = journalAlignSize;
         this.zeros = ByteBuffer.allocate(journalAlignSize);
         this.preAllocSize = preAllocSize - preAllocSize % journalAlignSize;
         this.fRemoveFromPageCache = fRemoveFromPageCache;
         this.configuration = conf;
+        this.epoch = epoch(logId);
 
         File fn = new File(journalDirectory, Long.toHexString(logId) + ".txn");
-        channel = provider.open(fn, configuration);
 
         if (formatVersionToWrite < V4) {
             throw new IOException("Invalid journal format to write : version = " + formatVersionToWrite);
         }
 
+        if (recycledFile != null) {
+            if (formatVersionToWrite < V7) {
+                throw new IOException("Journal files can't be reused with format version " + formatVersionToWrite);
+            }
+            // The old records stay in the file, after the new ones, until they are overwritten
+            LOG.info("Reusing journal file {} as {}", recycledFile, fn);
+            Files.move(recycledFile.toPath(), fn.toPath());
+            syncDirectory(journalDirectory);
+        }
+        channel = provider.open(fn, configuration);
+
         LOG.info("Opening journal {}", fn);
-        if (!channel.fileExists(fn)) { // new file, write version
-            if (!fn.createNewFile()) {
+        if (recycledFile != null || !channel.fileExists(fn)) { // new file, write version
+            if (recycledFile == null && !fn.createNewFile()) {
                 LOG.error("Journal file {}, that shouldn't exist, already exists. "
                           + " is there another bookie process running?", fn);
                 throw new IOException("File " + fn
@@ -193,7 +222,13 @@ class JournalChannel implements Closeable {
             bc = bcBuilder.create(fc, writeBufferSize);
             forceWrite(true);
             nextPrealloc = this.preAllocSize;
-            fc.write(zeros, nextPrealloc - journalAlignSize);
+            long allocated = fc.size() - fc.size() % journalAlignSize;
+            if (allocated >= nextPrealloc) {
+                // Recycled file, the blocks are already allocated
+                nextPrealloc = allocated;
+            } else {
+                fc.write(zeros, nextPrealloc - journalAlignSize);
+            }
         } else {  // open an existing file
             fc = channel.getFileChannel();
             bc = null; // readonly
@@ -255,6 +290,34 @@ class JournalChannel implements Closeable {
         return formatVersion;
     }
 
+    /**
+     * Get the epoch that tags the records of the journal file, from format V7.
+     */
+    int getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Get the size of the header of the records, before the entry data.
+     */
+    int getRecordHeaderSize() {
+        return formatVersion >= V7 ? 8 : 4;
+    }
+
+    /**
+     * The epoch of a journal file. The log ids are never reused, so the records left in a recycled journal file
+     * never have the epoch of the new journal file.
+     */
+    static int epoch(long logId) {
+        return (int) (logId ^ (logId >>> 32));
+    }
+
+    private static void syncDirectory(File dir) throws IOException {
+        try (FileChannel dirChannel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            dirChannel.force(true);
+        }
+    }
+
     BufferedChannel getBufferedChannel() throws IOException {
         if (bc == null) {
             throw new IOException("Read only journal channel");
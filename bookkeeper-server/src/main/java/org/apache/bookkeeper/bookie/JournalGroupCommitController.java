@@ -0,0 +1,158 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_ADAPTIVE_GROUP_TARGET_ENTRIES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_ADAPTIVE_GROUP_WAIT_NANOS;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_SCOPE;
+
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+
+/**
+ * Adapts the journal group commit window to the latency of the journal force writes and to the rate of the incoming
+ * entries.
+ *
+ * <p>While a force write is in progress, the entries arriving meanwhile can only be synced by the next one, so waiting
+ * up to one force write to group them doesn't add latency. Waiting longer does, and so does waiting at all when the
+ * entries arrive more slowly than the disk syncs. So the controller picks:
+ * <ul>
+ * <li>no wait, when the mean interval between entries is longer than the mean force write latency;</li>
+ * <li>otherwise a window of one force write, capped by {@code journalMaxGroupWaitMSec}, and a target group size of
+ * the number of entries expected to arrive during a force write. The group is flushed as soon as it reaches the
+ * target.</li>
+ * </ul>
+ */
+@StatsDoc(
+    name = JOURNAL_SCOPE,
+    category = CATEGORY_SERVER,
+    help = "Journal adaptive group commit stats"
+)
+class JournalGroupCommitController {
+
+    // Weight of the new samples in the moving averages
+    private static final double ALPHA = 0.1;
+
+    private final long maxGroupWaitNanos;
+
+    // Updated by the force write thread
+    private volatile double forceWriteLatencyNanos = 0;
+
+    // Only accessed by the journal thread
+    private long lastArrivalNanos = 0;
+    private boolean hasArrivalInterval = false;
+    private double arrivalIntervalNanos = 0;
+
+    private volatile long groupWaitNanos;
+    private volatile long targetGroupEntries = Long.MAX_VALUE;
+
+    @StatsDoc(
+        name = JOURNAL_ADAPTIVE_GROUP_WAIT_NANOS,
+        help = "The group commit window currently chosen by the adaptive journal group commit, in nanoseconds"
+    )
+    private final Gauge<Long> groupWaitGauge;
+    @StatsDoc(
+        name = JOURNAL_ADAPTIVE_GROUP_TARGET_ENTRIES,
+        help = "The number of entries after which the adaptive journal group commit flushes a group"
+    )
+    private final Gauge<Long> targetGroupEntriesGauge;
+
+    JournalGroupCommitController(long maxGroupWaitNanos, StatsLogger statsLogger) {
+        this.maxGroupWaitNanos = maxGroupWaitNanos;
+        this.groupWaitNanos = maxGroupWaitNanos;
+
+        groupWaitGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return groupWaitNanos;
+            }
+        };
+        statsLogger.registerGauge(JOURNAL_ADAPTIVE_GROUP_WAIT_NANOS, groupWaitGauge);
+
+        targetGroupEntriesGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return targetGroupEntries;
+            }
+        };
+        statsLogger.registerGauge(JOURNAL_ADAPTIVE_GROUP_TARGET_ENTRIES, targetGroupEntriesGauge);
+    }
+
+    /**
+     * Record the latency of a force write. Called by the force write thread.
+     */
+    void recordForceWrite(long latencyNanos) {
+        double current = forceWriteLatencyNanos;
+        forceWriteLatencyNanos = current == 0 ? latencyNanos : current + ALPHA * (latencyNanos - current);
+    }
+
+    /**
+     * Record the arrival of an entry and adapt the group commit window. Called by the journal thread.
+     */
+    void recordArrival(long enqueueTimeNanos) {
+        if (lastArrivalNanos != 0) {
+            // Entries from different threads can be enqueued slightly out of order, and the entries of a batch share
+            // the same enqueue time
+            long interval = Math.max(0, enqueueTimeNanos - lastArrivalNanos);
+            arrivalIntervalNanos = hasArrivalInterval
+                    ? arrivalIntervalNanos + ALPHA * (interval - arrivalIntervalNanos) : interval;
+            hasArrivalInterval = true;
+        }
+        lastArrivalNanos = Math.max(lastArrivalNanos, enqueueTimeNanos);
+
+        double forceWriteLatency = forceWriteLatencyNanos;
+        if (forceWriteLatency == 0 || !hasArrivalInterval) {
+            // Not enough samples yet, keep the configured window
+            return;
+        }
+
+        if (arrivalIntervalNanos >= forceWriteLatency) {
+            groupWaitNanos = 0;
+            targetGroupEntries = 1;
+        } else {
+            groupWaitNanos = Math.min(maxGroupWaitNanos, (long) forceWriteLatency);
+            // Only batches so far, the group is flushed at the end of the window
+            targetGroupEntries = arrivalIntervalNanos == 0
+                    ? Long.MAX_VALUE : Math.max(1, (long) (forceWriteLatency / arrivalIntervalNanos));
+        }
+    }
+
+    long getGroupWaitNanos() {
+        return groupWaitNanos;
+    }
+
+    long getTargetGroupEntries() {
+        return targetGroupEntries;
+    }
+}
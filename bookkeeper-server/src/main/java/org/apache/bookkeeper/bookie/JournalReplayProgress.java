@@ -0,0 +1,154 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_REPLAY_BYTES_PER_SEC;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_REPLAY_ETA_SEC;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_REPLAY_REPLAYED_BYTES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_REPLAY_TOTAL_BYTES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_SCOPE;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+import org.apache.bookkeeper.util.MathUtils;
+
+/**
+ * Progress of the journal replay on bookie startup.
+ */
+@StatsDoc(
+    name = JOURNAL_SCOPE,
+    category = CATEGORY_SERVER,
+    help = "Journal replay progress stats"
+)
+public class JournalReplayProgress {
+
+    private volatile boolean inProgress = false;
+    private volatile long totalBytes = 0;
+    private final LongAdder replayedBytes = new LongAdder();
+    private volatile long startTimeNanos = 0;
+    private volatile long elapsedNanos = 0;
+
+    @StatsDoc(
+        name = JOURNAL_REPLAY_TOTAL_BYTES,
+        help = "The number of bytes of journal to replay on startup"
+    )
+    private final Gauge<Long> totalBytesGauge;
+    @StatsDoc(
+        name = JOURNAL_REPLAY_REPLAYED_BYTES,
+        help = "The number of bytes of journal already replayed on startup"
+    )
+    private final Gauge<Long> replayedBytesGauge;
+    @StatsDoc(
+        name = JOURNAL_REPLAY_BYTES_PER_SEC,
+        help = "The rate of the journal replay on startup, in bytes per second"
+    )
+    private final Gauge<Long> bytesPerSecondGauge;
+    @StatsDoc(
+        name = JOURNAL_REPLAY_ETA_SEC,
+        help = "The estimated time to complete the journal replay on startup, in seconds"
+    )
+    private final Gauge<Long> etaSecondsGauge;
+
+    JournalReplayProgress(StatsLogger statsLogger) {
+        totalBytesGauge = newGauge(this::getTotalBytes);
+        statsLogger.registerGauge(JOURNAL_REPLAY_TOTAL_BYTES, totalBytesGauge);
+        replayedBytesGauge = newGauge(this::getReplayedBytes);
+        statsLogger.registerGauge(JOURNAL_REPLAY_REPLAYED_BYTES, replayedBytesGauge);
+        bytesPerSecondGauge = newGauge(this::getBytesPerSecond);
+        statsLogger.registerGauge(JOURNAL_REPLAY_BYTES_PER_SEC, bytesPerSecondGauge);
+        etaSecondsGauge = newGauge(this::getEtaSeconds);
+        statsLogger.registerGauge(JOURNAL_REPLAY_ETA_SEC, etaSecondsGauge);
+    }
+
+    private static Gauge<Long> newGauge(LongSupplier supplier) {
+        return new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return supplier.getAsLong();
+            }
+        };
+    }
+
+    void start(long totalBytes) {
+        this.totalBytes = totalBytes;
+        this.replayedBytes.reset();
+        this.startTimeNanos = MathUtils.nowInNano();
+        this.elapsedNanos = 0;
+        this.inProgress = true;
+    }
+
+    void addReplayedBytes(long bytes) {
+        replayedBytes.add(bytes);
+    }
+
+    void complete() {
+        this.elapsedNanos = MathUtils.elapsedNanos(startTimeNanos);
+        this.inProgress = false;
+    }
+
+    /**
+     * @return whether the journal is being replayed
+     */
+    public boolean isInProgress() {
+        return inProgress;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getReplayedBytes() {
+        return replayedBytes.sum();
+    }
+
+    /**
+     * @return the average replay rate since the start of the replay
+     */
+    public long getBytesPerSecond() {
+        if (startTimeNanos == 0) {
+            return 0;
+        }
+        long elapsed = inProgress ? MathUtils.elapsedNanos(startTimeNanos) : elapsedNanos;
+        return elapsed <= 0 ? 0 : (long) (getReplayedBytes() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed);
+    }
+
+    /**
+     * @return the estimated time to complete the replay at the current rate, or -1 if unknown
+     */
+    public long getEtaSeconds() {
+        if (!inProgress) {
+            return 0;
+        }
+        long rate = getBytesPerSecond();
+        return rate == 0 ? -1 : Math.max(0, totalBytes - getReplayedBytes()) / rate;
+    }
+}
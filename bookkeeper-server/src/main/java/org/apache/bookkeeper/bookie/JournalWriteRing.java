@@ -0,0 +1,206 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pre-allocated off-heap ring where the threads adding entries to the journal serialize the journal records
+ * ({@code [length][entry]}) themselves, in parallel.
+ *
+ * <p>A producer reserves the space of its record with a single atomic increment, copies the record in its own
+ * region of the ring and then publishes it. The records are published in the order of their reservations, so the
+ * journal thread always finds a contiguous range of serialized records that it can write to the journal file in bulk,
+ * without copying them again.
+ *
+ * <p>The ring only has a single consumer, the journal thread. Producers wait when the ring is full, which bounds the
+ * memory used by the entries waiting to be written. Once the ring is closed, the producers stop waiting and their
+ * entries are rejected.
+ */
+class JournalWriteRing implements Closeable {
+
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long PARK_NANOS = 1000;
+
+    private final ByteBuf ring;
+    private final int capacity;
+    private final int mask;
+
+    // Next position to reserve
+    private final AtomicLong reserved = new AtomicLong(0);
+    // All the records before this position are serialized in the ring
+    private volatile long published = 0;
+    // All the records before this position are written to the journal file
+    private volatile long consumed = 0;
+
+    private volatile boolean closed = false;
+    // Producers currently copying or waiting in the ring, which must be gone before the ring is released
+    private final AtomicInteger activeProducers = new AtomicInteger(0);
+
+    JournalWriteRing(ByteBufAllocator allocator, long minCapacity) {
+        long size = Long.highestOneBit(Math.max(minCapacity, 4096) - 1) << 1;
+        if (size > (1 << 30)) {
+            throw new IllegalArgumentException("Journal write ring is too large: " + minCapacity);
+        }
+        this.capacity = (int) size;
+        this.mask = capacity - 1;
+        this.ring = allocator.directBuffer(capacity, capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Serialize a journal record for the entry in the ring, waiting for space if the ring is full.
+     *
+     * <p>Once the space is reserved, the record must be published for the following records to be published too, so
+     * this method is not interruptible. The interrupt status is restored before returning.
+     *
+     * @return the number of bytes of the record
+     * @throws IllegalStateException if the ring is closed before the record is published
+     */
+    int append(ByteBuf entry) {
+        int entrySize = entry.readableBytes();
+        int recordSize = 4 + entrySize;
+        if (recordSize > capacity) {
+            throw new IllegalArgumentException("Entry of " + entrySize + " bytes doesn't fit in the journal write ring"
+                    + " of " + capacity + " bytes");
+        }
+
+        activeProducers.incrementAndGet();
+        boolean interrupted = false;
+        try {
+            checkNotClosed();
+            long start = reserved.getAndAdd(recordSize);
+            long end = start + recordSize;
+
+            // Wait for the journal thread to write the records that were in the region
+            for (int spins = 0; end - consumed > capacity; spins++) {
+                interrupted |= pause(spins);
+                checkNotClosed();
+            }
+
+            int index = (int) (start & mask);
+            if (index + 4 <= capacity) {
+                ring.setInt(index, entrySize);
+            } else {
+                for (int i = 0; i < 4; i++) {
+                    ring.setByte((index + i) & mask, entrySize >>> (24 - 8 * i));
+                }
+            }
+
+            index = (int) ((start + 4) & mask);
+            int firstPart = Math.min(entrySize, capacity - index);
+            ring.setBytes(index, entry, entry.readerIndex(), firstPart);
+            if (firstPart < entrySize) {
+                ring.setBytes(0, entry, entry.readerIndex() + firstPart, entrySize - firstPart);
+            }
+
+            // Publish after all the records reserved before this one
+            for (int spins = 0; published != start; spins++) {
+                interrupted |= pause(spins);
+                // A record reserved before this one is never published once the ring is closed
+                checkNotClosed();
+            }
+            published = end;
+            return recordSize;
+        } finally {
+            activeProducers.decrementAndGet();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("The journal write ring is closed");
+        }
+    }
+
+    /**
+     * @return the number of bytes serialized in the ring and not written to the journal file yet
+     */
+    long pendingBytes() {
+        return published - consumed;
+    }
+
+    /**
+     * Write all the published records to the journal file. Must only be called by the journal thread.
+     *
+     * @return the number of bytes written
+     */
+    long writeTo(BufferedChannel bc) throws IOException {
+        long start = consumed;
+        long end = published;
+        if (end == start) {
+            return 0;
+        }
+
+        int index = (int) (start & mask);
+        int length = (int) (end - start);
+        int firstPart = Math.min(length, capacity - index);
+        bc.writeDirect(ring.nioBuffer(index, firstPart));
+        if (firstPart < length) {
+            bc.writeDirect(ring.nioBuffer(0, length - firstPart));
+        }
+
+        consumed = end;
+        return length;
+    }
+
+    /**
+     * @return whether the thread was interrupted
+     */
+    private static boolean pause(int spins) {
+        if (spins < SPINS_BEFORE_PARK) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return Thread.interrupted();
+    }
+
+    /**
+     * Close the ring. The producers waiting for space, or for the previous records to be published, give up, and the
+     * ring is only released once all of them are gone.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        for (int spins = 0; activeProducers.get() > 0; spins++) {
+            interrupted |= pause(spins);
+        }
+        ring.release();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
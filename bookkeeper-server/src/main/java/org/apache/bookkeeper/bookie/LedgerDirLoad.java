@@ -0,0 +1,190 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.bookkeeper.util.MathUtils;
+
+/**
+ * Load of a ledger directory, sampled from the writes and the syncs of the entry logs created in the directory, and
+ * from the number of I/Os in flight on the device holding the directory.
+ *
+ * <p>The latencies are averaged over the interval between two samples. A directory without any write during an
+ * interval can be probed, by writing and syncing a small file, so that an idle but slow directory is detected
+ * before new entry logs are created in it.
+ */
+class LedgerDirLoad {
+
+    static final String PROBE_FILE_NAME = "latencyProbe";
+    static final int PROBE_SIZE = 4096;
+
+    private final File dir;
+    // The I/Os in flight on the device, as reported by the kernel, or null if unknown
+    private final Path inflightFile;
+
+    private final AtomicInteger pendingIos = new AtomicInteger();
+    private final AtomicInteger maxPendingIos = new AtomicInteger();
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder fsyncNanos = new LongAdder();
+    private final LongAdder fsyncCount = new LongAdder();
+
+    private volatile long writeLatencyMicros = 0;
+    private volatile long fsyncLatencyMicros = 0;
+    private volatile long queueDepth = 0;
+
+    LedgerDirLoad(File dir) {
+        this.dir = dir;
+        this.inflightFile = findInflightFile(dir);
+    }
+
+    /**
+     * Find the file of the block device holding the directory, that reports the number of reads and writes in
+     * flight on the device. Only available on Linux, for the directories on a block device.
+     */
+    private static Path findInflightFile(File dir) {
+        try {
+            long dev = ((Number) Files.getAttribute(dir.toPath(), "unix:dev")).longValue();
+            long major = ((dev >>> 8) & 0xfffL) | ((dev >>> 32) & ~0xfffL);
+            long minor = (dev & 0xffL) | ((dev >>> 12) & ~0xffL);
+            Path inflight = Paths.get("/sys/dev/block", major + ":" + minor, "inflight");
+            return Files.isReadable(inflight) ? inflight : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the start time of the I/O, to be passed to its completion
+     */
+    long startIo() {
+        maxPendingIos.accumulateAndGet(pendingIos.incrementAndGet(), Math::max);
+        return MathUtils.nowInNano();
+    }
+
+    void writeCompleted(long startNanos) {
+        pendingIos.decrementAndGet();
+        writeNanos.add(MathUtils.elapsedNanos(startNanos));
+        writeCount.increment();
+    }
+
+    void fsyncCompleted(long startNanos) {
+        pendingIos.decrementAndGet();
+        fsyncNanos.add(MathUtils.elapsedNanos(startNanos));
+        fsyncCount.increment();
+    }
+
+    /**
+     * Compute the load of the directory since the previous sample. The latencies of the previous sample are kept
+     * when the directory was not written and not probed.
+     *
+     * @param probe whether to probe the directory if it was not written since the previous sample
+     */
+    void sample(boolean probe) throws IOException {
+        if (probe && writeCount.sum() == 0 && fsyncCount.sum() == 0) {
+            probe();
+        }
+
+        long writes = writeCount.sumThenReset();
+        long writeTime = writeNanos.sumThenReset();
+        if (writes > 0) {
+            writeLatencyMicros = writeTime / writes / 1000;
+        }
+        long fsyncs = fsyncCount.sumThenReset();
+        long fsyncTime = fsyncNanos.sumThenReset();
+        if (fsyncs > 0) {
+            fsyncLatencyMicros = fsyncTime / fsyncs / 1000;
+        }
+
+        long depth = maxPendingIos.getAndSet(pendingIos.get());
+        if (inflightFile != null) {
+            depth = readInflight();
+        }
+        queueDepth = depth;
+    }
+
+    private void probe() throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(PROBE_SIZE);
+        try (FileChannel probeChannel = new RandomAccessFile(new File(dir, PROBE_FILE_NAME), "rw").getChannel()) {
+            long startNanos = startIo();
+            try {
+                while (data.hasRemaining()) {
+                    probeChannel.write(data, data.position());
+                }
+            } finally {
+                writeCompleted(startNanos);
+            }
+            startNanos = startIo();
+            try {
+                probeChannel.force(false);
+            } finally {
+                fsyncCompleted(startNanos);
+            }
+        }
+    }
+
+    private long readInflight() throws IOException {
+        // The reads and the writes in flight
+        String[] counts = new String(Files.readAllBytes(inflightFile), StandardCharsets.US_ASCII).trim().split("\\s+");
+        long inflight = 0;
+        try {
+            for (String count : counts) {
+                inflight += Long.parseLong(count);
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid content of " + inflightFile, e);
+        }
+        return inflight;
+    }
+
+    /**
+     * @return the average latency of the writes during the last sample, in microseconds
+     */
+    long getWriteLatencyMicros() {
+        return writeLatencyMicros;
+    }
+
+    /**
+     * @return the average latency of the syncs during the last sample, in microseconds
+     */
+    long getFsyncLatencyMicros() {
+        return fsyncLatencyMicros;
+    }
+
+    /**
+     * @return the I/Os in flight on the device when sampled, or the maximum number of I/Os of the entry logs in
+     *         flight in the directory during the last sample if the device is unknown
+     */
+    long getQueueDepth() {
+        return queueDepth;
+    }
+}
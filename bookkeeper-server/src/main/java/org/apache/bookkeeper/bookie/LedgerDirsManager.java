@@ -20,6 +20,7 @@
  */
 package org.apache.bookkeeper.bookie;
 
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.LD_DEGRADED_DIRS;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.LD_NUM_DIRS;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.LD_WRITABLE_DIRS;
 
@@ -28,10 +29,14 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.stats.Gauge;
 import org.apache.bookkeeper.stats.NullStatsLogger;
@@ -48,7 +53,12 @@ public class LedgerDirsManager {
 
     private volatile List<File> filledDirs;
     private final List<File> ledgerDirectories;
+    // ledger dirs on the slow storage tier, which only receive the entry logs old enough to be moved there
+    private final Set<File> coldLedgerDirectories;
     private volatile List<File> writableLedgerDirectories;
+    // writable ledger dirs whose latency or queue depth is too high for new entry logs
+    private volatile List<File> degradedDirs;
+    private final ConcurrentMap<File, LedgerDirLoad> dirLoads = new ConcurrentHashMap<File, LedgerDirLoad>();
     private final List<LedgerDirsListener> listeners;
     private final Random rand = new Random();
     private final ConcurrentMap<File, Float> diskUsages =
@@ -69,8 +79,18 @@ public class LedgerDirsManager {
         for (File f : this.ledgerDirectories) {
             BookieImpl.checkDirectoryStructure(f);
         }
+        Set<File> coldDirs = new HashSet<File>();
+        for (File dir : BookieImpl.getCurrentDirectories(conf.getColdLedgerDirs())) {
+            if (ledgerDirectories.contains(dir)) {
+                coldDirs.add(dir);
+            }
+        }
+        // Without hot ledger dirs, all the ledger dirs are on the same tier
+        this.coldLedgerDirectories = coldDirs.size() < ledgerDirectories.size()
+                ? Collections.unmodifiableSet(coldDirs) : Collections.<File>emptySet();
         this.writableLedgerDirectories = new ArrayList<File>(ledgerDirectories);
         this.filledDirs = new ArrayList<File>();
+        this.degradedDirs = new ArrayList<File>();
         this.listeners = new ArrayList<LedgerDirsListener>();
         this.entryLogSize = conf.getEntryLogSizeLimit();
         this.minUsableSizeForIndexFileCreation = conf.getMinUsableSizeForIndexFileCreation();
@@ -90,6 +110,13 @@ public class LedgerDirsManager {
                     return diskUsages.get(targetDir) * 100;
                 }
             });
+
+            LedgerDirLoad load = new LedgerDirLoad(dir);
+            dirLoads.put(dir, load);
+            String statPrefix = "dir_" + dir.getParent().replace('/', '_');
+            registerLoadGauge(statsLogger, statPrefix + "_write_latency_us", load::getWriteLatencyMicros);
+            registerLoadGauge(statsLogger, statPrefix + "_fsync_latency_us", load::getFsyncLatencyMicros);
+            registerLoadGauge(statsLogger, statPrefix + "_queue_depth", load::getQueueDepth);
         }
 
         this.diskChecker = diskChecker;
@@ -106,6 +133,19 @@ public class LedgerDirsManager {
             }
         });
 
+        statsLogger.registerGauge(LD_DEGRADED_DIRS, new Gauge<Number>() {
+
+            @Override
+            public Number getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Number getSample() {
+                return degradedDirs.size();
+            }
+        });
+
         final int numDirs = dirs.length;
         statsLogger.registerGauge(LD_NUM_DIRS, new Gauge<Number>() {
 
@@ -121,6 +161,20 @@ public class LedgerDirsManager {
         });
     }
 
+    private static void registerLoadGauge(StatsLogger statsLogger, String name, LongSupplier supplier) {
+        statsLogger.registerGauge(name, new Gauge<Number>() {
+            @Override
+            public Number getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Number getSample() {
+                return supplier.getAsLong();
+            }
+        });
+    }
+
     /**
      * Get all ledger dirs configured.
      */
@@ -198,6 +252,50 @@ public class LedgerDirsManager {
         return getDirsAboveUsableThresholdSize(minUsableSizeForEntryLogCreation, true);
     }
 
+    /**
+     * @return whether some of the ledger dirs are on the slow storage tier
+     */
+    public boolean hasColdLedgerDirs() {
+        return !coldLedgerDirectories.isEmpty();
+    }
+
+    /**
+     * @return whether the ledger dir is on the slow storage tier
+     */
+    public boolean isColdLedgerDir(File dir) {
+        return coldLedgerDirectories.contains(dir);
+    }
+
+    /**
+     * Get the writable ledger dirs of the slow storage tier, where the old entry logs can be moved.
+     */
+    public List<File> getWritableColdLedgerDirs() {
+        List<File> dirs = new ArrayList<File>();
+        for (File dir : writableLedgerDirectories) {
+            if (coldLedgerDirectories.contains(dir)) {
+                dirs.add(dir);
+            }
+        }
+        return dirs;
+    }
+
+    /**
+     * Keep the hot ledger dirs among the given dirs, so that the new entry logs are created on the fast storage
+     * tier. The given dirs are returned as is when none of them is hot.
+     */
+    public List<File> preferHotLedgerDirs(List<File> dirs) {
+        if (coldLedgerDirectories.isEmpty()) {
+            return dirs;
+        }
+        List<File> hotDirs = new ArrayList<File>(dirs.size());
+        for (File dir : dirs) {
+            if (!coldLedgerDirectories.contains(dir)) {
+                hotDirs.add(dir);
+            }
+        }
+        return hotDirs.isEmpty() ? dirs : hotDirs;
+    }
+
     List<File> getDirsAboveUsableThresholdSize(long thresholdSize, boolean loggingNoWritable)
             throws NoWritableLedgerDirException {
         List<File> fullLedgerDirsToAccomodate = new ArrayList<File>();
@@ -290,6 +388,89 @@ public class LedgerDirsManager {
         }
     }
 
+    /**
+     * Get the load of a ledger dir.
+     *
+     * @return the load of the dir, or null if the dir is not one of the ledger dirs
+     */
+    LedgerDirLoad getDirLoad(File dir) {
+        return dirLoads.get(dir);
+    }
+
+    /**
+     * Sample the load of the ledger dirs through the loads of another ledger dirs manager, for the ledger dirs they
+     * share, so that the entry logs created through this manager are accounted in the load monitored by the other.
+     */
+    public void shareDirLoads(LedgerDirsManager ledgerDirsManager) {
+        for (File dir : ledgerDirectories) {
+            LedgerDirLoad load = ledgerDirsManager.getDirLoad(dir);
+            if (load != null) {
+                dirLoads.put(dir, load);
+            }
+        }
+    }
+
+    /**
+     * @return the writable ledger dirs whose latency or queue depth is too high for new entry logs
+     */
+    public List<File> getDegradedLedgerDirs() {
+        return degradedDirs;
+    }
+
+    public boolean isDirDegraded(File dir) {
+        return degradedDirs.contains(dir);
+    }
+
+    /**
+     * Add the dir to the degraded dirs list.
+     */
+    public void addToDegradedDirs(File dir) {
+        if (degradedDirs.contains(dir)) {
+            return;
+        }
+        LOG.warn("{} is degraded. Adding it to degraded dirs list", dir);
+        List<File> newDirs = new ArrayList<File>(degradedDirs);
+        newDirs.add(dir);
+        degradedDirs = newDirs;
+        for (LedgerDirsListener listener : listeners) {
+            listener.diskDegraded(dir);
+        }
+    }
+
+    /**
+     * Remove the dir from the degraded dirs list.
+     */
+    public void removeFromDegradedDirs(File dir) {
+        if (!degradedDirs.contains(dir)) {
+            return;
+        }
+        LOG.info("{} is no longer degraded. Removing it from degraded dirs list", dir);
+        List<File> newDirs = new ArrayList<File>(degradedDirs);
+        newDirs.remove(dir);
+        degradedDirs = newDirs;
+        for (LedgerDirsListener listener : listeners) {
+            listener.diskRecovered(dir);
+        }
+    }
+
+    /**
+     * Keep the dirs which are not degraded among the given dirs, so that the new entry logs are not created on a
+     * slow or overloaded disk. The given dirs are returned as is when all of them are degraded.
+     */
+    public List<File> preferHealthyLedgerDirs(List<File> dirs) {
+        List<File> degraded = degradedDirs;
+        if (degraded.isEmpty()) {
+            return dirs;
+        }
+        List<File> healthyDirs = new ArrayList<File>(dirs.size());
+        for (File dir : dirs) {
+            if (!degraded.contains(dir)) {
+                healthyDirs.add(dir);
+            }
+        }
+        return healthyDirs.isEmpty() ? dirs : healthyDirs;
+    }
+
     /**
      * Returns one of the ledger dir from writable dirs list randomly.
      */
@@ -423,6 +604,21 @@ public class LedgerDirsManager {
          */
         default void diskJustWritable(File disk) {}
 
+        /**
+         * This will be notified on disk detected as degraded: still writable, but with a write latency or a queue
+         * depth above the thresholds. No new entry log is created on a degraded disk while other disks are not.
+         *
+         * @param disk Degraded disk
+         */
+        default void diskDegraded(File disk) {}
+
+        /**
+         * This will be notified on degraded disk detected back under the latency and queue depth thresholds.
+         *
+         * @param disk Recovered disk
+         */
+        default void diskRecovered(File disk) {}
+
         /**
          * This will be notified whenever all disks are detected as full.
          *
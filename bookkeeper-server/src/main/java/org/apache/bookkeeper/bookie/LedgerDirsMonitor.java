@@ -21,10 +21,12 @@
 
 package org.apache.bookkeeper.bookie;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 
@@ -43,7 +45,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Thread to monitor the disk space periodically.
+ * Thread to monitor the disk space and the load of the disks periodically.
  */
 class LedgerDirsMonitor {
     private static final Logger LOG = LoggerFactory.getLogger(LedgerDirsMonitor.class);
@@ -53,6 +55,10 @@ class LedgerDirsMonitor {
     private final DiskChecker diskChecker;
     private final List<LedgerDirsManager> dirsManagers;
     private long minUsableSizeForHighPriorityWrites;
+    // 0 if the latency of the dirs is not checked
+    private final long degradedLatencyMicros;
+    // 0 if the queue depth of the dirs is not checked
+    private final long degradedQueueDepth;
     private ScheduledExecutorService executor;
     private ScheduledFuture<?> checkTask;
 
@@ -64,6 +70,8 @@ class LedgerDirsMonitor {
         this.conf = conf;
         this.diskChecker = diskChecker;
         this.dirsManagers = dirsManagers;
+        this.degradedLatencyMicros = TimeUnit.MILLISECONDS.toMicros(conf.getDiskDegradedLatencyThresholdMs());
+        this.degradedQueueDepth = conf.getDiskDegradedQueueDepthThreshold();
     }
 
     private void check(final LedgerDirsManager ldm) {
@@ -170,8 +178,53 @@ class LedgerDirsMonitor {
         }
     }
 
-    private void check() {
+    /**
+     * Sample the load of the dirs, and mark the writable dirs with a too high latency or queue depth as degraded,
+     * until they are back under half the thresholds.
+     */
+    private void checkLoad(final LedgerDirsManager ldm) {
+        List<File> writableDirs;
+        try {
+            writableDirs = ldm.getWritableLedgerDirs();
+        } catch (NoWritableLedgerDirException e) {
+            writableDirs = Collections.emptyList();
+        }
+        for (File dir : ldm.getAllLedgerDirs()) {
+            LedgerDirLoad load = ldm.getDirLoad(dir);
+            if (load == null) {
+                continue;
+            }
+            boolean writable = writableDirs.contains(dir);
+            try {
+                // Probe the idle dirs, so that a slow dir is not picked for the next entry logs
+                load.sample(degradedLatencyMicros > 0 && writable);
+            } catch (IOException e) {
+                LOG.warn("Failed to sample the load of ledger directory {} : {}", dir, e.getMessage());
+                continue;
+            }
+            if (!writable) {
+                ldm.removeFromDegradedDirs(dir);
+                continue;
+            }
+
+            long latency = Math.max(load.getWriteLatencyMicros(), load.getFsyncLatencyMicros());
+            long queueDepth = load.getQueueDepth();
+            boolean aboveThresholds = (degradedLatencyMicros > 0 && latency > degradedLatencyMicros)
+                    || (degradedQueueDepth > 0 && queueDepth > degradedQueueDepth);
+            boolean underHalfThresholds = (degradedLatencyMicros == 0 || latency <= degradedLatencyMicros / 2)
+                    && (degradedQueueDepth == 0 || queueDepth <= degradedQueueDepth / 2);
+            if (aboveThresholds) {
+                ldm.addToDegradedDirs(dir);
+            } else if (underHalfThresholds) {
+                ldm.removeFromDegradedDirs(dir);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void check() {
         dirsManagers.forEach(this::check);
+        dirsManagers.forEach(this::checkLoad);
     }
 
     /**
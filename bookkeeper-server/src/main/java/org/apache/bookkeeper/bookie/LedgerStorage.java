@@ -24,6 +24,9 @@ package org.apache.bookkeeper.bookie;
 import com.google.common.util.concurrent.RateLimiter;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.FileRegion;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -32,6 +35,7 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.PrimitiveIterator;
+import java.util.concurrent.Executor;
 
 import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
 import org.apache.bookkeeper.common.util.Watcher;
@@ -145,6 +149,73 @@ public interface LedgerStorage {
      */
     ByteBuf getEntry(long ledgerId, long entryId) throws IOException, BookieException;
 
+    /**
+     * Read a batch of consecutive entries from storage, starting at {@code firstEntryId}.
+     *
+     * <p>The batch ends at the first entry that is not found, after {@code maxCount} entries, or before the
+     * entry that would make the total size of the batch exceed {@code maxBytes}. The first entry is always
+     * returned, regardless of its size.
+     *
+     * <p>The default implementation reads the entries one by one with {@link #getEntry(long, long)}.
+     *
+     * @return the entries read, in entry id order. The caller is responsible for releasing them
+     * @throws Bookie.NoEntryException if the first entry is not found
+     */
+    default List<ByteBuf> getEntries(long ledgerId, long firstEntryId, int maxCount, long maxBytes)
+            throws IOException, BookieException {
+        List<ByteBuf> entries = new ArrayList<>();
+        long size = 0;
+        try {
+            for (long entryId = firstEntryId; entries.size() < maxCount; entryId++) {
+                ByteBuf entry;
+                try {
+                    entry = getEntry(ledgerId, entryId);
+                } catch (Bookie.NoEntryException e) {
+                    if (entries.isEmpty()) {
+                        throw e;
+                    }
+                    break;
+                }
+
+                if (!entries.isEmpty() && size + entry.readableBytes() > maxBytes) {
+                    entry.release();
+                    break;
+                }
+                entries.add(entry);
+                size += entry.readableBytes();
+            }
+        } catch (IOException | BookieException | RuntimeException e) {
+            entries.forEach(ReferenceCountUtil::safeRelease);
+            throw e;
+        }
+        return entries;
+    }
+
+    /**
+     * Read an entry from storage, to transfer it to the network. An entry stored in a file, and at least
+     * {@code minRegionSize} bytes long, may be returned as a {@link FileRegion} of that file instead of being read
+     * in memory, so that it can be sent with zero-copy.
+     *
+     * <p>The default implementation reads the entry with {@link #getEntry(long, long)}.
+     *
+     * @return a {@link ByteBuf} or a {@link FileRegion} with the entry. The caller is responsible for releasing it
+     */
+    default ReferenceCounted getEntryForTransfer(long ledgerId, long entryId, int minRegionSize)
+            throws IOException, BookieException {
+        return getEntry(ledgerId, entryId);
+    }
+
+    /**
+     * Get the executor to read an entry from, when the entry has to be read from a disk with its own read threads.
+     *
+     * <p>The default implementation returns null, so that all the entries are read by the calling thread.
+     *
+     * @return the executor of the disk holding the entry, or null if the entry can be read by the calling thread
+     */
+    default Executor getReadExecutor(long ledgerId, long entryId) {
+        return null;
+    }
+
     /**
      * Get last add confirmed.
      *
@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCounted;
+// CHECKSTYLE.OFF: IllegalImport
+import io.netty.util.internal.PlatformDependent;
+// CHECKSTYLE.ON: IllegalImport
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A sealed entry log mapped in memory.
+ *
+ * <p>The entries are returned as zero-copy slices of the mapping. Each slice holds a reference on the
+ * mapping, so the file is only unmapped once the mapping has been dropped from the cache and all the
+ * entries read from it have been released.
+ */
+class MappedEntryLog extends AbstractReferenceCounted {
+
+    private final long logId;
+    private final MappedByteBuffer buffer;
+    private final ByteBuf content;
+
+    private MappedEntryLog(long logId, MappedByteBuffer buffer) {
+        this.logId = logId;
+        this.buffer = buffer;
+        this.content = Unpooled.wrappedBuffer(buffer);
+    }
+
+    static MappedEntryLog map(long logId, File file) throws IOException {
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new MappedEntryLog(logId, fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()));
+        }
+    }
+
+    long getLogId() {
+        return logId;
+    }
+
+    int size() {
+        return content.capacity();
+    }
+
+    /**
+     * Get a view of the whole log. The view doesn't hold a reference on the mapping.
+     */
+    ByteBuf content() {
+        return content;
+    }
+
+    /**
+     * Get a slice of the log, which holds a reference on the mapping until it is released.
+     */
+    ByteBuf retainedSlice(int index, int length) {
+        retain();
+        return new MappedSliceByteBuf(this, content.retainedSlice(index, length));
+    }
+
+    @Override
+    protected void deallocate() {
+        content.release();
+        PlatformDependent.freeDirectBuffer(buffer);
+    }
+
+    @Override
+    public ReferenceCounted touch(Object hint) {
+        return this;
+    }
+
+    /**
+     * A slice of the mapping, which releases its reference on the mapping when it is released.
+     */
+    private static class MappedSliceByteBuf extends CompositeByteBuf {
+        private final MappedEntryLog log;
+
+        MappedSliceByteBuf(MappedEntryLog log, ByteBuf slice) {
+            super(ByteBufAllocator.DEFAULT, true, 1, slice);
+            this.log = log;
+        }
+
+        @Override
+        protected void deallocate() {
+            super.deallocate();
+            log.release();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.netty.util.IllegalReferenceCountException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded LRU cache of the sealed entry logs mapped in memory.
+ *
+ * <p>The cache holds a reference on each mapping, which is released when the mapping is evicted or
+ * when its log is deleted.
+ */
+class MappedEntryLogCache {
+
+    private final Cache<Long, MappedEntryLog> mappedLogs;
+
+    MappedEntryLogCache(int maxMappedLogs) {
+        this.mappedLogs = CacheBuilder.newBuilder()
+                .maximumSize(maxMappedLogs)
+                .removalListener((RemovalListener<Long, MappedEntryLog>) notification ->
+                        notification.getValue().release())
+                .build();
+    }
+
+    /**
+     * Get the mapping of a sealed entry log, mapping the file if needed.
+     * The caller must release the returned mapping.
+     */
+    MappedEntryLog get(long logId, File file) throws IOException {
+        while (true) {
+            MappedEntryLog log;
+            try {
+                log = mappedLogs.get(logId, () -> MappedEntryLog.map(logId, file));
+            } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+                // The unchecked failures of the mapping, like a file too large to be mapped, are wrapped too
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Failed to map entry log " + logId, e.getCause());
+            }
+            try {
+                log.retain();
+                return log;
+            } catch (IllegalReferenceCountException e) {
+                // the mapping has just been evicted, map the file again
+            }
+        }
+    }
+
+    /**
+     * Get the mapping of an entry log if it is already mapped.
+     * The caller must release the returned mapping.
+     */
+    MappedEntryLog getIfPresent(long logId) {
+        MappedEntryLog log = mappedLogs.getIfPresent(logId);
+        if (log == null) {
+            return null;
+        }
+        try {
+            log.retain();
+            return log;
+        } catch (IllegalReferenceCountException e) {
+            return null;
+        }
+    }
+
+    void invalidate(long logId) {
+        mappedLogs.invalidate(logId);
+    }
+
+    void close() {
+        mappedLogs.invalidateAll();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.bookie.Journal.JournalScanner;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.SafeRunnable;
+
+/**
+ * Journal scanner that applies the replayed records in the background, on the thread of an {@link OrderedExecutor}
+ * picked by the ledger id of the record. The records of a ledger are applied in the journal order, while the records
+ * of different ledgers are applied in parallel, and the thread scanning the journal only decodes the records.
+ *
+ * <p>The memory used by the records waiting to be applied is bounded, and the scanning thread waits when the limit is
+ * reached.
+ */
+class ParallelJournalScanner implements JournalScanner {
+
+    private final JournalScanner scanner;
+    private final OrderedExecutor executor;
+    private final int maxPendingBytes;
+    private final Semaphore pendingBytes;
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    ParallelJournalScanner(JournalScanner scanner, OrderedExecutor executor, int maxPendingBytes) {
+        this.scanner = scanner;
+        this.executor = executor;
+        this.maxPendingBytes = maxPendingBytes;
+        this.pendingBytes = new Semaphore(maxPendingBytes);
+    }
+
+    @Override
+    public void process(int journalVersion, long offset, ByteBuffer entry) throws IOException {
+        checkFailure();
+
+        // The entry buffer is reused by the journal scan
+        ByteBuffer record = ByteBuffer.allocate(entry.remaining());
+        record.put(entry);
+        record.flip();
+        long ledgerId = record.getLong(0);
+
+        int permits = Math.min(record.remaining(), maxPendingBytes);
+        acquire(permits);
+        executor.executeOrdered(ledgerId, SafeRunnable.safeRun(() -> {
+            try {
+                if (failure.get() == null) {
+                    scanner.process(journalVersion, offset, record);
+                }
+            } catch (IOException e) {
+                failure.compareAndSet(null, e);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, new IOException(e));
+            } finally {
+                pendingBytes.release(permits);
+            }
+        }));
+    }
+
+    /**
+     * Wait for all the records scanned so far to be applied.
+     *
+     * @throws IOException if a record could not be applied
+     */
+    void awaitApplied() throws IOException {
+        acquire(maxPendingBytes);
+        pendingBytes.release(maxPendingBytes);
+        checkFailure();
+    }
+
+    private void acquire(int permits) throws IOException {
+        try {
+            pendingBytes.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while replaying the journal", e);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+}
@@ -26,11 +26,14 @@ import static org.apache.bookkeeper.common.concurrent.FutureUtils.result;
 import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.net.URI;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -50,6 +53,7 @@ import org.apache.bookkeeper.meta.MetadataBookieDriver;
 import org.apache.bookkeeper.meta.MetadataDrivers;
 import org.apache.bookkeeper.meta.exceptions.MetadataException;
 import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.versioning.Versioned;
 import org.apache.commons.configuration.ConfigurationException;
@@ -69,6 +73,13 @@ import org.slf4j.LoggerFactory;
  * <b>globalActiveLedgers</b>, do garbage collection on them.
  * </ul>
  * </p>
+ *
+ * <p>
+ * When the incremental ledger scan is enabled, a metadata listener is registered on each ledger stored on the
+ * bookie, and only the ledgers whose deletion was notified are garbage collected. All the ledgers of the metadata
+ * store are still scanned every {@link ServerConfiguration#getGcLedgerFullScanWaitTimeMillis()}, in case a
+ * notification was missed.
+ * </p>
  */
 public class ScanAndCompareGarbageCollector implements GarbageCollector {
 
@@ -86,6 +97,21 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
     private StatsLogger statsLogger;
     private final int maxConcurrentRequests;
 
+    private final boolean incrementalScanEnabled;
+    private final long fullScanIntervalMillis;
+    private long lastFullScanTimeMillis;
+    // Ledgers stored on the bookie with a registered metadata listener
+    private final Set<Long> watchedLedgers = ConcurrentHashMap.newKeySet();
+    // Ledgers whose deletion from the metadata store was notified since the last gc
+    private final Set<Long> deletedLedgers = ConcurrentHashMap.newKeySet();
+    private final LedgerMetadataListener deletionListener = (ledgerId, metadata) -> {
+        if (metadata == null) {
+            // the listener is removed by the ledger manager once the ledger is deleted
+            watchedLedgers.remove(ledgerId);
+            deletedLedgers.add(ledgerId);
+        }
+    };
+
     public ScanAndCompareGarbageCollector(LedgerManager ledgerManager, CompactableLedgerStorage ledgerStorage,
             ServerConfiguration conf, StatsLogger statsLogger) throws IOException {
         this.ledgerManager = ledgerManager;
@@ -105,6 +131,12 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
 
         verifyMetadataOnGc = conf.getVerifyMetadataOnGC();
 
+        this.incrementalScanEnabled = conf.isGcIncrementalLedgerScanEnabled();
+        this.fullScanIntervalMillis = conf.getGcLedgerFullScanWaitTimeMillis();
+        this.lastFullScanTimeMillis = 0;
+        LOG.info("Incremental Ledger Scan : enabled={}, fullScanInterval={}",
+                incrementalScanEnabled, fullScanIntervalMillis);
+
         this.activeLedgerCounter = 0;
     }
 
@@ -142,73 +174,24 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
                 lastOverReplicatedLedgerGcTimeMillis = System.currentTimeMillis();
             }
 
-            // Iterate over all the ledger on the metadata store
             long zkOpTimeoutMs = this.conf.getZkTimeout() * 2;
-            LedgerRangeIterator ledgerRangeIterator = ledgerManager
-                    .getLedgerRanges(zkOpTimeoutMs);
-            Set<Long> ledgersInMetadata = null;
-            long start;
-            long end = -1;
-            boolean done = false;
-            AtomicBoolean isBookieInEnsembles = new AtomicBoolean(false);
-            Versioned<LedgerMetadata> metadata = null;
-            while (!done) {
-                start = end + 1;
-                if (ledgerRangeIterator.hasNext()) {
-                    LedgerRange lRange = ledgerRangeIterator.next();
-                    ledgersInMetadata = lRange.getLedgers();
-                    end = lRange.end();
-                } else {
-                    ledgersInMetadata = new TreeSet<>();
-                    end = Long.MAX_VALUE;
-                    done = true;
-                }
-
-                Iterable<Long> subBkActiveLedgers = bkActiveLedgers.subSet(start, true, end, true);
+            Set<Long> cleanedLedgers = new HashSet<>();
+            GarbageCleaner cleaner = ledgerId -> {
+                garbageCleaner.clean(ledgerId);
+                cleanedLedgers.add(ledgerId);
+            };
+            if (incrementalScanEnabled && curTime - lastFullScanTimeMillis < fullScanIntervalMillis) {
+                gcDeletedLedgers(bkActiveLedgers, cleaner, zkOpTimeoutMs);
+            } else {
+                // the deletions notified so far are all found by the full scan
+                deletedLedgers.clear();
+                gcAllLedgers(bkActiveLedgers, cleaner, zkOpTimeoutMs);
+                lastFullScanTimeMillis = curTime;
+            }
 
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Active in metadata {}, Active in bookie {}", ledgersInMetadata, subBkActiveLedgers);
-                }
-                for (Long bkLid : subBkActiveLedgers) {
-                    if (!ledgersInMetadata.contains(bkLid)) {
-                        if (verifyMetadataOnGc) {
-                            isBookieInEnsembles.set(false);
-                            metadata = null;
-                            int rc = BKException.Code.OK;
-                            try {
-                                metadata = result(ledgerManager.readLedgerMetadata(bkLid), zkOpTimeoutMs,
-                                        TimeUnit.MILLISECONDS);
-                            } catch (BKException | TimeoutException e) {
-                                if (e instanceof BKException) {
-                                    rc = ((BKException) e).getCode();
-                                } else {
-                                    LOG.warn("Time-out while fetching metadata for Ledger {} : {}.", bkLid,
-                                            e.getMessage());
-
-                                    continue;
-                                }
-                            }
-                            // check bookie should be part of ensembles in one
-                            // of the segment else ledger should be deleted from
-                            // local storage
-                            if (metadata != null && metadata.getValue() != null) {
-                                metadata.getValue().getAllEnsembles().forEach((entryId, ensembles) -> {
-                                    if (ensembles != null && ensembles.contains(selfBookieAddress)) {
-                                        isBookieInEnsembles.set(true);
-                                    }
-                                });
-                                if (isBookieInEnsembles.get()) {
-                                    continue;
-                                }
-                            } else if (rc != BKException.Code.NoSuchLedgerExistsOnMetadataServerException) {
-                                LOG.warn("Ledger {} Missing in metadata list, but ledgerManager returned rc: {}.",
-                                        bkLid, rc);
-                                continue;
-                            }
-                        }
-                        garbageCleaner.clean(bkLid);
-                    }
-                }
+            if (incrementalScanEnabled) {
+                bkActiveLedgers.removeAll(cleanedLedgers);
+                watchLedgers(bkActiveLedgers);
             }
         } catch (Throwable t) {
             // ignore exception, collecting garbage next time
@@ -216,6 +199,131 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
         }
     }
 
+    /**
+     * Garbage collect the ledgers stored on the bookie that are missing from the list of all the ledgers of the
+     * metadata store.
+     */
+    private void gcAllLedgers(NavigableSet<Long> bkActiveLedgers, GarbageCleaner garbageCleaner, long zkOpTimeoutMs)
+            throws Exception {
+        // Iterate over all the ledger on the metadata store
+        LedgerRangeIterator ledgerRangeIterator = ledgerManager
+                .getLedgerRanges(zkOpTimeoutMs);
+        Set<Long> ledgersInMetadata = null;
+        long start;
+        long end = -1;
+        boolean done = false;
+        while (!done) {
+            start = end + 1;
+            if (ledgerRangeIterator.hasNext()) {
+                LedgerRange lRange = ledgerRangeIterator.next();
+                ledgersInMetadata = lRange.getLedgers();
+                end = lRange.end();
+            } else {
+                ledgersInMetadata = new TreeSet<>();
+                end = Long.MAX_VALUE;
+                done = true;
+            }
+
+            Iterable<Long> subBkActiveLedgers = bkActiveLedgers.subSet(start, true, end, true);
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Active in metadata {}, Active in bookie {}", ledgersInMetadata, subBkActiveLedgers);
+            }
+            for (Long bkLid : subBkActiveLedgers) {
+                if (!ledgersInMetadata.contains(bkLid)) {
+                    if (verifyMetadataOnGc && !isLedgerGarbage(bkLid, zkOpTimeoutMs)) {
+                        continue;
+                    }
+                    garbageCleaner.clean(bkLid);
+                }
+            }
+        }
+    }
+
+    /**
+     * Garbage collect the ledgers stored on the bookie whose deletion was notified since the last gc.
+     */
+    private void gcDeletedLedgers(Set<Long> bkActiveLedgers, GarbageCleaner garbageCleaner, long zkOpTimeoutMs)
+            throws Exception {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Deleted in metadata {}", deletedLedgers);
+        }
+        Iterator<Long> iterator = deletedLedgers.iterator();
+        while (iterator.hasNext()) {
+            long bkLid = iterator.next();
+            iterator.remove();
+            if (!bkActiveLedgers.contains(bkLid)) {
+                continue;
+            }
+            // if the ledger is kept, it is watched again, and its deletion notified again
+            if (verifyMetadataOnGc && !isLedgerGarbage(bkLid, zkOpTimeoutMs)) {
+                continue;
+            }
+            garbageCleaner.clean(bkLid);
+        }
+    }
+
+    /**
+     * Register the deletion listener on the ledgers stored on the bookie, and unregister it from the ledgers that
+     * are not stored on the bookie anymore. The deletion of a ledger already deleted from the metadata store is
+     * notified on registration.
+     */
+    private void watchLedgers(Set<Long> bkActiveLedgers) {
+        Iterator<Long> iterator = watchedLedgers.iterator();
+        while (iterator.hasNext()) {
+            long ledgerId = iterator.next();
+            if (!bkActiveLedgers.contains(ledgerId)) {
+                iterator.remove();
+                ledgerManager.unregisterLedgerMetadataListener(ledgerId, deletionListener);
+            }
+        }
+        for (Long ledgerId : bkActiveLedgers) {
+            if (watchedLedgers.add(ledgerId)) {
+                ledgerManager.registerLedgerMetadataListener(ledgerId, deletionListener);
+            }
+        }
+    }
+
+    /**
+     * Double check whether a ledger missing from the metadata store can be garbage collected.
+     */
+    private boolean isLedgerGarbage(long bkLid, long zkOpTimeoutMs) throws Exception {
+        AtomicBoolean isBookieInEnsembles = new AtomicBoolean(false);
+        Versioned<LedgerMetadata> metadata = null;
+        int rc = BKException.Code.OK;
+        try {
+            metadata = result(ledgerManager.readLedgerMetadata(bkLid), zkOpTimeoutMs,
+                    TimeUnit.MILLISECONDS);
+        } catch (BKException | TimeoutException e) {
+            if (e instanceof BKException) {
+                rc = ((BKException) e).getCode();
+            } else {
+                LOG.warn("Time-out while fetching metadata for Ledger {} : {}.", bkLid,
+                        e.getMessage());
+
+                return false;
+            }
+        }
+        // check bookie should be part of ensembles in one
+        // of the segment else ledger should be deleted from
+        // local storage
+        if (metadata != null && metadata.getValue() != null) {
+            metadata.getValue().getAllEnsembles().forEach((entryId, ensembles) -> {
+                if (ensembles != null && ensembles.contains(selfBookieAddress)) {
+                    isBookieInEnsembles.set(true);
+                }
+            });
+            if (isBookieInEnsembles.get()) {
+                return false;
+            }
+        } else if (rc != BKException.Code.NoSuchLedgerExistsOnMetadataServerException) {
+            LOG.warn("Ledger {} Missing in metadata list, but ledgerManager returned rc: {}.",
+                    bkLid, rc);
+            return false;
+        }
+        return true;
+    }
+
     private Set<Long> removeOverReplicatedledgers(Set<Long> bkActiveledgers, final GarbageCleaner garbageCleaner)
             throws Exception {
         final Set<Long> overReplicatedLedgers = Sets.newHashSet();
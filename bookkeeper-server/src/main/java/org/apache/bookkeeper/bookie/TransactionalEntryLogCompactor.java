@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.bookkeeper.bookie.EntryLogger.EntryLocationScanner;
 import org.apache.bookkeeper.bookie.EntryLogger.EntryLogScanner;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.util.HardLink;
@@ -48,6 +49,7 @@ public class TransactionalEntryLogCompactor extends AbstractLogCompactor {
     final EntryLogger entryLogger;
     final CompactableLedgerStorage ledgerStorage;
     final List<EntryLocation> offsets = new ArrayList<>();
+    private final boolean transferEnabled;
 
     // compaction log file suffix
     static final String COMPACTING_SUFFIX = ".log.compacting";
@@ -62,6 +64,7 @@ public class TransactionalEntryLogCompactor extends AbstractLogCompactor {
         super(conf, logRemover);
         this.entryLogger = entryLogger;
         this.ledgerStorage = ledgerStorage;
+        this.transferEnabled = conf.isCompactionTransferEnabled();
     }
 
     /**
@@ -171,6 +174,28 @@ public class TransactionalEntryLogCompactor extends AbstractLogCompactor {
         void start() throws IOException {
             // scan entry log into compaction log and offset list
             entryLogger.createNewCompactionLog();
+            // transfer the runs of live entries located from the footer index, without reading them
+            if (transferEnabled && entryLogger.transferEntryLogForCompaction(metadata.getEntryLogId(),
+                    new EntryLocationScanner() {
+                        @Override
+                        public boolean accept(long ledgerId) {
+                            return metadata.containsLedger(ledgerId);
+                        }
+
+                        @Override
+                        public void process(long ledgerId, long entryId, long newOffset, int entrySize) {
+                            throttler.acquire(entrySize);
+                            synchronized (TransactionalEntryLogCompactor.this) {
+                                offsets.add(new EntryLocation(ledgerId, entryId, newOffset));
+                            }
+                            if (LOG.isDebugEnabled()) {
+                                LOG.debug("Compact transfer entry : lid = {}, eid = {}, offset = {}",
+                                        ledgerId, entryId, newOffset);
+                            }
+                        }
+                    })) {
+                return;
+            }
             entryLogger.scanEntryLog(metadata.getEntryLogId(), new EntryLogScanner() {
                 @Override
                 public boolean accept(long ledgerId) {
@@ -27,6 +27,8 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.DELETED_LEDGER_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.MAJOR_COMPACTION_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.MINOR_COMPACTION_COUNT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.MOVED_COLD_ENTRY_LOG_BYTES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.MOVED_COLD_ENTRY_LOG_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RECLAIMED_COMPACTION_SPACE_BYTES;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RECLAIMED_DELETION_SPACE_BYTES;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.THREAD_RUNTIME;
@@ -76,6 +78,16 @@ public class GarbageCollectorStats {
         help = "Number of ledgers deleted by garbage collection"
     )
     private final Counter deletedLedgerCounter;
+    @StatsDoc(
+        name = MOVED_COLD_ENTRY_LOG_COUNT,
+        help = "Number of entry log files moved to the cold ledger directories"
+    )
+    private final Counter movedColdEntryLogCounter;
+    @StatsDoc(
+        name = MOVED_COLD_ENTRY_LOG_BYTES,
+        help = "Number of bytes of entry log files moved to the cold ledger directories"
+    )
+    private final Counter movedColdEntryLogBytes;
     @StatsDoc(
         name = THREAD_RUNTIME,
         help = "Operation stats of garbage collections"
@@ -109,6 +121,8 @@ public class GarbageCollectorStats {
         this.reclaimedSpaceViaDeletes = statsLogger.getCounter(RECLAIMED_DELETION_SPACE_BYTES);
         this.gcThreadRuntime = statsLogger.getOpStatsLogger(THREAD_RUNTIME);
         this.deletedLedgerCounter = statsLogger.getCounter(DELETED_LEDGER_COUNT);
+        this.movedColdEntryLogCounter = statsLogger.getCounter(MOVED_COLD_ENTRY_LOG_COUNT);
+        this.movedColdEntryLogBytes = statsLogger.getCounter(MOVED_COLD_ENTRY_LOG_BYTES);
 
         this.activeEntryLogCountGauge = new Gauge<Integer>() {
             @Override
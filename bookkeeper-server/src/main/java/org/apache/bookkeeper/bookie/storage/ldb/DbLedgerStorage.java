@@ -25,9 +25,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.DefaultThreadFactory;
 //CHECKSTYLE.OFF: IllegalImport
 import io.netty.util.internal.PlatformDependent;
@@ -39,7 +41,11 @@ import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.PrimitiveIterator.OfLong;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 
 import java.util.stream.Collectors;
@@ -91,6 +97,30 @@ public class DbLedgerStorage implements LedgerStorage {
     static final String READ_AHEAD_CACHE_BATCH_SIZE = "dbStorage_readAheadCacheBatchSize";
     private static final int DEFAULT_READ_AHEAD_CACHE_BATCH_SIZE = 100;
 
+    static final String READ_AHEAD_CACHE_ADAPTIVE = "dbStorage_readAheadCacheAdaptive";
+
+    static final String READ_AHEAD_CACHE_MAX_BATCH_SIZE = "dbStorage_readAheadCacheMaxBatchSize";
+
+    static final String READ_AHEAD_CACHE_PROTECTED_RATIO = "dbStorage_readAheadCacheProtectedRatio";
+    static final double DEFAULT_READ_AHEAD_CACHE_PROTECTED_RATIO = 0.0;
+
+    static final String READ_AHEAD_CACHE_PROMOTION_FREQUENCY = "dbStorage_readAheadCachePromotionFrequency";
+
+    static final String LOCATION_CACHE_MAX_SIZE_MB = "dbStorage_locationCacheMaxSizeMb";
+    static final long DEFAULT_LOCATION_CACHE_MAX_SIZE_MB = 16;
+
+    static final String FLUSH_PARALLELISM = "dbStorage_flushParallelism";
+    static final int DEFAULT_FLUSH_PARALLELISM = 1;
+
+    static final String READ_THREADS_PER_DIRECTORY = "dbStorage_readThreadsPerDirectory";
+    static final int DEFAULT_READ_THREADS_PER_DIRECTORY = 0;
+
+    static final String READ_QUEUE_DEPTH_PER_DIRECTORY = "dbStorage_readQueueDepthPerDirectory";
+    static final int DEFAULT_READ_QUEUE_DEPTH_PER_DIRECTORY = 64;
+
+    public static final String LOCATION_INDEX_RUN_LENGTH_ENABLED = "dbStorage_locationIndexRunLengthEnabled";
+    static final boolean DEFAULT_LOCATION_INDEX_RUN_LENGTH_ENABLED = false;
+
     // use the storage assigned to ledger 0 for flags.
     // if the storage configuration changes, the flags may be lost
     // but in that case data integrity should kick off anyhow.
@@ -101,6 +131,9 @@ public class DbLedgerStorage implements LedgerStorage {
     // Keep 1 single Bookie GC thread so the the compactions from multiple individual directories are serialized
     private ScheduledExecutorService gcExecutor;
 
+    // Executor used to flush the ledger directories in parallel, null if they are flushed one after the other
+    private ExecutorService dirsFlushExecutor;
+
     protected ByteBufAllocator allocator;
 
     // parent DbLedgerStorage stats (not per directory)
@@ -145,6 +178,19 @@ public class DbLedgerStorage implements LedgerStorage {
         int readAheadCacheBatchSize = conf.getInt(READ_AHEAD_CACHE_BATCH_SIZE, DEFAULT_READ_AHEAD_CACHE_BATCH_SIZE);
 
         gcExecutor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("GarbageCollector"));
+        if (conf.getNumCompactionThreads() > 1) {
+            log.warn("numCompactionThreads has no effect with DbLedgerStorage: each of the {} ledger directories has"
+                    + " its own garbage collector, compacting one entry log at a time at the compaction rate",
+                    numberOfDirs);
+        }
+        if (conf.getColdLedgerDirs().length > 0) {
+            log.warn("coldLedgerDirectories is ignored by DbLedgerStorage: each ledger directory has its own entry"
+                    + " logger, so the entry logs cannot be moved to another directory");
+        }
+        if (numberOfDirs > 1 && conf.getInt(FLUSH_PARALLELISM, DEFAULT_FLUSH_PARALLELISM) > 1) {
+            dirsFlushExecutor = Executors.newFixedThreadPool(numberOfDirs,
+                    new DefaultThreadFactory("db-storage-dirs-flush"));
+        }
 
         ledgerStorageList = Lists.newArrayList();
         for (File ledgerDir : ledgerDirsManager.getAllLedgerDirs()) {
@@ -153,6 +199,8 @@ public class DbLedgerStorage implements LedgerStorage {
             // Remove the `/current` suffix which will be appended again by LedgersDirManager
             dirs[0] = ledgerDir.getParentFile();
             LedgerDirsManager ldm = new LedgerDirsManager(conf, dirs, ledgerDirsManager.getDiskChecker(), statsLogger);
+            // The load of the dir is monitored through the ledger dirs manager of the bookie
+            ldm.shareDirLoads(ledgerDirsManager);
             ledgerStorageList.add(newSingleDirectoryDbLedgerStorage(conf, ledgerManager, ldm, indexDirsManager,
                     statsLogger, gcExecutor, perDirectoryWriteCacheSize,
                     perDirectoryReadCacheSize, readAheadCacheBatchSize));
@@ -221,6 +269,9 @@ public class DbLedgerStorage implements LedgerStorage {
         for (LedgerStorage ls : ledgerStorageList) {
             ls.shutdown();
         }
+        if (dirsFlushExecutor != null) {
+            dirsFlushExecutor.shutdown();
+        }
     }
 
     @Override
@@ -264,6 +315,23 @@ public class DbLedgerStorage implements LedgerStorage {
         return getLedgerStorage(ledgerId).getEntry(ledgerId, entryId);
     }
 
+    @Override
+    public List<ByteBuf> getEntries(long ledgerId, long firstEntryId, int maxCount, long maxBytes)
+            throws IOException, BookieException {
+        return getLedgerStorage(ledgerId).getEntries(ledgerId, firstEntryId, maxCount, maxBytes);
+    }
+
+    @Override
+    public ReferenceCounted getEntryForTransfer(long ledgerId, long entryId, int minRegionSize)
+            throws IOException, BookieException {
+        return getLedgerStorage(ledgerId).getEntryForTransfer(ledgerId, entryId, minRegionSize);
+    }
+
+    @Override
+    public Executor getReadExecutor(long ledgerId, long entryId) {
+        return getLedgerStorage(ledgerId).getReadExecutor(ledgerId, entryId);
+    }
+
     @Override
     public long getLastAddConfirmed(long ledgerId) throws IOException, BookieException {
         return getLedgerStorage(ledgerId).getLastAddConfirmed(ledgerId);
@@ -284,6 +352,11 @@ public class DbLedgerStorage implements LedgerStorage {
 
     @Override
     public void flush() throws IOException {
+        if (dirsFlushExecutor != null) {
+            forEachDirInParallel(LedgerStorage::flush);
+            return;
+        }
+
         for (LedgerStorage ls : ledgerStorageList) {
             ls.flush();
         }
@@ -291,11 +364,48 @@ public class DbLedgerStorage implements LedgerStorage {
 
     @Override
     public void checkpoint(Checkpoint checkpoint) throws IOException {
+        if (dirsFlushExecutor != null) {
+            forEachDirInParallel(ls -> ls.checkpoint(checkpoint));
+            return;
+        }
+
         for (LedgerStorage ls : ledgerStorageList) {
             ls.checkpoint(checkpoint);
         }
     }
 
+    private interface DirFlushOperation {
+        void apply(LedgerStorage ls) throws IOException;
+    }
+
+    /**
+     * Run the operation on all the ledger directories concurrently, and wait for all of them to complete.
+     */
+    private void forEachDirInParallel(DirFlushOperation op) throws IOException {
+        List<Future<Void>> futures = new ArrayList<>(ledgerStorageList.size());
+        for (LedgerStorage ls : ledgerStorageList) {
+            futures.add(dirsFlushExecutor.submit(() -> {
+                op.apply(ls);
+                return null;
+            }));
+        }
+
+        IOException failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                Uninterruptibles.getUninterruptibly(future);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException
+                            ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     @Override
     public void deleteLedger(long ledgerId) throws IOException {
         getLedgerStorage(ledgerId).deleteLedger(ledgerId);
@@ -45,8 +45,11 @@ class DbLedgerStorageStats {
 
     private static final String ADD_ENTRY = "add-entry";
     private static final String READ_ENTRY = "read-entry";
+    private static final String READ_ENTRIES = "read-entries";
+    private static final String READ_ENTRIES_COUNT = "read-entries-count";
     private static final String READ_ENTRY_LOCATIONS_INDEX_TIME = "read-locations-index-time";
     private static final String READ_ENTRYLOG_TIME = "read-entrylog-time";
+    private static final String READ_ENTRY_REGIONS = "read-entry-regions";
     private static final String WRITE_CACHE_HITS = "write-cache-hits";
     private static final String WRITE_CACHE_MISSES = "write-cache-misses";
     private static final String READ_CACHE_HITS = "read-cache-hits";
@@ -54,6 +57,8 @@ class DbLedgerStorageStats {
     private static final String READAHEAD_BATCH_COUNT = "readahead-batch-count";
     private static final String READAHEAD_BATCH_SIZE = "readahead-batch-size";
     private static final String READAHEAD_TIME = "readahead-time";
+    private static final String READAHEAD_EFFICIENCY = "readahead-efficiency";
+    private static final String READAHEAD_SKIPPED = "readahead-skipped";
     private static final String FLUSH = "flush";
     private static final String FLUSH_ENTRYLOG = "flush-entrylog";
     private static final String FLUSH_LOCATIONS_INDEX = "flush-locations-index";
@@ -69,6 +74,11 @@ class DbLedgerStorageStats {
     private static final String WRITE_CACHE_COUNT = "write-cache-count";
     private static final String READ_CACHE_SIZE = "read-cache-size";
     private static final String READ_CACHE_COUNT = "read-cache-count";
+    private static final String READ_CACHE_PROMOTIONS = "read-cache-promotions";
+    private static final String READ_CACHE_ADMISSION_REJECTIONS = "read-cache-admission-rejections";
+    private static final String READ_CACHE_DROPPED_INSERTS = "read-cache-dropped-inserts";
+    private static final String READ_QUEUE_DEPTH = "read-queue-depth";
+    private static final String READ_QUEUE_REJECTIONS = "read-queue-rejections";
 
     @StatsDoc(
         name = ADD_ENTRY,
@@ -82,6 +92,18 @@ class DbLedgerStorageStats {
         parent = BOOKIE_ADD_ENTRY
     )
     private final OpStatsLogger readEntryStats;
+    @StatsDoc(
+        name = READ_ENTRIES,
+        help = "operation stats of reading batches of entries from db ledger storage",
+        parent = BOOKIE_ADD_ENTRY
+    )
+    private final OpStatsLogger readEntriesStats;
+    @StatsDoc(
+        name = READ_ENTRIES_COUNT,
+        help = "the distribution of num of entries returned in one batch read",
+        parent = READ_ENTRIES
+    )
+    private final OpStatsLogger readEntriesCountStats;
     @StatsDoc(
             name = READ_ENTRY_LOCATIONS_INDEX_TIME,
             help = "time spent reading entries from the locations index of the db ledger storage engine",
@@ -133,6 +155,23 @@ class DbLedgerStorageStats {
             help = "Time spent on readahead operations"
     )
     private final Counter readAheadTime;
+    @StatsDoc(
+            name = READAHEAD_EFFICIENCY,
+            help = "the distribution of the percentage of entries of a ledger readahead batch that were actually"
+                    + " read, when adaptive readahead is enabled"
+    )
+    private final OpStatsLogger readAheadEfficiencyStats;
+    @StatsDoc(
+            name = READAHEAD_SKIPPED,
+            help = "number of read cache misses that did not trigger a readahead, because the ledger is being"
+                    + " read randomly"
+    )
+    private final Counter readAheadSkippedCounter;
+    @StatsDoc(
+            name = READ_ENTRY_REGIONS,
+            help = "number of entries read from the entry logs as file regions, to be sent with zero-copy"
+    )
+    private final Counter readEntryRegionsCounter;
     @StatsDoc(
         name = FLUSH,
         help = "operation stats of flushing write cache to entry log files"
@@ -194,14 +233,45 @@ class DbLedgerStorageStats {
         help = "Current number of entries in read cache"
     )
     private final Gauge<Long> readCacheCountGauge;
+    @StatsDoc(
+        name = READ_CACHE_PROMOTIONS,
+        help = "Number of entries promoted to the protected area of the read cache"
+    )
+    private final Gauge<Long> readCachePromotionsGauge;
+    @StatsDoc(
+        name = READ_CACHE_ADMISSION_REJECTIONS,
+        help = "Number of read cache hits that were not promoted to the protected area due to low access frequency"
+    )
+    private final Gauge<Long> readCacheAdmissionRejectionsGauge;
+    @StatsDoc(
+        name = READ_CACHE_DROPPED_INSERTS,
+        help = "Number of entries not inserted in the read cache because its segments were being rolled over"
+    )
+    private final Gauge<Long> readCacheDroppedInsertsGauge;
+    @StatsDoc(
+        name = READ_QUEUE_DEPTH,
+        help = "Current number of reads queued or in progress on the read threads of the ledger directory"
+    )
+    private final Gauge<Long> readQueueDepthGauge;
+    @StatsDoc(
+        name = READ_QUEUE_REJECTIONS,
+        help = "Number of reads done by the request threads because the read queue of the ledger directory was full"
+    )
+    private final Counter readQueueRejections;
 
     DbLedgerStorageStats(StatsLogger stats,
                          Supplier<Long> writeCacheSizeSupplier,
                          Supplier<Long> writeCacheCountSupplier,
                          Supplier<Long> readCacheSizeSupplier,
-                         Supplier<Long> readCacheCountSupplier) {
+                         Supplier<Long> readCacheCountSupplier,
+                         Supplier<Long> readCachePromotionsSupplier,
+                         Supplier<Long> readCacheAdmissionRejectionsSupplier,
+                         Supplier<Long> readCacheDroppedInsertsSupplier,
+                         Supplier<Long> readQueueDepthSupplier) {
         addEntryStats = stats.getThreadScopedOpStatsLogger(ADD_ENTRY);
         readEntryStats = stats.getThreadScopedOpStatsLogger(READ_ENTRY);
+        readEntriesStats = stats.getThreadScopedOpStatsLogger(READ_ENTRIES);
+        readEntriesCountStats = stats.getOpStatsLogger(READ_ENTRIES_COUNT);
         readFromLocationIndexTime = stats.getThreadScopedCounter(READ_ENTRY_LOCATIONS_INDEX_TIME);
         readFromEntryLogTime = stats.getThreadScopedCounter(READ_ENTRYLOG_TIME);
         readCacheHitCounter = stats.getCounter(READ_CACHE_HITS);
@@ -211,6 +281,9 @@ class DbLedgerStorageStats {
         readAheadBatchCountStats = stats.getOpStatsLogger(READAHEAD_BATCH_COUNT);
         readAheadBatchSizeStats = stats.getOpStatsLogger(READAHEAD_BATCH_SIZE);
         readAheadTime = stats.getThreadScopedCounter(READAHEAD_TIME);
+        readAheadEfficiencyStats = stats.getOpStatsLogger(READAHEAD_EFFICIENCY);
+        readAheadSkippedCounter = stats.getCounter(READAHEAD_SKIPPED);
+        readEntryRegionsCounter = stats.getCounter(READ_ENTRY_REGIONS);
         flushStats = stats.getOpStatsLogger(FLUSH);
         flushEntryLogStats = stats.getOpStatsLogger(FLUSH_ENTRYLOG);
         flushLocationIndexStats = stats.getOpStatsLogger(FLUSH_LOCATIONS_INDEX);
@@ -220,6 +293,7 @@ class DbLedgerStorageStats {
         throttledWriteRequests = stats.getThreadScopedCounter(THROTTLED_WRITE_REQUESTS);
         throttledWriteStats = stats.getOpStatsLogger(THROTTLED_WRITE);
         rejectedWriteRequests = stats.getThreadScopedCounter(REJECTED_WRITE_REQUESTS);
+        readQueueRejections = stats.getCounter(READ_QUEUE_REJECTIONS);
 
         writeCacheSizeGauge = new Gauge<Long>() {
             @Override
@@ -270,6 +344,54 @@ class DbLedgerStorageStats {
             }
         };
         stats.registerGauge(READ_CACHE_COUNT, readCacheCountGauge);
+        readCachePromotionsGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return readCachePromotionsSupplier.get();
+            }
+        };
+        stats.registerGauge(READ_CACHE_PROMOTIONS, readCachePromotionsGauge);
+        readCacheAdmissionRejectionsGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return readCacheAdmissionRejectionsSupplier.get();
+            }
+        };
+        stats.registerGauge(READ_CACHE_ADMISSION_REJECTIONS, readCacheAdmissionRejectionsGauge);
+        readCacheDroppedInsertsGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return readCacheDroppedInsertsSupplier.get();
+            }
+        };
+        stats.registerGauge(READ_CACHE_DROPPED_INSERTS, readCacheDroppedInsertsGauge);
+        readQueueDepthGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return readQueueDepthSupplier.get();
+            }
+        };
+        stats.registerGauge(READ_QUEUE_DEPTH, readQueueDepthGauge);
     }
 
 }
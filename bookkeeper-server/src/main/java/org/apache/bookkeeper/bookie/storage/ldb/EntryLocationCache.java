@@ -0,0 +1,200 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.Closeable;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Off-heap cache of the locations of the most recently flushed entries, in front of the {@link EntryLocationIndex}.
+ *
+ * <p>The cache is a set-associative table stored in a direct buffer. Each (ledgerId, entryId) key is hashed to a
+ * bucket of a few slots, and when the bucket is full the oldest slot of the bucket is overwritten. The memory used by
+ * the cache is therefore fixed, and the newest locations evict the older ones, which fits the readers tailing the
+ * ledgers.
+ *
+ * <p>The buckets are protected by a fixed set of striped locks. The lookups are optimistic, and only take the read
+ * lock if a write happened concurrently on the same stripe.
+ */
+class EntryLocationCache implements Closeable {
+
+    // Each slot holds the ledger id, the entry id and the location of an entry
+    private static final int SLOT_SIZE = 3 * Long.BYTES;
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final int BUCKET_SIZE = SLOTS_PER_BUCKET * SLOT_SIZE;
+
+    private static final int LOCKS_COUNT = 1024;
+
+    // Ledger ids are never negative
+    private static final long EMPTY_LEDGER_ID = -1L;
+
+    private final ByteBuf table;
+    private final int bucketsCount;
+    // Next slot to overwrite in each bucket, when the bucket is full
+    private final byte[] nextSlots;
+    private final StampedLock[] locks;
+
+    EntryLocationCache(long maxSize) {
+        this.bucketsCount = (int) Math.max(1, Math.min(maxSize, Integer.MAX_VALUE) / BUCKET_SIZE);
+        this.table = Unpooled.directBuffer(bucketsCount * BUCKET_SIZE, bucketsCount * BUCKET_SIZE);
+        for (int i = 0; i < bucketsCount * SLOTS_PER_BUCKET; i++) {
+            table.setLong(i * SLOT_SIZE, EMPTY_LEDGER_ID);
+        }
+        this.nextSlots = new byte[bucketsCount];
+        this.locks = new StampedLock[LOCKS_COUNT];
+        for (int i = 0; i < LOCKS_COUNT; i++) {
+            locks[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * @return the location of the entry, or 0 if it is not in the cache
+     */
+    long get(long ledgerId, long entryId) {
+        int bucket = bucket(ledgerId, entryId);
+        StampedLock lock = lock(bucket);
+
+        long stamp = lock.tryOptimisticRead();
+        long location = find(bucket, ledgerId, entryId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                location = find(bucket, ledgerId, entryId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return location;
+    }
+
+    private long find(int bucket, long ledgerId, long entryId) {
+        int offset = bucket * BUCKET_SIZE;
+        for (int i = 0; i < SLOTS_PER_BUCKET; i++, offset += SLOT_SIZE) {
+            if (table.getLong(offset) == ledgerId && table.getLong(offset + Long.BYTES) == entryId) {
+                return table.getLong(offset + 2 * Long.BYTES);
+            }
+        }
+        return 0L;
+    }
+
+    void put(long ledgerId, long entryId, long location) {
+        int bucket = bucket(ledgerId, entryId);
+        StampedLock lock = lock(bucket);
+
+        long stamp = lock.writeLock();
+        try {
+            int start = bucket * BUCKET_SIZE;
+            int emptySlot = -1;
+            for (int i = 0, offset = start; i < SLOTS_PER_BUCKET; i++, offset += SLOT_SIZE) {
+                long slotLedgerId = table.getLong(offset);
+                if (slotLedgerId == ledgerId && table.getLong(offset + Long.BYTES) == entryId) {
+                    table.setLong(offset + 2 * Long.BYTES, location);
+                    return;
+                } else if (slotLedgerId == EMPTY_LEDGER_ID && emptySlot < 0) {
+                    emptySlot = i;
+                }
+            }
+
+            int slot = emptySlot;
+            if (slot < 0) {
+                slot = nextSlots[bucket];
+                nextSlots[bucket] = (byte) ((slot + 1) % SLOTS_PER_BUCKET);
+            }
+            int offset = start + slot * SLOT_SIZE;
+            table.setLong(offset, ledgerId);
+            table.setLong(offset + Long.BYTES, entryId);
+            table.setLong(offset + 2 * Long.BYTES, location);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Update the location of an entry, only if the entry is already in the cache.
+     */
+    void updateIfPresent(long ledgerId, long entryId, long location) {
+        int bucket = bucket(ledgerId, entryId);
+        StampedLock lock = lock(bucket);
+
+        long stamp = lock.writeLock();
+        try {
+            int offset = bucket * BUCKET_SIZE;
+            for (int i = 0; i < SLOTS_PER_BUCKET; i++, offset += SLOT_SIZE) {
+                if (table.getLong(offset) == ledgerId && table.getLong(offset + Long.BYTES) == entryId) {
+                    table.setLong(offset + 2 * Long.BYTES, location);
+                    return;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove the locations of all the entries of the given ledgers. This scans the whole cache.
+     */
+    void removeLedgers(LongPredicate ledgers) {
+        for (int bucket = 0; bucket < bucketsCount; bucket++) {
+            StampedLock lock = lock(bucket);
+            long stamp = lock.writeLock();
+            try {
+                int offset = bucket * BUCKET_SIZE;
+                for (int i = 0; i < SLOTS_PER_BUCKET; i++, offset += SLOT_SIZE) {
+                    long ledgerId = table.getLong(offset);
+                    if (ledgerId != EMPTY_LEDGER_ID && ledgers.test(ledgerId)) {
+                        table.setLong(offset, EMPTY_LEDGER_ID);
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        table.release();
+    }
+
+    private int bucket(long ledgerId, long entryId) {
+        return (int) ((hash(ledgerId, entryId) & Long.MAX_VALUE) % bucketsCount);
+    }
+
+    private StampedLock lock(int bucket) {
+        return locks[bucket & (LOCKS_COUNT - 1)];
+    }
+
+    private static final long HASH_MIXER = 0xc6a4a7935bd1e995L;
+    private static final int R = 47;
+
+    private static long hash(long ledgerId, long entryId) {
+        long hash = ledgerId * HASH_MIXER;
+        hash ^= hash >>> R;
+        hash *= HASH_MIXER;
+        hash += 31 + (entryId * HASH_MIXER);
+        hash ^= hash >>> R;
+        hash *= HASH_MIXER;
+        return hash;
+    }
+}
@@ -24,13 +24,16 @@ import com.google.common.collect.Iterables;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.EntryLocation;
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.Batch;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.CloseableIterator;
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorageFactory.DbConfigType;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.stats.StatsLogger;
@@ -43,17 +46,41 @@ import org.slf4j.LoggerFactory;
  *
  * <p>For each ledger multiple entries are stored in the same "record", represented
  * by the {@link LedgerIndexPage} class.
+ *
+ * <p>By default the index holds one record per entry. With the run-length layout, the consecutive entries of a ledger
+ * are stored as runs in a single record (see {@link EntryLocationRun}). The records never overlap: the new locations
+ * are merged with the runs already in the index when a batch is flushed.
  */
 public class EntryLocationIndex implements Closeable {
 
     private final KeyValueStorage locationsDb;
     private final ConcurrentLongHashSet deletedLedgers = ConcurrentLongHashSet.newBuilder().build();
 
+    // Locations of the most recently flushed entries, null if disabled
+    private final EntryLocationCache locationCache;
+
+    private final boolean runLengthEnabled;
+    // Serializes the batches merging new locations with the runs in the index
+    private final ReentrantLock runsLock = new ReentrantLock();
+
     private final EntryLocationIndexStats stats;
 
     public EntryLocationIndex(ServerConfiguration conf, KeyValueStorageFactory storageFactory, String basePath,
             StatsLogger stats) throws IOException {
+        this(conf, storageFactory, basePath, stats, 0);
+    }
+
+    /**
+     * @param locationCacheSize
+     *            size of the off-heap cache of the locations of the most recently flushed entries, or 0 to disable
+     *            the cache
+     */
+    public EntryLocationIndex(ServerConfiguration conf, KeyValueStorageFactory storageFactory, String basePath,
+            StatsLogger stats, long locationCacheSize) throws IOException {
         locationsDb = storageFactory.newKeyValueStorage(basePath, "locations", DbConfigType.EntryLocation, conf);
+        locationCache = locationCacheSize > 0 ? new EntryLocationCache(locationCacheSize) : null;
+        runLengthEnabled = conf.getBoolean(DbLedgerStorage.LOCATION_INDEX_RUN_LENGTH_ENABLED,
+                DbLedgerStorage.DEFAULT_LOCATION_INDEX_RUN_LENGTH_ENABLED);
 
         this.stats = new EntryLocationIndexStats(
             stats,
@@ -69,9 +96,25 @@ public class EntryLocationIndex implements Closeable {
     @Override
     public void close() throws IOException {
         locationsDb.close();
+        if (locationCache != null) {
+            locationCache.close();
+        }
     }
 
     public long getLocation(long ledgerId, long entryId) throws IOException {
+        if (locationCache != null) {
+            long location = locationCache.get(ledgerId, entryId);
+            if (location != 0) {
+                stats.getLocationCacheHitCounter().inc();
+                return location;
+            }
+            stats.getLocationCacheMissCounter().inc();
+        }
+
+        if (runLengthEnabled) {
+            return getLocationFromRun(ledgerId, entryId);
+        }
+
         LongPairWrapper key = LongPairWrapper.get(ledgerId, entryId);
         LongWrapper value = LongWrapper.get();
 
@@ -90,6 +133,132 @@ public class EntryLocationIndex implements Closeable {
         }
     }
 
+    private long getLocationFromRun(long ledgerId, long entryId) throws IOException {
+        // The run holding the entry is the last record starting at or before the entry
+        LongPairWrapper key = LongPairWrapper.get(ledgerId, entryId + 1);
+        try {
+            Entry<byte[], byte[]> run = locationsDb.getFloor(key.array);
+            if (run != null && ArrayUtil.getLong(run.getKey(), 0) == ledgerId) {
+                long index = entryId - ArrayUtil.getLong(run.getKey(), 8);
+                if (index < EntryLocationRun.MAX_RUN_LENGTH) {
+                    long location = EntryLocationRun.getLocation(run.getValue(), (int) index);
+                    if (location != 0) {
+                        return location;
+                    }
+                }
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Entry not found {}@{} in db index", ledgerId, entryId);
+            }
+            return 0;
+        } finally {
+            key.recycle();
+        }
+    }
+
+    /**
+     * Get the locations of consecutive entries of a ledger with a single range scan on the index.
+     *
+     * @param locations
+     *            array filled with the locations of the entries, starting from {@code firstEntryId}
+     * @return the number of consecutive entries found, stopping at the first missing entry
+     */
+    public int getLocations(long ledgerId, long firstEntryId, int maxCount, long[] locations) throws IOException {
+        int count = 0;
+        if (locationCache != null) {
+            // Only scan the index from the first entry missing in the cache
+            while (count < maxCount) {
+                long location = locationCache.get(ledgerId, firstEntryId + count);
+                if (location == 0) {
+                    break;
+                }
+                locations[count++] = location;
+            }
+            if (count > 0) {
+                stats.getLocationCacheHitCounter().add(count);
+            }
+            if (count == maxCount) {
+                return count;
+            }
+            stats.getLocationCacheMissCounter().inc();
+        }
+
+        if (runLengthEnabled) {
+            count += getLocationsFromRuns(ledgerId, firstEntryId + count, maxCount - count, locations, count);
+            if (log.isDebugEnabled()) {
+                log.debug("Found {} locations for ledger {} starting from entry {}", count, ledgerId, firstEntryId);
+            }
+            return count;
+        }
+
+        LongPairWrapper firstKey = LongPairWrapper.get(ledgerId, firstEntryId + count);
+        LongPairWrapper lastKey = LongPairWrapper.get(ledgerId, firstEntryId + maxCount);
+
+        try (CloseableIterator<Entry<byte[], byte[]>> iterator = locationsDb.iterator(firstKey.array,
+                lastKey.array)) {
+            while (count < maxCount && iterator.hasNext()) {
+                Entry<byte[], byte[]> entry = iterator.next();
+                long entryId = ArrayUtil.getLong(entry.getKey(), 8);
+                if (entryId != firstEntryId + count) {
+                    // There is a gap in the entries
+                    break;
+                }
+
+                locations[count++] = ArrayUtil.getLong(entry.getValue(), 0);
+            }
+        } finally {
+            firstKey.recycle();
+            lastKey.recycle();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Found {} locations for ledger {} starting from entry {}", count, ledgerId, firstEntryId);
+        }
+        return count;
+    }
+
+    private int getLocationsFromRuns(long ledgerId, long firstEntryId, int maxCount, long[] locations, int offset)
+            throws IOException {
+        LongPairWrapper floorKey = LongPairWrapper.get(ledgerId, firstEntryId + 1);
+        Entry<byte[], byte[]> firstRun;
+        try {
+            firstRun = locationsDb.getFloor(floorKey.array);
+        } finally {
+            floorKey.recycle();
+        }
+        if (firstRun == null || ArrayUtil.getLong(firstRun.getKey(), 0) != ledgerId) {
+            return 0;
+        }
+
+        int count = 0;
+        LongPairWrapper firstKey = LongPairWrapper.get(ledgerId, ArrayUtil.getLong(firstRun.getKey(), 8));
+        LongPairWrapper lastKey = LongPairWrapper.get(ledgerId, firstEntryId + maxCount);
+
+        try (CloseableIterator<Entry<byte[], byte[]>> iterator = locationsDb.iterator(firstKey.array,
+                lastKey.array)) {
+            while (count < maxCount && iterator.hasNext()) {
+                Entry<byte[], byte[]> run = iterator.next();
+                long index = firstEntryId + count - ArrayUtil.getLong(run.getKey(), 8);
+                if (index < 0 || index >= EntryLocationRun.MAX_RUN_LENGTH) {
+                    // There is a gap in the entries
+                    break;
+                }
+
+                int found = EntryLocationRun.decode(run.getValue(), (int) index, locations, offset + count,
+                        maxCount - count);
+                if (found == 0) {
+                    break;
+                }
+                count += found;
+            }
+        } finally {
+            firstKey.recycle();
+            lastKey.recycle();
+        }
+        return count;
+    }
+
     public long getLastEntryInLedger(long ledgerId) throws IOException {
         if (deletedLedgers.contains(ledgerId)) {
             // Ledger already deleted
@@ -117,7 +286,8 @@ public class EntryLocationIndex implements Closeable {
             throw new Bookie.NoEntryException(ledgerId, -1);
         } else {
             long foundLedgerId = ArrayUtil.getLong(entry.getKey(), 0);
-            long lastEntryId = ArrayUtil.getLong(entry.getKey(), 8);
+            // The last record can be a run of entries
+            long lastEntryId = ArrayUtil.getLong(entry.getKey(), 8) + EntryLocationRun.count(entry.getValue()) - 1;
 
             if (foundLedgerId == ledgerId) {
                 if (log.isDebugEnabled()) {
@@ -138,10 +308,15 @@ public class EntryLocationIndex implements Closeable {
     }
 
     public Batch newBatch() {
-        return locationsDb.newBatch();
+        return runLengthEnabled ? new RunLengthBatch(locationsDb.newBatch()) : locationsDb.newBatch();
     }
 
     public void addLocation(Batch batch, long ledgerId, long entryId, long location) throws IOException {
+        if (batch instanceof RunLengthBatch) {
+            ((RunLengthBatch) batch).addLocation(ledgerId, entryId, location);
+            return;
+        }
+
         LongPairWrapper key = LongPairWrapper.get(ledgerId, entryId);
         LongWrapper value = LongWrapper.get(location);
 
@@ -157,6 +332,17 @@ public class EntryLocationIndex implements Closeable {
         }
     }
 
+    /**
+     * Add the location of an entry just flushed from the write cache. The location is also inserted in the
+     * location cache, since the recent entries are the most likely to be read.
+     */
+    public void addRecentLocation(Batch batch, long ledgerId, long entryId, long location) throws IOException {
+        addLocation(batch, ledgerId, entryId, location);
+        if (locationCache != null) {
+            locationCache.put(ledgerId, entryId, location);
+        }
+    }
+
     public void updateLocations(Iterable<EntryLocation> newLocations) throws IOException {
         if (log.isDebugEnabled()) {
             log.debug("Update locations -- {}", Iterables.size(newLocations));
@@ -170,6 +356,9 @@ public class EntryLocationIndex implements Closeable {
             }
 
             addLocation(batch, e.ledger, e.entry, e.location);
+            if (locationCache != null) {
+                locationCache.updateIfPresent(e.ledger, e.entry, e.location);
+            }
         }
 
         batch.flush();
@@ -235,14 +424,26 @@ public class EntryLocationIndex implements Closeable {
                             ledgerId, firstEntryId, lastEntryId);
                 }
 
-                // Iterate over all the keys and remove each of them
-                for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
-                    keyToDelete.set(ledgerId, entryId);
-                    if (log.isDebugEnabled()) {
-                        log.debug("Deleting index for ({}, {})", keyToDelete.getFirst(), keyToDelete.getSecond());
+                if (runLengthEnabled) {
+                    // Only the first entry of each run has a key
+                    try (CloseableIterator<byte[]> keys = locationsDb.keys(firstKeyWrapper.array,
+                            lastKeyWrapper.array)) {
+                        while (keys.hasNext()) {
+                            batch.remove(keys.next());
+                            ++deletedEntriesInBatch;
+                        }
+                    }
+                } else {
+                    // Iterate over all the keys and remove each of them
+                    for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+                        keyToDelete.set(ledgerId, entryId);
+                        if (log.isDebugEnabled()) {
+                            log.debug("Deleting index for ({}, {})", keyToDelete.getFirst(),
+                                    keyToDelete.getSecond());
+                        }
+                        batch.remove(keyToDelete.array);
+                        ++deletedEntriesInBatch;
                     }
-                    batch.remove(keyToDelete.array);
-                    ++deletedEntriesInBatch;
                 }
 
                 if (deletedEntriesInBatch > DELETE_ENTRIES_BATCH_SIZE) {
@@ -266,11 +467,272 @@ public class EntryLocationIndex implements Closeable {
         log.info("Deleted indexes for {} entries from {} ledgers in {} seconds", deletedEntries, ledgersToDelete.size(),
                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) / 1000.0);
 
+        if (locationCache != null) {
+            locationCache.removeLedgers(ledgersToDelete::contains);
+        }
+
         // Removed from pending set
         for (long ledgerId : ledgersToDelete) {
             deletedLedgers.remove(ledgerId);
         }
     }
 
+    /**
+     * Batch collecting the locations of the entries, which are grouped into runs and merged with the runs already in
+     * the index when the batch is flushed.
+     */
+    private class RunLengthBatch implements Batch {
+        private final Batch batch;
+
+        // (ledgerId, entryId, location) of the entries added since the last flush
+        private long[] pending = new long[3 * 1024];
+        private int pendingSize = 0;
+
+        RunLengthBatch(Batch batch) {
+            this.batch = batch;
+        }
+
+        void addLocation(long ledgerId, long entryId, long location) {
+            if (log.isDebugEnabled()) {
+                log.debug("Add location - ledger: {} -- entry: {} -- location: {}", ledgerId, entryId, location);
+            }
+
+            if (pendingSize + 3 > pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            pending[pendingSize++] = ledgerId;
+            pending[pendingSize++] = entryId;
+            pending[pendingSize++] = location;
+        }
+
+        @Override
+        public void put(byte[] key, byte[] value) throws IOException {
+            batch.put(key, value);
+        }
+
+        @Override
+        public void remove(byte[] key) throws IOException {
+            batch.remove(key);
+        }
+
+        @Override
+        public void deleteRange(byte[] beginKey, byte[] endKey) throws IOException {
+            batch.deleteRange(beginKey, endKey);
+        }
+
+        @Override
+        public void clear() {
+            pendingSize = 0;
+            batch.clear();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // The runs are read from the index and rewritten, so the merges must not run concurrently
+            runsLock.lock();
+            try {
+                mergePendingLocations();
+                batch.flush();
+            } finally {
+                runsLock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            batch.close();
+        }
+
+        private void mergePendingLocations() throws IOException {
+            int count = pendingSize / 3;
+            if (count == 0) {
+                return;
+            }
+
+            long[] entries = sortPendingLocations(count);
+            int start = 0;
+            while (start < count) {
+                long ledgerId = entries[3 * start];
+                int end = start + 1;
+                while (end < count && entries[3 * end] == ledgerId) {
+                    end++;
+                }
+
+                // Keep the last location added for each entry
+                long[] entryIds = new long[end - start];
+                long[] locations = new long[end - start];
+                int size = 0;
+                for (int i = start; i < end; i++) {
+                    if (size > 0 && entryIds[size - 1] == entries[3 * i + 1]) {
+                        size--;
+                    }
+                    entryIds[size] = entries[3 * i + 1];
+                    locations[size] = entries[3 * i + 2];
+                    size++;
+                }
+
+                mergeLedgerLocations(ledgerId, entryIds, locations, size);
+                start = end;
+            }
+
+            pendingSize = 0;
+        }
+
+        /**
+         * Sort the pending locations by ledger and entry. The order of the locations of a same entry is preserved.
+         */
+        private long[] sortPendingLocations(int count) {
+            boolean sorted = true;
+            for (int i = 1; i < count && sorted; i++) {
+                sorted = compareEntries(i - 1, i) <= 0;
+            }
+            if (sorted) {
+                return pending;
+            }
+
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, this::compareEntries);
+
+            long[] entries = new long[3 * count];
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(pending, 3 * order[i], entries, 3 * i, 3);
+            }
+            return entries;
+        }
+
+        private int compareEntries(int i, int j) {
+            int res = Long.compare(pending[3 * i], pending[3 * j]);
+            return res != 0 ? res : Long.compare(pending[3 * i + 1], pending[3 * j + 1]);
+        }
+
+        /**
+         * Merge the new locations of entries of a ledger with the runs of the index holding these entries, or
+         * directly preceding them, and write the resulting runs in the batch.
+         */
+        private void mergeLedgerLocations(long ledgerId, long[] entryIds, long[] locations, int size)
+                throws IOException {
+            long[] oldRunKeys = new long[4];
+            int oldRunsCount = 0;
+            long[] oldEntryIds = new long[0];
+            long[] oldLocations = new long[0];
+            int oldSize = 0;
+
+            // The first run to check is the one holding, or directly preceding, the first new entry
+            LongPairWrapper firstKey = LongPairWrapper.get(ledgerId, entryIds[0]);
+            LongPairWrapper lastKey = LongPairWrapper.get(ledgerId, entryIds[size - 1] + 1);
+            try {
+                Entry<byte[], byte[]> floor = locationsDb.getFloor(firstKey.array);
+                if (floor != null && ArrayUtil.getLong(floor.getKey(), 0) == ledgerId) {
+                    firstKey.set(ledgerId, ArrayUtil.getLong(floor.getKey(), 8));
+                }
+
+                try (CloseableIterator<Entry<byte[], byte[]>> iterator = locationsDb.iterator(firstKey.array,
+                        lastKey.array)) {
+                    while (iterator.hasNext()) {
+                        Entry<byte[], byte[]> run = iterator.next();
+                        long runFirstEntryId = ArrayUtil.getLong(run.getKey(), 8);
+                        int runCount = EntryLocationRun.count(run.getValue());
+                        long runEndEntryId = runFirstEntryId + runCount;
+
+                        int idx = Arrays.binarySearch(entryIds, 0, size, runFirstEntryId);
+                        idx = idx >= 0 ? idx : -idx - 1;
+                        boolean overlaps = idx < size && entryIds[idx] < runEndEntryId;
+                        boolean extendable = runCount < EntryLocationRun.MAX_RUN_LENGTH
+                                && Arrays.binarySearch(entryIds, 0, size, runEndEntryId) >= 0;
+                        if (!overlaps && !extendable) {
+                            continue;
+                        }
+
+                        if (oldRunsCount == oldRunKeys.length) {
+                            oldRunKeys = Arrays.copyOf(oldRunKeys, oldRunKeys.length * 2);
+                        }
+                        oldRunKeys[oldRunsCount++] = runFirstEntryId;
+                        if (oldSize + runCount > oldEntryIds.length) {
+                            int newLength = Math.max(oldEntryIds.length * 2, oldSize + runCount);
+                            oldEntryIds = Arrays.copyOf(oldEntryIds, newLength);
+                            oldLocations = Arrays.copyOf(oldLocations, newLength);
+                        }
+                        EntryLocationRun.decode(run.getValue(), 0, oldLocations, oldSize, runCount);
+                        for (int i = 0; i < runCount; i++) {
+                            oldEntryIds[oldSize + i] = runFirstEntryId + i;
+                        }
+                        oldSize += runCount;
+                    }
+                }
+            } finally {
+                firstKey.recycle();
+                lastKey.recycle();
+            }
+
+            // Merge the old and the new locations, the new locations taking precedence
+            long[] mergedEntryIds = new long[size + oldSize];
+            long[] mergedLocations = new long[size + oldSize];
+            int mergedSize = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < oldSize) {
+                if (j == oldSize || (i < size && entryIds[i] <= oldEntryIds[j])) {
+                    if (j < oldSize && entryIds[i] == oldEntryIds[j]) {
+                        j++;
+                    }
+                    mergedEntryIds[mergedSize] = entryIds[i];
+                    mergedLocations[mergedSize++] = locations[i++];
+                } else {
+                    mergedEntryIds[mergedSize] = oldEntryIds[j];
+                    mergedLocations[mergedSize++] = oldLocations[j++];
+                }
+            }
+
+            // Split the merged locations into runs of consecutive entries
+            long[] runKeys = new long[mergedSize];
+            int runsCount = 0;
+            int runStart = 0;
+            while (runStart < mergedSize) {
+                int runEnd = runStart + 1;
+                while (runEnd < mergedSize && runEnd - runStart < EntryLocationRun.MAX_RUN_LENGTH
+                        && mergedEntryIds[runEnd] == mergedEntryIds[runEnd - 1] + 1) {
+                    runEnd++;
+                }
+                runKeys[runsCount++] = mergedEntryIds[runStart];
+                runStart = runEnd;
+            }
+
+            LongPairWrapper key = LongPairWrapper.get(ledgerId, 0);
+            try {
+                for (int r = 0; r < oldRunsCount; r++) {
+                    if (Arrays.binarySearch(runKeys, 0, runsCount, oldRunKeys[r]) < 0) {
+                        key.set(ledgerId, oldRunKeys[r]);
+                        batch.remove(key.array);
+                    }
+                }
+
+                runStart = 0;
+                for (int r = 0; r < runsCount; r++) {
+                    int runEnd = r + 1 < runsCount
+                            ? Arrays.binarySearch(mergedEntryIds, runStart, mergedSize, runKeys[r + 1])
+                            : mergedSize;
+                    key.set(ledgerId, runKeys[r]);
+                    if (runEnd - runStart == 1) {
+                        // A single entry is stored with the classic layout, which is smaller
+                        LongWrapper value = LongWrapper.get(mergedLocations[runStart]);
+                        try {
+                            batch.put(key.array, value.array);
+                        } finally {
+                            value.recycle();
+                        }
+                    } else {
+                        batch.put(key.array, EntryLocationRun.encode(mergedLocations, runStart, runEnd - runStart));
+                    }
+                    runStart = runEnd;
+                }
+            } finally {
+                key.recycle();
+            }
+        }
+    }
+
     private static final Logger log = LoggerFactory.getLogger(EntryLocationIndex.class);
 }
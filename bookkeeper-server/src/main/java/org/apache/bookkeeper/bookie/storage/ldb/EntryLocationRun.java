@@ -0,0 +1,154 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import java.util.Arrays;
+
+/**
+ * Encoding of the locations of a run of consecutive entries of a ledger, stored in the locations index under the key
+ * of the first entry of the run.
+ *
+ * <p>The value holds a format marker, the number of entries in the run, the location of the first entry (entry log id
+ * and offset) and then, for each following entry, the difference with the location of the previous entry. The entries
+ * of a run are usually written back to back in the same entry log, so each delta is the size of the previous entry and
+ * only takes a couple of bytes.
+ *
+ * <p>The values of the classic layout, with a single location per entry, are exactly 8 bytes long while a run value is
+ * always longer, so both kinds of records can be told apart and live in the same index. A classic record is handled
+ * as a run of a single entry.
+ */
+final class EntryLocationRun {
+
+    /**
+     * Max number of entries in a single run. This bounds the size of the values and the cost of looking up an entry in
+     * a run.
+     */
+    static final int MAX_RUN_LENGTH = 256;
+
+    private static final byte RUN_FORMAT = 1;
+
+    // Format marker, count and first location
+    private static final int HEADER_MAX_SIZE = 1 + 5 + Long.BYTES;
+    private static final int DELTA_MAX_SIZE = 10;
+
+    private EntryLocationRun() {
+    }
+
+    static boolean isRun(byte[] value) {
+        return value.length != Long.BYTES;
+    }
+
+    /**
+     * @return the number of entries in the record
+     */
+    static int count(byte[] value) {
+        if (!isRun(value)) {
+            return 1;
+        }
+        checkFormat(value);
+        return (int) readVarLong(value, new int[] { 1 });
+    }
+
+    /**
+     * Encode the locations of the entries {@code [firstEntryId, firstEntryId + count)}.
+     */
+    static byte[] encode(long[] locations, int offset, int count) {
+        byte[] value = new byte[HEADER_MAX_SIZE + (count - 1) * DELTA_MAX_SIZE];
+        value[0] = RUN_FORMAT;
+        int pos = writeVarLong(value, 1, count);
+        ArrayUtil.setLong(value, pos, locations[offset]);
+        pos += Long.BYTES;
+        for (int i = 1; i < count; i++) {
+            long delta = locations[offset + i] - locations[offset + i - 1];
+            // Zig-zag encoding, since an entry can be relocated before the previous one
+            pos = writeVarLong(value, pos, (delta << 1) ^ (delta >> 63));
+        }
+        return Arrays.copyOf(value, pos);
+    }
+
+    /**
+     * Decode the locations of the entries of the record, starting from the entry at {@code index} in the record.
+     *
+     * @return the number of locations copied in {@code locations}
+     */
+    static int decode(byte[] value, int index, long[] locations, int offset, int maxCount) {
+        if (!isRun(value)) {
+            if (index > 0 || maxCount == 0) {
+                return 0;
+            }
+            locations[offset] = ArrayUtil.getLong(value, 0);
+            return 1;
+        }
+
+        checkFormat(value);
+        int[] pos = { 1 };
+        int count = (int) readVarLong(value, pos);
+        long location = ArrayUtil.getLong(value, pos[0]);
+        pos[0] += Long.BYTES;
+
+        int copied = 0;
+        for (int i = 0; i < count && copied < maxCount; i++) {
+            if (i > 0) {
+                long zigzag = readVarLong(value, pos);
+                location += (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            if (i >= index) {
+                locations[offset + copied++] = location;
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * @return the location of the entry at {@code index} in the record, or 0 if the record is shorter
+     */
+    static long getLocation(byte[] value, int index) {
+        long[] location = new long[1];
+        return decode(value, index, location, 0, 1) == 1 ? location[0] : 0L;
+    }
+
+    private static void checkFormat(byte[] value) {
+        if (value[0] != RUN_FORMAT) {
+            throw new IllegalArgumentException("Unknown entry location run format: " + value[0]);
+        }
+    }
+
+    private static int writeVarLong(byte[] array, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            array[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        array[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static long readVarLong(byte[] array, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = array[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
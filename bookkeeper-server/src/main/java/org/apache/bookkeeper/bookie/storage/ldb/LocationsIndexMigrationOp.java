@@ -0,0 +1,138 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.Batch;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.CloseableIterator;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorageFactory.DbConfigType;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.commons.lang.time.DurationFormatUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Convert the locations index of each ledger directory to the run-length layout, or back to the classic layout with
+ * one record per entry.
+ */
+public class LocationsIndexMigrationOp {
+    private static final int BATCH_SIZE = 100000;
+
+    private final ServerConfiguration conf;
+    private final boolean runLength;
+
+    public LocationsIndexMigrationOp(ServerConfiguration conf, boolean runLength) {
+        this.conf = conf;
+        this.runLength = runLength;
+    }
+
+    public void initiate() throws IOException {
+        LOG.info("Starting locations index migration to the {} layout", runLength ? "run-length" : "classic");
+
+        for (File ledgerDir : conf.getLedgerDirs()) {
+            migrate(BookieImpl.getCurrentDirectory(ledgerDir).toString());
+        }
+    }
+
+    private void migrate(String basePath) throws IOException {
+        // Move locations index to a backup directory
+        Path currentPath = FileSystems.getDefault().getPath(basePath, "locations");
+        if (!Files.exists(currentPath)) {
+            LOG.info("No locations index found in {}", basePath);
+            return;
+        }
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date());
+        String backupName = "locations.BACKUP-" + timestamp;
+        Path backupPath = FileSystems.getDefault().getPath(basePath, backupName);
+        Files.move(currentPath, backupPath);
+
+        LOG.info("Created locations index backup at {}", backupPath);
+
+        long startTime = System.nanoTime();
+
+        ServerConfiguration indexConf = new ServerConfiguration(conf);
+        indexConf.setProperty(DbLedgerStorage.LOCATION_INDEX_RUN_LENGTH_ENABLED, runLength);
+
+        KeyValueStorage oldIndex = KeyValueStorageRocksDB.factory.newKeyValueStorage(basePath, backupName,
+                DbConfigType.Default, conf);
+        EntryLocationIndex newIndex = new EntryLocationIndex(indexConf, KeyValueStorageRocksDB.factory, basePath,
+                NullStatsLogger.INSTANCE);
+
+        long oldRecords = 0;
+        long entries = 0;
+        long[] locations = new long[EntryLocationRun.MAX_RUN_LENGTH];
+
+        try (CloseableIterator<Entry<byte[], byte[]>> iterator = oldIndex.iterator()) {
+            Batch batch = newIndex.newBatch();
+            int entriesInBatch = 0;
+            while (iterator.hasNext()) {
+                Entry<byte[], byte[]> record = iterator.next();
+                long ledgerId = ArrayUtil.getLong(record.getKey(), 0);
+                long firstEntryId = ArrayUtil.getLong(record.getKey(), 8);
+                int count = EntryLocationRun.decode(record.getValue(), 0, locations, 0, locations.length);
+                for (int i = 0; i < count; i++) {
+                    newIndex.addLocation(batch, ledgerId, firstEntryId + i, locations[i]);
+                }
+
+                ++oldRecords;
+                entries += count;
+                entriesInBatch += count;
+                if (entriesInBatch >= BATCH_SIZE) {
+                    batch.flush();
+                    batch.clear();
+                    entriesInBatch = 0;
+                }
+            }
+            batch.flush();
+            batch.close();
+        } finally {
+            oldIndex.close();
+            newIndex.close();
+        }
+
+        KeyValueStorage migratedIndex = KeyValueStorageRocksDB.factory.newKeyValueStorage(basePath, "locations",
+                DbConfigType.Default, conf);
+        long newRecords;
+        try {
+            newRecords = migratedIndex.count();
+            migratedIndex.sync();
+        } finally {
+            migratedIndex.close();
+        }
+
+        LOG.info("Migrated locations index in {}: {} entries, {} records -> {} records. Total time: {}", basePath,
+                entries, oldRecords, newRecords,
+                DurationFormatUtils.formatDurationHMS(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocationsIndexMigrationOp.class);
+}
@@ -35,6 +35,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.bookkeeper.bookie.BookieImpl;
 import org.apache.bookkeeper.bookie.EntryLogger;
+import org.apache.bookkeeper.bookie.EntryLogger.EntryLocationScanner;
 import org.apache.bookkeeper.bookie.EntryLogger.EntryLogScanner;
 import org.apache.bookkeeper.bookie.LedgerDirsManager;
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorageFactory.DbConfigType;
@@ -84,23 +85,11 @@ public class LocationsIndexRebuildOp {
         LOG.info("Scanning {} entry logs", totalEntryLogs);
 
         for (long entryLogId : entryLogs) {
-            entryLogger.scanEntryLog(entryLogId, new EntryLogScanner() {
+            // The entries of the sealed entry logs are located from their footer index, without reading them
+            boolean indexed = entryLogger.scanEntryLogFooter(entryLogId, new EntryLocationScanner() {
                 @Override
-                public void process(long ledgerId, long offset, ByteBuf entry) throws IOException {
-                    long entryId = entry.getLong(8);
-
-                    // Actual location indexed is pointing past the entry size
-                    long location = (entryLogId << 32L) | (offset + 4);
-
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("Rebuilding {}:{} at location {} / {}", ledgerId, entryId, location >> 32,
-                                location & (Integer.MAX_VALUE - 1));
-                    }
-
-                    // Update the ledger index page
-                    LongPairWrapper key = LongPairWrapper.get(ledgerId, entryId);
-                    LongWrapper value = LongWrapper.get(location);
-                    newIndex.put(key.array, value.array);
+                public void process(long ledgerId, long entryId, long offset, int entrySize) throws IOException {
+                    rebuildEntry(newIndex, entryLogId, ledgerId, entryId, offset);
                 }
 
                 @Override
@@ -108,6 +97,19 @@ public class LocationsIndexRebuildOp {
                     return activeLedgers.contains(ledgerId);
                 }
             });
+            if (!indexed) {
+                entryLogger.scanEntryLog(entryLogId, new EntryLogScanner() {
+                    @Override
+                    public void process(long ledgerId, long offset, ByteBuf entry) throws IOException {
+                        rebuildEntry(newIndex, entryLogId, ledgerId, entry.getLong(8), offset);
+                    }
+
+                    @Override
+                    public boolean accept(long ledgerId) {
+                        return activeLedgers.contains(ledgerId);
+                    }
+                });
+            }
 
             ++completedEntryLogs;
             LOG.info("Completed scanning of log {}.log -- {} / {}", Long.toHexString(entryLogId), completedEntryLogs,
@@ -121,6 +123,22 @@ public class LocationsIndexRebuildOp {
                 DurationFormatUtils.formatDurationHMS(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
     }
 
+    private void rebuildEntry(KeyValueStorage newIndex, long entryLogId, long ledgerId, long entryId, long offset)
+            throws IOException {
+        // Actual location indexed is pointing past the entry size
+        long location = (entryLogId << 32L) | (offset + 4);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Rebuilding {}:{} at location {} / {}", ledgerId, entryId, location >> 32,
+                    location & (Integer.MAX_VALUE - 1));
+        }
+
+        // Update the ledger index page
+        LongPairWrapper key = LongPairWrapper.get(ledgerId, entryId);
+        LongWrapper value = LongWrapper.get(location);
+        newIndex.put(key.array, value.array);
+    }
+
     private Set<Long> getActiveLedgers(ServerConfiguration conf, KeyValueStorageFactory storageFactory, String basePath)
             throws IOException {
         LedgerMetadataIndex ledgers = new LedgerMetadataIndex(conf, storageFactory, basePath, NullStatsLogger.INSTANCE);
@@ -20,18 +20,24 @@
  */
 package org.apache.bookkeeper.bookie.storage.ldb;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.bookkeeper.bookie.storage.ldb.WriteCache.align64;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.io.Closeable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.apache.bookkeeper.common.collections.BusyWait;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap.LongPair;
 import org.slf4j.Logger;
@@ -46,159 +52,387 @@ import org.slf4j.LoggerFactory;
  * ring-buffer fashion. When the read cache is full, the oldest segment
  * is cleared and rotated to make space for new entries to be added to
  * the read cache.
+ *
+ * <p>Lookups, insertions and segment roll-overs do not need any global
+ * lock. Segments are retired before being recycled and their indexes are
+ * cleared in background, outside of the read and write paths.
+ *
+ * <p>Optionally, part of the memory can be reserved for a protected ring
+ * of segments. New entries are always inserted in the probation ring, and
+ * they get promoted to the protected ring only when they are read again and
+ * their recent access frequency, as estimated by a
+ * {@link ReadCacheFrequencySketch}, reaches the promotion threshold. This
+ * prevents a single sequential scan (eg: a catch-up reader) from evicting
+ * the entries that are being read over and over by other readers.
  */
 public class ReadCache implements Closeable {
     private static final Logger log = LoggerFactory.getLogger(ReadCache.class);
 
-    private static final int DEFAULT_MAX_SEGMENT_SIZE = 1 * 1024 * 1024 * 1024;
+    static final int DEFAULT_MAX_SEGMENT_SIZE = 1 * 1024 * 1024 * 1024;
+
+    static final int DEFAULT_PROMOTION_FREQUENCY = 2;
 
-    private final List<ByteBuf> cacheSegments;
-    private final List<ConcurrentLongLongPairHashMap> cacheIndexes;
+    // Used to size the frequency sketch from the cache size
+    private static final int EXPECTED_AVERAGE_ENTRY_SIZE = 1024;
 
-    private int currentSegmentIdx;
-    private final AtomicInteger currentSegmentOffset = new AtomicInteger(0);
+    private final SegmentRing probationRing;
 
-    private final int segmentSize;
+    // Ring of segments for frequently accessed entries. Null if the admission policy is disabled
+    private final SegmentRing protectedRing;
+    private final ReadCacheFrequencySketch frequencySketch;
+    private final int promotionFrequency;
+
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder admissionRejections = new LongAdder();
+    private final LongAdder droppedInserts = new LongAdder();
 
     private ByteBufAllocator allocator;
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Executor used to clear the indexes of the evicted segments
+    private final ExecutorService cleanupExecutor = Executors.newSingleThreadExecutor(
+            new DefaultThreadFactory("read-cache-cleanup", true));
 
     public ReadCache(ByteBufAllocator allocator, long maxCacheSize) {
         this(allocator, maxCacheSize, DEFAULT_MAX_SEGMENT_SIZE);
     }
 
     public ReadCache(ByteBufAllocator allocator, long maxCacheSize, int maxSegmentSize) {
-        this.allocator = allocator;
-        int segmentsCount = Math.max(2, (int) (maxCacheSize / maxSegmentSize));
-        segmentSize = (int) (maxCacheSize / segmentsCount);
+        this(allocator, maxCacheSize, maxSegmentSize, 0.0, DEFAULT_PROMOTION_FREQUENCY);
+    }
 
-        cacheSegments = new ArrayList<>();
-        cacheIndexes = new ArrayList<>();
+    /**
+     * @param protectedRatio
+     *            fraction of the cache memory reserved to the protected ring. With 0, the cache is a plain FIFO
+     *            ring of segments
+     * @param promotionFrequency
+     *            estimated number of recent accesses required for an entry to be promoted to the protected ring,
+     *            at most {@link ReadCacheFrequencySketch#MAX_FREQUENCY}
+     */
+    public ReadCache(ByteBufAllocator allocator, long maxCacheSize, int maxSegmentSize, double protectedRatio,
+                     int promotionFrequency) {
+        checkArgument(protectedRatio >= 0.0 && protectedRatio < 1.0,
+                "Protected ratio must be in the [0.0, 1.0) range: %s", protectedRatio);
+        checkArgument(promotionFrequency > 0 && promotionFrequency <= ReadCacheFrequencySketch.MAX_FREQUENCY,
+                "Promotion frequency must be in the [1, %s] range: %s", ReadCacheFrequencySketch.MAX_FREQUENCY,
+                promotionFrequency);
 
-        for (int i = 0; i < segmentsCount; i++) {
-            cacheSegments.add(Unpooled.directBuffer(segmentSize, segmentSize));
-            ConcurrentLongLongPairHashMap concurrentLongLongPairHashMap = ConcurrentLongLongPairHashMap.newBuilder()
-                    .expectedItems(4096)
-                    .concurrencyLevel(2 * Runtime.getRuntime().availableProcessors())
-                    .build();
-            cacheIndexes.add(concurrentLongLongPairHashMap);
+        this.allocator = allocator;
+        this.promotionFrequency = promotionFrequency;
+
+        long protectedCacheSize = (long) (maxCacheSize * protectedRatio);
+        if (protectedCacheSize > 0) {
+            probationRing = new SegmentRing(maxCacheSize - protectedCacheSize, maxSegmentSize,
+                    cleanupExecutor, droppedInserts);
+            protectedRing = new SegmentRing(protectedCacheSize, maxSegmentSize, cleanupExecutor, droppedInserts);
+            frequencySketch = new ReadCacheFrequencySketch(maxCacheSize / EXPECTED_AVERAGE_ENTRY_SIZE);
+        } else {
+            probationRing = new SegmentRing(maxCacheSize, maxSegmentSize, cleanupExecutor, droppedInserts);
+            protectedRing = null;
+            frequencySketch = null;
         }
     }
 
     @Override
     public void close() {
-        cacheSegments.forEach(ByteBuf::release);
+        cleanupExecutor.shutdown();
+        probationRing.close();
+        if (protectedRing != null) {
+            protectedRing.close();
+        }
     }
 
     public void put(long ledgerId, long entryId, ByteBuf entry) {
-        int entrySize = entry.readableBytes();
-        int alignedSize = align64(entrySize);
+        if (protectedRing != null && protectedRing.hasEntry(ledgerId, entryId)) {
+            // Entry was already promoted, no need to store another copy (eg: from read-ahead)
+            return;
+        }
 
-        lock.readLock().lock();
+        probationRing.put(ledgerId, entryId, entry);
+    }
+
+    public ByteBuf get(long ledgerId, long entryId) {
+        if (protectedRing == null) {
+            return probationRing.get(ledgerId, entryId, allocator, false);
+        }
+
+        frequencySketch.increment(ledgerId, entryId);
+
+        // Entries in the protected ring get a second chance when they are about to be evicted
+        ByteBuf entry = protectedRing.get(ledgerId, entryId, allocator, true);
+        if (entry != null) {
+            return entry;
+        }
+
+        entry = probationRing.get(ledgerId, entryId, allocator, false);
+        if (entry == null) {
+            return null;
+        }
+
+        if (frequencySketch.frequency(ledgerId, entryId) >= promotionFrequency) {
+            protectedRing.put(ledgerId, entryId, entry);
+            probationRing.remove(ledgerId, entryId);
+            promotions.increment();
+        } else {
+            admissionRejections.increment();
+        }
+        return entry;
+    }
+
+    public boolean hasEntry(long ledgerId, long entryId) {
+        return probationRing.hasEntry(ledgerId, entryId)
+                || (protectedRing != null && protectedRing.hasEntry(ledgerId, entryId));
+    }
+
+    /**
+     * @return the total size of cached entries
+     */
+    public long size() {
+        return probationRing.size() + (protectedRing != null ? protectedRing.size() : 0);
+    }
+
+    /**
+     * @return the total number of cached entries
+     */
+    public long count() {
+        return probationRing.count() + (protectedRing != null ? protectedRing.count() : 0);
+    }
+
+    /**
+     * @return the number of entries that were promoted to the protected ring
+     */
+    public long getPromotionCount() {
+        return promotions.sum();
+    }
+
+    /**
+     * @return the number of read cache hits in the probation ring that did not get the entry promoted because
+     *         its access frequency was too low
+     */
+    public long getAdmissionRejectionCount() {
+        return admissionRejections.sum();
+    }
+
+    /**
+     * @return the number of entries that were not inserted because another thread was rolling over the segments
+     */
+    public long getDroppedInsertCount() {
+        return droppedInserts.sum();
+    }
+
+    /**
+     * A ring of memory segments, each one paired with an index of the entries it holds.
+     *
+     * <p>There is no lock on the whole ring: each segment counts the threads that are accessing its memory.
+     * On roll-over, the segment to be recycled is first retired, so that no new reader or writer can use it,
+     * and it is reused once the in-flight accesses are drained. Its index is swapped with a spare one that was
+     * already cleared, and the evicted index is cleared in background.
+     */
+    private static class SegmentRing implements Closeable {
+        private final Segment[] segments;
+        private final int segmentSize;
+
+        private volatile int currentSegmentIdx;
+        private final AtomicBoolean rollOverInProgress = new AtomicBoolean(false);
+
+        // Cleared index, ready to be associated with the next recycled segment
+        private final AtomicReference<ConcurrentLongLongPairHashMap> spareIndex;
+        private final Executor cleanupExecutor;
+        private final LongAdder droppedInserts;
+
+        SegmentRing(long maxCacheSize, int maxSegmentSize, Executor cleanupExecutor, LongAdder droppedInserts) {
+            int segmentsCount = Math.max(2, (int) (maxCacheSize / maxSegmentSize));
+            segmentSize = (int) (maxCacheSize / segmentsCount);
+            this.cleanupExecutor = cleanupExecutor;
+            this.droppedInserts = droppedInserts;
+
+            segments = new Segment[segmentsCount];
+            for (int i = 0; i < segmentsCount; i++) {
+                segments[i] = new Segment(Unpooled.directBuffer(segmentSize, segmentSize), newIndex());
+            }
+            spareIndex = new AtomicReference<>(newIndex());
+        }
+
+        private static ConcurrentLongLongPairHashMap newIndex() {
+            return ConcurrentLongLongPairHashMap.newBuilder()
+                    .expectedItems(4096)
+                    .concurrencyLevel(2 * Runtime.getRuntime().availableProcessors())
+                    .build();
+        }
+
+        @Override
+        public void close() {
+            for (Segment segment : segments) {
+                segment.buffer.release();
+            }
+        }
+
+        void put(long ledgerId, long entryId, ByteBuf entry) {
+            int entrySize = entry.readableBytes();
+            int alignedSize = align64(entrySize);
 
-        try {
             if (entrySize > segmentSize) {
                 log.warn("entrySize {} > segmentSize {}, skip update read cache!", entrySize, segmentSize);
                 return;
             }
-            int offset = currentSegmentOffset.getAndAdd(alignedSize);
-            if (offset + entrySize > segmentSize) {
-                // Roll-over the segment (outside the read-lock)
-            } else {
-                // Copy entry into read cache segment
-                cacheSegments.get(currentSegmentIdx).setBytes(offset, entry, entry.readerIndex(),
-                        entry.readableBytes());
-                cacheIndexes.get(currentSegmentIdx).put(ledgerId, entryId, offset, entrySize);
-                return;
+
+            while (true) {
+                int segmentIdx = currentSegmentIdx;
+                Segment segment = segments[segmentIdx];
+
+                if (segment.tryAcquire()) {
+                    try {
+                        int offset = segment.offset.getAndAdd(alignedSize);
+                        if (offset + entrySize <= segmentSize) {
+                            // Copy entry into read cache segment
+                            segment.buffer.setBytes(offset, entry, entry.readerIndex(), entrySize);
+                            segment.index.put(ledgerId, entryId, offset, entrySize);
+                            return;
+                        }
+                    } finally {
+                        segment.release();
+                    }
+                }
+
+                // The segment is full, we need to roll-over to the next segment
+                if (!rollOver(segmentIdx)) {
+                    // Another thread is rolling over the ring. Skip the insertion rather than waiting for it, since
+                    // the entry can always be read again from the entry logs
+                    droppedInserts.increment();
+                    return;
+                }
             }
-        } finally {
-            lock.readLock().unlock();
-        }
-
-        // We could not insert in segment, we to get the write lock and roll-over to
-        // next segment
-        lock.writeLock().lock();
-
-        try {
-            int offset = currentSegmentOffset.getAndAdd(entrySize);
-            if (offset + entrySize > segmentSize) {
-                // Rollover to next segment
-                currentSegmentIdx = (currentSegmentIdx + 1) % cacheSegments.size();
-                currentSegmentOffset.set(alignedSize);
-                cacheIndexes.get(currentSegmentIdx).clear();
-                offset = 0;
+        }
+
+        /**
+         * Move to the next segment, unless it was already done by another thread.
+         *
+         * @return false if another thread is currently rolling over the ring
+         */
+        private boolean rollOver(int fullSegmentIdx) {
+            if (currentSegmentIdx != fullSegmentIdx) {
+                return true;
             }
 
-            // Copy entry into read cache segment
-            cacheSegments.get(currentSegmentIdx).setBytes(offset, entry, entry.readerIndex(), entry.readableBytes());
-            cacheIndexes.get(currentSegmentIdx).put(ledgerId, entryId, offset, entrySize);
-        } finally {
-            lock.writeLock().unlock();
-        }
-    }
+            if (!rollOverInProgress.compareAndSet(false, true)) {
+                return false;
+            }
 
-    public ByteBuf get(long ledgerId, long entryId) {
-        lock.readLock().lock();
+            try {
+                if (currentSegmentIdx != fullSegmentIdx) {
+                    return true;
+                }
 
-        try {
+                int nextSegmentIdx = (fullSegmentIdx + 1) % segments.length;
+                Segment nextSegment = segments[nextSegmentIdx];
+                nextSegment.retire();
+
+                ConcurrentLongLongPairHashMap evictedIndex = nextSegment.index;
+                ConcurrentLongLongPairHashMap newIndex = spareIndex.getAndSet(null);
+                if (newIndex == null) {
+                    // The background cleanup of the previous index is not done yet
+                    newIndex = newIndex();
+                }
+
+                nextSegment.index = newIndex;
+                nextSegment.offset.set(0);
+                nextSegment.reactivate();
+                currentSegmentIdx = nextSegmentIdx;
+
+                cleanupExecutor.execute(() -> {
+                    evictedIndex.clear();
+                    spareIndex.compareAndSet(null, evictedIndex);
+                });
+                return true;
+            } finally {
+                rollOverInProgress.set(false);
+            }
+        }
+
+        /**
+         * @param reinsertIfOldest
+         *            if the entry is found in the oldest segment, which is the next one to be recycled, insert it
+         *            again in the current segment
+         */
+        ByteBuf get(long ledgerId, long entryId, ByteBufAllocator allocator, boolean reinsertIfOldest) {
             // We need to check all the segments, starting from the current one and looking
             // backward to minimize the
             // checks for recently inserted entries
-            int size = cacheSegments.size();
+            int current = currentSegmentIdx;
+            int size = segments.length;
             for (int i = 0; i < size; i++) {
-                int segmentIdx = (currentSegmentIdx + (size - i)) % size;
+                Segment segment = segments[(current + (size - i)) % size];
+                if (!segment.tryAcquire()) {
+                    // Segment is being recycled
+                    continue;
+                }
 
-                LongPair res = cacheIndexes.get(segmentIdx).get(ledgerId, entryId);
-                if (res != null) {
-                    int entryOffset = (int) res.first;
-                    int entryLen = (int) res.second;
+                ByteBuf entry = null;
+                try {
+                    LongPair res = segment.index.get(ledgerId, entryId);
+                    if (res != null) {
+                        int entryOffset = (int) res.first;
+                        int entryLen = (int) res.second;
+
+                        entry = allocator.buffer(entryLen, entryLen);
+                        entry.writeBytes(segment.buffer, entryOffset, entryLen);
+                    }
+                } finally {
+                    segment.release();
+                }
 
-                    ByteBuf entry = allocator.buffer(entryLen, entryLen);
-                    entry.writeBytes(cacheSegments.get(segmentIdx), entryOffset, entryLen);
+                if (entry != null) {
+                    if (reinsertIfOldest && i == size - 1) {
+                        put(ledgerId, entryId, entry);
+                    }
                     return entry;
                 }
             }
-        } finally {
-            lock.readLock().unlock();
+
+            // Entry not found in any segment
+            return null;
         }
 
-        // Entry not found in any segment
-        return null;
-    }
+        boolean hasEntry(long ledgerId, long entryId) {
+            for (Segment segment : segments) {
+                if (!segment.tryAcquire()) {
+                    continue;
+                }
 
-    public boolean hasEntry(long ledgerId, long entryId) {
-        lock.readLock().lock();
+                try {
+                    if (segment.index.containsKey(ledgerId, entryId)) {
+                        return true;
+                    }
+                } finally {
+                    segment.release();
+                }
+            }
 
-        try {
-            int size = cacheSegments.size();
-            for (int i = 0; i < size; i++) {
-                int segmentIdx = (currentSegmentIdx + (size - i)) % size;
+            // Entry not found in any segment
+            return false;
+        }
 
-                LongPair res = cacheIndexes.get(segmentIdx).get(ledgerId, entryId);
-                if (res != null) {
-                    return true;
+        /**
+         * Remove the entry from the indexes. The segment memory is only reclaimed when the segment is recycled.
+         */
+        void remove(long ledgerId, long entryId) {
+            for (Segment segment : segments) {
+                if (segment.tryAcquire()) {
+                    try {
+                        segment.index.remove(ledgerId, entryId);
+                    } finally {
+                        segment.release();
+                    }
                 }
             }
-        } finally {
-            lock.readLock().unlock();
         }
 
-        // Entry not found in any segment
-        return false;
-    }
-
-    /**
-     * @return the total size of cached entries
-     */
-    public long size() {
-        lock.readLock().lock();
-
-        try {
+        long size() {
+            int current = currentSegmentIdx;
             long size = 0;
-            for (int i = 0; i < cacheIndexes.size(); i++) {
-                if (i == currentSegmentIdx) {
-                    size += currentSegmentOffset.get();
-                } else if (!cacheIndexes.get(i).isEmpty()) {
+            for (int i = 0; i < segments.length; i++) {
+                if (i == current) {
+                    size += Math.min(segments[i].offset.get(), segmentSize);
+                } else if (!segments[i].index.isEmpty()) {
                     size += segmentSize;
                 } else {
                     // the segment is empty
@@ -206,26 +440,65 @@ public class ReadCache implements Closeable {
             }
 
             return size;
-        } finally {
-            lock.readLock().unlock();
+        }
+
+        long count() {
+            long count = 0;
+            for (Segment segment : segments) {
+                count += segment.index.size();
+            }
+
+            return count;
         }
     }
 
     /**
-     * @return the total number of cached entries
+     * A memory segment of the read cache, with the index of the entries it holds.
      */
-    public long count() {
-        lock.readLock().lock();
+    private static class Segment {
+        private static final int RETIRED = 1 << 30;
 
-        try {
-            long count = 0;
-            for (int i = 0; i < cacheIndexes.size(); i++) {
-                count += cacheIndexes.get(i).size();
+        final ByteBuf buffer;
+        volatile ConcurrentLongLongPairHashMap index;
+        final AtomicInteger offset = new AtomicInteger(0);
+
+        // Number of threads accessing the segment, combined with the RETIRED flag
+        private final AtomicInteger users = new AtomicInteger(0);
+
+        Segment(ByteBuf buffer, ConcurrentLongLongPairHashMap index) {
+            this.buffer = buffer;
+            this.index = index;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int value = users.get();
+                if ((value & RETIRED) != 0) {
+                    return false;
+                }
+
+                if (users.compareAndSet(value, value + 1)) {
+                    return true;
+                }
             }
+        }
 
-            return count;
-        } finally {
-            lock.readLock().unlock();
+        void release() {
+            users.decrementAndGet();
+        }
+
+        /**
+         * Prevent new accesses to the segment and wait for the in-flight ones to complete.
+         */
+        void retire() {
+            users.getAndAdd(RETIRED);
+            while (users.get() != RETIRED) {
+                BusyWait.onSpinWait();
+            }
+        }
+
+        void reactivate() {
+            users.getAndAdd(-RETIRED);
         }
     }
 }
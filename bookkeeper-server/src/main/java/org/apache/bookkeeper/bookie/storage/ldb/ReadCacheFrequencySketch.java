@@ -0,0 +1,142 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate access frequency of (ledgerId, entryId) pairs, used by the {@link ReadCache} admission policy.
+ *
+ * <p>This is a count-min sketch with 4-bit counters (16 counters packed in each long), in the style of TinyLFU.
+ * Once the number of recorded accesses reaches the sample size, all the counters are halved so that the
+ * frequencies reflect the recent history rather than the whole lifetime of the bookie.
+ *
+ * <p>Updates are done with CAS on the packed words, so concurrent callers never corrupt the neighbouring
+ * counters. The aging step is not atomic with respect to increments, which only makes the estimation slightly
+ * less accurate.
+ */
+class ReadCacheFrequencySketch {
+
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+    static final int MAX_FREQUENCY = 15;
+
+    private static final int MIN_TABLE_SIZE = 1024;
+    private static final int MAX_TABLE_SIZE = 1 << 22;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger(0);
+
+    ReadCacheFrequencySketch(long expectedItems) {
+        int tableSize = (int) Math.min(MAX_TABLE_SIZE, Math.max(MIN_TABLE_SIZE, expectedItems));
+        tableSize = Integer.highestOneBit(tableSize - 1) << 1;
+        this.table = new AtomicLongArray(tableSize);
+        this.tableMask = tableSize - 1;
+        this.sampleSize = 10 * tableSize;
+    }
+
+    /**
+     * @return the estimated number of recent accesses to the entry, between 0 and 15
+     */
+    int frequency(long ledgerId, long entryId) {
+        long hash = hash(ledgerId, entryId);
+        int start = (int) ((hash & 3) << 2);
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int shift = (start + i) << 2;
+            int count = (int) ((table.get(index) >>> shift) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Record one access to the entry.
+     */
+    void increment(long ledgerId, long entryId) {
+        long hash = hash(ledgerId, entryId);
+        int start = (int) ((hash & 3) << 2);
+
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            added |= incrementAt(index, start + i);
+        }
+
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int shift = counter << 2;
+        long mask = 0xfL << shift;
+        while (true) {
+            long value = table.get(index);
+            if ((value & mask) == mask) {
+                // Counter is already saturated
+                return false;
+            }
+
+            if (table.compareAndSet(index, value, value + (1L << shift))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Halve all the counters, to age the recorded frequencies.
+     */
+    private void reset() {
+        additions.set(sampleSize / 2);
+        for (int i = 0; i < table.length(); i++) {
+            while (true) {
+                long value = table.get(i);
+                if (table.compareAndSet(i, value, (value >>> 1) & RESET_MASK)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private int indexOf(long hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += (h >>> 32);
+        return (int) (h & tableMask);
+    }
+
+    private static long hash(long ledgerId, long entryId) {
+        long h = ledgerId * 0x9e3779b97f4a7c15L + entryId;
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+}
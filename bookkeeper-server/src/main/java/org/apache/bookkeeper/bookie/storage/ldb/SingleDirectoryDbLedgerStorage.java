@@ -32,19 +32,26 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PrimitiveIterator.OfLong;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
@@ -81,6 +88,7 @@ import org.apache.bookkeeper.stats.ThreadRegistry;
 import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
 import org.apache.commons.lang.mutable.MutableLong;
+import org.apache.commons.lang3.mutable.MutableInt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -120,6 +128,13 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     private final ExecutorService executor = Executors.newSingleThreadExecutor(
             new DefaultThreadFactory(dbStoragerExecutorName));
 
+    // Executor used to flush the write cache in parallel, null if the flush is single-threaded
+    private final ExecutorService flushExecutor;
+    private final int flushParallelism;
+
+    // Executor used to read the entries missing from the caches, null if they are read by the request threads
+    private final ThreadPoolExecutor readExecutor;
+
     // Executor used to for db index cleanup
     private final ScheduledExecutorService cleanupExecutor = Executors
             .newSingleThreadScheduledExecutor(new DefaultThreadFactory("db-storage-cleanup"));
@@ -133,6 +148,8 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     private final long writeCacheMaxSize;
     private final long readCacheMaxSize;
     private final int readAheadCacheBatchSize;
+    private final boolean readAheadCacheAdaptive;
+    private final int readAheadCacheMaxBatchSize;
 
     private final long maxThrottleTimeNanos;
 
@@ -142,6 +159,14 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
     private final long maxReadAheadBytesSize;
 
+    // Max number of locations resolved with a single range scan on the locations index, in getEntries()
+    private static final int MAX_ENTRIES_PER_LOCATIONS_LOOKUP = 1024;
+
+    // Max distance between two consecutive entries read with a single span in getEntries(). The entries are
+    // usually adjacent in the entry logs, but entries of other ledgers can be stored in between: the span never
+    // holds more than this many bytes of other data per entry it returns. Farther entries are read separately.
+    private static final long MAX_ENTRIES_SPAN_STRIDE = 64 * 1024;
+
     private final Counter flushExecutorTime;
 
     public SingleDirectoryDbLedgerStorage(ServerConfiguration conf, LedgerManager ledgerManager,
@@ -163,6 +188,9 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
         readCacheMaxSize = readCacheSize;
         this.readAheadCacheBatchSize = readAheadCacheBatchSize;
+        this.readAheadCacheAdaptive = conf.getBoolean(DbLedgerStorage.READ_AHEAD_CACHE_ADAPTIVE, false);
+        this.readAheadCacheMaxBatchSize = conf.getInt(DbLedgerStorage.READ_AHEAD_CACHE_MAX_BATCH_SIZE,
+                4 * readAheadCacheBatchSize);
 
         // Do not attempt to perform read-ahead more than half the total size of the cache
         maxReadAheadBytesSize = readCacheMaxSize / 2;
@@ -171,11 +199,18 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                 DEFAULT_MAX_THROTTLE_TIME_MILLIS);
         maxThrottleTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxThrottleTimeMillis);
 
-        readCache = new ReadCache(allocator, readCacheMaxSize);
+        double readCacheProtectedRatio = conf.getDouble(DbLedgerStorage.READ_AHEAD_CACHE_PROTECTED_RATIO,
+                DbLedgerStorage.DEFAULT_READ_AHEAD_CACHE_PROTECTED_RATIO);
+        int readCachePromotionFrequency = conf.getInt(DbLedgerStorage.READ_AHEAD_CACHE_PROMOTION_FREQUENCY,
+                ReadCache.DEFAULT_PROMOTION_FREQUENCY);
+        readCache = new ReadCache(allocator, readCacheMaxSize, ReadCache.DEFAULT_MAX_SEGMENT_SIZE,
+                readCacheProtectedRatio, readCachePromotionFrequency);
 
         ledgerIndex = new LedgerMetadataIndex(conf, KeyValueStorageRocksDB.factory, baseDir, ledgerDirStatsLogger);
+        long locationCacheMaxSize = conf.getLong(DbLedgerStorage.LOCATION_CACHE_MAX_SIZE_MB,
+                DbLedgerStorage.DEFAULT_LOCATION_CACHE_MAX_SIZE_MB) * 1024 * 1024;
         entryLocationIndex = new EntryLocationIndex(conf,
-                KeyValueStorageRocksDB.factory, baseDir, ledgerDirStatsLogger);
+                KeyValueStorageRocksDB.factory, baseDir, ledgerDirStatsLogger, locationCacheMaxSize);
 
         transientLedgerInfoCache = ConcurrentLongHashMap.<TransientLedgerInfo>newBuilder()
                 .expectedItems(16 * 1024)
@@ -186,6 +221,21 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                 TransientLedgerInfo.LEDGER_INFO_CACHING_TIME_MINUTES, TimeUnit.MINUTES);
 
         entryLogger = new EntryLogger(conf, ledgerDirsManager, null, statsLogger, allocator);
+
+        flushParallelism = Math.max(1, conf.getInt(DbLedgerStorage.FLUSH_PARALLELISM,
+                DbLedgerStorage.DEFAULT_FLUSH_PARALLELISM));
+        flushExecutor = flushParallelism > 1
+                ? Executors.newFixedThreadPool(flushParallelism, new DefaultThreadFactory("db-storage-flush"))
+                : null;
+        int readThreads = conf.getInt(DbLedgerStorage.READ_THREADS_PER_DIRECTORY,
+                DbLedgerStorage.DEFAULT_READ_THREADS_PER_DIRECTORY);
+        int readQueueDepth = Math.max(1, conf.getInt(DbLedgerStorage.READ_QUEUE_DEPTH_PER_DIRECTORY,
+                DbLedgerStorage.DEFAULT_READ_QUEUE_DEPTH_PER_DIRECTORY));
+        readExecutor = readThreads > 0
+                ? new ThreadPoolExecutor(readThreads, readThreads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(readQueueDepth), new DefaultThreadFactory("db-storage-read"),
+                        this::readRejected)
+                : null;
         gcThread = new GarbageCollectorThread(conf, ledgerManager, ledgerDirsManager, this, statsLogger);
 
         dbLedgerStorageStats = new DbLedgerStorageStats(
@@ -193,7 +243,11 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             () -> writeCache.size() + writeCacheBeingFlushed.size(),
             () -> writeCache.count() + writeCacheBeingFlushed.count(),
             () -> readCache.size(),
-            () -> readCache.count()
+            () -> readCache.count(),
+            () -> readCache.getPromotionCount(),
+            () -> readCache.getAdmissionRejectionCount(),
+            () -> readCache.getDroppedInsertCount(),
+            () -> readExecutor != null ? (long) (readExecutor.getQueue().size() + readExecutor.getActiveCount()) : 0L
         );
 
         flushExecutorTime = ledgerDirStatsLogger.getThreadScopedCounter("db-storage-thread-time");
@@ -260,6 +314,15 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             flush();
 
             gcThread.shutdown();
+            if (readExecutor != null) {
+                readExecutor.shutdown();
+                if (!readExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // The dropped reads are not answered, their clients lose the connection to the bookie
+                    int droppedReads = readExecutor.shutdownNow().size();
+                    log.warn("Reads still running after 1 second, interrupted them and dropped {} queued reads",
+                            droppedReads);
+                }
+            }
             entryLogger.shutdown();
 
             cleanupExecutor.shutdown();
@@ -272,6 +335,9 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             writeCacheBeingFlushed.close();
             readCache.close();
             executor.shutdown();
+            if (flushExecutor != null) {
+                flushExecutor.shutdown();
+            }
 
         } catch (IOException e) {
             log.error("Error closing db storage", e);
@@ -298,6 +364,23 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             return false;
         }
 
+        if (isEntryCached(ledgerId, entryId)) {
+            return true;
+        }
+
+        // Read from main storage
+        long entryLocation = entryLocationIndex.getLocation(ledgerId, entryId);
+        if (entryLocation != 0) {
+            return true;
+        }
+
+        // Only a negative result while in limbo equates to unknown
+        throwIfLimbo(ledgerId);
+
+        return false;
+    }
+
+    private boolean isEntryCached(long ledgerId, long entryId) {
         // We need to try to read from both write caches, since recent entries could be found in either of the two. The
         // write caches are already thread safe on their own, here we just need to make sure we get references to both
         // of them. Using an optimistic lock since the read lock is always free, unless we're swapping the caches.
@@ -315,24 +398,34 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             }
         }
 
-        boolean inCache = localWriteCache.hasEntry(ledgerId, entryId)
+        return localWriteCache.hasEntry(ledgerId, entryId)
              || localWriteCacheBeingFlushed.hasEntry(ledgerId, entryId)
              || readCache.hasEntry(ledgerId, entryId);
+    }
 
-        if (inCache) {
-            return true;
+    /**
+     * The entries found in the caches are read by the request threads, since they are read without any I/O. The other
+     * entries are read by the read threads of the directory, if any, so that a slow disk only delays its own reads.
+     */
+    @Override
+    public Executor getReadExecutor(long ledgerId, long entryId) {
+        if (readExecutor == null || entryId == BookieProtocol.LAST_ADD_CONFIRMED || isEntryCached(ledgerId, entryId)) {
+            return null;
         }
+        return readExecutor;
+    }
 
-        // Read from main storage
-        long entryLocation = entryLocationIndex.getLocation(ledgerId, entryId);
-        if (entryLocation != 0) {
-            return true;
+    /**
+     * A read that doesn't fit in the read queue is done by the request thread, rather than failed: the request
+     * threads are throttled by the disk instead. The reads received once the storage is shut down are failed, since
+     * the entry logger and the indexes are closed.
+     */
+    private void readRejected(Runnable read, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Ledger storage is shut down");
         }
-
-        // Only a negative result while in limbo equates to unknown
-        throwIfLimbo(ledgerId);
-
-        return false;
+        dbLedgerStorageStats.getReadQueueRejections().inc();
+        read.run();
     }
 
     @Override
@@ -489,6 +582,178 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         }
     }
 
+    @Override
+    public List<ByteBuf> getEntries(long ledgerId, long firstEntryId, int maxCount, long maxBytes)
+            throws IOException, BookieException {
+        if (firstEntryId == BookieProtocol.LAST_ADD_CONFIRMED) {
+            return Lists.newArrayList(getEntry(ledgerId, firstEntryId));
+        }
+
+        long startTime = MathUtils.nowInNano();
+        List<ByteBuf> entries = new ArrayList<>();
+        try {
+            doGetEntries(ledgerId, firstEntryId, maxCount, maxBytes, entries);
+            recordSuccessfulEvent(dbLedgerStorageStats.getReadEntriesStats(), startTime);
+            dbLedgerStorageStats.getReadEntriesCountStats().registerSuccessfulValue(entries.size());
+            return entries;
+        } catch (IOException | BookieException | RuntimeException e) {
+            entries.forEach(ByteBuf::release);
+            recordFailedEvent(dbLedgerStorageStats.getReadEntriesStats(), startTime);
+            throw e;
+        }
+    }
+
+    private void doGetEntries(long ledgerId, long firstEntryId, int maxCount, long maxBytes, List<ByteBuf> entries)
+            throws IOException, BookieException {
+        if (log.isDebugEnabled()) {
+            log.debug("Get Entries: {}@{} - maxCount: {} - maxBytes: {}", ledgerId, firstEntryId, maxCount, maxBytes);
+        }
+
+        long nextEntryId = firstEntryId;
+        long size = 0;
+        while (entries.size() < maxCount) {
+            ByteBuf entry = getEntryFromCaches(ledgerId, nextEntryId);
+            if (entry != null) {
+                if (!entries.isEmpty() && size + entry.readableBytes() > maxBytes) {
+                    entry.release();
+                    return;
+                }
+
+                entries.add(entry);
+                size += entry.readableBytes();
+                nextEntryId++;
+                continue;
+            }
+
+            int count = readEntriesFromEntryLogs(ledgerId, nextEntryId,
+                    Math.min(maxCount - entries.size(), MAX_ENTRIES_PER_LOCATIONS_LOOKUP), maxBytes - size, entries);
+            if (count == 0) {
+                if (entries.isEmpty()) {
+                    // Only a negative result while in limbo equates to unknown
+                    throwIfLimbo(ledgerId);
+
+                    throw new NoEntryException(ledgerId, firstEntryId);
+                }
+                return;
+            }
+
+            for (int i = entries.size() - count; i < entries.size(); i++) {
+                size += entries.get(i).readableBytes();
+            }
+            nextEntryId += count;
+            if (size >= maxBytes) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Read consecutive entries from the entry logs. The locations of the entries are resolved with a single range
+     * scan on the locations index, and the entries stored one after the other in the same entry log are read together.
+     *
+     * @return the number of entries added to the list
+     */
+    private int readEntriesFromEntryLogs(long ledgerId, long firstEntryId, int maxCount, long maxBytes,
+                                         List<ByteBuf> entries) throws IOException {
+        long[] locations = new long[maxCount];
+        int locationsCount;
+        long locationIndexStartNano = MathUtils.nowInNano();
+        try {
+            locationsCount = entryLocationIndex.getLocations(ledgerId, firstEntryId, maxCount, locations);
+        } finally {
+            dbLedgerStorageStats.getReadFromLocationIndexTime().add(MathUtils.elapsedNanos(locationIndexStartNano));
+        }
+
+        long readEntryStartNano = MathUtils.nowInNano();
+        int count = 0;
+        long size = 0;
+        try {
+            while (count < locationsCount && (entries.isEmpty() || size < maxBytes)) {
+                // Extend the run while the next entry closely follows in the same entry log, and the span to read
+                // stays within the bytes budget
+                long entryLogId = locations[count] >> 32;
+                int runEnd = count + 1;
+                while (runEnd < locationsCount
+                        && (locations[runEnd] >> 32) == entryLogId
+                        && locations[runEnd] > locations[runEnd - 1]
+                        && locations[runEnd] - locations[runEnd - 1] <= MAX_ENTRIES_SPAN_STRIDE
+                        && size + (locations[runEnd] - locations[count]) <= maxBytes) {
+                    runEnd++;
+                }
+
+                List<ByteBuf> run = entryLogger.readEntries(ledgerId, firstEntryId + count, locations, count,
+                        runEnd - count);
+                for (int i = 0; i < run.size(); i++) {
+                    ByteBuf entry = run.get(i);
+                    if (!entries.isEmpty() && size + entry.readableBytes() > maxBytes) {
+                        // The rest of the run does not fit in the batch
+                        run.subList(i, run.size()).forEach(ByteBuf::release);
+                        break;
+                    }
+                    entries.add(entry);
+                    size += entry.readableBytes();
+                    count++;
+                }
+
+                if (count < runEnd) {
+                    break;
+                }
+            }
+        } finally {
+            dbLedgerStorageStats.getReadFromEntryLogTime().add(MathUtils.elapsedNanos(readEntryStartNano));
+        }
+
+        return count;
+    }
+
+    @Override
+    public ReferenceCounted getEntryForTransfer(long ledgerId, long entryId, int minRegionSize)
+            throws IOException, BookieException {
+        if (entryId == BookieProtocol.LAST_ADD_CONFIRMED) {
+            return getEntry(ledgerId, entryId);
+        }
+
+        long startTime = MathUtils.nowInNano();
+        try {
+            ReferenceCounted entry = doGetEntryForTransfer(ledgerId, entryId, minRegionSize);
+            recordSuccessfulEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+            return entry;
+        } catch (IOException e) {
+            recordFailedEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+            throw e;
+        }
+    }
+
+    private ReferenceCounted doGetEntryForTransfer(long ledgerId, long entryId, int minRegionSize)
+            throws IOException, BookieException {
+        if (log.isDebugEnabled()) {
+            log.debug("Get Entry for transfer: {}@{}", ledgerId, entryId);
+        }
+
+        ByteBuf entry = getEntryFromCaches(ledgerId, entryId);
+        if (entry != null) {
+            return entry;
+        }
+
+        long entryLocation = getEntryLocation(ledgerId, entryId);
+
+        // The large entries are sent straight from the entry log. They are not inserted in the read cache, and they
+        // don't trigger any read-ahead, which would defeat the purpose of not copying them in memory.
+        FileRegion region;
+        long readEntryStartNano = MathUtils.nowInNano();
+        try {
+            region = entryLogger.getEntryRegion(ledgerId, entryId, entryLocation, minRegionSize);
+        } finally {
+            dbLedgerStorageStats.getReadFromEntryLogTime().add(MathUtils.elapsedNanos(readEntryStartNano));
+        }
+        if (region != null) {
+            dbLedgerStorageStats.getReadEntryRegionsCounter().inc();
+            return region;
+        }
+
+        return readEntryFromEntryLog(ledgerId, entryId, entryLocation);
+    }
+
     private ByteBuf doGetEntry(long ledgerId, long entryId) throws IOException, BookieException {
         if (log.isDebugEnabled()) {
             log.debug("Get Entry: {}@{}", ledgerId, entryId);
@@ -498,6 +763,82 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             return getLastEntry(ledgerId);
         }
 
+        ByteBuf entry = getEntryFromCaches(ledgerId, entryId);
+        if (entry != null) {
+            return entry;
+        }
+
+        // Read from main storage
+        return readEntryFromEntryLog(ledgerId, entryId, getEntryLocation(ledgerId, entryId));
+    }
+
+    /**
+     * Look up the location of an entry in the entry logs.
+     *
+     * @throws NoEntryException if the entry is not found
+     */
+    private long getEntryLocation(long ledgerId, long entryId) throws IOException, BookieException {
+        long locationIndexStartNano = MathUtils.nowInNano();
+        try {
+            long entryLocation = entryLocationIndex.getLocation(ledgerId, entryId);
+            if (entryLocation == 0) {
+                // Only a negative result while in limbo equates to unknown
+                throwIfLimbo(ledgerId);
+
+                throw new NoEntryException(ledgerId, entryId);
+            }
+            return entryLocation;
+        } finally {
+            dbLedgerStorageStats.getReadFromLocationIndexTime().add(MathUtils.elapsedNanos(locationIndexStartNano));
+        }
+    }
+
+    /**
+     * Read an entry from the entry logs, insert it in the read cache, and read ahead the entries that follow it.
+     */
+    private ByteBuf readEntryFromEntryLog(long ledgerId, long entryId, long entryLocation) throws IOException {
+        ByteBuf entry;
+        MutableInt storedEntrySize = new MutableInt();
+        long readEntryStartNano = MathUtils.nowInNano();
+        try {
+            entry = entryLogger.internalReadEntry(ledgerId, entryId, entryLocation, true /* validateEntry */,
+                    storedEntrySize);
+        } finally {
+            dbLedgerStorageStats.getReadFromEntryLogTime().add(MathUtils.elapsedNanos(readEntryStartNano));
+        }
+
+        readCache.put(ledgerId, entryId, entry);
+
+        // Try to read more entries
+        long nextEntryLocation = entryLocation + 4 /* size header */ + storedEntrySize.intValue();
+        if (readAheadCacheAdaptive) {
+            TransientLedgerInfo ledgerInfo = getOrAddLedgerInfo(ledgerId);
+            int efficiency = ledgerInfo.completeReadAheadBatch();
+            if (efficiency >= 0) {
+                dbLedgerStorageStats.getReadAheadEfficiencyStats().registerSuccessfulValue(efficiency);
+            }
+
+            int batchSize = ledgerInfo.nextReadAheadBatchSize(entryId, readAheadCacheBatchSize,
+                    readAheadCacheMaxBatchSize);
+            if (batchSize > 0) {
+                int count = fillReadAheadCache(ledgerId, entryId + 1, nextEntryLocation, batchSize);
+                ledgerInfo.setReadAheadBatch(entryId + 1, count);
+            } else {
+                dbLedgerStorageStats.getReadAheadSkippedCounter().inc();
+            }
+        } else {
+            fillReadAheadCache(ledgerId, entryId + 1, nextEntryLocation, readAheadCacheBatchSize);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Look up the entry in the write caches and in the read cache.
+     *
+     * @return the entry, or null if it is not in any cache
+     */
+    private ByteBuf getEntryFromCaches(long ledgerId, long entryId) {
         // We need to try to read from both write caches, since recent entries could be found in either of the two. The
         // write caches are already thread safe on their own, here we just need to make sure we get references to both
         // of them. Using an optimistic lock since the read lock is always free, unless we're swapping the caches.
@@ -535,43 +876,27 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         entry = readCache.get(ledgerId, entryId);
         if (entry != null) {
             dbLedgerStorageStats.getReadCacheHitCounter().inc();
+            if (readAheadCacheAdaptive) {
+                TransientLedgerInfo ledgerInfo = transientLedgerInfoCache.get(ledgerId);
+                if (ledgerInfo != null) {
+                    ledgerInfo.readAheadHit(entryId);
+                }
+            }
             return entry;
         }
 
         dbLedgerStorageStats.getReadCacheMissCounter().inc();
-
-        // Read from main storage
-        long entryLocation;
-        long locationIndexStartNano = MathUtils.nowInNano();
-        try {
-            entryLocation = entryLocationIndex.getLocation(ledgerId, entryId);
-            if (entryLocation == 0) {
-                // Only a negative result while in limbo equates to unknown
-                throwIfLimbo(ledgerId);
-
-                throw new NoEntryException(ledgerId, entryId);
-            }
-        } finally {
-            dbLedgerStorageStats.getReadFromLocationIndexTime().add(MathUtils.elapsedNanos(locationIndexStartNano));
-        }
-
-        long readEntryStartNano = MathUtils.nowInNano();
-        try {
-            entry = entryLogger.readEntry(ledgerId, entryId, entryLocation);
-        } finally {
-            dbLedgerStorageStats.getReadFromEntryLogTime().add(MathUtils.elapsedNanos(readEntryStartNano));
-        }
-
-        readCache.put(ledgerId, entryId, entry);
-
-        // Try to read more entries
-        long nextEntryLocation = entryLocation + 4 /* size header */ + entry.readableBytes();
-        fillReadAheadCache(ledgerId, entryId + 1, nextEntryLocation);
-
-        return entry;
+        return null;
     }
 
-    private void fillReadAheadCache(long orginalLedgerId, long firstEntryId, long firstEntryLocation) {
+    /**
+     * Insert in the read cache up to {@code batchSize} entries of the ledger that directly follow the given
+     * location in the same entry log.
+     *
+     * @return the number of entries inserted in the read cache
+     */
+    private int fillReadAheadCache(long orginalLedgerId, long firstEntryId, long firstEntryLocation,
+                                   int batchSize) {
         long readAheadStartNano = MathUtils.nowInNano();
         int count = 0;
         long size = 0;
@@ -580,12 +905,13 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             long firstEntryLogId = (firstEntryLocation >> 32);
             long currentEntryLogId = firstEntryLogId;
             long currentEntryLocation = firstEntryLocation;
+            MutableInt storedEntrySize = new MutableInt();
 
-            while (count < readAheadCacheBatchSize
+            while (count < batchSize
                     && size < maxReadAheadBytesSize
                     && currentEntryLogId == firstEntryLogId) {
                 ByteBuf entry = entryLogger.internalReadEntry(orginalLedgerId, firstEntryId, currentEntryLocation,
-                        false /* validateEntry */);
+                        false /* validateEntry */, storedEntrySize);
 
                 try {
                     long currentEntryLedgerId = entry.getLong(0);
@@ -603,7 +929,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                     firstEntryId++;
                     size += entry.readableBytes();
 
-                    currentEntryLocation += 4 + entry.readableBytes();
+                    currentEntryLocation += 4 /* size header */ + storedEntrySize.intValue();
                     currentEntryLogId = currentEntryLocation >> 32;
                 } finally {
                     entry.release();
@@ -618,6 +944,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             dbLedgerStorageStats.getReadAheadBatchSizeStats().registerSuccessfulValue(size);
             dbLedgerStorageStats.getReadAheadTime().add(MathUtils.elapsedNanos(readAheadStartNano));
         }
+        return count;
     }
 
     public ByteBuf getLastEntry(long ledgerId) throws IOException, BookieException {
@@ -679,6 +1006,11 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         return content;
     }
 
+    @VisibleForTesting
+    boolean isInReadCache(long ledgerId, long entryId) {
+        return readCache.hasEntry(ledgerId, entryId);
+    }
+
     @VisibleForTesting
     boolean isFlushRequired() {
         long stamp = writeCacheRotationLock.readLock();
@@ -714,23 +1046,31 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             // Write all the pending entries into the entry logger and collect the offset
             // position for each entry
 
-            Batch batch = entryLocationIndex.newBatch();
-            writeCacheBeingFlushed.forEach((ledgerId, entryId, entry) -> {
-                try {
-                    long location = entryLogger.addEntry(ledgerId, entry, true);
-                    entryLocationIndex.addLocation(batch, ledgerId, entryId, location);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+            // With a parallel flush, the ledgers are split in shards that are written concurrently, each shard
+            // building its own index batch
+            Batch[] batches = new Batch[flushParallelism];
+            for (int i = 0; i < flushParallelism; i++) {
+                batches[i] = entryLocationIndex.newBatch();
+            }
+            if (flushExecutor == null) {
+                writeCacheBeingFlushed.forEach(newFlushConsumer(batches[0]));
+            } else {
+                WriteCache.EntryConsumer[] consumers = new WriteCache.EntryConsumer[flushParallelism];
+                for (int i = 0; i < flushParallelism; i++) {
+                    consumers[i] = newFlushConsumer(batches[i]);
                 }
-            });
+                writeCacheBeingFlushed.forEach(consumers, flushExecutor);
+            }
 
             long entryLoggerStart = MathUtils.nowInNano();
             entryLogger.flush();
             recordSuccessfulEvent(dbLedgerStorageStats.getFlushEntryLogStats(), entryLoggerStart);
 
             long batchFlushStartTime = MathUtils.nowInNano();
-            batch.flush();
-            batch.close();
+            for (Batch batch : batches) {
+                batch.flush();
+                batch.close();
+            }
             recordSuccessfulEvent(dbLedgerStorageStats.getFlushLocationIndexStats(), batchFlushStartTime);
             if (log.isDebugEnabled()) {
                 log.debug("DB batch flushed time : {} s",
@@ -787,6 +1127,17 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         }
     }
 
+    private WriteCache.EntryConsumer newFlushConsumer(Batch batch) {
+        return (ledgerId, entryId, entry) -> {
+            try {
+                long location = entryLogger.addEntry(ledgerId, entry, true);
+                entryLocationIndex.addRecentLocation(batch, ledgerId, entryId, location);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
     /**
      * Swap the current write cache with the replacement cache.
      */
@@ -57,6 +57,14 @@ class TransientLedgerInfo extends Watchable<LastAddConfirmedUpdateNotification>
 
     private long lastAccessed;
 
+    // Read-ahead state, used to adapt the read-ahead batch size to the access pattern of the readers
+    private int readAheadBatchSize = -1;
+    private long lastReadMissEntryId = -1;
+    private long readAheadFirstEntryId = -1;
+    private long readAheadEndEntryId = -1;
+    private int readAheadPrefetchedCount = 0;
+    private int readAheadUsedCount = 0;
+
     /**
      * Construct an Watchable with zero watchers.
      */
@@ -139,6 +147,63 @@ class TransientLedgerInfo extends Watchable<LastAddConfirmedUpdateNotification>
         setLastAddConfirmed(explicitLacValue);
     }
 
+    /**
+     * Compute the number of entries to read ahead after a read cache miss on the given entry.
+     *
+     * <p>The batch size grows while the read cache misses are sequential, either because the reader is reading
+     * entries one after the other or because it has consumed the whole previous read-ahead batch. It shrinks, down
+     * to disabling the read-ahead, when the reader jumps around the ledger.
+     */
+    synchronized int nextReadAheadBatchSize(long entryId, int initialBatchSize, int maxBatchSize) {
+        if (readAheadBatchSize < 0) {
+            readAheadBatchSize = initialBatchSize;
+        } else if (entryId == lastReadMissEntryId + 1 || entryId == readAheadEndEntryId) {
+            readAheadBatchSize = Math.min(maxBatchSize, Math.max(1, readAheadBatchSize * 2));
+        } else {
+            readAheadBatchSize /= 2;
+        }
+
+        lastReadMissEntryId = entryId;
+        lastAccessed = System.currentTimeMillis();
+        return readAheadBatchSize;
+    }
+
+    /**
+     * Record the entries that were inserted in the read cache by the last read-ahead.
+     */
+    synchronized void setReadAheadBatch(long firstEntryId, int count) {
+        readAheadFirstEntryId = firstEntryId;
+        readAheadEndEntryId = firstEntryId + count;
+        readAheadPrefetchedCount = count;
+        readAheadUsedCount = 0;
+    }
+
+    /**
+     * Record a read cache hit on the given entry.
+     */
+    synchronized void readAheadHit(long entryId) {
+        if (entryId >= readAheadFirstEntryId && entryId < readAheadEndEntryId
+                && readAheadUsedCount < readAheadPrefetchedCount) {
+            readAheadUsedCount++;
+        }
+    }
+
+    /**
+     * Terminate the tracking of the last read-ahead batch.
+     *
+     * @return the percentage of the prefetched entries that were read, or -1 if there was no read-ahead batch
+     */
+    synchronized int completeReadAheadBatch() {
+        if (readAheadPrefetchedCount == 0) {
+            return -1;
+        }
+
+        int efficiency = readAheadUsedCount * 100 / readAheadPrefetchedCount;
+        readAheadPrefetchedCount = 0;
+        readAheadUsedCount = 0;
+        return efficiency;
+    }
+
     boolean isStale() {
         return (lastAccessed + TimeUnit.MINUTES.toMillis(LEDGER_INFO_CACHING_TIME_MINUTES)) < System
                 .currentTimeMillis();
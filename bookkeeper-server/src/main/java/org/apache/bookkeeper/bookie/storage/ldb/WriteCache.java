@@ -22,11 +22,19 @@ package org.apache.bookkeeper.bookie.storage.ldb;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
@@ -224,33 +232,10 @@ public class WriteCache implements Closeable {
         sortedEntriesLock.lock();
 
         try {
-            int entriesToSort = (int) index.size();
-            int arrayLen = entriesToSort * 4;
-            if (sortedEntries == null || sortedEntries.length < arrayLen) {
-                sortedEntries = new long[(int) (arrayLen * 2)];
-            }
+            collectEntries();
 
             long startTime = MathUtils.nowInNano();
 
-            sortedEntriesIdx = 0;
-            index.forEach((ledgerId, entryId, offset, length) -> {
-                if (deletedLedgers.contains(ledgerId)) {
-                    // Ignore deleted ledgers
-                    return;
-                }
-
-                sortedEntries[sortedEntriesIdx] = ledgerId;
-                sortedEntries[sortedEntriesIdx + 1] = entryId;
-                sortedEntries[sortedEntriesIdx + 2] = offset;
-                sortedEntries[sortedEntriesIdx + 3] = length;
-                sortedEntriesIdx += 4;
-            });
-
-            if (log.isDebugEnabled()) {
-                log.debug("iteration took {} ms", MathUtils.elapsedNanos(startTime) / 1e6);
-            }
-            startTime = MathUtils.nowInNano();
-
             // Sort entries by (ledgerId, entryId) maintaining the 4 items groups
             groupSorter.sort(sortedEntries, 0, sortedEntriesIdx);
             if (log.isDebugEnabled()) {
@@ -258,32 +243,135 @@ public class WriteCache implements Closeable {
             }
             startTime = MathUtils.nowInNano();
 
-            ByteBuf[] entrySegments = new ByteBuf[segmentsCount];
-            for (int i = 0; i < segmentsCount; i++) {
-                entrySegments[i] = cacheSegments[i].slice(0, cacheSegments[i].capacity());
+            consumeEntries(sortedEntries, 0, sortedEntriesIdx, consumer);
+
+            if (log.isDebugEnabled()) {
+                log.debug("entry log adding {} ms", MathUtils.elapsedNanos(startTime) / 1e6);
+            }
+        } finally {
+            sortedEntriesLock.unlock();
+        }
+    }
+
+    /**
+     * Iterate over the entries from several threads.
+     *
+     * <p>The ledgers are split in as many shards as there are consumers. Each shard is sorted by (ledgerId, entry) and
+     * passed to its consumer by a different task of the executor, so all the entries of a ledger are passed in order
+     * to the same consumer. The method returns once all the shards have been consumed.
+     */
+    public void forEach(EntryConsumer[] consumers, ExecutorService executor) {
+        sortedEntriesLock.lock();
+
+        try {
+            collectEntries();
+
+            long startTime = MathUtils.nowInNano();
+
+            // Partition the entries by ledger, maintaining the 4 items groups
+            int shards = consumers.length;
+            int[] shardOffsets = new int[shards + 1];
+            for (int i = 0; i < sortedEntriesIdx; i += 4) {
+                shardOffsets[MathUtils.signSafeMod(sortedEntries[i], shards) + 1] += 4;
+            }
+            for (int i = 0; i < shards; i++) {
+                shardOffsets[i + 1] += shardOffsets[i];
             }
 
+            if (shardedEntries == null || shardedEntries.length < sortedEntries.length) {
+                shardedEntries = new long[sortedEntries.length];
+            }
+            int[] positions = Arrays.copyOf(shardOffsets, shards);
             for (int i = 0; i < sortedEntriesIdx; i += 4) {
-                long ledgerId = sortedEntries[i];
-                long entryId = sortedEntries[i + 1];
-                long offset = sortedEntries[i + 2];
-                long length = sortedEntries[i + 3];
-
-                int localOffset = (int) (offset & segmentOffsetMask);
-                int segmentIdx = (int) (offset >>> segmentOffsetBits);
-                ByteBuf entry = entrySegments[segmentIdx];
-                entry.setIndex(localOffset, localOffset + (int) length);
-                consumer.accept(ledgerId, entryId, entry);
+                int shard = MathUtils.signSafeMod(sortedEntries[i], shards);
+                System.arraycopy(sortedEntries, i, shardedEntries, positions[shard], 4);
+                positions[shard] += 4;
+            }
+
+            List<Future<?>> futures = new ArrayList<>(shards);
+            for (int i = 0; i < shards; i++) {
+                int shardStart = shardOffsets[i];
+                int shardEnd = shardOffsets[i + 1];
+                EntryConsumer consumer = consumers[i];
+                futures.add(executor.submit(() -> {
+                    groupSorter.sort(shardedEntries, shardStart, shardEnd - shardStart);
+                    consumeEntries(shardedEntries, shardStart, shardEnd, consumer);
+                }));
+            }
+
+            // Wait for all the shards, since they are reading the cache buffers
+            RuntimeException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    Uninterruptibles.getUninterruptibly(future);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException
+                                ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
             }
 
             if (log.isDebugEnabled()) {
-                log.debug("entry log adding {} ms", MathUtils.elapsedNanos(startTime) / 1e6);
+                log.debug("sorting and entry log adding in {} shards {} ms", shards,
+                        MathUtils.elapsedNanos(startTime) / 1e6);
             }
         } finally {
             sortedEntriesLock.unlock();
         }
     }
 
+    private void collectEntries() {
+        int entriesToSort = (int) index.size();
+        int arrayLen = entriesToSort * 4;
+        if (sortedEntries == null || sortedEntries.length < arrayLen) {
+            sortedEntries = new long[(int) (arrayLen * 2)];
+        }
+
+        long startTime = MathUtils.nowInNano();
+
+        sortedEntriesIdx = 0;
+        index.forEach((ledgerId, entryId, offset, length) -> {
+            if (deletedLedgers.contains(ledgerId)) {
+                // Ignore deleted ledgers
+                return;
+            }
+
+            sortedEntries[sortedEntriesIdx] = ledgerId;
+            sortedEntries[sortedEntriesIdx + 1] = entryId;
+            sortedEntries[sortedEntriesIdx + 2] = offset;
+            sortedEntries[sortedEntriesIdx + 3] = length;
+            sortedEntriesIdx += 4;
+        });
+
+        if (log.isDebugEnabled()) {
+            log.debug("iteration took {} ms", MathUtils.elapsedNanos(startTime) / 1e6);
+        }
+    }
+
+    private void consumeEntries(long[] entries, int start, int end, EntryConsumer consumer) {
+        ByteBuf[] entrySegments = new ByteBuf[segmentsCount];
+        for (int i = 0; i < segmentsCount; i++) {
+            entrySegments[i] = cacheSegments[i].slice(0, cacheSegments[i].capacity());
+        }
+
+        for (int i = start; i < end; i += 4) {
+            long ledgerId = entries[i];
+            long entryId = entries[i + 1];
+            long offset = entries[i + 2];
+            long length = entries[i + 3];
+
+            int localOffset = (int) (offset & segmentOffsetMask);
+            int segmentIdx = (int) (offset >>> segmentOffsetBits);
+            ByteBuf entry = entrySegments[segmentIdx];
+            entry.setIndex(localOffset, localOffset + (int) length);
+            consumer.accept(ledgerId, entryId, entry);
+        }
+    }
+
     public long size() {
         return cacheSize.get();
     }
@@ -309,6 +397,8 @@ public class WriteCache implements Closeable {
     private final ReentrantLock sortedEntriesLock = new ReentrantLock();
     private long[] sortedEntries;
     private int sortedEntriesIdx;
+    // Entries partitioned by ledger, for the sharded iteration
+    private long[] shardedEntries;
 
     private static final Logger log = LoggerFactory.getLogger(WriteCache.class);
 }
@@ -0,0 +1,176 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException.BKDigestMatchException;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.common.util.SafeRunnable;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeReadEntryCallback;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Batch of consecutive entries of a ledger read from a single bookie with one range read request.
+ *
+ * <p>It is only used when every bookie of the ensemble stores all the entries of the batch. If the
+ * range read fails, or if the first entry returned doesn't pass the digest check, the batch is read
+ * again with a regular {@link PendingReadOp}, which takes care of trying the other replicas.
+ */
+class BatchedReadOp implements RangeReadEntryCallback, SafeRunnable {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchedReadOp.class);
+
+    private final CompletableFuture<LedgerEntries> future;
+    final LedgerHandle lh;
+    final ClientContext clientCtx;
+
+    final long startEntryId;
+    final long endEntryId;
+    final long maxSize;
+    long requestTimeNanos;
+
+    BatchedReadOp(LedgerHandle lh,
+                  ClientContext clientCtx,
+                  long startEntryId,
+                  long endEntryId,
+                  long maxSize) {
+        this.future = new CompletableFuture<>();
+        this.lh = lh;
+        this.clientCtx = clientCtx;
+        this.startEntryId = startEntryId;
+        this.endEntryId = endEntryId;
+        this.maxSize = maxSize;
+    }
+
+    CompletableFuture<LedgerEntries> future() {
+        return future;
+    }
+
+    protected LedgerMetadata getLedgerMetadata() {
+        return lh.getLedgerMetadata();
+    }
+
+    void initiate() {
+        this.requestTimeNanos = MathUtils.nowInNano();
+
+        List<BookieId> ensemble = getLedgerMetadata().getEnsembleAt(startEntryId);
+        DistributionSchedule.WriteSet writeSet;
+        if (clientCtx.getConf().enableReorderReadSequence) {
+            writeSet = clientCtx.getPlacementPolicy()
+                .reorderReadSequence(
+                        ensemble,
+                        lh.getBookiesHealthInfo(),
+                        lh.getWriteSetForReadOperation(startEntryId));
+        } else {
+            writeSet = lh.getWriteSetForReadOperation(startEntryId);
+        }
+
+        BookieId to;
+        try {
+            to = ensemble.get(writeSet.get(0));
+        } finally {
+            writeSet.recycle();
+        }
+
+        if (lh.throttler != null) {
+            lh.throttler.acquire();
+        }
+
+        int maxCount = (int) (endEntryId - startEntryId + 1);
+        clientCtx.getBookieClient().rangeReadEntries(to, lh.ledgerId, startEntryId, maxCount, maxSize,
+                this, to, BookieProtocol.FLAG_NONE);
+    }
+
+    @Override
+    public void safeRun() {
+        initiate();
+    }
+
+    @Override
+    public void rangeReadEntryComplete(int rc, long ledgerId, long startEntryId, List<ByteBuf> entries,
+                                       Object ctx) {
+        if (rc != BKException.Code.OK) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Range read of L{} E{}-E{} from {} failed : {}, falling back to regular reads",
+                        ledgerId, startEntryId, endEntryId, ctx, BKException.getMessage(rc));
+            }
+            fallbackToRegularRead();
+            return;
+        }
+
+        int numEntries = (int) Math.min(entries.size(), endEntryId - startEntryId + 1);
+        List<LedgerEntry> result = new ArrayList<>(numEntries);
+        for (int i = 0; i < numEntries; i++) {
+            long entryId = startEntryId + i;
+            ByteBuf buffer = entries.get(i);
+            ByteBuf content;
+            try {
+                content = lh.macManager.verifyDigestAndReturnData(entryId, buffer);
+            } catch (BKDigestMatchException e) {
+                clientCtx.getClientStats().getReadOpDmCounter().inc();
+                LOG.error("Mac mismatch reading L{} E{} from {}", ledgerId, entryId, ctx);
+                // Only return the entries that were verified before the mismatch
+                break;
+            }
+
+            LedgerEntryImpl entry = LedgerEntryImpl.create(ledgerId, entryId);
+            /*
+             * The length is a long and it is the last field of the metadata of an entry.
+             * Consequently, we have to subtract 8 from METADATA_LENGTH to get the length.
+             */
+            entry.setLength(buffer.getLong(DigestManager.METADATA_LENGTH - 8));
+            // The buffers are only valid during the callback
+            entry.setEntryBuf(content.retain());
+            result.add(entry);
+        }
+
+        if (result.isEmpty()) {
+            fallbackToRegularRead();
+            return;
+        }
+
+        long latencyNanos = MathUtils.elapsedNanos(requestTimeNanos);
+        clientCtx.getClientStats().getReadOpLogger().registerSuccessfulEvent(latencyNanos, TimeUnit.NANOSECONDS);
+        future.complete(LedgerEntriesImpl.create(result));
+    }
+
+    private void fallbackToRegularRead() {
+        lh.readEntriesInternalAsync(startEntryId, endEntryId, false).whenComplete((entries, cause) -> {
+            if (cause != null) {
+                future.completeExceptionally(cause);
+            } else {
+                future.complete(entries);
+            }
+        });
+    }
+}
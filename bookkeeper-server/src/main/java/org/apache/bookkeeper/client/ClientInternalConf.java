@@ -41,6 +41,10 @@ class ClientInternalConf {
     final boolean enableParallelRecoveryRead;
     final boolean enableReorderReadSequence;
     final boolean enableStickyReads;
+    final boolean enableBatchRead;
+    final boolean enableBatchAdd;
+    final int batchAddMaxEntries;
+    final long batchAddMaxBytes;
     final int recoveryReadBatchSize;
     final int throttleValue;
     final int bookieFailureHistoryExpirationMSec;
@@ -82,6 +86,11 @@ class ClientInternalConf {
         this.enableBookieFailureTracking = conf.getEnableBookieFailureTracking();
         this.useV2WireProtocol = conf.getUseV2WireProtocol();
         this.enableStickyReads = conf.isStickyReadsEnabled();
+        this.enableBatchRead = conf.isBatchReadEnabled();
+        this.enableBatchAdd = conf.isBatchAddEnabled();
+        this.batchAddMaxEntries = conf.getBatchAddMaxEntries();
+        // leave room in the frame for the request header and the entries lengths
+        this.batchAddMaxBytes = conf.getNettyMaxFrameSizeBytes() / 2;
         this.enforceMinNumFaultDomainsForWrite = conf.getEnforceMinNumFaultDomainsForWrite();
 
         if (conf.getFirstSpeculativeReadTimeout() > 0) {
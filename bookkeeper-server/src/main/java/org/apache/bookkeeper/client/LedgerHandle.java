@@ -143,6 +143,7 @@ public class LedgerHandle implements WriteHandle {
     final LoadingCache<BookieId, Long> bookieFailureHistory;
     final BookiesHealthInfo bookiesHealthInfo;
     final EnumSet<WriteFlag> writeFlags;
+    final PendingAddBatcher pendingAddBatcher;
 
     ScheduledFuture<?> timeoutFuture = null;
 
@@ -220,6 +221,11 @@ public class LedgerHandle implements WriteHandle {
                 metadata.getWriteQuorumSize(),
                 metadata.getAckQuorumSize(),
                 metadata.getEnsembleSize());
+        if (clientCtx.getConf().enableBatchAdd && !metadata.isClosed()) {
+            this.pendingAddBatcher = new PendingAddBatcher(this, clientCtx, metadata.getEnsembleSize());
+        } else {
+            this.pendingAddBatcher = null;
+        }
         this.bookieFailureHistory = CacheBuilder.newBuilder()
             .expireAfterWrite(clientCtx.getConf().bookieFailureHistoryExpirationMSec, TimeUnit.MILLISECONDS)
             .build(new CacheLoader<BookieId, Long>() {
@@ -794,6 +800,67 @@ public class LedgerHandle implements WriteHandle {
         return readEntriesInternalAsync(firstEntry, lastEntry, false);
     }
 
+    /**
+     * Read a batch of consecutive entries asynchronously.
+     *
+     * <p>If batch read is enabled and every bookie of the ensemble stores all the entries, the batch is
+     * read from a single bookie with one range read request. The batch never spans an ensemble change.
+     *
+     * @param startEntry
+     *          id of first entry of the batch
+     * @param maxCount
+     *          maximum number of entries to read
+     * @param maxSize
+     *          maximum size in bytes of the entries to read, if positive
+     */
+    @Override
+    public CompletableFuture<LedgerEntries> batchReadAsync(long startEntry, int maxCount, long maxSize) {
+        // Little sanity check
+        if (startEntry < 0 || maxCount <= 0) {
+            LOG.error("IncorrectParameterException on ledgerId:{} startEntry:{} maxCount:{}",
+                    ledgerId, startEntry, maxCount);
+            return FutureUtils.exception(new BKIncorrectParameterException());
+        }
+
+        if (startEntry > lastAddConfirmed) {
+            LOG.error("BatchReadAsync exception on ledgerId:{} startEntry:{} lastAddConfirmed:{}",
+                    ledgerId, startEntry, lastAddConfirmed);
+            return FutureUtils.exception(new BKReadException());
+        }
+
+        long lastEntry = Math.min(startEntry + maxCount - 1, lastAddConfirmed);
+        LedgerMetadata metadata = getLedgerMetadata();
+        if (!clientCtx.getConf().enableBatchRead
+                || metadata.getEnsembleSize() != metadata.getWriteQuorumSize()) {
+            return readEntriesInternalAsync(startEntry, lastEntry, false);
+        }
+
+        // All the entries of the batch must be stored by the same bookie
+        long nextEnsembleChange = LedgerMetadataUtils.getNextEnsembleChange(metadata, startEntry);
+        if (nextEnsembleChange != -1) {
+            lastEntry = Math.min(lastEntry, nextEnsembleChange - 1);
+        }
+        return batchReadEntriesInternalAsync(startEntry, lastEntry, maxSize);
+    }
+
+    CompletableFuture<LedgerEntries> batchReadEntriesInternalAsync(long startEntry,
+                                                                   long lastEntry,
+                                                                   long maxSize) {
+        BatchedReadOp op = new BatchedReadOp(this, clientCtx, startEntry, lastEntry, maxSize);
+        if (!clientCtx.isClientClosed()) {
+            if (isHandleWritable()) {
+                // Ledger handle in read/write mode: submit to OSE for ordered execution.
+                clientCtx.getMainWorkerPool().executeOrdered(ledgerId, op);
+            } else {
+                // Read-only ledger handle: execute the read directly in client thread.
+                op.run();
+            }
+        } else {
+            op.future().completeExceptionally(BKException.create(ClientClosedException));
+        }
+        return op.future();
+    }
+
     void asyncReadEntriesInternal(long firstEntry, long lastEntry, ReadCallback cb,
                                   Object ctx, boolean isRecoveryRead) {
         if (!clientCtx.isClientClosed()) {
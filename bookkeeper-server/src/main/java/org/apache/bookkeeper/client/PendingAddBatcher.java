@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.apache.bookkeeper.proto.BookieProtocol.FLAG_NONE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeWriteCallback;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.SafeRunnable;
+
+/**
+ * Coalesces the write requests of the pending adds of a ledger into range add requests.
+ *
+ * <p>Instead of being sent right away, the write requests of a pending add are queued per bookie. The
+ * first queued write request schedules a flush on the ordered executor of the ledger, so the flush
+ * runs after the pending adds that were already waiting to be run, and all their consecutive entries
+ * are sent to each bookie with a single request. Under low load the flush runs right after the
+ * pending add, so the batching doesn't add any latency.
+ *
+ * <p>This class isn't thread safe: it must only be accessed from the ordered executor thread of the ledger.
+ */
+class PendingAddBatcher {
+
+    private final LedgerHandle lh;
+    private final ClientContext clientCtx;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Batch[] batches;
+
+    private boolean flushScheduled = false;
+    private final SafeRunnable flushTask = new SafeRunnable() {
+        @Override
+        public void safeRun() {
+            flushScheduled = false;
+            flush();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("FlushPendingAdds(lid=%d)", lh.ledgerId);
+        }
+    };
+
+    PendingAddBatcher(LedgerHandle lh, ClientContext clientCtx, int ensembleSize) {
+        this.lh = lh;
+        this.clientCtx = clientCtx;
+        this.maxEntries = Math.max(1, clientCtx.getConf().batchAddMaxEntries);
+        this.maxBytes = clientCtx.getConf().batchAddMaxBytes;
+        this.batches = new Batch[ensembleSize];
+    }
+
+    /**
+     * Whether the write requests of the given pending add can be sent with a range add request.
+     */
+    boolean canBatch(PendingAddOp op) {
+        return !op.isRecoveryAdd && lh.writeFlags.isEmpty();
+    }
+
+    /**
+     * Queue the write request of a pending add to the bookie at the given index of the ensemble.
+     */
+    void add(PendingAddOp op, List<BookieId> ensemble, int bookieIndex) {
+        BookieId to = ensemble.get(bookieIndex);
+        Batch batch = batches[bookieIndex];
+        if (batch != null && !batch.canAppend(to, op)) {
+            batch.send();
+            batch = null;
+        }
+        if (batch == null) {
+            batch = new Batch(bookieIndex, to, op.entryId, op.allowFailFast);
+            batches[bookieIndex] = batch;
+        }
+        batch.append(op);
+        if (batch.ops.size() >= maxEntries || batch.bytes >= maxBytes) {
+            batch.send();
+            batches[bookieIndex] = null;
+        }
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            try {
+                clientCtx.getMainWorkerPool().executeOrdered(lh.ledgerId, flushTask);
+            } catch (RejectedExecutionException e) {
+                flushScheduled = false;
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Send all the queued write requests.
+     */
+    void flush() {
+        for (int i = 0; i < batches.length; i++) {
+            if (batches[i] != null) {
+                batches[i].send();
+                batches[i] = null;
+            }
+        }
+    }
+
+    /**
+     * The write requests of consecutive entries queued for a bookie.
+     */
+    private class Batch implements RangeWriteCallback {
+        final int bookieIndex;
+        final BookieId to;
+        final long startEntryId;
+        final boolean allowFailFast;
+        final List<PendingAddOp> ops = new ArrayList<>();
+        final List<ByteBufList> toSend = new ArrayList<>();
+        long bytes = 0;
+
+        Batch(int bookieIndex, BookieId to, long startEntryId, boolean allowFailFast) {
+            this.bookieIndex = bookieIndex;
+            this.to = to;
+            this.startEntryId = startEntryId;
+            this.allowFailFast = allowFailFast;
+        }
+
+        boolean canAppend(BookieId addr, PendingAddOp op) {
+            return to.equals(addr)
+                && op.entryId == startEntryId + ops.size()
+                && op.allowFailFast == allowFailFast;
+        }
+
+        void append(PendingAddOp op) {
+            ops.add(op);
+            // the op may complete and release its buffers before the batch is sent
+            toSend.add(op.toSend.retain());
+            bytes += op.toSend.readableBytes();
+        }
+
+        void send() {
+            try {
+                if (ops.size() == 1) {
+                    clientCtx.getBookieClient().addEntry(to, lh.ledgerId, lh.ledgerKey, startEntryId,
+                            toSend.get(0), ops.get(0), bookieIndex, FLAG_NONE, allowFailFast, lh.writeFlags);
+                } else {
+                    clientCtx.getBookieClient().addEntries(to, lh.ledgerId, lh.ledgerKey, startEntryId,
+                            toSend, this, bookieIndex, FLAG_NONE, allowFailFast, lh.writeFlags);
+                }
+            } finally {
+                toSend.forEach(ByteBufList::release);
+            }
+        }
+
+        @Override
+        public void rangeWriteComplete(int rc, long ledgerId, long startEntryId, int count,
+                                       BookieId addr, Object ctx) {
+            for (int i = 0; i < ops.size(); i++) {
+                ops.get(i).writeComplete(rc, ledgerId, this.startEntryId + i, addr, ctx);
+            }
+        }
+    }
+}
@@ -273,9 +273,17 @@ class PendingAddOp extends SafeRunnable implements WriteCallback {
         // Iterate over set and trigger the sendWriteRequests
         DistributionSchedule.WriteSet writeSet = lh.distributionSchedule.getWriteSet(entryId);
 
+        PendingAddBatcher batcher = lh.pendingAddBatcher;
         try {
-            for (int i = 0; i < writeSet.size(); i++) {
-                sendWriteRequest(ensemble, writeSet.get(i));
+            if (batcher != null && batcher.canBatch(this)) {
+                for (int i = 0; i < writeSet.size(); i++) {
+                    batcher.add(this, ensemble, writeSet.get(i));
+                    ++pendingWriteRequests;
+                }
+            } else {
+                for (int i = 0; i < writeSet.size(); i++) {
+                    sendWriteRequest(ensemble, writeSet.get(i));
+                }
             }
         } finally {
             writeSet.recycle();
@@ -59,6 +59,48 @@ public interface ReadHandle extends Handle {
                                                               BKException.HANDLER);
     }
 
+    /**
+     * Read a batch of consecutive entries asynchronously, starting at <i>startEntry</i>.
+     *
+     * <p>At most <i>maxCount</i> entries and roughly <i>maxSize</i> bytes of payload are returned, and never
+     * entries after the LastAddConfirmed. The result contains at least the first entry, but it may contain
+     * less entries than requested, so the caller should continue from the last entry it received.
+     *
+     * <p>Implementations may serve the whole batch from a single bookie in one request. The default
+     * implementation is a regular {@link #readAsync(long, long)}.
+     *
+     * @param startEntry
+     *          id of first entry of the batch
+     * @param maxCount
+     *          maximum number of entries to read
+     * @param maxSize
+     *          maximum size in bytes of the entries to read, if positive
+     * @return an handle to the result of the operation
+     */
+    default CompletableFuture<LedgerEntries> batchReadAsync(long startEntry, int maxCount, long maxSize) {
+        long lastEntry = Math.min(startEntry + Math.max(maxCount, 1) - 1, getLastAddConfirmed());
+        return readAsync(startEntry, lastEntry);
+    }
+
+    /**
+     * Read a batch of consecutive entries synchronously.
+     *
+     * @param startEntry
+     *          id of first entry of the batch
+     * @param maxCount
+     *          maximum number of entries to read
+     * @param maxSize
+     *          maximum size in bytes of the entries to read, if positive
+     * @return the result of the operation
+     *
+     * @see #batchReadAsync(long, int, long)
+     */
+    default LedgerEntries batchRead(long startEntry, int maxCount, long maxSize)
+            throws BKException, InterruptedException {
+        return FutureUtils.<LedgerEntries, BKException>result(batchReadAsync(startEntry, maxCount, maxSize),
+                                                              BKException.HANDLER);
+    }
+
     /**
      * Read a sequence of entries asynchronously, allowing to read after the LastAddConfirmed range.
      * <br>This is the same of
@@ -117,10 +117,13 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String RECOVERY_READ_BATCH_SIZE = "recoveryReadBatchSize";
     protected static final String REORDER_READ_SEQUENCE_ENABLED = "reorderReadSequenceEnabled";
     protected static final String STICKY_READS_ENABLED = "stickyReadSEnabled";
+    protected static final String BATCH_READ_ENABLED = "batchReadEnabled";
     // Add Parameters
     protected static final String OPPORTUNISTIC_STRIPING = "opportunisticStriping";
     protected static final String DELAY_ENSEMBLE_CHANGE = "delayEnsembleChange";
     protected static final String MAX_ALLOWED_ENSEMBLE_CHANGES = "maxNumEnsembleChanges";
+    protected static final String BATCH_ADD_ENABLED = "batchAddEnabled";
+    protected static final String BATCH_ADD_MAX_ENTRIES = "batchAddMaxEntries";
     // Timeout Setting
     protected static final String ADD_ENTRY_TIMEOUT_SEC = "addEntryTimeoutSec";
     protected static final String ADD_ENTRY_QUORUM_TIMEOUT_SEC = "addEntryQuorumTimeoutSec";
@@ -1170,6 +1173,34 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * If batch reads are sent to the bookies as a single range read request or not.
+     *
+     * @return true if batch read is enabled, otherwise false.
+     */
+    public boolean isBatchReadEnabled() {
+        return getBoolean(BATCH_READ_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable the range read requests used by
+     * {@link org.apache.bookkeeper.client.api.ReadHandle#batchReadAsync(long, int, long)}.
+     *
+     * <p>If this flag is enabled and every bookie of the ensemble stores every entry
+     * (ensemble size equals to write quorum size), a batch read is served by a single bookie in one
+     * round trip. Otherwise, or if the range read fails, the client falls back to regular reads.
+     *
+     * <p>Bookies older than this client don't understand range read requests, so this flag should only
+     * be enabled once all the bookies of the cluster have been upgraded.
+     *
+     * @param enabled the flag to enable/disable batch read.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setBatchReadEnabled(boolean enabled) {
+        setProperty(BATCH_READ_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * If read operation should be sticky to a single bookie or not.
      *
@@ -1796,6 +1827,55 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * If the pending adds of a ledger are coalesced into range add requests or not.
+     *
+     * @return true if batch add is enabled, otherwise false.
+     */
+    public boolean isBatchAddEnabled() {
+        return getBoolean(BATCH_ADD_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable coalescing the pending adds of a ledger into range add requests.
+     *
+     * <p>If this flag is enabled, the consecutive entries of a ledger which are waiting to be sent to
+     * the same bookie are sent with a single range add request, and the bookie acknowledges all of
+     * them with a single response. Recovery adds and adds with write flags are always sent one by one.
+     *
+     * <p>Bookies older than this client don't understand range add requests, so this flag should only
+     * be enabled once all the bookies of the cluster have been upgraded.
+     *
+     * @param enabled the flag to enable/disable batch add.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setBatchAddEnabled(boolean enabled) {
+        setProperty(BATCH_ADD_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the max number of entries sent to a bookie in a single range add request.
+     *
+     * @return the max number of entries of a range add request.
+     */
+    public int getBatchAddMaxEntries() {
+        return getInt(BATCH_ADD_MAX_ENTRIES, 100);
+    }
+
+    /**
+     * Set the max number of entries sent to a bookie in a single range add request.
+     * This only takes effect if batch add is enabled.
+     *
+     * @param maxEntries the max number of entries of a range add request.
+     * @return client configuration instance.
+     * @see #setBatchAddEnabled(boolean)
+     */
+    public ClientConfiguration setBatchAddMaxEntries(int maxEntries) {
+        setProperty(BATCH_ADD_MAX_ENTRIES, maxEntries);
+        return this;
+    }
+
     /**
      * Whether to delay ensemble change or not?
      *
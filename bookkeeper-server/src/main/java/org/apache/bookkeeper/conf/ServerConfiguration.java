@@ -27,6 +27,7 @@ import io.netty.util.internal.PlatformDependent;
 // CHECKSTYLE.ON: IllegalImport
 import java.io.File;
 import java.net.URL;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.bookie.FileChannelProvider;
 import org.apache.bookkeeper.bookie.InterleavedLedgerStorage;
@@ -107,6 +108,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String COMPACTION_RATE = "compactionRate";
     protected static final String COMPACTION_RATE_BY_ENTRIES = "compactionRateByEntries";
     protected static final String COMPACTION_RATE_BY_BYTES = "compactionRateByBytes";
+    protected static final String NUM_COMPACTION_THREADS = "numCompactionThreads";
+    protected static final String COMPACTION_TRANSFER_ENABLED = "compactionTransferEnabled";
 
     // Gc Parameters
     protected static final String GC_WAIT_TIME = "gcWaitTime";
@@ -116,6 +119,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
             "gcOverreplicatedLedgerMaxConcurrentRequests";
     protected static final String USE_TRANSACTIONAL_COMPACTION = "useTransactionalCompaction";
     protected static final String VERIFY_METADATA_ON_GC = "verifyMetadataOnGC";
+    protected static final String GC_INCREMENTAL_LEDGER_SCAN_ENABLED = "gcIncrementalLedgerScanEnabled";
+    protected static final String GC_LEDGER_FULL_SCAN_WAIT_TIME = "gcLedgerFullScanWaitTime";
     protected static final String GC_ENTRYLOGMETADATA_CACHE_ENABLED = "gcEntryLogMetadataCacheEnabled";
     protected static final String GC_ENTRYLOG_METADATA_CACHE_PATH = "gcEntryLogMetadataCachePath";
     // Scrub Parameters
@@ -136,9 +141,11 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     // Journal Parameters
     protected static final String MAX_JOURNAL_SIZE = "journalMaxSizeMB";
     protected static final String MAX_BACKUP_JOURNALS = "journalMaxBackups";
+    protected static final String JOURNAL_REUSE_FILES = "journalReuseFiles";
     protected static final String JOURNAL_SYNC_DATA = "journalSyncData";
     protected static final String JOURNAL_WRITE_DATA = "journalWriteData";
     protected static final String JOURNAL_ADAPTIVE_GROUP_WRITES = "journalAdaptiveGroupWrites";
+    protected static final String JOURNAL_ADAPTIVE_GROUP_WAIT_ENABLED = "journalAdaptiveGroupWaitEnabled";
     protected static final String JOURNAL_MAX_GROUP_WAIT_MSEC = "journalMaxGroupWaitMSec";
     protected static final String JOURNAL_BUFFERED_WRITES_THRESHOLD = "journalBufferedWritesThreshold";
     protected static final String JOURNAL_BUFFERED_ENTRIES_THRESHOLD = "journalBufferedEntriesThreshold";
@@ -148,9 +155,12 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String JOURNAL_WRITE_BUFFER_SIZE = "journalWriteBufferSizeKB";
     protected static final String JOURNAL_ALIGNMENT_SIZE = "journalAlignmentSize";
     protected static final String NUM_JOURNAL_CALLBACK_THREADS = "numJournalCallbackThreads";
+    protected static final String NUM_JOURNAL_REPLAY_THREADS = "numJournalReplayThreads";
     protected static final String JOURNAL_FORMAT_VERSION_TO_WRITE = "journalFormatVersionToWrite";
     protected static final String JOURNAL_QUEUE_SIZE = "journalQueueSize";
     protected static final String JOURNAL_MAX_MEMORY_SIZE_MB = "journalMaxMemorySizeMb";
+    protected static final String JOURNAL_WRITE_RING_ENABLED = "journalWriteRingEnabled";
+    protected static final String JOURNAL_WRITE_RING_SIZE_MB = "journalWriteRingSizeMb";
     protected static final String JOURNAL_PAGECACHE_FLUSH_INTERVAL_MSEC = "journalPageCacheFlushIntervalMSec";
     protected static final String JOURNAL_CHANNEL_PROVIDER = "journalChannelProvider";
     // backpressure control
@@ -171,6 +181,9 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String JOURNAL_DIRS = "journalDirectories";
     protected static final String LEDGER_DIRS = "ledgerDirectories";
     protected static final String INDEX_DIRS = "indexDirectories";
+    protected static final String COLD_LEDGER_DIRS = "coldLedgerDirectories";
+    protected static final String COLD_ENTRYLOG_AGE_THRESHOLD = "coldEntryLogAgeThreshold";
+    protected static final String COLD_ENTRYLOG_MOVE_RATE_BY_BYTES = "coldEntryLogMoveRateByBytes";
     protected static final String ALLOW_STORAGE_EXPANSION = "allowStorageExpansion";
     // NIO and Netty Parameters
     protected static final String SERVER_TCP_NODELAY = "serverTcpNoDelay";
@@ -196,6 +209,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String DISK_USAGE_WARN_THRESHOLD = "diskUsageWarnThreshold";
     protected static final String DISK_USAGE_LWM_THRESHOLD = "diskUsageLwmThreshold";
     protected static final String DISK_CHECK_INTERVAL = "diskCheckInterval";
+    protected static final String DISK_DEGRADED_LATENCY_THRESHOLD_MS = "diskDegradedLatencyThresholdMs";
+    protected static final String DISK_DEGRADED_QUEUE_DEPTH_THRESHOLD = "diskDegradedQueueDepthThreshold";
 
     // Replication parameters
     protected static final String AUDITOR_PERIODIC_CHECK_INTERVAL = "auditorPeriodicCheckInterval";
@@ -224,6 +239,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String NUM_LONG_POLL_WORKER_THREADS = "numLongPollWorkerThreads";
     protected static final String NUM_HIGH_PRIORITY_WORKER_THREADS = "numHighPriorityWorkerThreads";
     protected static final String READ_WORKER_THREADS_THROTTLING_ENABLED = "readWorkerThreadsThrottlingEnabled";
+    protected static final String ZERO_COPY_READ_ENABLED = "zeroCopyReadEnabled";
+    protected static final String ZERO_COPY_READ_MIN_ENTRY_SIZE = "zeroCopyReadMinEntrySizeBytes";
 
     // Long poll parameters
     protected static final String REQUEST_TIMER_TICK_DURATION_MILLISEC = "requestTimerTickDurationMs";
@@ -231,6 +248,14 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
 
     protected static final String READ_BUFFER_SIZE = "readBufferSizeBytes";
     protected static final String WRITE_BUFFER_SIZE = "writeBufferSizeBytes";
+    protected static final String ENTRY_LOG_DIRECT_IO_ENABLED = "entryLogDirectIOEnabled";
+    protected static final String ENTRY_LOG_DIRECT_IO_READ_BLOCK_SIZE = "entryLogDirectIOReadBlockSizeBytes";
+    protected static final String ENTRY_LOG_DIRECT_IO_READ_CACHE_SIZE = "entryLogDirectIOReadCacheSizeBytes";
+    protected static final String ENTRY_LOG_MMAP_READ_ENABLED = "entryLogMmapReadEnabled";
+    protected static final String ENTRY_LOG_MMAP_MAX_MAPPED_LOGS = "entryLogMmapMaxMappedLogs";
+    protected static final String ENTRY_LOG_COMPRESSION_CODEC = "entryLogCompressionCodec";
+    protected static final String ENTRY_LOG_COMPRESSION_MIN_ENTRY_SIZE = "entryLogCompressionMinEntrySize";
+    protected static final String ENTRY_LOG_FOOTER_INDEX_ENABLED = "entryLogFooterIndexEnabled";
     // Whether the bookie should use its hostname or ipaddress for the
     // registration.
     protected static final String USE_HOST_NAME_AS_BOOKIE_ID = "useHostNameAsBookieID";
@@ -503,6 +528,52 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Get whether the garbage collector follows the deletions of the ledgers stored on the bookie through
+     * ledger metadata notifications, instead of scanning all the ledgers of the metadata store on each gc.
+     *
+     * @return whether the incremental ledger scan is enabled
+     */
+    public boolean isGcIncrementalLedgerScanEnabled() {
+        return this.getBoolean(GC_INCREMENTAL_LEDGER_SCAN_ENABLED, false);
+    }
+
+    /**
+     * Set whether the garbage collector follows the deletions of the ledgers stored on the bookie through
+     * ledger metadata notifications, instead of scanning all the ledgers of the metadata store on each gc.
+     * A listener is registered on the metadata of each ledger stored on the bookie, and all the ledgers of
+     * the metadata store are still scanned every {@link #getGcLedgerFullScanWaitTimeMillis()}.
+     *
+     * @param enabled
+     * @return server configuration
+     */
+    public ServerConfiguration setGcIncrementalLedgerScanEnabled(boolean enabled) {
+        this.setProperty(GC_INCREMENTAL_LEDGER_SCAN_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get wait time in millis between two scans of all the ledgers of the metadata store, when the incremental
+     * ledger scan is enabled.
+     *
+     * @return full scan wait time
+     */
+    public long getGcLedgerFullScanWaitTimeMillis() {
+        return this.getLong(GC_LEDGER_FULL_SCAN_WAIT_TIME, TimeUnit.DAYS.toMillis(1));
+    }
+
+    /**
+     * Set wait time between two scans of all the ledgers of the metadata store, when the incremental ledger scan
+     * is enabled. Default: 1 day
+     *
+     * @param waitTime
+     * @return server configuration
+     */
+    public ServerConfiguration setGcLedgerFullScanWaitTime(long waitTime, TimeUnit unit) {
+        this.setProperty(GC_LEDGER_FULL_SCAN_WAIT_TIME, Long.toString(unit.toMillis(waitTime)));
+        return this;
+    }
+
     /**
      * Get whether the bookie is configured to use persistent
      * entrylogMetadataMap.
@@ -860,6 +931,28 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Should the old journal files be recycled and overwritten by the new journal files, instead of being deleted.
+     * Reused journal files are written with the journal format version 7.
+     *
+     * @return whether to reuse the old journal files
+     */
+    public boolean getJournalReuseFiles() {
+        return this.getBoolean(JOURNAL_REUSE_FILES, false);
+    }
+
+    /**
+     * Set whether the old journal files should be recycled and overwritten by the new journal files.
+     *
+     * @param reuseFiles
+     *          whether to reuse the old journal files
+     * @return server configuration
+     */
+    public ServerConfiguration setJournalReuseFiles(boolean reuseFiles) {
+        this.setProperty(JOURNAL_REUSE_FILES, reuseFiles);
+        return this;
+    }
+
     /**
      * All the journal writes and commits should be aligned to given size. If not,
      * zeros will be padded to align to given size.
@@ -947,6 +1040,52 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this.getLong(JOURNAL_MAX_MEMORY_SIZE_MB, defaultValue);
     }
 
+    /**
+     * Set whether the threads adding entries serialize them into a shared off-heap ring of the journal, instead of
+     * leaving the serialization to the journal thread.
+     *
+     * @param enabled
+     *            whether to enable the journal write ring
+     * @return server configuration.
+     */
+    public ServerConfiguration setJournalWriteRingEnabled(boolean enabled) {
+        this.setProperty(JOURNAL_WRITE_RING_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Whether the threads adding entries serialize them into a shared off-heap ring of the journal. The journal
+     * thread then only writes the serialized entries to the journal file in bulk, syncs it and triggers the
+     * callbacks.
+     *
+     * @return true if the journal write ring is enabled
+     */
+    public boolean isJournalWriteRingEnabled() {
+        return this.getBoolean(JOURNAL_WRITE_RING_ENABLED, false);
+    }
+
+    /**
+     * Set the size of the journal write ring, for each journal.
+     *
+     * @param sizeMb
+     *            the size of the ring in MB
+     * @return server configuration.
+     */
+    public ServerConfiguration setJournalWriteRingSizeMb(int sizeMb) {
+        this.setProperty(JOURNAL_WRITE_RING_SIZE_MB, sizeMb);
+        return this;
+    }
+
+    /**
+     * Get the size of the journal write ring, for each journal. The ring is always large enough to hold two entries
+     * of the max frame size.
+     *
+     * @return the size of the ring in MB
+     */
+    public int getJournalWriteRingSizeMb() {
+        return this.getInt(JOURNAL_WRITE_RING_SIZE_MB, 64);
+    }
+
     /**
      * Set PageCache flush interval in second.
      *
@@ -1403,6 +1542,83 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return ledgerDirs;
     }
 
+    /**
+     * Get the ledger dirs on the slow storage tier. New entry logs are created in the other ledger dirs, and the
+     * entry logs are moved to these dirs once they are older than {@link #getColdEntryLogAgeThreshold()}.
+     *
+     * @return cold ledger dir names, empty if all the ledger dirs are on the same tier
+     */
+    public String[] getColdLedgerDirNames() {
+        return this.getStringArray(COLD_LEDGER_DIRS);
+    }
+
+    /**
+     * Set the ledger dirs on the slow storage tier. These dirs must also be part of the ledger dirs.
+     *
+     * @param coldLedgerDirs
+     *          Cold ledger dir names
+     * @return server configuration
+     */
+    public ServerConfiguration setColdLedgerDirNames(String[] coldLedgerDirs) {
+        this.setProperty(COLD_LEDGER_DIRS, coldLedgerDirs);
+        return this;
+    }
+
+    /**
+     * Get the ledger dirs on the slow storage tier.
+     *
+     * @return cold ledger dirs
+     */
+    public File[] getColdLedgerDirs() {
+        String[] coldLedgerDirNames = getColdLedgerDirNames();
+
+        File[] coldLedgerDirs = new File[coldLedgerDirNames.length];
+        for (int i = 0; i < coldLedgerDirNames.length; i++) {
+            coldLedgerDirs[i] = new File(coldLedgerDirNames[i]);
+        }
+        return coldLedgerDirs;
+    }
+
+    /**
+     * Get the age after which the entry logs are moved to the cold ledger dirs. Default is 1 day.
+     *
+     * @return the age threshold in seconds
+     */
+    public long getColdEntryLogAgeThreshold() {
+        return getLong(COLD_ENTRYLOG_AGE_THRESHOLD, 86400);
+    }
+
+    /**
+     * Set the age after which the entry logs are moved to the cold ledger dirs.
+     *
+     * @param ageThreshold the age threshold in seconds
+     * @return server configuration
+     */
+    public ServerConfiguration setColdEntryLogAgeThreshold(long ageThreshold) {
+        this.setProperty(COLD_ENTRYLOG_AGE_THRESHOLD, ageThreshold);
+        return this;
+    }
+
+    /**
+     * Get the rate at which the entry logs are copied to the cold ledger dirs. Default is 50MB per second.
+     *
+     * @return the move rate in bytes per second
+     */
+    public int getColdEntryLogMoveRateByBytes() {
+        return getInt(COLD_ENTRYLOG_MOVE_RATE_BY_BYTES, 50 * 1024 * 1024);
+    }
+
+    /**
+     * Set the rate at which the entry logs are copied to the cold ledger dirs.
+     *
+     * @param rate the move rate in bytes per second
+     * @return server configuration
+     */
+    public ServerConfiguration setColdEntryLogMoveRateByBytes(int rate) {
+        this.setProperty(COLD_ENTRYLOG_MOVE_RATE_BY_BYTES, rate);
+        return this;
+    }
+
     /**
      * Get dir name to store index files.
      *
@@ -1982,6 +2198,54 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getBoolean(READ_WORKER_THREADS_THROTTLING_ENABLED, true);
     }
 
+    /**
+     * Get whether the entries read from the entry logs are sent with zero-copy.
+     *
+     * @return true if the zero-copy reads are enabled
+     */
+    public boolean isZeroCopyReadEnabled() {
+        return getBoolean(ZERO_COPY_READ_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable sending the entries read from the entry logs with zero-copy.
+     *
+     * <p>If enabled, the large entries requested with the v2 protocol, and read from the sealed entry logs, are
+     * transferred from the files to the sockets with sendfile, instead of being copied in memory. The entries in the
+     * write and read caches, and the connections using TLS, keep using the regular read path.
+     *
+     * @param enabled
+     *          flag to enable/disable the zero-copy reads
+     * @return server configuration
+     */
+    public ServerConfiguration setZeroCopyReadEnabled(boolean enabled) {
+        setProperty(ZERO_COPY_READ_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the minimum size of the entries sent with zero-copy, when the zero-copy reads are enabled.
+     * Default is 64KB.
+     *
+     * @return the minimum size of the entries sent with zero-copy
+     */
+    public int getZeroCopyReadMinEntrySize() {
+        return getInt(ZERO_COPY_READ_MIN_ENTRY_SIZE, 64 * 1024);
+    }
+
+    /**
+     * Set the minimum size of the entries sent with zero-copy. The smaller entries are cheaper to copy than to send
+     * with a dedicated file handle.
+     *
+     * @param minEntrySize
+     *          the minimum size of the entries sent with zero-copy
+     * @return server configuration
+     */
+    public ServerConfiguration setZeroCopyReadMinEntrySize(int minEntrySize) {
+        setProperty(ZERO_COPY_READ_MIN_ENTRY_SIZE, minEntrySize);
+        return this;
+    }
+
 
 
     /**
@@ -2107,6 +2371,202 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Whether the entry logs are written and read with direct I/O, bypassing the OS page cache.
+     * Default is false.
+     *
+     * @return true if the entry logs use direct I/O
+     */
+    public boolean isEntryLogDirectIOEnabled() {
+        return getBoolean(ENTRY_LOG_DIRECT_IO_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable direct I/O for the entry logs.
+     *
+     * <p>If enabled, the entry log write buffers are flushed to the disk with direct I/O, and the entries
+     * are read with direct I/O through a small block cache owned by the bookie, so that the OS page cache
+     * doesn't compete with the ledger storage caches. The entry log format is unchanged.
+     *
+     * <p>Direct I/O requires Java 10 or later and a file system which supports it. Otherwise the bookie
+     * falls back to buffered I/O.
+     *
+     * @param enabled
+     *          flag to enable/disable direct I/O for the entry logs
+     * @return server configuration
+     */
+    public ServerConfiguration setEntryLogDirectIOEnabled(boolean enabled) {
+        setProperty(ENTRY_LOG_DIRECT_IO_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the size of the blocks read from the entry logs when direct I/O is enabled. Default is 64KB.
+     *
+     * @return the size of the direct I/O read blocks in bytes
+     */
+    public int getEntryLogDirectIOReadBlockSize() {
+        return getInt(ENTRY_LOG_DIRECT_IO_READ_BLOCK_SIZE, 64 * 1024);
+    }
+
+    /**
+     * Set the size of the blocks read from the entry logs when direct I/O is enabled.
+     * The size is rounded up to a multiple of 4KB.
+     *
+     * @param blockSize
+     *          size of the direct I/O read blocks in bytes
+     * @return server configuration
+     */
+    public ServerConfiguration setEntryLogDirectIOReadBlockSize(int blockSize) {
+        setProperty(ENTRY_LOG_DIRECT_IO_READ_BLOCK_SIZE, blockSize);
+        return this;
+    }
+
+    /**
+     * Get the size of the cache of the blocks read from the entry logs when direct I/O is enabled.
+     * Default is 16MB.
+     *
+     * @return the size of the direct I/O read cache in bytes
+     */
+    public long getEntryLogDirectIOReadCacheSize() {
+        return getLong(ENTRY_LOG_DIRECT_IO_READ_CACHE_SIZE, 16 * 1024 * 1024);
+    }
+
+    /**
+     * Set the size of the cache of the blocks read from the entry logs when direct I/O is enabled.
+     *
+     * @param cacheSize
+     *          size of the direct I/O read cache in bytes
+     * @return server configuration
+     */
+    public ServerConfiguration setEntryLogDirectIOReadCacheSize(long cacheSize) {
+        setProperty(ENTRY_LOG_DIRECT_IO_READ_CACHE_SIZE, cacheSize);
+        return this;
+    }
+
+    /**
+     * Whether the entries of the sealed entry logs are read from memory mappings of the logs.
+     * Default is false.
+     *
+     * @return true if the sealed entry logs are read through memory mappings
+     */
+    public boolean isEntryLogMmapReadEnabled() {
+        return getBoolean(ENTRY_LOG_MMAP_READ_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable reading the sealed entry logs through memory mappings.
+     *
+     * <p>If enabled, the entry logs which are not written anymore are mapped in memory, and the entries
+     * are returned as zero-copy slices of the mappings instead of being copied in a buffer. The reads
+     * go through the OS page cache, so this is meant for bookies with a lot of memory, and it doesn't
+     * play well with {@link #setEntryLogDirectIOEnabled(boolean)}.
+     *
+     * @param enabled
+     *          flag to enable/disable the memory mapped reads
+     * @return server configuration
+     */
+    public ServerConfiguration setEntryLogMmapReadEnabled(boolean enabled) {
+        setProperty(ENTRY_LOG_MMAP_READ_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the max number of entry logs kept mapped in memory when the memory mapped reads are enabled.
+     * Default is 128.
+     *
+     * @return the max number of mapped entry logs
+     */
+    public int getEntryLogMmapMaxMappedLogs() {
+        return getInt(ENTRY_LOG_MMAP_MAX_MAPPED_LOGS, 128);
+    }
+
+    /**
+     * Set the max number of entry logs kept mapped in memory when the memory mapped reads are enabled.
+     * The least recently used mappings are closed first.
+     *
+     * @param maxMappedLogs
+     *          the max number of mapped entry logs
+     * @return server configuration
+     */
+    public ServerConfiguration setEntryLogMmapMaxMappedLogs(int maxMappedLogs) {
+        setProperty(ENTRY_LOG_MMAP_MAX_MAPPED_LOGS, maxMappedLogs);
+        return this;
+    }
+
+    /**
+     * Get the codec used to compress the entries added to the entry logs.
+     * Default is NONE.
+     *
+     * @return the entry log compression codec
+     */
+    public String getEntryLogCompressionCodec() {
+        return getString(ENTRY_LOG_COMPRESSION_CODEC, "NONE");
+    }
+
+    /**
+     * Set the codec used to compress the entries added to the entry logs, either NONE or SNAPPY.
+     *
+     * <p>The entries are compressed one by one, and they are decompressed transparently when they are read, so
+     * the clients get back the original entries. The entry logs which may contain compressed entries are flagged
+     * in their header, and they can't be read by the bookies which don't support the compression: the
+     * compression must only be enabled once all the bookies are upgraded.
+     *
+     * @param codec
+     *          the entry log compression codec
+     * @return server configuration
+     */
+    public ServerConfiguration setEntryLogCompressionCodec(String codec) {
+        setProperty(ENTRY_LOG_COMPRESSION_CODEC, codec);
+        return this;
+    }
+
+    /**
+     * Get the min size of the entries compressed when the entry log compression is enabled.
+     * Default is 512 bytes.
+     *
+     * @return the min size of the compressed entries
+     */
+    public int getEntryLogCompressionMinEntrySize() {
+        return getInt(ENTRY_LOG_COMPRESSION_MIN_ENTRY_SIZE, 512);
+    }
+
+    /**
+     * Set the min size of the entries compressed when the entry log compression is enabled. The smaller entries
+     * are stored as is.
+     *
+     * @param minEntrySize
+     *          the min size of the compressed entries, in bytes
+     * @return server configuration
+     */
+    public ServerConfiguration setEntryLogCompressionMinEntrySize(int minEntrySize) {
+        setProperty(ENTRY_LOG_COMPRESSION_MIN_ENTRY_SIZE, minEntrySize);
+        return this;
+    }
+
+    /**
+     * Whether the location of the entries is indexed at the end of the entry logs when they are sealed.
+     * Default is true.
+     *
+     * @return true if the entry logs are written with a footer index
+     */
+    public boolean isEntryLogFooterIndexEnabled() {
+        return getBoolean(ENTRY_LOG_FOOTER_INDEX_ENABLED, true);
+    }
+
+    /**
+     * Enable or disable the footer index of the entry logs, which lets the index rebuilds locate the entries of a
+     * sealed entry log without scanning it.
+     *
+     * @param enabled
+     *          whether to write the footer index of the entry logs
+     * @return server configuration
+     */
+    public ServerConfiguration setEntryLogFooterIndexEnabled(boolean enabled) {
+        setProperty(ENTRY_LOG_FOOTER_INDEX_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Set the number of threads that would handle journal callbacks.
      *
@@ -2128,6 +2588,28 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getInt(NUM_JOURNAL_CALLBACK_THREADS, 1);
     }
 
+    /**
+     * Set the number of threads that apply the replayed journal entries to the ledger storage on startup.
+     *
+     * @param numThreads
+     *          number of threads to apply the replayed journal entries.
+     * @return server configuration
+     */
+    public ServerConfiguration setNumJournalReplayThreads(int numThreads) {
+        setProperty(NUM_JOURNAL_REPLAY_THREADS, numThreads);
+        return this;
+    }
+
+    /**
+     * Get the number of threads that apply the replayed journal entries to the ledger storage on startup. With more
+     * than one thread, the journal directories are also scanned concurrently.
+     *
+     * @return the number of threads to apply the replayed journal entries.
+     */
+    public int getNumJournalReplayThreads() {
+        return getInt(NUM_JOURNAL_REPLAY_THREADS, 1);
+    }
+
     /**
      * Set sorted-ledger storage enabled or not.
      *
@@ -2289,6 +2771,27 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Should the journal adapt the group commit window to the force write latency and to the rate of the entries.
+     * The window is then bounded by {@link #getJournalMaxGroupWaitMSec()}. It only applies when journal force writes
+     * are grouped, see {@link #getJournalAdaptiveGroupWrites()}.
+     *
+     * @return whether the journal group commit window is adaptive
+     */
+    public boolean isJournalAdaptiveGroupWaitEnabled() {
+        return getBoolean(JOURNAL_ADAPTIVE_GROUP_WAIT_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable the adaptive journal group commit window.
+     *
+     * @param enabled flag to enable/disable the adaptive journal group commit window
+     */
+    public ServerConfiguration setJournalAdaptiveGroupWaitEnabled(boolean enabled) {
+        setProperty(JOURNAL_ADAPTIVE_GROUP_WAIT_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Maximum latency to impose on a journal write to achieve grouping. Default is 2ms.
      *
@@ -2509,6 +3012,49 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getInt(DISK_CHECK_INTERVAL, 10 * 1000);
     }
 
+    /**
+     * Get the average write or sync latency of a ledger dir, during a disk check interval, above which the dir is
+     * degraded. No new entry log is created in a degraded dir while other dirs are not degraded. The dir is no
+     * longer degraded once its latency is back under half the threshold.
+     *
+     * @return the latency threshold in milliseconds, or 0 if the latency of the ledger dirs is not checked
+     */
+    public int getDiskDegradedLatencyThresholdMs() {
+        return getInt(DISK_DEGRADED_LATENCY_THRESHOLD_MS, 0);
+    }
+
+    /**
+     * Set the average write or sync latency of a ledger dir above which the dir is degraded.
+     *
+     * @param thresholdMs the latency threshold in milliseconds, or 0 to not check the latency of the ledger dirs
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setDiskDegradedLatencyThresholdMs(int thresholdMs) {
+        setProperty(DISK_DEGRADED_LATENCY_THRESHOLD_MS, thresholdMs);
+        return this;
+    }
+
+    /**
+     * Get the number of I/Os in flight on the disk of a ledger dir above which the dir is degraded. The dir is no
+     * longer degraded once its queue depth is back under half the threshold.
+     *
+     * @return the queue depth threshold, or 0 if the queue depth of the ledger dirs is not checked
+     */
+    public int getDiskDegradedQueueDepthThreshold() {
+        return getInt(DISK_DEGRADED_QUEUE_DEPTH_THRESHOLD, 0);
+    }
+
+    /**
+     * Set the number of I/Os in flight on the disk of a ledger dir above which the dir is degraded.
+     *
+     * @param threshold the queue depth threshold, or 0 to not check the queue depth of the ledger dirs
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setDiskDegradedQueueDepthThreshold(int threshold) {
+        setProperty(DISK_DEGRADED_QUEUE_DEPTH_THRESHOLD, threshold);
+        return this;
+    }
+
     /**
      * Set the regularity at which the auditor will run a check
      * of all ledgers. This should not be run very often, and at most,
@@ -2878,6 +3424,55 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Get the number of entry logs compacted concurrently by a garbage collector thread. Default is 1.
+     *
+     * <p>It has no effect with the DbLedgerStorage, whose ledger directories each have their own garbage
+     * collector thread, compacting one entry log at a time at the compaction rate.
+     *
+     * @return the number of compaction threads
+     */
+    public int getNumCompactionThreads() {
+        return getInt(NUM_COMPACTION_THREADS, 1);
+    }
+
+    /**
+     * Set the number of entry logs compacted concurrently by a garbage collector thread. At most one entry log
+     * is compacted at a time in each ledger directory, and the compactions share the compaction rate. The
+     * transactional compaction always compacts one entry log at a time.
+     *
+     * @param numThreads number of compaction threads
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setNumCompactionThreads(int numThreads) {
+        setProperty(NUM_COMPACTION_THREADS, numThreads);
+        return this;
+    }
+
+    /**
+     * Get whether the compaction copies the runs of consecutive live entries of the entry logs with
+     * {@link java.nio.channels.FileChannel#transferTo}, without reading them. Default is true.
+     *
+     * @return whether the entries are transferred by the compaction
+     */
+    public boolean isCompactionTransferEnabled() {
+        return getBoolean(COMPACTION_TRANSFER_ENABLED, true);
+    }
+
+    /**
+     * Set whether the compaction copies the runs of consecutive live entries of the entry logs with
+     * {@link java.nio.channels.FileChannel#transferTo}, without reading them. The entries are located from
+     * the footer index of the entry logs, and the entry logs without footer index are still compacted entry
+     * by entry. The transferred entries are kept as they are stored, and not compressed again.
+     *
+     * @param enabled whether to transfer the entries
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionTransferEnabled(boolean enabled) {
+        setProperty(COMPACTION_TRANSFER_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Should we remove pages from page cache after force write.
      *
@@ -3090,6 +3685,24 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
             throw new ConfigurationException("For persisiting explicitLac, journalFormatVersionToWrite should be >= 6"
                     + "and FileInfoFormatVersionToWrite should be >= 1");
         }
+        File[] coldLedgerDirs = getColdLedgerDirs();
+        if (coldLedgerDirs.length > 0) {
+            if (DbLedgerStorage.class.getName().equals(getLedgerStorageClass())) {
+                throw new ConfigurationException(
+                        "coldLedgerDirectories is not supported by DbLedgerStorage, which has an entry logger per"
+                                + " ledger directory");
+            }
+            List<File> ledgerDirs = Lists.newArrayList(getLedgerDirs());
+            for (File coldLedgerDir : coldLedgerDirs) {
+                if (!ledgerDirs.contains(coldLedgerDir)) {
+                    throw new ConfigurationException("Cold ledger directory " + coldLedgerDir
+                            + " is not one of the ledger directories");
+                }
+            }
+            if (coldLedgerDirs.length >= ledgerDirs.size()) {
+                throw new ConfigurationException("At least one ledger directory must not be a cold ledger directory");
+            }
+        }
     }
 
     /**
@@ -118,6 +118,13 @@ class AuthHandler {
                             new BookieProtocol.ReadResponse(
                                     req.getProtocolVersion(), BookieProtocol.EUA,
                                     req.getLedgerId(), req.getEntryId()));
+                } else if (req.getOpCode() == BookieProtocol.RANGE_READ_ENTRY) {
+                    ctx.channel().writeAndFlush(
+                            ResponseBuilder.buildErrorResponse(BookieProtocol.EUA, req));
+                } else if (req.getOpCode() == BookieProtocol.RANGE_ADD_ENTRY) {
+                    ((BookieProtocol.ParsedRangeAddRequest) req).release();
+                    ctx.channel().writeAndFlush(
+                            ResponseBuilder.buildErrorResponse(BookieProtocol.EUA, req));
                 } else {
                     ctx.channel().close();
                 }
@@ -28,6 +28,8 @@ import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeReadEntryCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeWriteCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
@@ -143,6 +145,29 @@ public interface BookieClient {
                   long entryId, ByteBufList toSend, WriteCallback cb, Object ctx,
                   int options, boolean allowFastFail, EnumSet<WriteFlag> writeFlags);
 
+    /**
+     * Add a batch of consecutive entries for ledger {@code ledgerId} on the bookie at address {@code address},
+     * with a single request.
+     *
+     * <p>The callback is notified once, with the result of the whole batch.
+     *
+     * @param address the address of the bookie
+     * @param ledgerId the ledger to which we wish to add the entries
+     * @param startEntryId the id of the first entry of the batch
+     * @param toSend the buffers containing the consecutive entries and their digests
+     * @param cb the callback notified when the request completes
+     * @param ctx a context object passed to the callback on completion
+     * @param options a bit mask of flags from BookieProtocol.FLAG_*
+     *                {@link org.apache.bookkeeper.proto.BookieProtocol}
+     * @param allowFastFail fail the add immediately if the channel is non-writable
+     *                      {@link #isWritable(BookieSocketAddress,long)}
+     * @param writeFlags a set of write flags
+     *                   {@link org.apache.bookkeeper.client.api.WriteFlags}
+     */
+    void addEntries(BookieId address, long ledgerId, byte[] masterKey,
+                    long startEntryId, List<ByteBufList> toSend, RangeWriteCallback cb, Object ctx,
+                    int options, boolean allowFastFail, EnumSet<WriteFlag> writeFlags);
+
     /**
      * Read entry with a null masterkey, disallowing failfast.
      * @see #readEntry(BookieSocketAddress,long,long,ReadEntryCallback,Object,int,byte[],boolean)
@@ -180,6 +205,26 @@ public interface BookieClient {
                    ReadEntryCallback cb, Object ctx, int flags, byte[] masterKey,
                    boolean allowFastFail);
 
+    /**
+     * Read a range of consecutive entries from bookie at address {@code address}, with a single request.
+     *
+     * <p>The bookie returns the entries starting at {@code startEntryId}, until the first entry it doesn't have,
+     * up to {@code maxCount} entries and up to {@code maxSize} bytes. The first entry is always returned, if
+     * the bookie has it.
+     *
+     * @param address address of the bookie to read from
+     * @param ledgerId id of the ledger the entries belong to
+     * @param startEntryId id of the first entry we wish to read
+     * @param maxCount max number of entries to read
+     * @param maxSize max total size of the entries to read, in bytes
+     * @param cb the callback notified when the request completes
+     * @param ctx a context object passed to the callback on completion
+     * @param flags a bit mask of flags from BookieProtocol.FLAG_*
+     *              {@link org.apache.bookkeeper.proto.BookieProtocol}
+     */
+    void rangeReadEntries(BookieId address, long ledgerId, long startEntryId, int maxCount, long maxSize,
+                          RangeReadEntryCallback cb, Object ctx, int flags);
+
     /**
      * Send a long poll request to bookie, waiting for the last add confirmed
      * to be updated. The client can also request that the full entry is returned
@@ -61,6 +61,8 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallba
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.FutureGetListOfEntriesOfLedger;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeReadEntryCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeWriteCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
@@ -332,6 +334,59 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
                       ledgerId);
     }
 
+    @Override
+    public void addEntries(final BookieId addr,
+                           final long ledgerId,
+                           final byte[] masterKey,
+                           final long startEntryId,
+                           final List<ByteBufList> toSend,
+                           final RangeWriteCallback cb,
+                           final Object ctx,
+                           final int options,
+                           final boolean allowFastFail,
+                           final EnumSet<WriteFlag> writeFlags) {
+        final PerChannelBookieClientPool client = lookupClient(addr);
+        if (client == null) {
+            completeRangeAdd(getRc(BKException.Code.BookieHandleNotAvailableException),
+                             ledgerId, startEntryId, toSend.size(), addr, cb, ctx);
+            return;
+        }
+
+        // Retain the buffers, since the connection could be obtained after
+        // the PendingAddOps might have already failed
+        toSend.forEach(ByteBufList::retain);
+
+        client.obtain((rc, pcbc) -> {
+            if (rc != BKException.Code.OK) {
+                completeRangeAdd(rc, ledgerId, startEntryId, toSend.size(), addr, cb, ctx);
+            } else {
+                pcbc.addEntries(ledgerId, masterKey, startEntryId,
+                                toSend, cb, ctx, options, allowFastFail, writeFlags);
+            }
+            toSend.forEach(ByteBufList::release);
+        }, ledgerId);
+    }
+
+    private void completeRangeAdd(final int rc,
+                                  final long ledgerId,
+                                  final long startEntryId,
+                                  final int count,
+                                  final BookieId addr,
+                                  final RangeWriteCallback cb,
+                                  final Object ctx) {
+        try {
+            executor.executeOrdered(ledgerId, new SafeRunnable() {
+                @Override
+                public void safeRun() {
+                    cb.rangeWriteComplete(rc, ledgerId, startEntryId, count, addr, ctx);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            cb.rangeWriteComplete(getRc(BKException.Code.InterruptedException),
+                                  ledgerId, startEntryId, count, addr, ctx);
+        }
+    }
+
     @Override
     public CompletableFuture<AvailabilityOfEntriesOfLedger> getListOfEntriesOfLedger(BookieId address,
             long ledgerId) {
@@ -378,6 +433,24 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }
     }
 
+    private void completeRangeRead(final int rc,
+                                   final long ledgerId,
+                                   final long startEntryId,
+                                   final RangeReadEntryCallback cb,
+                                   final Object ctx) {
+        try {
+            executor.executeOrdered(ledgerId, new SafeRunnable() {
+                @Override
+                public void safeRun() {
+                    cb.rangeReadEntryComplete(rc, ledgerId, startEntryId, null, ctx);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            cb.rangeReadEntryComplete(getRc(BKException.Code.InterruptedException),
+                                      ledgerId, startEntryId, null, ctx);
+        }
+    }
+
     private static class ChannelReadyForAddEntryCallback
         implements GenericCallback<PerChannelBookieClient> {
         private final Handle<ChannelReadyForAddEntryCallback> recyclerHandle;
@@ -515,6 +588,25 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }, ledgerId);
     }
 
+    @Override
+    public void rangeReadEntries(final BookieId addr, final long ledgerId, final long startEntryId,
+                                 final int maxCount, final long maxSize, final RangeReadEntryCallback cb,
+                                 final Object ctx, int flags) {
+        final PerChannelBookieClientPool client = lookupClient(addr);
+        if (client == null) {
+            cb.rangeReadEntryComplete(getRc(BKException.Code.BookieHandleNotAvailableException),
+                                      ledgerId, startEntryId, null, ctx);
+            return;
+        }
+
+        client.obtain((rc, pcbc) -> {
+            if (rc != BKException.Code.OK) {
+                completeRangeRead(rc, ledgerId, startEntryId, cb, ctx);
+            } else {
+                pcbc.rangeReadEntries(ledgerId, startEntryId, maxCount, maxSize, cb, ctx, flags);
+            }
+        }, ledgerId);
+    }
 
     @Override
     public void readEntryWaitForLACUpdate(final BookieId addr,
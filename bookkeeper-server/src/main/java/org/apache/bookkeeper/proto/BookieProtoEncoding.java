@@ -35,16 +35,20 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.util.ReferenceCountUtil;
 
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.bookkeeper.proto.BookieProtocol.PacketHeader;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
 import org.apache.bookkeeper.proto.checksum.MacDigestManager;
 import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.FileRegionFrame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -118,6 +122,36 @@ public class BookieProtoEncoding {
                 ar.recycle();
                 data.prepend(buf);
                 return data;
+            } else if (r instanceof BookieProtocol.RangeAddRequest) {
+                BookieProtocol.RangeAddRequest rar = (BookieProtocol.RangeAddRequest) r;
+                int count = rar.getCount();
+                int totalHeaderSize = 4 // for the header
+                    + BookieProtocol.MASTER_KEY_LENGTH // for the master key
+                    + 8 // for ledgerId
+                    + 8 // for startEntryId
+                    + 4; // for the number of entries
+                ByteBuf buf = allocator.buffer(totalHeaderSize);
+                buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), r.getFlags()));
+                buf.writeBytes(r.getMasterKey(), 0, BookieProtocol.MASTER_KEY_LENGTH);
+                buf.writeLong(rar.getLedgerId());
+                buf.writeLong(rar.getEntryId());
+                buf.writeInt(count);
+
+                // Each entry is prefixed by its length, all the lengths are sliced from a single buffer
+                ByteBuf lengths = allocator.buffer(4 * count);
+                ByteBufList list = ByteBufList.get(buf);
+                for (int i = 0; i < count; i++) {
+                    ByteBufList entry = rar.getData(i);
+                    lengths.writeInt(entry.readableBytes());
+                    list.add(lengths.retainedSlice(4 * i, 4));
+                    for (int j = 0; j < entry.size(); j++) {
+                        list.add(entry.getBuffer(j).retain());
+                    }
+                    entry.release();
+                }
+                lengths.release();
+                rar.recycle();
+                return list;
             } else if (r instanceof BookieProtocol.ReadRequest) {
                 int totalHeaderSize = 4 // for request type
                     + 8 // for ledgerId
@@ -134,6 +168,21 @@ public class BookieProtoEncoding {
                     buf.writeBytes(r.getMasterKey(), 0, BookieProtocol.MASTER_KEY_LENGTH);
                 }
 
+                return buf;
+            } else if (r instanceof BookieProtocol.RangeReadRequest) {
+                BookieProtocol.RangeReadRequest rr = (BookieProtocol.RangeReadRequest) r;
+                int totalHeaderSize = 4 // for request type
+                    + 8 // for ledgerId
+                    + 8 // for startEntryId
+                    + 4 // for maxCount
+                    + 8; // for maxSize
+
+                ByteBuf buf = allocator.buffer(totalHeaderSize);
+                buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), r.getFlags()));
+                buf.writeLong(rr.getLedgerId());
+                buf.writeLong(rr.getEntryId());
+                buf.writeInt(rr.getMaxCount());
+                buf.writeLong(rr.getMaxSize());
                 return buf;
             } else if (r instanceof BookieProtocol.AuthRequest) {
                 BookkeeperProtocol.AuthMessage am = ((BookieProtocol.AuthRequest) r).getAuthMessage();
@@ -176,6 +225,21 @@ public class BookieProtoEncoding {
                         masterKey, packet.retain());
             }
 
+            case BookieProtocol.RANGE_ADD_ENTRY: {
+                byte[] masterKey = readMasterKey(packet);
+                ledgerId = packet.readLong();
+                entryId = packet.readLong();
+                int count = packet.readInt();
+                // Each entry takes at least its length field
+                if (count < 0 || count > packet.readableBytes() / 4) {
+                    throw new CorruptedFrameException("Invalid number of entries in range add request: " + count);
+                }
+
+                List<ByteBuf> entries = readEntries(packet, count);
+                return new BookieProtocol.ParsedRangeAddRequest(version, ledgerId, entryId, flags, masterKey,
+                        entries);
+            }
+
             case BookieProtocol.READENTRY:
                 ledgerId = packet.readLong();
                 entryId = packet.readLong();
@@ -187,6 +251,13 @@ public class BookieProtoEncoding {
                 } else {
                     return new BookieProtocol.ReadRequest(version, ledgerId, entryId, flags, null);
                 }
+            case BookieProtocol.RANGE_READ_ENTRY: {
+                ledgerId = packet.readLong();
+                entryId = packet.readLong();
+                int maxCount = packet.readInt();
+                long maxSize = packet.readLong();
+                return new BookieProtocol.RangeReadRequest(version, ledgerId, entryId, maxCount, maxSize, flags);
+            }
             case BookieProtocol.AUTH:
                 BookkeeperProtocol.AuthMessage.Builder builder = BookkeeperProtocol.AuthMessage.newBuilder();
                 builder.mergeFrom(new ByteBufInputStream(packet), extensionRegistry);
@@ -255,6 +326,41 @@ public class BookieProtoEncoding {
                     } else {
                         return buf;
                     }
+                } else if (msg instanceof BookieProtocol.ReadRegionResponse) {
+                    buf.writeInt(r.getErrorCode());
+                    buf.writeLong(r.getLedgerId());
+                    buf.writeLong(r.getEntryId());
+
+                    return new FileRegionFrame(buf, ((BookieProtocol.ReadRegionResponse) r).getRegion());
+                } else if (msg instanceof BookieProtocol.RangeReadResponse) {
+                    buf.writeInt(r.getErrorCode());
+                    buf.writeLong(r.getLedgerId());
+                    buf.writeLong(r.getEntryId());
+
+                    List<ByteBuf> data = ((BookieProtocol.RangeReadResponse) r).getData();
+                    if (data.isEmpty()) {
+                        return buf;
+                    }
+
+                    // Each entry is prefixed by its length. The lengths are all written in a single buffer, which
+                    // is then sliced in front of each entry.
+                    ByteBuf lengths = allocator.buffer(4 * data.size());
+                    ByteBufList list = ByteBufList.get(buf);
+                    for (int i = 0; i < data.size(); i++) {
+                        ByteBuf entry = data.get(i);
+                        lengths.writeInt(entry.readableBytes());
+                        list.add(lengths.retainedSlice(4 * i, 4));
+                        list.add(entry);
+                    }
+                    lengths.release();
+                    return list;
+                } else if (msg instanceof BookieProtocol.RangeAddResponse) {
+                    buf.writeInt(r.getErrorCode());
+                    buf.writeLong(r.getLedgerId());
+                    buf.writeLong(r.getEntryId());
+                    buf.writeInt(((BookieProtocol.RangeAddResponse) r).getCount());
+
+                    return buf;
                 } else if (msg instanceof BookieProtocol.AddResponse) {
                     buf.writeInt(r.getErrorCode());
                     buf.writeLong(r.getLedgerId());
@@ -288,6 +394,13 @@ public class BookieProtoEncoding {
                 ledgerId = buffer.readLong();
                 entryId = buffer.readLong();
                 return BookieProtocol.AddResponse.create(version, rc, ledgerId, entryId);
+            case BookieProtocol.RANGE_ADD_ENTRY: {
+                rc = buffer.readInt();
+                ledgerId = buffer.readLong();
+                entryId = buffer.readLong();
+                int count = buffer.readInt();
+                return new BookieProtocol.RangeAddResponse(version, rc, ledgerId, entryId, count);
+            }
             case BookieProtocol.READENTRY:
                 rc = buffer.readInt();
                 ledgerId = buffer.readLong();
@@ -295,6 +408,14 @@ public class BookieProtoEncoding {
 
                 return new BookieProtocol.ReadResponse(
                         version, rc, ledgerId, entryId, buffer.retainedSlice());
+            case BookieProtocol.RANGE_READ_ENTRY: {
+                rc = buffer.readInt();
+                ledgerId = buffer.readLong();
+                entryId = buffer.readLong();
+
+                List<ByteBuf> entries = readEntries(buffer, -1);
+                return new BookieProtocol.RangeReadResponse(version, rc, ledgerId, entryId, entries);
+            }
             case BookieProtocol.AUTH:
                 ByteBufInputStream bufStream = new ByteBufInputStream(buffer);
                 BookkeeperProtocol.AuthMessage.Builder builder = BookkeeperProtocol.AuthMessage.newBuilder();
@@ -354,6 +475,35 @@ public class BookieProtoEncoding {
 
     }
 
+    /**
+     * Read entries, each one preceded by its length. The entries are retained slices of the packet.
+     *
+     * @param count the number of entries in the packet, or -1 to read the entries until the end of the packet
+     */
+    private static List<ByteBuf> readEntries(ByteBuf packet, int count) {
+        List<ByteBuf> entries = new ArrayList<>(count >= 0 ? count : 16);
+        try {
+            while (entries.size() != count && packet.isReadable()) {
+                if (packet.readableBytes() < 4) {
+                    throw new CorruptedFrameException("Truncated entry length at entry " + entries.size());
+                }
+                int length = packet.readInt();
+                if (length < 0 || length > packet.readableBytes()) {
+                    throw new CorruptedFrameException("Invalid length " + length + " of entry " + entries.size()
+                            + " with " + packet.readableBytes() + " bytes left");
+                }
+                entries.add(packet.readRetainedSlice(length));
+            }
+            if (count >= 0 && entries.size() < count) {
+                throw new CorruptedFrameException("Missing entries: " + entries.size() + " of " + count);
+            }
+            return entries;
+        } catch (RuntimeException e) {
+            entries.forEach(ByteBuf::release);
+            throw e;
+        }
+    }
+
     private static ByteBuf serializeProtobuf(MessageLite msg, ByteBufAllocator allocator) {
         int size = msg.getSerializedSize();
         // Protobuf serialization is the last step of the netty pipeline. We used to allocate
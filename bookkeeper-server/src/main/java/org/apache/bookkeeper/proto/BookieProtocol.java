@@ -22,10 +22,13 @@ package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.ReferenceCountUtil;
 
+import java.util.List;
+
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AuthMessage;
 import org.apache.bookkeeper.util.ByteBufList;
 
@@ -134,6 +137,24 @@ public interface BookieProtocol {
     byte WRITE_LAC = 5;
     byte GET_BOOKIE_INFO = 6;
 
+    /**
+     * The Range read entry request payload will be the ledger number and the first entry number to read,
+     * followed by the max number of entries (4-byte integer) and the max total size of the entries (8-byte
+     * integer) to return. The response payload will be a 4-byte integer representing an error code, the
+     * ledger number and the first entry number, followed by the consecutive entries read, each one prefixed
+     * by its 4-byte length.
+     */
+    byte RANGE_READ_ENTRY = 7;
+
+    /**
+     * The Range add entry request payload will be the master key, the ledger number, the first entry number
+     * and the number of entries (4-byte integer), followed by the consecutive entries to add, each one exactly
+     * as it should be logged and prefixed by its 4-byte length. The response payload will be a 4-byte integer
+     * that has the error code followed by the ledger number, the first entry number and the number of entries
+     * of the request.
+     */
+    byte RANGE_ADD_ENTRY = 8;
+
     /**
      * The error code that indicates success.
      */
@@ -358,6 +379,77 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A Request that adds a range of consecutive entries of a ledger.
+     */
+    class RangeAddRequest extends Request {
+        final List<ByteBufList> data;
+
+        RangeAddRequest(byte protocolVersion, long ledgerId, long startEntryId, short flags, byte[] masterKey,
+                        List<ByteBufList> data) {
+            init(protocolVersion, RANGE_ADD_ENTRY, ledgerId, startEntryId, flags, masterKey);
+            this.data = data;
+            data.forEach(ByteBufList::retain);
+        }
+
+        int getCount() {
+            return data.size();
+        }
+
+        ByteBufList getData(int index) {
+            // We need to have different ByteBufList instances for each bookie write
+            return ByteBufList.clone(data.get(index));
+        }
+
+        boolean isRecoveryAdd() {
+            return (flags & FLAG_RECOVERY_ADD) == FLAG_RECOVERY_ADD;
+        }
+
+        @Override
+        public void recycle() {
+            data.forEach(ReferenceCountUtil::safeRelease);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Op(%d)[Ledger:%d,Entry:%d,Count:%d]", opCode, ledgerId, entryId, data.size());
+        }
+    }
+
+    /**
+     * This is similar to range add request, but it used when processing the request on the bookie side.
+     */
+    class ParsedRangeAddRequest extends Request {
+        final List<ByteBuf> data;
+
+        ParsedRangeAddRequest(byte protocolVersion, long ledgerId, long startEntryId, short flags, byte[] masterKey,
+                              List<ByteBuf> data) {
+            init(protocolVersion, RANGE_ADD_ENTRY, ledgerId, startEntryId, flags, masterKey);
+            this.data = data;
+        }
+
+        int getCount() {
+            return data.size();
+        }
+
+        List<ByteBuf> getData() {
+            return data;
+        }
+
+        boolean isRecoveryAdd() {
+            return (flags & FLAG_RECOVERY_ADD) == FLAG_RECOVERY_ADD;
+        }
+
+        void release() {
+            data.forEach(ByteBuf::release);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Op(%d)[Ledger:%d,Entry:%d,Count:%d]", opCode, ledgerId, entryId, data.size());
+        }
+    }
+
     /**
      * A Request that reads data.
      */
@@ -372,6 +464,35 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A Request that reads a range of consecutive entries.
+     */
+    class RangeReadRequest extends Request {
+        final int maxCount;
+        final long maxSize;
+
+        RangeReadRequest(byte protocolVersion, long ledgerId, long startEntryId, int maxCount, long maxSize,
+                         short flags) {
+            init(protocolVersion, RANGE_READ_ENTRY, ledgerId, startEntryId, flags, null);
+            this.maxCount = maxCount;
+            this.maxSize = maxSize;
+        }
+
+        int getMaxCount() {
+            return maxCount;
+        }
+
+        long getMaxSize() {
+            return maxSize;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Op(%d)[Ledger:%d,Entry:%d,MaxCount:%d,MaxSize:%d]",
+                    opCode, ledgerId, entryId, maxCount, maxSize);
+        }
+    }
+
     /**
      * An authentication request.
      */
@@ -477,6 +598,59 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A read response whose entry is sent with zero-copy from a region of an entry log file.
+     */
+    class ReadRegionResponse extends Response {
+        final FileRegion region;
+
+        ReadRegionResponse(byte protocolVersion, long ledgerId, long entryId, FileRegion region) {
+            init(protocolVersion, READENTRY, EOK, ledgerId, entryId);
+            this.region = region;
+        }
+
+        FileRegion getRegion() {
+            return region;
+        }
+
+        @Override
+        public void retain() {
+            region.retain();
+        }
+
+        @Override
+        public void release() {
+            region.release();
+        }
+    }
+
+    /**
+     * A response with a range of consecutive entries, starting at the entry id of the response.
+     */
+    class RangeReadResponse extends Response {
+        final List<ByteBuf> data;
+
+        RangeReadResponse(byte protocolVersion, int errorCode, long ledgerId, long startEntryId,
+                          List<ByteBuf> data) {
+            init(protocolVersion, RANGE_READ_ENTRY, errorCode, ledgerId, startEntryId);
+            this.data = data;
+        }
+
+        List<ByteBuf> getData() {
+            return data;
+        }
+
+        @Override
+        public void retain() {
+            data.forEach(ByteBuf::retain);
+        }
+
+        @Override
+        public void release() {
+            data.forEach(ByteBuf::release);
+        }
+    }
+
     /**
      * A response that adds data.
      */
@@ -505,6 +679,22 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A response that adds a range of consecutive entries, starting at the entry id of the response.
+     */
+    class RangeAddResponse extends Response {
+        final int count;
+
+        RangeAddResponse(byte protocolVersion, int errorCode, long ledgerId, long startEntryId, int count) {
+            init(protocolVersion, RANGE_ADD_ENTRY, errorCode, ledgerId, startEntryId);
+            this.count = count;
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+
     /**
      * An error response.
      */
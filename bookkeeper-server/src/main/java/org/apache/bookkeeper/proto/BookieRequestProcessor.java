@@ -130,6 +130,16 @@ public class BookieRequestProcessor implements RequestProcessor {
 
     private final boolean throttleReadResponses;
 
+    /**
+     * Min size of the entries sent with zero-copy, or -1 if the zero-copy reads are disabled.
+     */
+    private final int zeroCopyReadMinEntrySize;
+
+    /**
+     * Max size of a response frame, used to bound the size of the range read responses.
+     */
+    private final int maxFrameSize;
+
     public BookieRequestProcessor(ServerConfiguration serverCfg, Bookie bookie, StatsLogger statsLogger,
             SecurityHandlerFactory shFactory, ByteBufAllocator allocator) throws SecurityException {
         this.serverCfg = serverCfg;
@@ -138,6 +148,9 @@ public class BookieRequestProcessor implements RequestProcessor {
         this.preserveMdcForTaskExecution = serverCfg.getPreserveMdcForTaskExecution();
         this.bookie = bookie;
         this.throttleReadResponses = serverCfg.isReadWorkerThreadsThrottlingEnabled();
+        this.zeroCopyReadMinEntrySize = serverCfg.isZeroCopyReadEnabled()
+                ? Math.max(0, serverCfg.getZeroCopyReadMinEntrySize()) : -1;
+        this.maxFrameSize = serverCfg.getNettyMaxFrameSizeBytes();
         this.readThreadPool = createExecutor(
                 this.serverCfg.getNumReadWorkerThreads(),
                 "BookieReadThreadPool",
@@ -315,9 +328,15 @@ public class BookieRequestProcessor implements RequestProcessor {
                     case ADD_ENTRY:
                         processAddRequestV3(r, c);
                         break;
+                    case RANGE_ADD_ENTRY:
+                        processRangeAddRequestV3(r, c);
+                        break;
                     case READ_ENTRY:
                         processReadRequestV3(r, c);
                         break;
+                    case RANGE_READ_ENTRY:
+                        processRangeReadRequestV3(r, c);
+                        break;
                     case FORCE_LEDGER:
                         processForceLedgerRequestV3(r, c);
                         break;
@@ -371,10 +390,18 @@ public class BookieRequestProcessor implements RequestProcessor {
                     checkArgument(r instanceof BookieProtocol.ParsedAddRequest);
                     processAddRequest((BookieProtocol.ParsedAddRequest) r, c);
                     break;
+                case BookieProtocol.RANGE_ADD_ENTRY:
+                    checkArgument(r instanceof BookieProtocol.ParsedRangeAddRequest);
+                    processRangeAddRequest((BookieProtocol.ParsedRangeAddRequest) r, c);
+                    break;
                 case BookieProtocol.READENTRY:
                     checkArgument(r instanceof BookieProtocol.ReadRequest);
                     processReadRequest((BookieProtocol.ReadRequest) r, c);
                     break;
+                case BookieProtocol.RANGE_READ_ENTRY:
+                    checkArgument(r instanceof BookieProtocol.RangeReadRequest);
+                    processRangeReadRequest((BookieProtocol.RangeReadRequest) r, c);
+                    break;
                 case BookieProtocol.AUTH:
                     LOG.info("Ignoring auth operation from client {}", c.remoteAddress());
                     BookkeeperProtocol.AuthMessage message = BookkeeperProtocol.AuthMessage
@@ -459,6 +486,43 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processRangeAddRequestV3(final BookkeeperProtocol.Request r, final Channel c) {
+        RangeWriteEntryProcessorV3 write = new RangeWriteEntryProcessorV3(r, c, this);
+
+        final OrderedExecutor threadPool;
+        if (RequestUtils.isHighPriority(r)) {
+            threadPool = highPriorityThreadPool;
+        } else {
+            threadPool = writeThreadPool;
+        }
+
+        if (null == threadPool) {
+            write.run();
+        } else {
+            try {
+                threadPool.executeOrdered(r.getRangeAddRequest().getLedgerId(), write);
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to process request to add entries from {}:{}. Too many pending requests",
+                              r.getRangeAddRequest().getLedgerId(), r.getRangeAddRequest().getStartEntryId());
+                }
+                getRequestStats().getAddEntryRejectedCounter().inc();
+                BookkeeperProtocol.RangeAddResponse.Builder rangeAddResponse =
+                        BookkeeperProtocol.RangeAddResponse.newBuilder()
+                                .setLedgerId(r.getRangeAddRequest().getLedgerId())
+                                .setStartEntryId(r.getRangeAddRequest().getStartEntryId())
+                                .setCount(r.getRangeAddRequest().getBodyCount())
+                                .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS);
+                BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder()
+                        .setHeader(write.getHeader())
+                        .setStatus(rangeAddResponse.getStatus())
+                        .setRangeAddResponse(rangeAddResponse);
+                BookkeeperProtocol.Response resp = response.build();
+                write.sendResponse(rangeAddResponse.getStatus(), resp, requestStats.getRangeAddRequestStats());
+            }
+        }
+    }
+
     private void processForceLedgerRequestV3(final BookkeeperProtocol.Request r, final Channel c) {
         ForceLedgerProcessorV3 forceLedger = new ForceLedgerProcessorV3(r, c, this);
 
@@ -547,6 +611,30 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processRangeReadRequestV3(final BookkeeperProtocol.Request r, final Channel c) {
+        RangeReadEntryProcessorV3 read = new RangeReadEntryProcessorV3(r, c, this, maxFrameSize);
+
+        final OrderedExecutor threadPool = RequestUtils.isHighPriority(r) ? highPriorityThreadPool : readThreadPool;
+        if (null == threadPool) {
+            read.run();
+        } else {
+            try {
+                threadPool.executeOrdered(r.getRangeReadRequest().getLedgerId(), read);
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to process request to read entries from {}:{}. Too many pending requests",
+                              r.getRangeReadRequest().getLedgerId(), r.getRangeReadRequest().getStartEntryId());
+                }
+                getRequestStats().getReadEntryRejectedCounter().inc();
+                read.sendResponse(BookkeeperProtocol.RangeReadResponse.newBuilder()
+                    .setLedgerId(r.getRangeReadRequest().getLedgerId())
+                    .setStartEntryId(r.getRangeReadRequest().getStartEntryId())
+                    .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS)
+                    .build());
+            }
+        }
+    }
+
     private void processStartTLSRequestV3(final BookkeeperProtocol.Request r, final Channel c) {
         BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder();
         BookkeeperProtocol.BKPacketHeader.Builder header = BookkeeperProtocol.BKPacketHeader.newBuilder();
@@ -650,10 +738,35 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processRangeAddRequest(final BookieProtocol.ParsedRangeAddRequest r, final Channel c) {
+        RangeWriteEntryProcessor write = RangeWriteEntryProcessor.create(r, c, this);
+
+        final OrderedExecutor threadPool = r.isHighPriority() ? highPriorityThreadPool : writeThreadPool;
+        if (null == threadPool) {
+            write.run();
+        } else {
+            try {
+                threadPool.executeOrdered(r.getLedgerId(), write);
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to process request to add entries from {}:{}. Too many pending requests",
+                            r.ledgerId, r.entryId);
+                }
+                getRequestStats().getAddEntryRejectedCounter().inc();
+                r.release();
+                write.sendResponse(
+                    BookieProtocol.ETOOMANYREQUESTS,
+                    ResponseBuilder.buildErrorResponse(BookieProtocol.ETOOMANYREQUESTS, r),
+                    requestStats.getRangeAddRequestStats());
+            }
+        }
+    }
+
     private void processReadRequest(final BookieProtocol.ReadRequest r, final Channel c) {
         ExecutorService fenceThreadPool =
                 null == highPriorityThreadPool ? null : highPriorityThreadPool.chooseThread(c);
-        ReadEntryProcessor read = ReadEntryProcessor.create(r, c, this, fenceThreadPool, throttleReadResponses);
+        ReadEntryProcessor read = ReadEntryProcessor.create(r, c, this, fenceThreadPool, throttleReadResponses,
+                zeroCopyReadMinEntrySize);
 
         // If it's a high priority read (fencing or as part of recovery process), we want to make sure it
         // gets executed as fast as possible, so bypass the normal readThreadPool
@@ -684,6 +797,30 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processRangeReadRequest(final BookieProtocol.RangeReadRequest r, final Channel c) {
+        RangeReadEntryProcessor read = RangeReadEntryProcessor.create(r, c, this, throttleReadResponses,
+                maxFrameSize);
+
+        final OrderedExecutor threadPool = r.isHighPriority() ? highPriorityThreadPool : readThreadPool;
+        if (null == threadPool) {
+            read.run();
+        } else {
+            try {
+                threadPool.executeOrdered(r.getLedgerId(), read);
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to process request to read entries from {}:{}. Too many pending requests",
+                            r.ledgerId, r.entryId);
+                }
+                getRequestStats().getReadEntryRejectedCounter().inc();
+                read.sendResponse(
+                    BookieProtocol.ETOOMANYREQUESTS,
+                    ResponseBuilder.buildErrorResponse(BookieProtocol.ETOOMANYREQUESTS, r),
+                    requestStats.getRangeReadRequestStats());
+            }
+        }
+    }
+
     public long getWaitTimeoutOnBackpressureMillis() {
         return waitTimeoutOnBackpressureMillis;
     }
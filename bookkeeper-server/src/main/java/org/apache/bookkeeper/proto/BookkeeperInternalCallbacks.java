@@ -23,6 +23,7 @@ package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -80,6 +81,13 @@ public class BookkeeperInternalCallbacks {
         void writeComplete(int rc, long ledgerId, long entryId, BookieId addr, Object ctx);
     }
 
+    /**
+     * A writer callback interface for the range add operations, notified once for the whole batch of entries.
+     */
+    public interface RangeWriteCallback {
+        void rangeWriteComplete(int rc, long ledgerId, long startEntryId, int count, BookieId addr, Object ctx);
+    }
+
     /**
      * A last-add-confirmed (LAC) reader callback interface.
      */
@@ -223,6 +231,16 @@ public class BookkeeperInternalCallbacks {
         void readEntryComplete(int rc, long ledgerId, long entryId, ByteBuf buffer, Object ctx);
     }
 
+    /**
+     * Declaration of a callback implementation for calls from BookieClient objects.
+     * Such calls are for replies of range read operations (operations to read
+     * consecutive entries from a ledger with a single request).
+     *
+     */
+    public interface RangeReadEntryCallback {
+        void rangeReadEntryComplete(int rc, long ledgerId, long startEntryId, List<ByteBuf> entries, Object ctx);
+    }
+
     /**
      * Listener on entries responded.
      */
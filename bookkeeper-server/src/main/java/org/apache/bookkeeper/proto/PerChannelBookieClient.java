@@ -99,6 +99,8 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallba
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetListOfEntriesOfLedgerCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeReadEntryCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeWriteCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallbackCtx;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
@@ -116,6 +118,10 @@ import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerRe
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.RangeAddRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.RangeAddResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.RangeReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.RangeReadResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadLacRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadLacResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadRequest;
@@ -199,6 +205,26 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         help = "timeout stats of read entries requests"
     )
     private final OpStatsLogger readTimeoutOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.CHANNEL_RANGE_READ_OP,
+        help = "channel stats of range read entries requests"
+    )
+    private final OpStatsLogger rangeReadEntryOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.CHANNEL_TIMEOUT_RANGE_READ,
+        help = "timeout stats of range read entries requests"
+    )
+    private final OpStatsLogger rangeReadTimeoutOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.CHANNEL_RANGE_ADD_OP,
+        help = "channel stats of range add entries requests"
+    )
+    private final OpStatsLogger rangeAddEntryOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.CHANNEL_TIMEOUT_RANGE_ADD,
+        help = "timeout stats of range add entries requests"
+    )
+    private final OpStatsLogger rangeAddTimeoutOpLogger;
     @StatsDoc(
         name = BookKeeperClientStats.CHANNEL_ADD_OP,
         help = "channel stats of add entries requests"
@@ -417,6 +443,10 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         getListOfEntriesOfLedgerCompletionOpLogger = statsLogger
                 .getOpStatsLogger(BookKeeperClientStats.GET_LIST_OF_ENTRIES_OF_LEDGER_OP);
         readTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_READ);
+        rangeReadEntryOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_RANGE_READ_OP);
+        rangeReadTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_RANGE_READ);
+        rangeAddEntryOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_RANGE_ADD_OP);
+        rangeAddTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_RANGE_ADD);
         addTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_ADD);
         writeLacTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_WRITE_LAC);
         forceLedgerTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_FORCE);
@@ -836,6 +866,107 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
+    /**
+     * This method should be called only after connection has been checked for
+     * {@link #connectIfNeededAndDoOp(GenericCallback)}.
+     *
+     * @param ledgerId
+     *          Ledger Id
+     * @param masterKey
+     *          Master Key
+     * @param startEntryId
+     *          Id of the first entry of the batch
+     * @param toSend
+     *          Buffers of the consecutive entries to send
+     * @param cb
+     *          Range write callback
+     * @param ctx
+     *          Range write callback context
+     * @param allowFastFail
+     *          allowFastFail flag
+     * @param writeFlags
+     *          WriteFlags
+     */
+    void addEntries(final long ledgerId, byte[] masterKey, final long startEntryId, List<ByteBufList> toSend,
+                    RangeWriteCallback cb, Object ctx, final int options, boolean allowFastFail,
+                    final EnumSet<WriteFlag> writeFlags) {
+        Object request = null;
+        CompletionKey completionKey = null;
+        if (useV2WireProtocol) {
+            if (writeFlags.contains(WriteFlag.DEFERRED_SYNC)) {
+                LOG.error("invalid writeflags {} for v2 protocol", writeFlags);
+                executor.executeOrdered(ledgerId, () -> {
+                    cb.rangeWriteComplete(BKException.Code.IllegalOpException, ledgerId, startEntryId,
+                            toSend.size(), bookieId, ctx);
+                });
+                return;
+            }
+            completionKey = acquireV2Key(ledgerId, startEntryId, OperationType.RANGE_ADD_ENTRY);
+            request = new BookieProtocol.RangeAddRequest(
+                    BookieProtocol.CURRENT_PROTOCOL_VERSION, ledgerId, startEntryId,
+                    (short) options, masterKey, toSend);
+        } else {
+            final long txnId = getTxnId();
+            completionKey = new V3CompletionKey(txnId, OperationType.RANGE_ADD_ENTRY);
+
+            // Build the request and calculate the total size to be included in the packet.
+            BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
+                    .setVersion(ProtocolVersion.VERSION_THREE)
+                    .setOperation(OperationType.RANGE_ADD_ENTRY)
+                    .setTxnId(txnId);
+            if (((short) options & BookieProtocol.FLAG_HIGH_PRIORITY) == BookieProtocol.FLAG_HIGH_PRIORITY) {
+                headerBuilder.setPriority(DEFAULT_HIGH_PRIORITY_VALUE);
+            }
+
+            RangeAddRequest.Builder rangeAddBuilder = RangeAddRequest.newBuilder()
+                    .setLedgerId(ledgerId)
+                    .setStartEntryId(startEntryId)
+                    .setMasterKey(UnsafeByteOperations.unsafeWrap(masterKey));
+            for (ByteBufList entry : toSend) {
+                ByteString body = null;
+                if (entry.hasArray()) {
+                    body = UnsafeByteOperations.unsafeWrap(entry.array(), entry.arrayOffset(),
+                            entry.readableBytes());
+                } else {
+                    for (int i = 0; i < entry.size(); i++) {
+                        ByteString piece = UnsafeByteOperations.unsafeWrap(entry.getBuffer(i).nioBuffer());
+                        // use ByteString.concat to avoid byte[] allocation when entry has multiple ByteBufs
+                        body = (body == null) ? piece : body.concat(piece);
+                    }
+                }
+                rangeAddBuilder.addBody(body);
+            }
+
+            if (((short) options & BookieProtocol.FLAG_RECOVERY_ADD) == BookieProtocol.FLAG_RECOVERY_ADD) {
+                rangeAddBuilder.setFlag(AddRequest.Flag.RECOVERY_ADD);
+            }
+
+            if (!writeFlags.isEmpty()) {
+                rangeAddBuilder.setWriteFlags(WriteFlag.getWriteFlagsValue(writeFlags));
+            }
+
+            request = withRequestContext(Request.newBuilder())
+                    .setHeader(headerBuilder)
+                    .setRangeAddRequest(rangeAddBuilder)
+                    .build();
+        }
+
+        putCompletionKeyValue(completionKey,
+                              new RangeAddCompletion(completionKey, cb, ctx, ledgerId, startEntryId, toSend.size()));
+        final Channel c = channel;
+        if (c == null) {
+            // usually checked in writeAndFlush, but we have extra check
+            // because we need to release toSend.
+            errorOut(completionKey);
+            if (request instanceof BookieProtocol.RangeAddRequest) {
+                ((BookieProtocol.RangeAddRequest) request).recycle();
+            }
+        } else {
+            // addEntries times out on backpressure
+            writeAndFlush(c, completionKey, request, allowFastFail);
+        }
+    }
+
     public void readLac(final long ledgerId, ReadLacCallback cb, Object ctx) {
         Object request = null;
         CompletionKey completionKey = null;
@@ -991,6 +1122,55 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         writeAndFlush(channel, completionKey, request, allowFastFail);
     }
 
+    /**
+     * Range Reads.
+     */
+    public void rangeReadEntries(final long ledgerId,
+                                 final long startEntryId,
+                                 final int maxCount,
+                                 final long maxSize,
+                                 RangeReadEntryCallback cb,
+                                 Object ctx,
+                                 int flags) {
+        // The response must fit in a single frame
+        int boundedMaxCount = RequestUtils.getRangeReadMaxCount(maxCount, maxFrameSize);
+        long boundedMaxSize = RequestUtils.getRangeReadMaxSize(maxSize, boundedMaxCount, maxFrameSize);
+
+        Object request = null;
+        CompletionKey completionKey = null;
+        if (useV2WireProtocol) {
+            request = new BookieProtocol.RangeReadRequest(BookieProtocol.CURRENT_PROTOCOL_VERSION,
+                    ledgerId, startEntryId, boundedMaxCount, boundedMaxSize, (short) flags);
+            completionKey = acquireV2Key(ledgerId, startEntryId, OperationType.RANGE_READ_ENTRY);
+        } else {
+            final long txnId = getTxnId();
+            completionKey = new V3CompletionKey(txnId, OperationType.RANGE_READ_ENTRY);
+
+            BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
+                    .setVersion(ProtocolVersion.VERSION_THREE)
+                    .setOperation(OperationType.RANGE_READ_ENTRY)
+                    .setTxnId(txnId);
+            if (((short) flags & BookieProtocol.FLAG_HIGH_PRIORITY) == BookieProtocol.FLAG_HIGH_PRIORITY) {
+                headerBuilder.setPriority(DEFAULT_HIGH_PRIORITY_VALUE);
+            }
+
+            RangeReadRequest.Builder rangeReadBuilder = RangeReadRequest.newBuilder()
+                    .setLedgerId(ledgerId)
+                    .setStartEntryId(startEntryId)
+                    .setMaxCount(boundedMaxCount)
+                    .setMaxSize(boundedMaxSize);
+
+            request = withRequestContext(Request.newBuilder())
+                    .setHeader(headerBuilder)
+                    .setRangeReadRequest(rangeReadBuilder)
+                    .build();
+        }
+
+        putCompletionKeyValue(completionKey,
+                              new RangeReadCompletion(completionKey, cb, ctx, ledgerId, startEntryId));
+        writeAndFlush(channel, completionKey, request);
+    }
+
     public void getBookieInfo(final long requested, GetBookieInfoCallback cb, Object ctx) {
         final long txnId = getTxnId();
         final CompletionKey completionKey = new V3CompletionKey(txnId, OperationType.GET_BOOKIE_INFO);
@@ -1412,6 +1592,10 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 return  OperationType.ADD_ENTRY;
             case BookieProtocol.READENTRY:
                 return OperationType.READ_ENTRY;
+            case BookieProtocol.RANGE_READ_ENTRY:
+                return OperationType.RANGE_READ_ENTRY;
+            case BookieProtocol.RANGE_ADD_ENTRY:
+                return OperationType.RANGE_ADD_ENTRY;
             case BookieProtocol.AUTH:
                 return OperationType.AUTH;
             case BookieProtocol.READ_LAC:
@@ -1944,6 +2128,91 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
+    // visible for testing
+    class RangeReadCompletion extends CompletionValue {
+        final RangeReadEntryCallback cb;
+
+        public RangeReadCompletion(final CompletionKey key,
+                                   final RangeReadEntryCallback originalCallback,
+                                   final Object originalCtx,
+                                   long ledgerId, final long startEntryId) {
+            super("RangeRead", originalCtx, ledgerId, startEntryId,
+                  rangeReadEntryOpLogger, rangeReadTimeoutOpLogger);
+
+            this.cb = new RangeReadEntryCallback() {
+                    @Override
+                    public void rangeReadEntryComplete(int rc, long ledgerId,
+                                                       long startEntryId, List<ByteBuf> entries,
+                                                       Object ctx) {
+                        logOpResult(rc);
+                        originalCallback.rangeReadEntryComplete(rc,
+                                                                ledgerId, startEntryId,
+                                                                entries, originalCtx);
+                        key.release();
+                    }
+                };
+        }
+
+        @Override
+        public void errorOut() {
+            errorOut(BKException.Code.BookieHandleNotAvailableException);
+        }
+
+        @Override
+        public void errorOut(final int rc) {
+            errorOutAndRunCallback(
+                    () -> cb.rangeReadEntryComplete(rc, ledgerId,
+                                                    entryId, null, ctx));
+        }
+
+        @Override
+        public void setOutstanding() {
+            readEntryOutstanding.inc();
+        }
+
+        @Override
+        public void handleV2Response(long ledgerId, long entryId,
+                                     StatusCode status,
+                                     BookieProtocol.Response response) {
+            readEntryOutstanding.dec();
+            if (!(response instanceof BookieProtocol.RangeReadResponse)) {
+                LOG.warn("Unexpected response {} to the range read of ledger {} from entry {} on {}",
+                        response, ledgerId, entryId, bookieId);
+                cb.rangeReadEntryComplete(BKException.Code.ProtocolVersionException, ledgerId, entryId, null, ctx);
+                return;
+            }
+            BookieProtocol.RangeReadResponse rangeReadResponse = (BookieProtocol.RangeReadResponse) response;
+            handleRangeReadResponse(ledgerId, entryId, status, rangeReadResponse.getData());
+        }
+
+        @Override
+        public void handleV3Response(BookkeeperProtocol.Response response) {
+            readEntryOutstanding.dec();
+            RangeReadResponse rangeReadResponse = response.getRangeReadResponse();
+            StatusCode status = response.getStatus() == StatusCode.EOK
+                ? rangeReadResponse.getStatus() : response.getStatus();
+            List<ByteBuf> entries = new ArrayList<>(rangeReadResponse.getBodyCount());
+            for (int i = 0; i < rangeReadResponse.getBodyCount(); i++) {
+                entries.add(Unpooled.wrappedBuffer(rangeReadResponse.getBody(i).asReadOnlyByteBuffer()));
+            }
+            handleRangeReadResponse(ledgerId, entryId, status, entries);
+            // meaningless using unpooled, but client may expect to hold the last reference
+            entries.forEach(ByteBuf::release);
+        }
+
+        private void handleRangeReadResponse(long ledgerId,
+                                             long startEntryId,
+                                             StatusCode status,
+                                             List<ByteBuf> entries) {
+            if (LOG.isDebugEnabled()) {
+                logResponse(status, "ledger", ledgerId, "startEntry", startEntryId, "entries", entries.size());
+            }
+
+            int rc = convertStatus(status, BKException.Code.ReadException);
+            cb.rangeReadEntryComplete(rc, ledgerId, startEntryId, entries, ctx);
+        }
+    }
+
     class StartTLSCompletion extends CompletionValue {
         final StartTLSCallback cb;
 
@@ -2217,6 +2486,88 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
+    // visible for testing
+    class RangeAddCompletion extends CompletionValue {
+        final RangeWriteCallback cb;
+        final int count;
+
+        public RangeAddCompletion(final CompletionKey key,
+                                  final RangeWriteCallback originalCallback,
+                                  final Object originalCtx,
+                                  final long ledgerId, final long startEntryId,
+                                  final int count) {
+            super("RangeAdd", originalCtx, ledgerId, startEntryId,
+                  rangeAddEntryOpLogger, rangeAddTimeoutOpLogger);
+            this.count = count;
+
+            this.cb = new RangeWriteCallback() {
+                    @Override
+                    public void rangeWriteComplete(int rc, long ledgerId, long startEntryId, int count,
+                                                   BookieId addr, Object ctx) {
+                        logOpResult(rc);
+                        originalCallback.rangeWriteComplete(rc, ledgerId, startEntryId, count,
+                                                            addr, originalCtx);
+                        key.release();
+                    }
+                };
+        }
+
+        @Override
+        boolean maybeTimeout() {
+            if (MathUtils.elapsedNanos(startTime) >= addEntryTimeoutNanos) {
+                timeout();
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public void errorOut() {
+            errorOut(BKException.Code.BookieHandleNotAvailableException);
+        }
+
+        @Override
+        public void errorOut(final int rc) {
+            errorOutAndRunCallback(
+                    () -> cb.rangeWriteComplete(rc, ledgerId, entryId, count, bookieId, ctx));
+        }
+
+        @Override
+        public void setOutstanding() {
+            addEntryOutstanding.inc();
+        }
+
+        @Override
+        public void handleV2Response(
+                long ledgerId, long entryId, StatusCode status,
+                BookieProtocol.Response response) {
+            addEntryOutstanding.dec();
+            handleResponse(ledgerId, entryId, status);
+        }
+
+        @Override
+        public void handleV3Response(
+                BookkeeperProtocol.Response response) {
+            addEntryOutstanding.dec();
+            RangeAddResponse rangeAddResponse = response.getRangeAddResponse();
+            StatusCode status = response.getStatus() == StatusCode.EOK
+                ? rangeAddResponse.getStatus() : response.getStatus();
+            // old bookies don't know about range adds, so the response may not be set
+            handleResponse(ledgerId, entryId, status);
+        }
+
+        private void handleResponse(long ledgerId, long startEntryId,
+                                    StatusCode status) {
+            if (LOG.isDebugEnabled()) {
+                logResponse(status, "ledger", ledgerId, "startEntry", startEntryId, "count", count);
+            }
+
+            int rc = convertStatus(status, BKException.Code.WriteException);
+            cb.rangeWriteComplete(rc, ledgerId, startEntryId, count, bookieId, ctx);
+        }
+    }
+
     // visable for testing
     CompletionKey newCompletionKey(long txnId, OperationType operationType) {
         return new V3CompletionKey(txnId, operationType);
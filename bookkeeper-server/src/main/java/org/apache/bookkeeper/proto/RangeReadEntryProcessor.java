@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.util.Recycler;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.proto.BookieProtocol.RangeReadRequest;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processor of the v2 range read requests: sends back up to N consecutive entries, or up to M bytes of entries,
+ * in a single response.
+ */
+class RangeReadEntryProcessor extends PacketProcessorBase<RangeReadRequest> {
+    private static final Logger LOG = LoggerFactory.getLogger(RangeReadEntryProcessor.class);
+
+    private boolean throttleReadResponses;
+    private int maxFrameSize;
+
+    public static RangeReadEntryProcessor create(RangeReadRequest request,
+                                                 Channel channel,
+                                                 BookieRequestProcessor requestProcessor,
+                                                 boolean throttleReadResponses,
+                                                 int maxFrameSize) {
+        RangeReadEntryProcessor rep = RECYCLER.get();
+        rep.init(request, channel, requestProcessor);
+        rep.throttleReadResponses = throttleReadResponses;
+        rep.maxFrameSize = maxFrameSize;
+        return rep;
+    }
+
+    @Override
+    protected void processPacket() {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Received new range read request: {}", request);
+        }
+        int errorCode = BookieProtocol.EOK;
+        long startTimeNanos = MathUtils.nowInNano();
+        List<ByteBuf> data = null;
+        try {
+            int maxCount = RequestUtils.getRangeReadMaxCount(request.getMaxCount(), maxFrameSize);
+            long maxSize = RequestUtils.getRangeReadMaxSize(request.getMaxSize(), maxCount, maxFrameSize);
+            data = requestProcessor.getBookie().readEntries(request.getLedgerId(), request.getEntryId(),
+                    maxCount, maxSize);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("##### Read {} entries #####", data.size());
+            }
+        } catch (Bookie.NoLedgerException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Error reading {}", request, e);
+            }
+            errorCode = BookieProtocol.ENOLEDGER;
+        } catch (Bookie.NoEntryException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Error reading {}", request, e);
+            }
+            errorCode = BookieProtocol.ENOENTRY;
+        } catch (IOException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Error reading {}", request, e);
+            }
+            errorCode = BookieProtocol.EIO;
+        } catch (BookieException.DataUnknownException e) {
+            LOG.error("Ledger {} is in an unknown state", request.getLedgerId(), e);
+            errorCode = BookieProtocol.EUNKNOWNLEDGERSTATE;
+        } catch (BookieException e) {
+            LOG.error("Unauthorized access to ledger {}", request.getLedgerId(), e);
+            errorCode = BookieProtocol.EUA;
+        } catch (Throwable t) {
+            LOG.error("Unexpected exception reading at {}:{} : {}", request.getLedgerId(), request.getEntryId(),
+                      t.getMessage(), t);
+            errorCode = BookieProtocol.EBADREQ;
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Range read rc = {} for {}", errorCode, request);
+        }
+        sendResponse(data, errorCode, startTimeNanos);
+    }
+
+    private void sendResponse(List<ByteBuf> data, int errorCode, long startTimeNanos) {
+        final RequestStats stats = requestProcessor.getRequestStats();
+        final OpStatsLogger logger = stats.getRangeReadEntryStats();
+        BookieProtocol.Response response;
+        if (errorCode == BookieProtocol.EOK) {
+            logger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            stats.getRangeReadEntryCountStats().registerSuccessfulValue(data.size());
+            response = ResponseBuilder.buildRangeReadResponse(data, request);
+        } else {
+            if (data != null) {
+                data.forEach(ByteBuf::release);
+            }
+            logger.registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            response = ResponseBuilder.buildErrorResponse(errorCode, request);
+        }
+
+        if (throttleReadResponses) {
+            sendResponseAndWait(errorCode, response, stats.getRangeReadRequestStats());
+        } else {
+            sendResponse(errorCode, response, stats.getRangeReadRequestStats());
+        }
+        recycle();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RangeReadEntry(%d, %d, %d, %d)", request.getLedgerId(), request.getEntryId(),
+                request.getMaxCount(), request.getMaxSize());
+    }
+
+    private void recycle() {
+        super.reset();
+        this.recyclerHandle.recycle(this);
+    }
+
+    private final Recycler.Handle<RangeReadEntryProcessor> recyclerHandle;
+
+    private RangeReadEntryProcessor(Recycler.Handle<RangeReadEntryProcessor> recyclerHandle) {
+        this.recyclerHandle = recyclerHandle;
+    }
+
+    private static final Recycler<RangeReadEntryProcessor> RECYCLER = new Recycler<RangeReadEntryProcessor>() {
+        @Override
+        protected RangeReadEntryProcessor newObject(Recycler.Handle<RangeReadEntryProcessor> handle) {
+            return new RangeReadEntryProcessor(handle);
+        }
+    };
+}
@@ -0,0 +1,155 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.RangeReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.RangeReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processor of the v3 range read requests: sends back up to N consecutive entries, or up to M bytes of entries,
+ * in a single response.
+ */
+class RangeReadEntryProcessorV3 extends PacketProcessorBaseV3 {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RangeReadEntryProcessorV3.class);
+
+    private final RangeReadRequest rangeReadRequest;
+    private final long ledgerId;
+    private final long startEntryId;
+    private final int maxFrameSize;
+
+    public RangeReadEntryProcessorV3(Request request,
+                                     Channel channel,
+                                     BookieRequestProcessor requestProcessor,
+                                     int maxFrameSize) {
+        super(request, channel, requestProcessor);
+        requestProcessor.onReadRequestStart(channel);
+
+        this.rangeReadRequest = request.getRangeReadRequest();
+        this.ledgerId = rangeReadRequest.getLedgerId();
+        this.startEntryId = rangeReadRequest.getStartEntryId();
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    private RangeReadResponse getRangeReadResponse() {
+        final long startTimeNanos = MathUtils.nowInNano();
+
+        final RangeReadResponse.Builder rangeReadResponse = RangeReadResponse.newBuilder()
+            .setLedgerId(ledgerId)
+            .setStartEntryId(startEntryId);
+        StatusCode status;
+        try {
+            int maxCount = RequestUtils.getRangeReadMaxCount(rangeReadRequest.getMaxCount(), maxFrameSize);
+            long maxSize = RequestUtils.getRangeReadMaxSize(rangeReadRequest.getMaxSize(), maxCount, maxFrameSize);
+            List<ByteBuf> entries = requestProcessor.getBookie().readEntries(ledgerId, startEntryId,
+                    maxCount, maxSize);
+            try {
+                for (int i = 0; i < entries.size(); i++) {
+                    rangeReadResponse.addBody(ByteString.copyFrom(entries.get(i).nioBuffer()));
+                }
+            } finally {
+                entries.forEach(ByteBuf::release);
+            }
+            requestProcessor.getRequestStats().getRangeReadEntryCountStats().registerSuccessfulValue(entries.size());
+            status = StatusCode.EOK;
+        } catch (Bookie.NoLedgerException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("No ledger found while reading entries from: {} of ledger: {}", startEntryId, ledgerId);
+            }
+            status = StatusCode.ENOLEDGER;
+        } catch (Bookie.NoEntryException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("No entry found while reading entries from: {} of ledger: {}", startEntryId, ledgerId);
+            }
+            status = StatusCode.ENOENTRY;
+        } catch (IOException e) {
+            LOG.error("IOException while reading entries from: {} of ledger {} ", startEntryId, ledgerId, e);
+            status = StatusCode.EIO;
+        } catch (BookieException.DataUnknownException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Ledger has unknown state for entries from: {} of ledger {}", startEntryId, ledgerId);
+            }
+            status = StatusCode.EUNKNOWNLEDGERSTATE;
+        } catch (BookieException e) {
+            LOG.error("Unauthorized access to ledger:{} while reading entries from:{} in request from address: {}",
+                    ledgerId, startEntryId, channel.remoteAddress());
+            status = StatusCode.EUA;
+        }
+
+        long elapsedNanos = MathUtils.elapsedNanos(startTimeNanos);
+        if (status == StatusCode.EOK) {
+            requestProcessor.getRequestStats().getRangeReadEntryStats()
+                    .registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+        } else {
+            requestProcessor.getRequestStats().getRangeReadEntryStats()
+                    .registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+        return rangeReadResponse.setStatus(status).build();
+    }
+
+    @Override
+    public void safeRun() {
+        requestProcessor.getRequestStats().getReadEntrySchedulingDelayStats().registerSuccessfulEvent(
+            MathUtils.elapsedNanos(enqueueNanos), TimeUnit.NANOSECONDS);
+
+        if (!isVersionCompatible()) {
+            RangeReadResponse rangeReadResponse = RangeReadResponse.newBuilder()
+                .setLedgerId(ledgerId)
+                .setStartEntryId(startEntryId)
+                .setStatus(StatusCode.EBADVERSION)
+                .build();
+            sendResponse(rangeReadResponse);
+            return;
+        }
+
+        sendResponse(getRangeReadResponse());
+    }
+
+    void sendResponse(RangeReadResponse rangeReadResponse) {
+        Response.Builder response = Response.newBuilder()
+                .setHeader(getHeader())
+                .setStatus(rangeReadResponse.getStatus())
+                .setRangeReadResponse(rangeReadResponse);
+        sendResponse(response.getStatus(),
+                     response.build(),
+                     requestProcessor.getRequestStats().getRangeReadRequestStats());
+        requestProcessor.onReadRequestFinish();
+    }
+
+    @Override
+    public String toString() {
+        return RequestUtils.toSafeString(request);
+    }
+}
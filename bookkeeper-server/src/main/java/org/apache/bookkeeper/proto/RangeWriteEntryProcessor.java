@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.channel.Channel;
+import io.netty.util.Recycler;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.bookie.BookieException.OperationRejectedException;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieProtocol.ParsedRangeAddRequest;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes range add entry requests: all the entries of the batch are added to the bookie as a group,
+ * and a single response is sent once all of them are persisted.
+ */
+class RangeWriteEntryProcessor extends PacketProcessorBase<ParsedRangeAddRequest> implements WriteCallback {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RangeWriteEntryProcessor.class);
+
+    long startTimeNanos;
+    private final AtomicInteger pendingEntries = new AtomicInteger();
+    private final AtomicInteger errorCode = new AtomicInteger();
+
+    @Override
+    protected void reset() {
+        super.reset();
+        startTimeNanos = -1L;
+        pendingEntries.set(0);
+        errorCode.set(BookieProtocol.EOK);
+    }
+
+    public static RangeWriteEntryProcessor create(ParsedRangeAddRequest request, Channel channel,
+                                                  BookieRequestProcessor requestProcessor) {
+        RangeWriteEntryProcessor wep = RECYCLER.get();
+        wep.init(request, channel, requestProcessor);
+        return wep;
+    }
+
+    @Override
+    protected void processPacket() {
+        if (requestProcessor.getBookie().isReadOnly()
+            && !(request.isHighPriority() && requestProcessor.getBookie().isAvailableForHighPriorityWrites())) {
+            LOG.warn("BookieServer is running in readonly mode,"
+                    + " so rejecting the request from the client!");
+            sendResponse(BookieProtocol.EREADONLY,
+                         ResponseBuilder.buildErrorResponse(BookieProtocol.EREADONLY, request),
+                         requestProcessor.getRequestStats().getRangeAddRequestStats());
+            request.release();
+            recycle();
+            return;
+        }
+
+        startTimeNanos = MathUtils.nowInNano();
+        pendingEntries.set(request.getCount());
+        int rc = BookieProtocol.EOK;
+        try {
+            // the bookie takes the ownership of the entries
+            if (request.isRecoveryAdd()) {
+                requestProcessor.getBookie().recoveryAddEntries(request.getData(), this, channel,
+                        request.getMasterKey());
+            } else {
+                requestProcessor.getBookie().addEntries(request.getData(), false, this, channel,
+                        request.getMasterKey());
+            }
+        } catch (OperationRejectedException e) {
+            requestProcessor.getRequestStats().getAddEntryRejectedCounter().inc();
+            // Avoid to log each occurence of this exception as this can happen when the ledger storage is
+            // unable to keep up with the write rate.
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Operation rejected while writing {}", request, e);
+            }
+            rc = BookieProtocol.ETOOMANYREQUESTS;
+        } catch (IOException e) {
+            LOG.error("Error writing {}", request, e);
+            rc = BookieProtocol.EIO;
+        } catch (BookieException.LedgerFencedException lfe) {
+            LOG.error("Attempt to write to fenced ledger", lfe);
+            rc = BookieProtocol.EFENCED;
+        } catch (BookieException e) {
+            LOG.error("Unauthorized access to ledger {}", request.getLedgerId(), e);
+            rc = BookieProtocol.EUA;
+        } catch (Throwable t) {
+            LOG.error("Unexpected exception while writing {}@{} : {}",
+                      request.ledgerId, request.entryId, t.getMessage(), t);
+            // some bad request which cause unexpected exception
+            rc = BookieProtocol.EBADREQ;
+        }
+
+        if (rc != BookieProtocol.EOK) {
+            requestProcessor.getRequestStats().getRangeAddEntryStats()
+                .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            sendResponse(rc,
+                         ResponseBuilder.buildErrorResponse(rc, request),
+                         requestProcessor.getRequestStats().getRangeAddRequestStats());
+            recycle();
+        }
+    }
+
+    @Override
+    public void writeComplete(int rc, long ledgerId, long entryId,
+                              BookieId addr, Object ctx) {
+        if (BookieProtocol.EOK != rc) {
+            errorCode.compareAndSet(BookieProtocol.EOK, rc);
+        }
+        if (pendingEntries.decrementAndGet() != 0) {
+            return;
+        }
+
+        // The whole batch succeeds only if all its entries do
+        int batchRc = errorCode.get();
+        BookieProtocol.Response response;
+        if (BookieProtocol.EOK == batchRc) {
+            requestProcessor.getRequestStats().getRangeAddEntryStats()
+                .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            requestProcessor.getRequestStats().getRangeAddEntryCountStats()
+                .registerSuccessfulValue(request.getCount());
+            response = ResponseBuilder.buildRangeAddResponse(request);
+        } else {
+            requestProcessor.getRequestStats().getRangeAddEntryStats()
+                .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            response = ResponseBuilder.buildErrorResponse(batchRc, request);
+        }
+        sendResponse(batchRc, response, requestProcessor.getRequestStats().getRangeAddRequestStats());
+        recycle();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RangeWriteEntry(%d, %d, %d)",
+                             request.getLedgerId(), request.getEntryId(), request.getCount());
+    }
+
+    private void recycle() {
+        reset();
+        recyclerHandle.recycle(this);
+    }
+
+    private final Recycler.Handle<RangeWriteEntryProcessor> recyclerHandle;
+
+    private RangeWriteEntryProcessor(Recycler.Handle<RangeWriteEntryProcessor> recyclerHandle) {
+        this.recyclerHandle = recyclerHandle;
+    }
+
+    private static final Recycler<RangeWriteEntryProcessor> RECYCLER = new Recycler<RangeWriteEntryProcessor>() {
+        @Override
+        protected RangeWriteEntryProcessor newObject(Recycler.Handle<RangeWriteEntryProcessor> handle) {
+            return new RangeWriteEntryProcessor(handle);
+        }
+    };
+}
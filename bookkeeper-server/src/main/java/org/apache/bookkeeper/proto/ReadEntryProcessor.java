@@ -19,12 +19,17 @@ package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.channel.FileRegion;
+import io.netty.channel.socket.SocketChannel;
 import io.netty.util.Recycler;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.apache.bookkeeper.bookie.Bookie;
@@ -42,16 +47,19 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
 
     private ExecutorService fenceThreadPool;
     private boolean throttleReadResponses;
+    private int zeroCopyReadMinEntrySize;
 
     public static ReadEntryProcessor create(ReadRequest request,
                                             Channel channel,
                                             BookieRequestProcessor requestProcessor,
                                             ExecutorService fenceThreadPool,
-                                            boolean throttleReadResponses) {
+                                            boolean throttleReadResponses,
+                                            int zeroCopyReadMinEntrySize) {
         ReadEntryProcessor rep = RECYCLER.get();
         rep.init(request, channel, requestProcessor);
         rep.fenceThreadPool = fenceThreadPool;
         rep.throttleReadResponses = throttleReadResponses;
+        rep.zeroCopyReadMinEntrySize = zeroCopyReadMinEntrySize;
         return rep;
     }
 
@@ -60,8 +68,25 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Received new read request: {}", request);
         }
-        int errorCode = BookieProtocol.EOK;
         long startTimeNanos = MathUtils.nowInNano();
+        // The entries missing from the caches are read by the threads of their disk, if it has its own
+        Executor readExecutor = request.isFencing()
+                ? null : requestProcessor.getBookie().getReadExecutor(request.getLedgerId(), request.getEntryId());
+        if (readExecutor != null) {
+            try {
+                readExecutor.execute(() -> readEntry(startTimeNanos));
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Failed to read entry {}@{} : {}", request.getEntryId(), request.getLedgerId(),
+                        e.getMessage());
+                sendResponse(null, BookieProtocol.EIO, startTimeNanos);
+            }
+        } else {
+            readEntry(startTimeNanos);
+        }
+    }
+
+    private void readEntry(long startTimeNanos) {
+        int errorCode = BookieProtocol.EOK;
         ByteBuf data = null;
         try {
             CompletableFuture<Boolean> fenceResult = null;
@@ -76,7 +101,17 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
                     throw BookieException.create(BookieException.Code.UnauthorizedAccessException);
                 }
             }
-            data = requestProcessor.getBookie().readEntry(request.getLedgerId(), request.getEntryId());
+            if (fenceResult == null && canSendWithZeroCopy()) {
+                ReferenceCounted entry = requestProcessor.getBookie().readEntryForTransfer(request.getLedgerId(),
+                        request.getEntryId(), zeroCopyReadMinEntrySize);
+                if (entry instanceof FileRegion) {
+                    sendRegionResponse((FileRegion) entry, startTimeNanos);
+                    return;
+                }
+                data = (ByteBuf) entry;
+            } else {
+                data = requestProcessor.getBookie().readEntry(request.getLedgerId(), request.getEntryId());
+            }
             if (LOG.isDebugEnabled()) {
                 LOG.debug("##### Read entry ##### {} -- ref-count: {}", data.readableBytes(), data.refCnt());
             }
@@ -140,6 +175,34 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
         recycle();
     }
 
+    /**
+     * The entries can only be transferred from the files to the socket when they don't need to be encrypted.
+     */
+    private boolean canSendWithZeroCopy() {
+        return zeroCopyReadMinEntrySize >= 0
+                && channel instanceof SocketChannel
+                && channel.pipeline().get("tls") == null;
+    }
+
+    private void sendRegionResponse(FileRegion region, long startTimeNanos) {
+        final RequestStats stats = requestProcessor.getRequestStats();
+        stats.getReadEntryStats().registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos),
+                TimeUnit.NANOSECONDS);
+        BookieProtocol.Response response = ResponseBuilder.buildReadRegionResponse(region, request);
+
+        if (throttleReadResponses) {
+            sendResponseAndWait(BookieProtocol.EOK, response, stats.getReadRequestStats());
+        } else {
+            if (!channel.isActive()) {
+                // The response is not written on an inactive channel. The region holds an open file handle, which
+                // should not wait for the garbage collector to be closed.
+                response.release();
+            }
+            sendResponse(BookieProtocol.EOK, response, stats.getReadRequestStats());
+        }
+        recycle();
+    }
+
     private void sendFenceResponse(Boolean result, ByteBuf data, long startTimeNanos) {
         final int retCode = result != null && result ? BookieProtocol.EOK : BookieProtocol.EIO;
         sendResponse(data, retCode, startTimeNanos);
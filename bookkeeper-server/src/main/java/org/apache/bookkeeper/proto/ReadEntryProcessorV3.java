@@ -24,7 +24,9 @@ import io.netty.channel.Channel;
 import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.BookieException;
@@ -264,6 +266,25 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
     }
 
     protected void executeOp() {
+        // The entries missing from the caches are read by the threads of their disk, if it has its own
+        Executor readExecutor = RequestUtils.isFenceRequest(readRequest)
+                ? null : requestProcessor.getBookie().getReadExecutor(ledgerId, entryId);
+        if (readExecutor != null) {
+            try {
+                readExecutor.execute(this::readAndSendResponse);
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Failed to read entry {}@{} : {}", entryId, ledgerId, e.getMessage());
+                ReadResponse.Builder readResponse = ReadResponse.newBuilder()
+                        .setLedgerId(ledgerId)
+                        .setEntryId(entryId);
+                sendResponse(buildResponse(readResponse, StatusCode.EIO, Stopwatch.createStarted()));
+            }
+        } else {
+            readAndSendResponse();
+        }
+    }
+
+    private void readAndSendResponse() {
         ReadResponse readResponse = getReadResponse();
         if (null != readResponse) {
             sendResponse(readResponse);
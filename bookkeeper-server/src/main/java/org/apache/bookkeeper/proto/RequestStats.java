@@ -33,6 +33,12 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_BOOKIE_INFO
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_BOOKIE_INFO_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGER;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RANGE_ADD_ENTRY;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RANGE_ADD_ENTRY_COUNT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RANGE_ADD_ENTRY_REQUEST;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RANGE_READ_ENTRY;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RANGE_READ_ENTRY_COUNT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.RANGE_READ_ENTRY_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_BLOCKED;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_BLOCKED_WAIT;
@@ -115,6 +121,40 @@ public class RequestStats {
             parent = READ_ENTRY_REQUEST
     )
     private final Counter readEntryRejectedCounter;
+    @StatsDoc(
+        name = RANGE_READ_ENTRY_REQUEST,
+        help = "request stats of RangeReadEntry on a bookie"
+    )
+    final OpStatsLogger rangeReadRequestStats;
+    @StatsDoc(
+        name = RANGE_READ_ENTRY,
+        help = "operation stats of RangeReadEntry on a bookie",
+        parent = RANGE_READ_ENTRY_REQUEST
+    )
+    final OpStatsLogger rangeReadEntryStats;
+    @StatsDoc(
+        name = RANGE_READ_ENTRY_COUNT,
+        help = "number of entries returned by each RangeReadEntry on a bookie",
+        parent = RANGE_READ_ENTRY_REQUEST
+    )
+    final OpStatsLogger rangeReadEntryCountStats;
+    @StatsDoc(
+        name = RANGE_ADD_ENTRY_REQUEST,
+        help = "request stats of RangeAddEntry on a bookie"
+    )
+    final OpStatsLogger rangeAddRequestStats;
+    @StatsDoc(
+        name = RANGE_ADD_ENTRY,
+        help = "operation stats of RangeAddEntry on a bookie",
+        parent = RANGE_ADD_ENTRY_REQUEST
+    )
+    final OpStatsLogger rangeAddEntryStats;
+    @StatsDoc(
+        name = RANGE_ADD_ENTRY_COUNT,
+        help = "number of entries added by each RangeAddEntry on a bookie",
+        parent = RANGE_ADD_ENTRY_REQUEST
+    )
+    final OpStatsLogger rangeAddEntryCountStats;
     @StatsDoc(
         name = FORCE_LEDGER,
         help = "operation stats of ForceLedger on a bookie",
@@ -244,6 +284,12 @@ public class RequestStats {
         this.addEntryRejectedCounter = statsLogger.getCounter(ADD_ENTRY_REJECTED);
         this.readEntryStats = statsLogger.getThreadScopedOpStatsLogger(READ_ENTRY);
         this.readEntryRejectedCounter = statsLogger.getCounter(READ_ENTRY_REJECTED);
+        this.rangeReadRequestStats = statsLogger.getOpStatsLogger(RANGE_READ_ENTRY_REQUEST);
+        this.rangeReadEntryStats = statsLogger.getThreadScopedOpStatsLogger(RANGE_READ_ENTRY);
+        this.rangeReadEntryCountStats = statsLogger.getOpStatsLogger(RANGE_READ_ENTRY_COUNT);
+        this.rangeAddRequestStats = statsLogger.getOpStatsLogger(RANGE_ADD_ENTRY_REQUEST);
+        this.rangeAddEntryStats = statsLogger.getThreadScopedOpStatsLogger(RANGE_ADD_ENTRY);
+        this.rangeAddEntryCountStats = statsLogger.getOpStatsLogger(RANGE_ADD_ENTRY_COUNT);
         this.forceLedgerStats = statsLogger.getOpStatsLogger(FORCE_LEDGER);
         this.forceLedgerRequestStats = statsLogger.getOpStatsLogger(FORCE_LEDGER_REQUEST);
         this.readRequestStats = statsLogger.getOpStatsLogger(READ_ENTRY_REQUEST);
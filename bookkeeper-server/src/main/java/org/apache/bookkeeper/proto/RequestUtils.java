@@ -24,6 +24,10 @@ import com.google.common.base.MoreObjects;
  */
 class RequestUtils {
 
+    // Room reserved in a range read response frame for the response header, and for the framing of each entry
+    static final int RANGE_READ_RESPONSE_HEADER_SIZE = 64;
+    static final int RANGE_READ_ENTRY_OVERHEAD = 8;
+
     public static boolean isFenceRequest(BookkeeperProtocol.ReadRequest readRequest) {
         return hasFlag(readRequest, BookkeeperProtocol.ReadRequest.Flag.FENCE_LEDGER);
     }
@@ -48,6 +52,26 @@ class RequestUtils {
         return request.hasFlag() && request.getFlag() == flag;
     }
 
+    static boolean hasFlag(BookkeeperProtocol.RangeAddRequest request, BookkeeperProtocol.AddRequest.Flag flag) {
+        return request.hasFlag() && request.getFlag() == flag;
+    }
+
+    /**
+     * Bound the number of entries of a range read, so that the framing of the entries never takes more than half
+     * of the response frame.
+     */
+    static int getRangeReadMaxCount(int requestedMaxCount, int maxFrameSize) {
+        return Math.max(1, Math.min(requestedMaxCount, maxFrameSize / 2 / RANGE_READ_ENTRY_OVERHEAD));
+    }
+
+    /**
+     * Bound the total size of the entries of a range read, so that the response always fits in a single frame.
+     */
+    static long getRangeReadMaxSize(long requestedMaxSize, int maxCount, int maxFrameSize) {
+        long available = maxFrameSize - RANGE_READ_RESPONSE_HEADER_SIZE - (long) RANGE_READ_ENTRY_OVERHEAD * maxCount;
+        return requestedMaxSize > 0 ? Math.min(requestedMaxSize, available) : available;
+    }
+
     /**
      * this toSafeString method filters out body and masterKey from the output.
      * masterKey contains the password of the ledger and body is customer data,
@@ -68,6 +92,19 @@ class RequestUtils {
                 stringHelper.add("writeFlags", addRequest.getWriteFlags());
             }
             return stringHelper.toString();
+        } else if (request.hasRangeAddRequest()) {
+            BookkeeperProtocol.RangeAddRequest rangeAddRequest = request.getRangeAddRequest();
+            includeHeaderFields(stringHelper, header);
+            stringHelper.add("ledgerId", rangeAddRequest.getLedgerId());
+            stringHelper.add("startEntryId", rangeAddRequest.getStartEntryId());
+            stringHelper.add("count", rangeAddRequest.getBodyCount());
+            if (rangeAddRequest.hasFlag()) {
+                stringHelper.add("flag", rangeAddRequest.getFlag());
+            }
+            if (rangeAddRequest.hasWriteFlags()) {
+                stringHelper.add("writeFlags", rangeAddRequest.getWriteFlags());
+            }
+            return stringHelper.toString();
         } else if (request.hasReadRequest()) {
             BookkeeperProtocol.ReadRequest readRequest = request.getReadRequest();
             includeHeaderFields(stringHelper, header);
@@ -83,6 +120,14 @@ class RequestUtils {
                 stringHelper.add("timeOut", readRequest.getTimeOut());
             }
             return stringHelper.toString();
+        } else if (request.hasRangeReadRequest()) {
+            BookkeeperProtocol.RangeReadRequest rangeReadRequest = request.getRangeReadRequest();
+            includeHeaderFields(stringHelper, header);
+            stringHelper.add("ledgerId", rangeReadRequest.getLedgerId());
+            stringHelper.add("startEntryId", rangeReadRequest.getStartEntryId());
+            stringHelper.add("maxCount", rangeReadRequest.getMaxCount());
+            stringHelper.add("maxSize", rangeReadRequest.getMaxSize());
+            return stringHelper.toString();
         } else if (request.hasWriteLacRequest()) {
             BookkeeperProtocol.WriteLacRequest writeLacRequest = request.getWriteLacRequest();
             includeHeaderFields(stringHelper, header);
@@ -21,12 +21,21 @@
 package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
+import java.util.Collections;
+import java.util.List;
 
 class ResponseBuilder {
     static BookieProtocol.Response buildErrorResponse(int errorCode, BookieProtocol.Request r) {
         if (r.getOpCode() == BookieProtocol.ADDENTRY) {
             return BookieProtocol.AddResponse.create(r.getProtocolVersion(), errorCode,
                                                   r.getLedgerId(), r.getEntryId());
+        } else if (r.getOpCode() == BookieProtocol.RANGE_ADD_ENTRY) {
+            return new BookieProtocol.RangeAddResponse(r.getProtocolVersion(), errorCode,
+                    r.getLedgerId(), r.getEntryId(), ((BookieProtocol.ParsedRangeAddRequest) r).getCount());
+        } else if (r.getOpCode() == BookieProtocol.RANGE_READ_ENTRY) {
+            return new BookieProtocol.RangeReadResponse(r.getProtocolVersion(), errorCode,
+                                                        r.getLedgerId(), r.getEntryId(), Collections.emptyList());
         } else {
             assert(r.getOpCode() == BookieProtocol.READENTRY);
             return new BookieProtocol.ReadResponse(r.getProtocolVersion(), errorCode,
@@ -39,8 +48,22 @@ class ResponseBuilder {
                                               r.getEntryId());
     }
 
+    static BookieProtocol.Response buildRangeAddResponse(BookieProtocol.ParsedRangeAddRequest r) {
+        return new BookieProtocol.RangeAddResponse(r.getProtocolVersion(), BookieProtocol.EOK, r.getLedgerId(),
+                r.getEntryId(), r.getCount());
+    }
+
     static BookieProtocol.Response buildReadResponse(ByteBuf data, BookieProtocol.Request r) {
         return new BookieProtocol.ReadResponse(r.getProtocolVersion(), BookieProtocol.EOK,
                 r.getLedgerId(), r.getEntryId(), data);
     }
+
+    static BookieProtocol.Response buildReadRegionResponse(FileRegion region, BookieProtocol.Request r) {
+        return new BookieProtocol.ReadRegionResponse(r.getProtocolVersion(), r.getLedgerId(), r.getEntryId(), region);
+    }
+
+    static BookieProtocol.Response buildRangeReadResponse(List<ByteBuf> data, BookieProtocol.Request r) {
+        return new BookieProtocol.RangeReadResponse(r.getProtocolVersion(), BookieProtocol.EOK,
+                r.getLedgerId(), r.getEntryId(), data);
+    }
 }
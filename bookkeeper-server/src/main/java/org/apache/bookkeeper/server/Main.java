@@ -443,6 +443,21 @@ public class Main {
         BookieService bookieService =
             new BookieService(conf, bookie, rootStatsLogger, allocator, uncleanShutdownDetection);
 
+        // 6. build http service
+        // It is started before the bookie, to report the progress of the journal replay
+        if (conf.getServerConf().isHttpServerEnabled()) {
+            BKHttpServiceProvider provider = new BKHttpServiceProvider.Builder()
+                .setBookieServer(bookieService.getServer())
+                .setServerConfiguration(conf.getServerConf())
+                .setStatsProvider(statsProviderService.getStatsProvider())
+                .setLedgerManagerFactory(metadataDriver.getLedgerManagerFactory())
+                .build();
+            HttpService httpService =
+                new HttpService(provider, conf, rootStatsLogger);
+            serverBuilder.addComponent(httpService);
+            log.info("Load lifecycle component : {}", HttpService.class.getName());
+        }
+
         serverBuilder.addComponent(bookieService);
         log.info("Load lifecycle component : {}", BookieService.class.getName());
 
@@ -453,7 +468,7 @@ public class Main {
                     conf, bookieService.getServer().getBookie().getLedgerStorage()));
         }
 
-        // 6. build auto recovery
+        // 7. build auto recovery
         if (conf.getServerConf().isAutoRecoveryDaemonEnabled()) {
             AutoRecoveryService autoRecoveryService =
                 new AutoRecoveryService(conf, rootStatsLogger.scope(REPLICATION_SCOPE));
@@ -462,7 +477,7 @@ public class Main {
             log.info("Load lifecycle component : {}", AutoRecoveryService.class.getName());
         }
 
-        // 7. build data integrity check service
+        // 8. build data integrity check service
         if (conf.getServerConf().isDataIntegrityCheckingEnabled()) {
             checkNotNull(integCheck,
                     "integCheck should have been initialized with the cookie validation");
@@ -473,20 +488,6 @@ public class Main {
             log.info("Load lifecycle component : {}", DataIntegrityService.class.getName());
         }
 
-        // 8. build http service
-        if (conf.getServerConf().isHttpServerEnabled()) {
-            BKHttpServiceProvider provider = new BKHttpServiceProvider.Builder()
-                .setBookieServer(bookieService.getServer())
-                .setServerConfiguration(conf.getServerConf())
-                .setStatsProvider(statsProviderService.getStatsProvider())
-                .setLedgerManagerFactory(metadataDriver.getLedgerManagerFactory())
-                .build();
-            HttpService httpService =
-                new HttpService(provider, conf, rootStatsLogger);
-            serverBuilder.addComponent(httpService);
-            log.info("Load lifecycle component : {}", HttpService.class.getName());
-        }
-
         // 9. build extra services
         String[] extraComponents = conf.getServerConf().getExtraServerComponents();
         if (null != extraComponents) {
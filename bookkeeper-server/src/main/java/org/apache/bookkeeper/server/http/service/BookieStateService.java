@@ -24,6 +24,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.JournalReplayProgress;
 import org.apache.bookkeeper.bookie.StateManager;
 import org.apache.bookkeeper.common.util.JsonUtil;
 import org.apache.bookkeeper.http.HttpServer;
@@ -42,7 +43,14 @@ import org.apache.bookkeeper.http.service.HttpServiceResponse;
  *  "running" : true,
  *  "readOnly" : false,
  *  "shuttingDown" : false,
- *  "availableForHighPriorityWrites" : true
+ *  "availableForHighPriorityWrites" : true,
+ *  "journalReplay" : {
+ *    "inProgress" : true,
+ *    "totalBytes" : 4294967296,
+ *    "replayedBytes" : 1073741824,
+ *    "bytesPerSec" : 268435456,
+ *    "etaSec" : 12
+ *  }
  *}
  * </code>
  * </pre>
@@ -65,6 +73,20 @@ public class BookieStateService implements HttpEndpointService {
         private boolean readOnly;
         private boolean shuttingDown;
         private boolean availableForHighPriorityWrites;
+        private JournalReplayState journalReplay;
+    }
+
+    /**
+     * POJO definition for the progress of the journal replay on startup.
+     */
+    @Data
+    @NoArgsConstructor
+    public static class JournalReplayState {
+        private boolean inProgress;
+        private long totalBytes;
+        private long replayedBytes;
+        private long bytesPerSec;
+        private long etaSec;
     }
 
     @Override
@@ -84,6 +106,15 @@ public class BookieStateService implements HttpEndpointService {
         bs.shuttingDown = sm.isShuttingDown();
         bs.availableForHighPriorityWrites = sm.isAvailableForHighPriorityWrites();
 
+        JournalReplayProgress progress = bookie.getJournalReplayProgress();
+        JournalReplayState replay = new JournalReplayState();
+        replay.inProgress = progress.isInProgress();
+        replay.totalBytes = progress.getTotalBytes();
+        replay.replayedBytes = progress.getReplayedBytes();
+        replay.bytesPerSec = progress.getBytesPerSecond();
+        replay.etaSec = progress.getEtaSeconds();
+        bs.journalReplay = replay;
+
         String jsonResponse = JsonUtil.toJson(bs);
         response.setBody(jsonResponse);
         response.setCode(HttpServer.StatusCode.OK);
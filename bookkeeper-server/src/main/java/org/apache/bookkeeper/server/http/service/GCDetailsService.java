@@ -43,7 +43,12 @@ import org.slf4j.LoggerFactory;
  *           "lastMajorCompactionTime" : 1544578144944,
  *           "lastMinorCompactionTime" : 1544578144944,
  *           "majorCompactionCounter" : 1,
- *           "minorCompactionCounter" : 0
+ *           "minorCompactionCounter" : 0,
+ *           "activeCompactions" : 0,
+ *           "compactionBacklogLogs" : 0,
+ *           "compactionBacklogBytes" : 0,
+ *           "compactionThroughputBytesPerSecond" : 0,
+ *           "reclaimedSpaceViaCompaction" : 0
  *         } ]
  */
 public class GCDetailsService implements HttpEndpointService {
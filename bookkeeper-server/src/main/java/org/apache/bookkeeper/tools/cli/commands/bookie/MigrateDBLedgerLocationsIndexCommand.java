@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.tools.cli.commands.bookie;
+
+import com.beust.jcommander.Parameter;
+import java.io.IOException;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.apache.bookkeeper.bookie.storage.ldb.LocationsIndexMigrationOp;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.tools.cli.helpers.BookieCommand;
+import org.apache.bookkeeper.tools.framework.CliFlags;
+import org.apache.bookkeeper.tools.framework.CliSpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Command to convert the DBLedgerStorage locations index between the classic and the run-length layouts.
+ */
+public class MigrateDBLedgerLocationsIndexCommand
+        extends BookieCommand<MigrateDBLedgerLocationsIndexCommand.MigrateLocationsIndexFlags> {
+
+    static final Logger LOG = LoggerFactory.getLogger(MigrateDBLedgerLocationsIndexCommand.class);
+
+    private static final String NAME = "migrate-db-ledger-locations-index";
+    private static final String DESC = "Convert DBLedgerStorage locations index to the run-length layout"
+        + " (or back to the classic layout)";
+
+    public MigrateDBLedgerLocationsIndexCommand() {
+        this(new MigrateLocationsIndexFlags());
+    }
+
+    public MigrateDBLedgerLocationsIndexCommand(MigrateLocationsIndexFlags flags) {
+        super(CliSpec.<MigrateLocationsIndexFlags>newBuilder().withName(NAME)
+                .withDescription(DESC).withFlags(flags).build());
+    }
+
+    @Override
+    public boolean apply(ServerConfiguration conf, MigrateLocationsIndexFlags cmdFlags) {
+        LOG.info("=== Migrating DBStorage locations index ===");
+        ServerConfiguration serverConfiguration = new ServerConfiguration(conf);
+        try {
+            new LocationsIndexMigrationOp(serverConfiguration, !cmdFlags.classic).initiate();
+        } catch (IOException e) {
+            LOG.error("Failed to migrate DBStorage locations index", e);
+            return false;
+        }
+        LOG.info("-- Done migrating DBStorage locations index --");
+        return true;
+    }
+
+    /**
+     * Flags for migrate locations index command.
+     */
+    @Accessors(fluent = true)
+    @Setter
+    public static class MigrateLocationsIndexFlags extends CliFlags {
+        @Parameter(names = { "-c", "--classic" },
+                description = "Convert the index back to the classic layout, with one record per entry")
+        private boolean classic;
+    }
+}
@@ -23,6 +23,8 @@ import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.netty.buffer.ByteBuf;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import org.apache.bookkeeper.bookie.EntryLogger;
@@ -96,6 +98,9 @@ public class ReadLogCommand extends BookieCommand<ReadLogCommand.ReadLogFlags> {
 
         @Parameter(names = {"-ef", "--entryformatter"}, description = "set entry formatter")
         private String entryFormatter;
+
+        @Parameter(names = { "-i", "--index" }, description = "Print the footer index of the entry log")
+        private boolean index;
     }
 
     @Override
@@ -145,7 +150,9 @@ public class ReadLogCommand extends BookieCommand<ReadLogCommand.ReadLogFlags> {
         final long endpos = flags.endPos;
 
         // scan entry log
-        if (startpos != -1) {
+        if (flags.index) {
+            return printFooterIndex(conf, logId);
+        } else if (startpos != -1) {
             if ((endpos != -1) && (endpos < startpos)) {
                 System.err
                     .println("ERROR: StartPosition of the range should be lesser than or equal to EndPosition");
@@ -250,23 +257,52 @@ public class ReadLogCommand extends BookieCommand<ReadLogCommand.ReadLogFlags> {
         LOG.info("Scan entry log " + logId + " (" + Long.toHexString(logId) + ".log)" + " for LedgerId "
                            + ledgerId + ((entryId == -1) ? "" : " for EntryId " + entryId));
         final MutableBoolean entryFound = new MutableBoolean(false);
-        scanEntryLog(conf, logId, new EntryLogger.EntryLogScanner() {
+
+        // Locate the entries from the footer index of the entry log, and only read them
+        initEntryLogger(conf);
+        final List<long[]> locations = new ArrayList<>();
+        boolean indexed = entryLogger.scanEntryLogFooter(logId, new EntryLogger.EntryLocationScanner() {
             @Override
             public boolean accept(long candidateLedgerId) {
-                return ((candidateLedgerId == ledgerId) && ((!entryFound.booleanValue()) || (entryId == -1)));
+                return candidateLedgerId == ledgerId;
             }
 
             @Override
-            public void process(long candidateLedgerId, long startPos, ByteBuf entry) {
-                long entrysLedgerId = entry.getLong(entry.readerIndex());
-                long entrysEntryId = entry.getLong(entry.readerIndex() + 8);
-                if ((candidateLedgerId == entrysLedgerId) && (candidateLedgerId == ledgerId)
-                    && ((entrysEntryId == entryId) || (entryId == -1))) {
-                    entryFound.setValue(true);
-                    FormatUtil.formatEntry(startPos, entry, printMsg, ledgerIdFormatter, entryFormatter);
+            public void process(long candidateLedgerId, long candidateEntryId, long startPos, int entrySize) {
+                if (candidateEntryId == entryId || entryId == -1) {
+                    locations.add(new long[] { candidateEntryId, startPos });
                 }
             }
         });
+        if (indexed) {
+            for (long[] location : locations) {
+                ByteBuf entry = entryLogger.readEntry(ledgerId, location[0], (logId << 32L) | (location[1] + 4));
+                try {
+                    FormatUtil.formatEntry(location[1], entry, printMsg, ledgerIdFormatter, entryFormatter);
+                } finally {
+                    entry.release();
+                }
+                entryFound.setValue(true);
+            }
+        } else {
+            scanEntryLog(conf, logId, new EntryLogger.EntryLogScanner() {
+                @Override
+                public boolean accept(long candidateLedgerId) {
+                    return ((candidateLedgerId == ledgerId) && ((!entryFound.booleanValue()) || (entryId == -1)));
+                }
+
+                @Override
+                public void process(long candidateLedgerId, long startPos, ByteBuf entry) {
+                    long entrysLedgerId = entry.getLong(entry.readerIndex());
+                    long entrysEntryId = entry.getLong(entry.readerIndex() + 8);
+                    if ((candidateLedgerId == entrysLedgerId) && (candidateLedgerId == ledgerId)
+                        && ((entrysEntryId == entryId) || (entryId == -1))) {
+                        entryFound.setValue(true);
+                        FormatUtil.formatEntry(startPos, entry, printMsg, ledgerIdFormatter, entryFormatter);
+                    }
+                }
+            });
+        }
         if (!entryFound.booleanValue()) {
             LOG.info("LedgerId " + ledgerId + ((entryId == -1) ? "" : " EntryId " + entryId)
                                + " is not available in the entry log " + logId + " (" + Long.toHexString(logId)
@@ -274,6 +310,33 @@ public class ReadLogCommand extends BookieCommand<ReadLogCommand.ReadLogFlags> {
         }
     }
 
+    /**
+     * Print the location of all the entries indexed in the footer of an entry log file.
+     *
+     * @param logId Entry Log File id.
+     * @return false if the entry log has no footer index
+     */
+    private boolean printFooterIndex(ServerConfiguration conf, long logId) throws Exception {
+        LOG.info("Footer index of entry log " + logId + " (" + Long.toHexString(logId) + ".log)");
+        initEntryLogger(conf);
+        boolean indexed = entryLogger.scanEntryLogFooter(logId, new EntryLogger.EntryLocationScanner() {
+            @Override
+            public boolean accept(long ledgerId) {
+                return true;
+            }
+
+            @Override
+            public void process(long ledgerId, long entryId, long startPos, int entrySize) {
+                LOG.info("--------- Lid=" + ledgerIdFormatter.formatLedgerId(ledgerId) + ", Eid=" + entryId
+                        + ", ByteOffset=" + startPos + ", EntrySize=" + entrySize + " ---------");
+            }
+        });
+        if (!indexed) {
+            LOG.info("Entry log " + logId + " (" + Long.toHexString(logId) + ".log) has no footer index");
+        }
+        return indexed;
+    }
+
     /**
      * Scan over an entry log file.
      *
@@ -316,7 +316,7 @@ public class ByteBufList extends AbstractReferenceCounted {
     public static final Encoder ENCODER_WITH_SIZE = new Encoder(true);
 
     /**
-     * {@link ByteBufList} encoder.
+     * {@link ByteBufList} and {@link FileRegionFrame} encoder.
      */
     @Sharable
     public static class Encoder extends ChannelOutboundHandlerAdapter {
@@ -354,6 +354,21 @@ public class ByteBufList extends AbstractReferenceCounted {
                 } finally {
                     ReferenceCountUtil.safeRelease(b);
                 }
+            } else if (msg instanceof FileRegionFrame) {
+                FileRegionFrame f = (FileRegionFrame) msg;
+
+                try {
+                    if (prependSize) {
+                        ByteBuf sizeBuffer = ctx.alloc().directBuffer(4, 4);
+                        sizeBuffer.writeInt((int) f.size());
+                        ctx.write(sizeBuffer, ctx.voidPromise());
+                    }
+
+                    ctx.write(f.getHeader().retainedDuplicate(), ctx.voidPromise());
+                    ctx.write(f.getRegion().retain(), promise);
+                } finally {
+                    ReferenceCountUtil.safeRelease(f);
+                }
             } else {
                 ctx.write(msg, promise);
             }
@@ -0,0 +1,72 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCounted;
+
+/**
+ * A frame made of a header buffer followed by a region of a file, which is transferred to the channel with
+ * zero-copy.
+ *
+ * <p>Like the {@link ByteBufList}, the frame is written on the channel by the {@link ByteBufList.Encoder}, which
+ * prepends the size of the whole frame if needed. The header and the region lifecycles are managed by the frame:
+ * they are released when the frame is deallocated.
+ */
+public class FileRegionFrame extends AbstractReferenceCounted {
+    private final ByteBuf header;
+    private final FileRegion region;
+
+    public FileRegionFrame(ByteBuf header, FileRegion region) {
+        this.header = header;
+        this.region = region;
+    }
+
+    public ByteBuf getHeader() {
+        return header;
+    }
+
+    public FileRegion getRegion() {
+        return region;
+    }
+
+    /**
+     * @return the size of the frame, header included
+     */
+    public long size() {
+        return header.readableBytes() + region.count();
+    }
+
+    @Override
+    public ReferenceCounted touch(Object hint) {
+        header.touch(hint);
+        region.touch(hint);
+        return this;
+    }
+
+    @Override
+    protected void deallocate() {
+        header.release();
+        region.release();
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.discover.BookieServiceInfo;
+import org.apache.bookkeeper.meta.MockLedgerManager;
+import org.apache.bookkeeper.meta.NullMetadataBookieDriver;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.test.TmpDirs;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the batched adds of {@link BookieImpl#addEntries} and {@link BookieImpl#recoveryAddEntries}.
+ */
+public class BookieAddEntriesTest {
+
+    private static final byte[] MASTER_KEY = "master-key".getBytes();
+
+    private final TmpDirs tmpDirs = new TmpDirs();
+    private BookieImpl bookie;
+
+    @Before
+    public void setup() throws Exception {
+        File journalDir = tmpDirs.createNew("bookie", "journal");
+        File ledgerDir = tmpDirs.createNew("bookie", "ledger");
+        ServerConfiguration conf = new ServerConfiguration();
+        conf.setAllowLoopback(true);
+        conf.setJournalDirName(journalDir.getPath());
+        conf.setLedgerDirNames(new String[] { ledgerDir.getPath() });
+
+        DiskChecker diskChecker = BookieResources.createDiskChecker(conf);
+        LedgerDirsManager ledgerDirsManager = BookieResources.createLedgerDirsManager(conf, diskChecker,
+                NullStatsLogger.INSTANCE);
+        LedgerStorage storage = BookieResources.createLedgerStorage(conf, new MockLedgerManager(),
+                ledgerDirsManager, ledgerDirsManager, NullStatsLogger.INSTANCE, UnpooledByteBufAllocator.DEFAULT);
+        bookie = new BookieImpl(conf, new NullMetadataBookieDriver.NullRegistrationManager(), storage,
+                diskChecker, ledgerDirsManager, ledgerDirsManager, NullStatsLogger.INSTANCE,
+                UnpooledByteBufAllocator.DEFAULT, BookieServiceInfo.NO_INFO);
+        bookie.start();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (bookie != null) {
+            bookie.shutdown();
+        }
+        tmpDirs.cleanup();
+    }
+
+    private static ByteBuf generateEntry(long ledgerId, long entryId) {
+        ByteBuf entry = Unpooled.buffer(100);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        while (entry.isWritable()) {
+            entry.writeByte((int) (ledgerId + entryId + entry.writerIndex()));
+        }
+        return entry;
+    }
+
+    private static List<ByteBuf> generateEntries(long ledgerId, long firstEntryId, int count) {
+        List<ByteBuf> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(generateEntry(ledgerId, firstEntryId + i));
+        }
+        return entries;
+    }
+
+    /**
+     * Collects the completions of the entries of a batch.
+     */
+    private static class BatchCallback implements WriteCallback {
+        final CountDownLatch latch;
+        final List<Long> entryIds = new CopyOnWriteArrayList<>();
+
+        BatchCallback(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        @Override
+        public void writeComplete(int rc, long ledgerId, long entryId, BookieId addr, Object ctx) {
+            if (rc == BookieProtocol.EOK) {
+                entryIds.add(entryId);
+            }
+            latch.countDown();
+        }
+
+        void await(long firstEntryId, int count) throws Exception {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(count, entryIds.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(firstEntryId + i, (long) entryIds.get(i));
+            }
+        }
+    }
+
+    private void assertEntries(long ledgerId, long firstEntryId, int count) throws Exception {
+        for (long entryId = firstEntryId; entryId < firstEntryId + count; entryId++) {
+            ByteBuf expected = generateEntry(ledgerId, entryId);
+            ByteBuf entry = bookie.readEntry(ledgerId, entryId);
+            assertEquals(expected, entry);
+            expected.release();
+            entry.release();
+        }
+    }
+
+    private void assertNoEntry(long ledgerId, long entryId) throws Exception {
+        try {
+            bookie.readEntry(ledgerId, entryId).release();
+            fail("Entry " + ledgerId + "@" + entryId + " shouldn't have been added");
+        } catch (Bookie.NoEntryException | Bookie.NoLedgerException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAddEntries() throws Exception {
+        BatchCallback cb = new BatchCallback(10);
+        bookie.addEntries(generateEntries(1, 0, 10), false, cb, null, MASTER_KEY);
+        cb.await(0, 10);
+        assertEntries(1, 0, 10);
+
+        cb = new BatchCallback(5);
+        bookie.recoveryAddEntries(generateEntries(1, 10, 5), cb, null, MASTER_KEY);
+        cb.await(10, 5);
+        assertEntries(1, 0, 15);
+    }
+
+    @Test
+    public void testAddEntriesToFencedLedger() throws Exception {
+        BatchCallback cb = new BatchCallback(5);
+        bookie.addEntries(generateEntries(1, 0, 5), false, cb, null, MASTER_KEY);
+        cb.await(0, 5);
+        assertTrue(bookie.fenceLedger(1, MASTER_KEY).get(10, TimeUnit.SECONDS));
+
+        try {
+            bookie.addEntries(generateEntries(1, 5, 5), false, new BatchCallback(5), null, MASTER_KEY);
+            fail("The ledger is fenced");
+        } catch (BookieException.LedgerFencedException e) {
+            // expected
+        }
+        assertNoEntry(1, 5);
+
+        // The recovery adds are still allowed
+        cb = new BatchCallback(5);
+        bookie.recoveryAddEntries(generateEntries(1, 5, 5), cb, null, MASTER_KEY);
+        cb.await(5, 5);
+        assertEntries(1, 0, 10);
+    }
+
+    @Test
+    public void testAddEntriesWithWrongMasterKey() throws Exception {
+        BatchCallback cb = new BatchCallback(5);
+        bookie.addEntries(generateEntries(1, 0, 5), false, cb, null, MASTER_KEY);
+        cb.await(0, 5);
+
+        try {
+            bookie.addEntries(generateEntries(1, 5, 5), false, new BatchCallback(5), null, "wrong".getBytes());
+            fail("The master key doesn't match");
+        } catch (BookieException.BookieUnauthorizedAccessException e) {
+            // expected
+        }
+        try {
+            bookie.recoveryAddEntries(generateEntries(1, 5, 5), new BatchCallback(5), null, "wrong".getBytes());
+            fail("The master key doesn't match");
+        } catch (BookieException.BookieUnauthorizedAccessException e) {
+            // expected
+        }
+        assertNoEntry(1, 5);
+    }
+
+    @Test
+    public void testMixedBatchRejected() throws Exception {
+        // Entries of another ledger
+        List<ByteBuf> entries = generateEntries(1, 0, 3);
+        entries.addAll(generateEntries(2, 3, 2));
+        try {
+            bookie.addEntries(entries, false, new BatchCallback(5), null, MASTER_KEY);
+            fail("The batch holds entries of two ledgers");
+        } catch (IOException e) {
+            // expected
+        }
+        assertNoEntry(1, 0);
+        assertNoEntry(2, 3);
+
+        // A gap in the entry ids
+        entries = generateEntries(1, 0, 3);
+        entries.addAll(generateEntries(1, 4, 2));
+        try {
+            bookie.recoveryAddEntries(entries, new BatchCallback(5), null, MASTER_KEY);
+            fail("The entries of the batch are not consecutive");
+        } catch (IOException e) {
+            // expected
+        }
+        assertNoEntry(1, 0);
+        assertNoEntry(1, 4);
+
+        // The ledger is still usable
+        BatchCallback cb = new BatchCallback(5);
+        bookie.addEntries(generateEntries(1, 0, 5), false, cb, null, MASTER_KEY);
+        cb.await(0, 5);
+        assertEntries(1, 0, 5);
+    }
+}
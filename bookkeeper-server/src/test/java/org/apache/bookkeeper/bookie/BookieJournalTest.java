@@ -0,0 +1,325 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.bookkeeper.bookie.Journal.JournalScanner;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.discover.BookieServiceInfo;
+import org.apache.bookkeeper.meta.MockLedgerManager;
+import org.apache.bookkeeper.meta.NullMetadataBookieDriver;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.test.TmpDirs;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the replay of the journal files.
+ */
+public class BookieJournalTest {
+
+    private final TmpDirs tmpDirs = new TmpDirs();
+    private ServerConfiguration conf;
+    private File journalDir;
+    private Journal journal;
+
+    @Before
+    public void setup() throws Exception {
+        journalDir = BookieImpl.getCurrentDirectory(tmpDirs.createNew("bookie", "journal"));
+        BookieImpl.checkDirectoryStructure(journalDir);
+        File ledgerDir = tmpDirs.createNew("bookie", "ledger");
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(ledgerDir));
+
+        conf = new ServerConfiguration();
+        conf.setJournalDirName(journalDir.getParent());
+        conf.setLedgerDirNames(new String[] { ledgerDir.getPath() });
+        conf.setJournalReuseFiles(true);
+        LedgerDirsManager ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        journal = new Journal(0, journalDir, conf, ledgerDirsManager);
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        tmpDirs.cleanup();
+    }
+
+    private static byte[] record(long logId, int index) {
+        byte[] record = new byte[100];
+        ByteBuffer.wrap(record).putLong(logId).putInt(index);
+        return record;
+    }
+
+    /**
+     * Write V7 journal records, the same way the journal thread does.
+     */
+    private JournalChannel writeV7Journal(long logId, File recycledFile, int numRecords) throws Exception {
+        JournalChannel jc = new JournalChannel(journalDir, logId, 4096, 65536, JournalChannel.SECTOR_SIZE, false,
+                JournalChannel.V7, Journal.BufferedChannelBuilder.DEFAULT_BCBUILDER, conf,
+                new DefaultFileChannelProvider(), recycledFile);
+        BufferedChannel bc = jc.getBufferedChannel();
+        for (int i = 0; i < numRecords; i++) {
+            byte[] record = record(logId, i);
+            ByteBuf header = Unpooled.buffer(jc.getRecordHeaderSize());
+            header.writeInt(record.length);
+            header.writeInt(jc.getEpoch());
+            jc.preAllocIfNeeded(jc.getRecordHeaderSize() + record.length);
+            bc.write(header);
+            bc.write(Unpooled.wrappedBuffer(record));
+            header.release();
+        }
+        bc.flushAndForceWrite(false);
+        return jc;
+    }
+
+    private List<byte[]> scanJournal(long logId) throws Exception {
+        List<byte[]> records = new ArrayList<>();
+        journal.scanJournal(logId, 0, (journalVersion, offset, entry) -> {
+            assertEquals(JournalChannel.V7, journalVersion);
+            byte[] record = new byte[entry.remaining()];
+            entry.get(record);
+            records.add(record);
+        });
+        return records;
+    }
+
+    @Test
+    public void testReplayRecycledJournal() throws Exception {
+        writeV7Journal(1, null, 50).close();
+        assertEquals(50, scanJournal(1).size());
+
+        File journalFile = new File(journalDir, Long.toHexString(1) + ".txn");
+        File recycledFile = new File(journalDir, journalFile.getName() + Journal.RECYCLED_JOURNAL_SUFFIX);
+        assertTrue(journalFile.renameTo(recycledFile));
+
+        // The new journal overwrites the beginning of the old one, and the other old records stay after it
+        writeV7Journal(2, recycledFile, 10).close();
+        assertFalse(recycledFile.exists());
+        File newJournalFile = new File(journalDir, Long.toHexString(2) + ".txn");
+        assertTrue(newJournalFile.length() > 50 * 100);
+
+        // The replay stops at the first record with the epoch of the old journal
+        List<byte[]> records = scanJournal(2);
+        assertEquals(10, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(ByteBuffer.wrap(record(2, i)), ByteBuffer.wrap(records.get(i)));
+        }
+    }
+
+    @Test
+    public void testReplayRecycledJournalWithoutNewRecords() throws Exception {
+        writeV7Journal(1, null, 50).close();
+        File journalFile = new File(journalDir, Long.toHexString(1) + ".txn");
+        File recycledFile = new File(journalDir, journalFile.getName() + Journal.RECYCLED_JOURNAL_SUFFIX);
+        assertTrue(journalFile.renameTo(recycledFile));
+
+        // The bookie crashed right after reusing the file, none of the old records must be replayed
+        writeV7Journal(2, recycledFile, 0).close();
+        assertTrue(scanJournal(2).isEmpty());
+    }
+
+    @Test
+    public void testEpochsOfConsecutiveJournals() {
+        long logId = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(JournalChannel.epoch(logId + i) != JournalChannel.epoch(logId + i + 1));
+        }
+    }
+
+    private static final int NUM_JOURNALS = 3;
+    private static final int LEDGERS_PER_JOURNAL = 3;
+    private static final int RECORDS_PER_FILE = 100;
+
+    /**
+     * Create a bookie with several journal directories, each holding the journal files 1 and 2. The ledger
+     * {@code l} is journaled in the directory {@code l % NUM_JOURNALS}, and each record holds
+     * {@code [ledgerId][entryId][journalIndex][logId]}.
+     */
+    private BookieImpl newBookieWithJournals(int numReplayThreads) throws Exception {
+        String[] journalDirs = new String[NUM_JOURNALS];
+        for (int i = 0; i < NUM_JOURNALS; i++) {
+            File dir = tmpDirs.createNew("bookie", "journal");
+            BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(dir));
+            journalDirs[i] = dir.getPath();
+        }
+        File ledgerDir = tmpDirs.createNew("bookie", "ledger");
+        ServerConfiguration bookieConf = new ServerConfiguration();
+        bookieConf.setAllowLoopback(true);
+        bookieConf.setJournalDirsName(journalDirs);
+        bookieConf.setLedgerDirNames(new String[] { ledgerDir.getPath() });
+        bookieConf.setNumJournalReplayThreads(numReplayThreads);
+
+        for (int i = 0; i < NUM_JOURNALS; i++) {
+            File dir = BookieImpl.getCurrentDirectory(new File(journalDirs[i]));
+            long[] nextEntryIds = new long[LEDGERS_PER_JOURNAL];
+            for (long logId = 1; logId <= 2; logId++) {
+                JournalChannel jc = new JournalChannel(dir, logId, 4096, 65536, JournalChannel.SECTOR_SIZE, false,
+                        JournalChannel.V6, Journal.BufferedChannelBuilder.DEFAULT_BCBUILDER, bookieConf,
+                        new DefaultFileChannelProvider(), null);
+                BufferedChannel bc = jc.getBufferedChannel();
+                for (int r = 0; r < RECORDS_PER_FILE; r++) {
+                    int ledger = r % LEDGERS_PER_JOURNAL;
+                    ByteBuf record = Unpooled.buffer(4 + 64);
+                    record.writeInt(64);
+                    record.writeLong(i + (long) ledger * NUM_JOURNALS);
+                    record.writeLong(nextEntryIds[ledger]++);
+                    record.writeInt(i);
+                    record.writeLong(logId);
+                    record.writeZero(record.writableBytes());
+                    jc.preAllocIfNeeded(record.readableBytes());
+                    bc.write(record);
+                    record.release();
+                }
+                bc.flushAndForceWrite(false);
+                jc.close();
+            }
+        }
+
+        DiskChecker diskChecker = BookieResources.createDiskChecker(bookieConf);
+        LedgerDirsManager ledgerDirsManager = BookieResources.createLedgerDirsManager(bookieConf, diskChecker,
+                NullStatsLogger.INSTANCE);
+        LedgerStorage storage = BookieResources.createLedgerStorage(bookieConf, new MockLedgerManager(),
+                ledgerDirsManager, ledgerDirsManager, NullStatsLogger.INSTANCE, UnpooledByteBufAllocator.DEFAULT);
+        return new BookieImpl(bookieConf, new NullMetadataBookieDriver.NullRegistrationManager(), storage,
+                diskChecker, ledgerDirsManager, ledgerDirsManager, NullStatsLogger.INSTANCE,
+                UnpooledByteBufAllocator.DEFAULT, BookieServiceInfo.NO_INFO);
+    }
+
+    /**
+     * Records the replayed entries, and checks that the log mark of their journal was not moved past their file.
+     */
+    private static class RecordingScanner implements JournalScanner {
+        final BookieImpl bookie;
+        final Map<Long, List<Long>> entries = new ConcurrentHashMap<>();
+        final List<String> errors = new CopyOnWriteArrayList<>();
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        RecordingScanner(BookieImpl bookie) {
+            this.bookie = bookie;
+        }
+
+        @Override
+        public void process(int journalVersion, long offset, ByteBuffer entry) throws IOException {
+            long ledgerId = entry.getLong();
+            long entryId = entry.getLong();
+            int journalIndex = entry.getInt();
+            long logId = entry.getLong();
+            long markedLogId = bookie.journals.get(journalIndex).getLastLogMark().getCurMark().getLogFileId();
+            if (markedLogId >= logId) {
+                errors.add("Journal " + journalIndex + " marked up to " + markedLogId + " before applying "
+                        + ledgerId + "@" + entryId + " of journal file " + logId);
+            }
+            threads.add(Thread.currentThread().getName());
+            if (entryId % 10 == 0) {
+                // Slow enough for the records of the following file to be scanned meanwhile
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            entries.computeIfAbsent(ledgerId, id -> new CopyOnWriteArrayList<>()).add(entryId);
+            process(ledgerId, entryId);
+        }
+
+        void process(long ledgerId, long entryId) throws IOException {
+        }
+    }
+
+    @Test
+    public void testParallelReplay() throws Exception {
+        BookieImpl bookie = newBookieWithJournals(4);
+        RecordingScanner scanner = new RecordingScanner(bookie);
+        bookie.replayJournals(scanner);
+
+        assertTrue(scanner.errors.toString(), scanner.errors.isEmpty());
+        // The records are applied by the ordered executor, not by the threads scanning the journals
+        for (String thread : scanner.threads) {
+            assertTrue(thread, thread.startsWith("JournalReplayThread"));
+        }
+
+        // All the entries are applied, in the journal order for each ledger
+        assertEquals(NUM_JOURNALS * LEDGERS_PER_JOURNAL, scanner.entries.size());
+        long totalEntries = 0;
+        for (List<Long> entryIds : scanner.entries.values()) {
+            for (int i = 0; i < entryIds.size(); i++) {
+                assertEquals(i, (long) entryIds.get(i));
+            }
+            totalEntries += entryIds.size();
+        }
+        assertEquals(NUM_JOURNALS * 2 * RECORDS_PER_FILE, totalEntries);
+
+        // The log marks point to the end of the last journal files
+        for (Journal journal : bookie.journals) {
+            LogMark mark = journal.getLastLogMark().getCurMark();
+            assertEquals(2, mark.getLogFileId());
+            assertTrue(mark.getLogFileOffset() >= 2 * RECORDS_PER_FILE / 2 * (4 + 64));
+        }
+        assertEquals(bookie.getJournalReplayProgress().getTotalBytes(),
+                bookie.getJournalReplayProgress().getReplayedBytes());
+    }
+
+    @Test
+    public void testParallelReplayFailure() throws Exception {
+        BookieImpl bookie = newBookieWithJournals(4);
+        // Ledger 4 is in the journal 1, and its entry 20 in the journal file 1
+        RecordingScanner scanner = new RecordingScanner(bookie) {
+            @Override
+            void process(long ledgerId, long entryId) throws IOException {
+                if (ledgerId == 4 && entryId == 20) {
+                    throw new IOException("Failed to apply " + ledgerId + "@" + entryId);
+                }
+            }
+        };
+        try {
+            bookie.replayJournals(scanner);
+            fail("The failure to apply an entry should fail the replay");
+        } catch (IOException e) {
+            assertEquals("Failed to apply 4@20", e.getMessage());
+        }
+
+        assertTrue(scanner.errors.toString(), scanner.errors.isEmpty());
+        // The journal file with the failed entry is not marked as replayed
+        assertEquals(0, bookie.journals.get(1).getLastLogMark().getCurMark().getLogFileId());
+        // The entries of the ledger after the failure are not applied
+        List<Long> entryIds = scanner.entries.get(4L);
+        assertEquals(20, (long) entryIds.get(entryIds.size() - 1));
+    }
+}
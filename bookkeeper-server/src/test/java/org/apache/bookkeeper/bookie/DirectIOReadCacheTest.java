@@ -0,0 +1,191 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.test.TmpDirs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DirectIOReadCache}.
+ *
+ * <p>The cache doesn't depend on the channel being opened with O_DIRECT, so the logs are read with regular
+ * channels. A block served from the cache is told apart from a block read from the disk by overwriting the
+ * file once the block is cached.
+ */
+public class DirectIOReadCacheTest {
+
+    private static final int BLOCK_SIZE = DirectIO.ALIGNMENT;
+
+    private final TmpDirs tmpDirs = new TmpDirs();
+    private File dir;
+    private DirectIOReadCache cache;
+
+    @Before
+    public void setup() throws Exception {
+        dir = tmpDirs.createNew("directio", "cache");
+        // room for two blocks
+        cache = new DirectIOReadCache(BLOCK_SIZE, 2 * BLOCK_SIZE, NullStatsLogger.INSTANCE);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        cache.close();
+        tmpDirs.cleanup();
+    }
+
+    private File createLog(long logId, int size, int value) throws Exception {
+        File file = new File(dir, Long.toHexString(logId) + ".log");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(bytes(size, value));
+        }
+        return file;
+    }
+
+    private static byte[] bytes(int size, int value) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (value + i);
+        }
+        return bytes;
+    }
+
+    private static void write(File file, long pos, byte[] bytes) throws Exception {
+        try (FileChannel fc = new RandomAccessFile(file, "rw").getChannel()) {
+            fc.write(ByteBuffer.wrap(bytes), pos);
+        }
+    }
+
+    /**
+     * Read length bytes at pos, and check that they are the ones of a log filled with the given value.
+     */
+    private void assertRead(long logId, File file, long pos, int length, int value) throws Exception {
+        assertEquals(length, read(logId, file, pos, length, value));
+    }
+
+    /**
+     * @return the number of bytes read, after checking them against a log filled with the given value
+     */
+    private int read(long logId, File file, long pos, int length, int value) throws Exception {
+        ByteBuf dest = Unpooled.buffer(length);
+        try (FileChannel fc = new RandomAccessFile(file, "r").getChannel()) {
+            int read = cache.read(logId, fc, dest, pos, length);
+            assertEquals(read, dest.readableBytes());
+            for (int i = 0; i < read; i++) {
+                assertEquals("Byte at " + (pos + i), (byte) (value + pos + i), dest.getByte(i));
+            }
+            return read;
+        } finally {
+            dest.release();
+        }
+    }
+
+    @Test
+    public void testLru() throws Exception {
+        File file = createLog(1, 5 * BLOCK_SIZE, 1);
+        assertRead(1, file, BLOCK_SIZE + 10, 100, 1);
+        assertRead(1, file, 2 * BLOCK_SIZE + 10, 100, 1);
+        write(file, 0, bytes(5 * BLOCK_SIZE, 2));
+
+        // Both blocks are cached
+        assertRead(1, file, BLOCK_SIZE, BLOCK_SIZE, 1);
+        assertRead(1, file, 2 * BLOCK_SIZE, BLOCK_SIZE, 1);
+        // The block 1 is used again, so the block 2 is the least recently used one, and makes room for the
+        // block 3
+        assertRead(1, file, BLOCK_SIZE, 10, 1);
+        assertRead(1, file, 3 * BLOCK_SIZE, 10, 2);
+        assertRead(1, file, BLOCK_SIZE, 10, 1);
+        assertRead(1, file, 2 * BLOCK_SIZE, 10, 2);
+
+        // A read across blocks mixes the cached blocks and the blocks read from the disk
+        write(file, 0, bytes(5 * BLOCK_SIZE, 3));
+        ByteBuf dest = Unpooled.buffer();
+        try (FileChannel fc = new RandomAccessFile(file, "r").getChannel()) {
+            assertEquals(BLOCK_SIZE + 20, cache.read(1, fc, dest, 3 * BLOCK_SIZE - 10, BLOCK_SIZE + 20));
+        }
+        for (int i = 0; i < dest.readableBytes(); i++) {
+            long pos = 3 * BLOCK_SIZE - 10 + i;
+            // the block 2 is served from the cache, the blocks 3 and 4 are read from the disk
+            int value = pos < 3 * BLOCK_SIZE ? 2 : 3;
+            assertEquals((byte) (value + pos), dest.getByte(i));
+        }
+        dest.release();
+    }
+
+    @Test
+    public void testFirstBlockNotCached() throws Exception {
+        File file = createLog(1, 2 * BLOCK_SIZE, 1);
+        assertRead(1, file, 0, 100, 1);
+
+        // The header of a log is updated when the log is closed
+        write(file, 0, bytes(2 * BLOCK_SIZE, 2));
+        assertRead(1, file, 0, 100, 2);
+    }
+
+    @Test
+    public void testLastBlockGrows() throws Exception {
+        File file = createLog(1, BLOCK_SIZE + 100, 1);
+        assertRead(1, file, BLOCK_SIZE, 100, 1);
+        // Nothing can be read past the end of the log
+        assertEquals(50, read(1, file, BLOCK_SIZE + 50, 100, 1));
+
+        // Append to the last block: the cached part is served from the cache, the rest is read from the disk
+        write(file, 0, bytes(BLOCK_SIZE + 200, 2));
+        ByteBuf dest = Unpooled.buffer();
+        try (FileChannel fc = new RandomAccessFile(file, "r").getChannel()) {
+            assertEquals(100, cache.read(1, fc, dest, BLOCK_SIZE + 50, 100));
+        }
+        for (int i = 0; i < 100; i++) {
+            long pos = BLOCK_SIZE + 50 + i;
+            int value = pos < BLOCK_SIZE + 100 ? 1 : 2;
+            assertEquals((byte) (value + pos), dest.getByte(i));
+        }
+        dest.release();
+
+        // The block was cached again with its new length
+        write(file, 0, bytes(BLOCK_SIZE + 200, 3));
+        assertEquals(200, read(1, file, BLOCK_SIZE, 300, 2));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        File file1 = createLog(1, 2 * BLOCK_SIZE, 1);
+        File file2 = createLog(2, 2 * BLOCK_SIZE, 1);
+        assertRead(1, file1, BLOCK_SIZE, 100, 1);
+        assertRead(2, file2, BLOCK_SIZE, 100, 1);
+        write(file1, 0, bytes(2 * BLOCK_SIZE, 2));
+        write(file2, 0, bytes(2 * BLOCK_SIZE, 2));
+
+        cache.invalidate(1);
+        assertRead(1, file1, BLOCK_SIZE, 100, 2);
+        assertRead(2, file2, BLOCK_SIZE, 100, 1);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link EntryLogCompactionScheduler}.
+ */
+public class EntryLogCompactionSchedulerTest {
+
+    private final File dir0 = new File("/ledgers0");
+    private final File dir1 = new File("/ledgers1");
+    private EntryLogger entryLogger;
+    private List<Long> compactedLogs;
+
+    @Before
+    public void setup() throws Exception {
+        entryLogger = mock(EntryLogger.class);
+        // The even entry logs are in the first ledger directory, and the odd ones in the second
+        when(entryLogger.getDirForLogId(anyLong()))
+                .thenAnswer(invocation -> (Long) invocation.getArgument(0) % 2 == 0 ? dir0 : dir1);
+        compactedLogs = new CopyOnWriteArrayList<>();
+    }
+
+    private static EntryLogMetadata meta(long logId, long totalSize, long remainingSize) {
+        EntryLogMetadata meta = new EntryLogMetadata(logId);
+        meta.addLedgerSize(1L, remainingSize);
+        meta.addLedgerSize(2L, totalSize - remainingSize);
+        meta.removeLedgerIf(ledgerId -> ledgerId == 2L);
+        return meta;
+    }
+
+    private static AbstractLogCompactor compactor(CompactionAction action) {
+        AbstractLogCompactor compactor = mock(AbstractLogCompactor.class);
+        when(compactor.compact(any(EntryLogMetadata.class)))
+                .thenAnswer(invocation -> action.compact(invocation.getArgument(0)));
+        return compactor;
+    }
+
+    private interface CompactionAction {
+        boolean compact(EntryLogMetadata meta) throws Exception;
+    }
+
+    private AbstractLogCompactor sleepingCompactor(long delayMillis) {
+        return compactor(meta -> {
+            Thread.sleep(delayMillis);
+            return true;
+        });
+    }
+
+    @Test
+    public void testScore() {
+        EntryLogMetadata meta = meta(1L, 100, 20);
+        assertEquals(4.0, EntryLogCompactionScheduler.score(meta, 0), 0.0001);
+        assertEquals(8.0, EntryLogCompactionScheduler.score(meta, 1), 0.0001);
+        // Nothing to copy
+        assertEquals(100.0, EntryLogCompactionScheduler.score(meta(2L, 100, 0), 0), 0.0001);
+    }
+
+    @Test
+    public void testCompactionOrder() {
+        EntryLogCompactionScheduler scheduler = new EntryLogCompactionScheduler(entryLogger,
+                Collections.singletonList(sleepingCompactor(0)));
+        List<EntryLogMetadata> candidates = Arrays.asList(
+                // score 1 * (1 + 1) = 2
+                meta(1L, 100, 50),
+                // score 4 * (1 + 2/3) = 6.67
+                meta(2L, 100, 20),
+                // score 0.25 * (1 + 1/3) = 0.33
+                meta(3L, 100, 80),
+                // score 9 * (1 + 0) = 9
+                meta(4L, 100, 10));
+        scheduler.compact(candidates, -1, () -> true, meta -> compactedLogs.add(meta.getEntryLogId()));
+
+        assertEquals(Arrays.asList(4L, 2L, 1L, 3L), compactedLogs);
+        assertEquals(0, scheduler.getBacklogLogs());
+        assertEquals(0, scheduler.getBacklogBytes());
+        assertEquals(0, scheduler.getActiveCompactions());
+    }
+
+    @Test
+    public void testOlderLogFirstWithSameUsage() {
+        EntryLogCompactionScheduler scheduler = new EntryLogCompactionScheduler(entryLogger,
+                Collections.singletonList(sleepingCompactor(0)));
+        List<EntryLogMetadata> candidates = Arrays.asList(meta(7L, 100, 40), meta(3L, 100, 40), meta(5L, 100, 40));
+        scheduler.compact(candidates, -1, () -> true, meta -> compactedLogs.add(meta.getEntryLogId()));
+
+        assertEquals(Arrays.asList(3L, 5L, 7L), compactedLogs);
+    }
+
+    @Test
+    public void testTimeLimit() {
+        EntryLogCompactionScheduler scheduler = new EntryLogCompactionScheduler(entryLogger,
+                Collections.singletonList(sleepingCompactor(200)));
+        List<EntryLogMetadata> candidates = new ArrayList<>();
+        for (long logId = 1; logId <= 10; logId++) {
+            candidates.add(meta(logId, 100, 50));
+        }
+        scheduler.compact(candidates, 100, () -> true, meta -> compactedLogs.add(meta.getEntryLogId()));
+
+        // The first compaction outlasts the time limit, so no other one is started
+        assertEquals(Collections.singletonList(1L), compactedLogs);
+        assertEquals(9, scheduler.getBacklogLogs());
+        assertEquals(9 * 50, scheduler.getBacklogBytes());
+    }
+
+    @Test
+    public void testStopWhenNotRunning() {
+        EntryLogCompactionScheduler scheduler = new EntryLogCompactionScheduler(entryLogger,
+                Collections.singletonList(sleepingCompactor(0)));
+        List<EntryLogMetadata> candidates = new ArrayList<>();
+        for (long logId = 1; logId <= 10; logId++) {
+            candidates.add(meta(logId, 100, 50));
+        }
+        scheduler.compact(candidates, -1, () -> compactedLogs.size() < 3,
+                meta -> compactedLogs.add(meta.getEntryLogId()));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), compactedLogs);
+        assertEquals(7, scheduler.getBacklogLogs());
+        assertEquals(7 * 50, scheduler.getBacklogBytes());
+    }
+
+    @Test
+    public void testFailedCompactions() throws Exception {
+        AbstractLogCompactor compactor = compactor(meta -> {
+            if (meta.getEntryLogId() == 2L) {
+                return false;
+            } else if (meta.getEntryLogId() == 3L) {
+                throw new RuntimeException("Compaction failure");
+            }
+            return true;
+        });
+        // The entry log 4 is removed before being compacted
+        when(entryLogger.getDirForLogId(4L)).thenThrow(new FileNotFoundException("Entry log 4 removed"));
+        EntryLogCompactionScheduler scheduler = new EntryLogCompactionScheduler(entryLogger,
+                Collections.singletonList(compactor));
+        List<EntryLogMetadata> candidates = new ArrayList<>();
+        for (long logId = 1; logId <= 5; logId++) {
+            candidates.add(meta(logId, 100, 50));
+        }
+        scheduler.compact(candidates, -1, () -> true, meta -> compactedLogs.add(meta.getEntryLogId()));
+
+        assertEquals(Arrays.asList(1L, 5L), compactedLogs);
+    }
+
+    @Test
+    public void testConcurrentCompactions() throws Exception {
+        Map<File, AtomicInteger> compactionsPerDir = new ConcurrentHashMap<>();
+        AtomicInteger maxCompactionsPerDir = new AtomicInteger();
+        AtomicInteger compactions = new AtomicInteger();
+        AtomicInteger maxCompactions = new AtomicInteger();
+        CompactionAction action = meta -> {
+            AtomicInteger inDir = compactionsPerDir.computeIfAbsent(
+                    entryLogger.getDirForLogId(meta.getEntryLogId()), dir -> new AtomicInteger());
+            maxCompactionsPerDir.accumulateAndGet(inDir.incrementAndGet(), Math::max);
+            maxCompactions.accumulateAndGet(compactions.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            compactions.decrementAndGet();
+            inDir.decrementAndGet();
+            return true;
+        };
+        EntryLogCompactionScheduler scheduler = new EntryLogCompactionScheduler(entryLogger,
+                Arrays.asList(compactor(action), compactor(action), compactor(action)));
+        try {
+            List<EntryLogMetadata> candidates = new ArrayList<>();
+            for (long logId = 1; logId <= 8; logId++) {
+                candidates.add(meta(logId, 100, 50));
+            }
+            scheduler.compact(candidates, -1, () -> true, meta -> compactedLogs.add(meta.getEntryLogId()));
+
+            assertEquals(8, compactedLogs.size());
+            assertTrue(compactedLogs.containsAll(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L)));
+            // The 2 ledger directories are compacted concurrently, each one by a single compactor at a time
+            assertEquals(2, maxCompactions.get());
+            assertEquals(1, maxCompactionsPerDir.get());
+            assertEquals(0, scheduler.getActiveCompactions());
+            assertEquals(0, scheduler.getBacklogLogs());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.IOException;
+import java.util.Random;
+import org.apache.bookkeeper.bookie.EntryLogCompression.Codec;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link EntryLogCompression}.
+ */
+public class EntryLogCompressionTest {
+
+    private static final int MIN_ENTRY_SIZE = 512;
+
+    private final EntryLogCompression compression = new EntryLogCompression(Codec.SNAPPY, MIN_ENTRY_SIZE,
+            UnpooledByteBufAllocator.DEFAULT, NullStatsLogger.INSTANCE);
+
+    static ByteBuf compressibleEntry(long ledgerId, long entryId, int size) {
+        ByteBuf entry = Unpooled.buffer(size);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        while (entry.isWritable()) {
+            entry.writeByte((int) (entryId + entry.writerIndex() % 64));
+        }
+        return entry;
+    }
+
+    static ByteBuf incompressibleEntry(long ledgerId, long entryId, int size) {
+        byte[] payload = new byte[size - 16];
+        new Random(ledgerId * 31 + entryId).nextBytes(payload);
+        ByteBuf entry = Unpooled.buffer(size);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        entry.writeBytes(payload);
+        return entry;
+    }
+
+    private void assertRoundTrip(ByteBuf entry) throws Exception {
+        ByteBuf compressed = compression.compress(entry);
+        assertTrue(compressed.readableBytes() < entry.readableBytes());
+        // The ids stay readable
+        assertEquals(entry.getLong(0), compressed.getLong(0));
+        assertEquals(entry.getLong(8), compressed.getLong(8));
+
+        ByteBuf decompressed = compression.decompress(compressed);
+        assertEquals(entry, decompressed);
+        decompressed.release();
+        compressed.release();
+        entry.release();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        assertRoundTrip(compressibleEntry(1, 0, MIN_ENTRY_SIZE));
+        assertRoundTrip(compressibleEntry(1, 1, 10_000));
+        // Several blocks, the last one partial
+        assertRoundTrip(compressibleEntry(1, 2, 3 * EntryLogCompression.BLOCK_SIZE + 100));
+        assertRoundTrip(compressibleEntry(1, 3, 2 * EntryLogCompression.BLOCK_SIZE + 16));
+    }
+
+    @Test
+    public void testEntriesStoredAsIs() {
+        // Too small
+        ByteBuf entry = compressibleEntry(1, 0, MIN_ENTRY_SIZE - 1);
+        assertNull(compression.compress(entry));
+        entry.release();
+
+        // Doesn't shrink enough
+        entry = incompressibleEntry(1, 1, 10_000);
+        assertNull(compression.compress(entry));
+        entry.release();
+
+        // Compression disabled
+        EntryLogCompression none = new EntryLogCompression(Codec.NONE, 0, UnpooledByteBufAllocator.DEFAULT,
+                NullStatsLogger.INSTANCE);
+        entry = compressibleEntry(1, 2, 10_000);
+        assertNull(none.compress(entry));
+        entry.release();
+    }
+
+    @Test
+    public void testStoredEntrySize() {
+        int sizeField = 1234 | EntryLogCompression.COMPRESSED_ENTRY_FLAG;
+        assertTrue(EntryLogCompression.isCompressed(sizeField));
+        assertEquals(1234, EntryLogCompression.storedEntrySize(sizeField));
+        assertFalse(EntryLogCompression.isCompressed(1234));
+        assertEquals(1234, EntryLogCompression.storedEntrySize(1234));
+    }
+
+    @Test
+    public void testCorruptedEntry() throws Exception {
+        ByteBuf entry = compressibleEntry(1, 0, 10_000);
+        ByteBuf compressed = compression.compress(entry);
+
+        // Unknown codec
+        ByteBuf invalid = compressed.copy();
+        invalid.setByte(16, 42);
+        try {
+            compression.decompress(invalid);
+            fail("The codec is unknown");
+        } catch (IOException e) {
+            // expected
+        }
+        invalid.release();
+
+        // Truncated
+        invalid = compressed.copy(0, compressed.readableBytes() - 10);
+        try {
+            compression.decompress(invalid);
+            fail("The entry is truncated");
+        } catch (IOException e) {
+            // expected
+        }
+        invalid.release();
+
+        compressed.release();
+        entry.release();
+    }
+}
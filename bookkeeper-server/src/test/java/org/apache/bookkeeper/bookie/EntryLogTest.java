@@ -0,0 +1,620 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.test.TmpDirs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for EntryLog.
+ */
+public class EntryLogTest {
+
+    private final TmpDirs tmpDirs = new TmpDirs();
+    private File curDir;
+    private ServerConfiguration conf;
+
+    @Before
+    public void setup() throws Exception {
+        File ledgerDir = tmpDirs.createNew("bkTest", ".dir");
+        curDir = BookieImpl.getCurrentDirectory(ledgerDir);
+        BookieImpl.checkDirectoryStructure(curDir);
+
+        conf = new ServerConfiguration();
+        conf.setLedgerDirNames(new String[] { ledgerDir.toString() });
+        conf.setEntryLogFooterIndexEnabled(true);
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        tmpDirs.cleanup();
+    }
+
+    private static ByteBuf generateEntry(long ledgerId, long entryId, int size) {
+        ByteBuf entry = Unpooled.buffer(size);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        while (entry.isWritable()) {
+            entry.writeByte((int) (entryId + entry.writerIndex()));
+        }
+        return entry;
+    }
+
+    /**
+     * Location, as returned by {@link EntryLogger#addEntry}, and size of an entry.
+     */
+    private static class EntryInfo {
+        final long location;
+        final int size;
+
+        EntryInfo(long location, int size) {
+            this.location = location;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EntryInfo && ((EntryInfo) o).location == location && ((EntryInfo) o).size == size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(location) * 31 + size;
+        }
+
+        @Override
+        public String toString() {
+            return "(location=" + location + ", size=" + size + ")";
+        }
+    }
+
+    private static String key(long ledgerId, long entryId) {
+        return ledgerId + ":" + entryId;
+    }
+
+    private static void assertEntries(EntryLogger entryLogger, Map<String, Long> locations,
+                                      Map<String, Integer> sizes) throws Exception {
+        for (Map.Entry<String, Long> location : locations.entrySet()) {
+            String[] ids = location.getKey().split(":");
+            long ledgerId = Long.parseLong(ids[0]);
+            long entryId = Long.parseLong(ids[1]);
+            ByteBuf expected = generateEntry(ledgerId, entryId, sizes.get(location.getKey()));
+            ByteBuf entry = entryLogger.readEntry(ledgerId, entryId, location.getValue());
+            assertEquals(expected, entry);
+            expected.release();
+            entry.release();
+        }
+    }
+
+    @Test
+    public void testDirectIO() throws Exception {
+        assumeTrue(DirectIO.isSupported(curDir));
+        conf.setEntryLogDirectIOEnabled(true);
+        // A small cache, so that the blocks are evicted while reading back the entries
+        conf.setEntryLogDirectIOReadBlockSize(8 * 1024);
+        conf.setEntryLogDirectIOReadCacheSize(64 * 1024);
+        EntryLogger entryLogger = new EntryLogger(conf);
+
+        // Entries which straddle the block boundaries, flushed while the last block is only partly written
+        Map<String, Long> locations = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        Random random = new Random(1);
+        long[] nextEntryIds = new long[3];
+        for (int i = 0; i < 2000; i++) {
+            int ledgerId = 1 + random.nextInt(nextEntryIds.length);
+            long entryId = nextEntryIds[ledgerId - 1]++;
+            int size = 16 + random.nextInt(i % 50 == 0 ? 100_000 : 5000);
+            ByteBuf entry = generateEntry(ledgerId, entryId, size);
+            locations.put(key(ledgerId, entryId), entryLogger.addEntry(ledgerId, entry, true));
+            sizes.put(key(ledgerId, entryId), size);
+            entry.release();
+            if (random.nextInt(20) == 0) {
+                entryLogger.flush();
+                // The last block of the current log is read back before it's full
+                assertEntries(entryLogger, locations, sizes);
+            }
+        }
+        entryLogger.flush();
+        assertEntries(entryLogger, locations, sizes);
+
+        // Once the log is sealed
+        ((EntryLogManagerBase) entryLogger.getEntryLogManager()).createNewLog(EntryLogger.UNASSIGNED_LEDGERID);
+        entryLogger.flush();
+        assertEntries(entryLogger, locations, sizes);
+        entryLogger.shutdown();
+
+        // The file has no padding, it's the same with buffered I/O
+        conf.setEntryLogDirectIOEnabled(false);
+        entryLogger = new EntryLogger(conf);
+        assertEntries(entryLogger, locations, sizes);
+        entryLogger.shutdown();
+    }
+
+    @Test
+    public void testMmapReads() throws Exception {
+        conf.setEntryLogMmapReadEnabled(true);
+        conf.setEntryLogMmapMaxMappedLogs(1);
+        EntryLogger entryLogger = new EntryLogger(conf);
+        EntryLogManagerBase entryLogManager = (EntryLogManagerBase) entryLogger.getEntryLogManager();
+        long[] locations = new long[3];
+        for (int i = 0; i < locations.length; i++) {
+            ByteBuf entry = generateEntry(1, i, 1000);
+            locations[i] = entryLogger.addEntry(1, entry, true);
+            entry.release();
+            // each entry in its own log
+            entryLogManager.createNewLog(EntryLogger.UNASSIGNED_LEDGERID);
+        }
+        entryLogger.flush();
+
+        // The entry read from the first log holds a reference on its mapping
+        ByteBuf entry0 = entryLogger.readEntry(1, 0, locations[0]);
+        ByteBuf entry1 = entryLogger.readEntry(1, 1, locations[1]);
+        // zero-copy slices of the mappings
+        assertTrue(entry0 instanceof CompositeByteBuf);
+        assertTrue(entry1 instanceof CompositeByteBuf);
+        ByteBuf expected = generateEntry(1, 0, 1000);
+        // the first log was evicted by the second one, but it's still mapped
+        assertEquals(expected, entry0);
+        expected.release();
+        entry0.release();
+        assertEquals(0, entry0.refCnt());
+
+        // A log deleted by the GC is unmapped once the entries read from it are released
+        assertTrue(entryLogger.removeEntryLog(locations[1] >> 32));
+        assertFalse(new File(curDir, Long.toHexString(locations[1] >> 32) + ".log").exists());
+        expected = generateEntry(1, 1, 1000);
+        assertEquals(expected, entry1);
+        expected.release();
+        entry1.release();
+
+        // The reference counts of the mappings, as seen through the cache
+        MappedEntryLogCache cache = new MappedEntryLogCache(1);
+        long logId2 = locations[2] >> 32;
+        MappedEntryLog log = cache.get(logId2, new File(curDir, Long.toHexString(logId2) + ".log"));
+        // held by the cache and by the caller
+        assertEquals(2, log.refCnt());
+        ByteBuf slice = log.retainedSlice((int) (locations[2] & 0xffffffffL), 1000);
+        assertEquals(3, log.refCnt());
+        log.release();
+
+        // Mapping another log evicts the first one, which stays mapped for the slice
+        long logId0 = locations[0] >> 32;
+        MappedEntryLog other = cache.get(logId0, new File(curDir, Long.toHexString(logId0) + ".log"));
+        assertNull(cache.getIfPresent(logId2));
+        assertEquals(1, log.refCnt());
+        expected = generateEntry(1, 2, 1000);
+        assertEquals(expected, slice);
+        expected.release();
+        slice.release();
+        assertEquals(0, log.refCnt());
+
+        other.release();
+        cache.invalidate(logId0);
+        assertEquals(0, other.refCnt());
+        cache.close();
+
+        entryLogger.shutdown();
+    }
+
+    private static ByteBuf transfer(FileRegion region) throws Exception {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        assertEquals(region.count(), region.transferTo(Channels.newChannel(content), 0));
+        return Unpooled.wrappedBuffer(content.toByteArray());
+    }
+
+    @Test
+    public void testEntryRegions() throws Exception {
+        EntryLogger entryLogger = new EntryLogger(conf);
+        ByteBuf large = generateEntry(1, 0, 10_000);
+        ByteBuf small = generateEntry(1, 1, 100);
+        long largeLocation = entryLogger.addEntry(1, large, true);
+        long smallLocation = entryLogger.addEntry(1, small, true);
+
+        // The entries of the current log are read in memory
+        entryLogger.flush();
+        assertNull(entryLogger.getEntryRegion(1, 0, largeLocation, 1000));
+
+        ((EntryLogManagerBase) entryLogger.getEntryLogManager()).createNewLog(EntryLogger.UNASSIGNED_LEDGERID);
+        entryLogger.flush();
+        assertNull(entryLogger.getEntryRegion(1, 1, smallLocation, 1000));
+        FileRegion region = entryLogger.getEntryRegion(1, 0, largeLocation, 1000);
+        assertEquals(10_000, region.count());
+        ByteBuf content = transfer(region);
+        assertEquals(large, content);
+        content.release();
+        region.release();
+
+        // A region stays readable when its log is deleted by the GC
+        region = entryLogger.getEntryRegion(1, 0, largeLocation, 1000);
+        assertTrue(entryLogger.removeEntryLog(largeLocation >> 32));
+        assertNull(entryLogger.getEntryRegion(1, 0, largeLocation, 1000));
+        content = transfer(region);
+        assertEquals(large, content);
+        content.release();
+        region.release();
+        // the file handle is closed with the region
+        assertFalse(((DefaultFileRegion) region).isOpen());
+
+        large.release();
+        small.release();
+        entryLogger.shutdown();
+    }
+
+    private static ByteBuf generateMixedEntry(long ledgerId, long entryId) {
+        switch ((int) (entryId % 3)) {
+        case 0:
+            // below the min size of the compressed entries
+            return EntryLogCompressionTest.compressibleEntry(ledgerId, entryId, 100);
+        case 1:
+            return EntryLogCompressionTest.compressibleEntry(ledgerId, entryId, 5000);
+        default:
+            return EntryLogCompressionTest.incompressibleEntry(ledgerId, entryId, 5000);
+        }
+    }
+
+    @Test
+    public void testCompressedEntries() throws Exception {
+        conf.setEntryLogCompressionCodec("SNAPPY");
+        conf.setEntryLogCompressionMinEntrySize(512);
+        EntryLogger entryLogger = new EntryLogger(conf);
+        long[] locations = new long[60];
+        for (int i = 0; i < locations.length; i++) {
+            ByteBuf entry = generateMixedEntry(1, i);
+            locations[i] = entryLogger.addEntry(1, entry, true);
+            entry.release();
+        }
+        entryLogger.flush();
+        long logId = locations[0] >> 32;
+        File logFile = new File(curDir, Long.toHexString(logId) + ".log");
+
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "r")) {
+            // The log is flagged as holding compressed entries
+            file.seek(4);
+            assertEquals(EntryLogger.HEADER_V2, file.readInt());
+            file.seek(20);
+            assertTrue((file.readInt() & EntryLogger.HEADER_FLAG_COMPRESSED_ENTRIES) != 0);
+
+            // Only the large compressible entries are stored compressed
+            for (int i = 0; i < locations.length; i++) {
+                file.seek((locations[i] & 0xffffffffL) - 4);
+                int sizeField = file.readInt();
+                assertEquals("Entry " + i, i % 3 == 1, EntryLogCompression.isCompressed(sizeField));
+                if (i % 3 == 1) {
+                    assertTrue(EntryLogCompression.storedEntrySize(sizeField) < 5000);
+                }
+            }
+        }
+
+        for (int i = 0; i < locations.length; i++) {
+            ByteBuf expected = generateMixedEntry(1, i);
+            ByteBuf entry = entryLogger.readEntry(1, i, locations[i]);
+            assertEquals(expected, entry);
+            expected.release();
+            entry.release();
+        }
+
+        // The scanned entries are decompressed
+        ((EntryLogManagerBase) entryLogger.getEntryLogManager()).createNewLog(EntryLogger.UNASSIGNED_LEDGERID);
+        entryLogger.flush();
+        List<ByteBuf> scanned = new ArrayList<>();
+        entryLogger.scanEntryLog(logId, new EntryLogger.EntryLogScanner() {
+            @Override
+            public boolean accept(long ledgerId) {
+                return true;
+            }
+
+            @Override
+            public void process(long ledgerId, long offset, ByteBuf entry) {
+                scanned.add(Unpooled.copiedBuffer(entry));
+            }
+        });
+        assertEquals(locations.length, scanned.size());
+        for (int i = 0; i < locations.length; i++) {
+            ByteBuf expected = generateMixedEntry(1, i);
+            assertEquals(expected, scanned.get(i));
+            expected.release();
+            scanned.get(i).release();
+        }
+        entryLogger.shutdown();
+    }
+
+    /**
+     * Add interleaved entries of several ledgers in the current entry log, and seal it.
+     *
+     * @return the entries added, by ledger and entry id
+     */
+    private static Map<String, Long> addEntriesAndSealLog(EntryLogger entryLogger) throws Exception {
+        Map<String, Long> locations = new HashMap<>();
+        Random random = new Random(1);
+        long[] nextEntryIds = new long[10];
+        for (int i = 0; i < 5000; i++) {
+            int ledgerId = 1 + random.nextInt(nextEntryIds.length);
+            long entryId = nextEntryIds[ledgerId - 1]++;
+            ByteBuf entry = generateEntry(ledgerId, entryId, 16 + random.nextInt(2000));
+            locations.put(key(ledgerId, entryId), entryLogger.addEntry(ledgerId, entry, true));
+            entry.release();
+        }
+        ((EntryLogManagerBase) entryLogger.getEntryLogManager()).createNewLog(EntryLogger.UNASSIGNED_LEDGERID);
+        entryLogger.flush();
+        return locations;
+    }
+
+    private static Map<String, EntryInfo> scanFooter(EntryLogger entryLogger, long logId) throws Exception {
+        Map<String, EntryInfo> entries = new HashMap<>();
+        assertTrue(entryLogger.scanEntryLogFooter(logId, new EntryLogger.EntryLocationScanner() {
+            @Override
+            public boolean accept(long ledgerId) {
+                return true;
+            }
+
+            @Override
+            public void process(long ledgerId, long entryId, long offset, int entrySize) {
+                entries.put(key(ledgerId, entryId), new EntryInfo((logId << 32) | (offset + 4), entrySize));
+            }
+        }));
+        return entries;
+    }
+
+    private static Map<String, EntryInfo> scanEntries(EntryLogger entryLogger, long logId) throws Exception {
+        Map<String, EntryInfo> entries = new HashMap<>();
+        entryLogger.scanEntryLog(logId, new EntryLogger.EntryLogScanner() {
+            @Override
+            public boolean accept(long ledgerId) {
+                return true;
+            }
+
+            @Override
+            public void process(long ledgerId, long offset, ByteBuf entry) {
+                entries.put(key(ledgerId, entry.getLong(entry.readerIndex() + 8)),
+                        new EntryInfo((logId << 32) | (offset + 4), entry.readableBytes()));
+            }
+        });
+        return entries;
+    }
+
+    @Test
+    public void testFooterIndexMatchesFullScan() throws Exception {
+        EntryLogger entryLogger = new EntryLogger(conf);
+        Map<String, Long> locations = addEntriesAndSealLog(entryLogger);
+        long logId = locations.get(key(1, 0)) >> 32;
+
+        Map<String, EntryInfo> indexed = scanFooter(entryLogger, logId);
+        assertEquals(scanEntries(entryLogger, logId), indexed);
+        for (Map.Entry<String, Long> location : locations.entrySet()) {
+            assertEquals(location.getValue().longValue(), indexed.get(location.getKey()).location);
+        }
+
+        // The ledger sizes rebuilt from the footer index are the ones of the ledgers map
+        EntryLogMetadata metadata = entryLogger.extractEntryLogMetadataFromIndex(logId);
+        Map<Long, Long> ledgerSizes = new HashMap<>();
+        for (Map.Entry<String, EntryInfo> entry : indexed.entrySet()) {
+            long ledgerId = Long.parseLong(entry.getKey().split(":")[0]);
+            ledgerSizes.merge(ledgerId, entry.getValue().size + 4L, Long::sum);
+        }
+        assertEquals(ledgerSizes.size(), metadata.getLedgersMap().size());
+        for (Map.Entry<Long, Long> ledgerSize : ledgerSizes.entrySet()) {
+            assertEquals(ledgerSize.getValue().longValue(), metadata.getLedgersMap().get(ledgerSize.getKey()));
+        }
+        entryLogger.shutdown();
+    }
+
+    @Test
+    public void testFooterIndexWithCompression() throws Exception {
+        conf.setEntryLogCompressionCodec("snappy");
+        EntryLogger entryLogger = new EntryLogger(conf);
+        Map<String, Long> locations = addEntriesAndSealLog(entryLogger);
+        long logId = locations.get(key(1, 0)) >> 32;
+
+        Map<String, EntryInfo> indexed = scanFooter(entryLogger, logId);
+        assertEquals(locations.size(), indexed.size());
+        for (Map.Entry<String, Long> location : locations.entrySet()) {
+            assertEquals(location.getValue().longValue(), indexed.get(location.getKey()).location);
+        }
+        entryLogger.shutdown();
+    }
+
+    @Test
+    public void testCorruptedFooterIndex() throws Exception {
+        EntryLogger entryLogger = new EntryLogger(conf);
+        Map<String, Long> locations = addEntriesAndSealLog(entryLogger);
+        long logId = locations.get(key(1, 0)) >> 32;
+        Map<String, EntryInfo> scanned = scanEntries(entryLogger, logId);
+        entryLogger.shutdown();
+
+        // Change the entry id of the first entry in the footer index, at the offset stored in the log header
+        File logFile = new File(curDir, Long.toHexString(logId) + ".log");
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            file.seek(24);
+            long footerIndexOffset = file.readLong();
+            file.seek(footerIndexOffset + 12);
+            file.writeLong(Long.MAX_VALUE);
+        }
+
+        // The corrupted index is ignored as a whole, and the entry log is scanned instead
+        entryLogger = new EntryLogger(conf);
+        assertFalse(entryLogger.scanEntryLogFooter(logId, new EntryLogger.EntryLocationScanner() {
+            @Override
+            public boolean accept(long ledgerId) {
+                return true;
+            }
+
+            @Override
+            public void process(long ledgerId, long entryId, long offset, int entrySize) {
+                fail("No entry should be read from a corrupted footer index");
+            }
+        }));
+        assertEquals(scanned, scanEntries(entryLogger, logId));
+        entryLogger.shutdown();
+    }
+
+    @Test
+    public void testFooterIndexDisabled() throws Exception {
+        conf.setEntryLogFooterIndexEnabled(false);
+        EntryLogger entryLogger = new EntryLogger(conf);
+        Map<String, Long> locations = addEntriesAndSealLog(entryLogger);
+        long logId = locations.get(key(1, 0)) >> 32;
+
+        assertFalse(entryLogger.scanEntryLogFooter(logId, new EntryLogger.EntryLocationScanner() {
+            @Override
+            public boolean accept(long ledgerId) {
+                return true;
+            }
+
+            @Override
+            public void process(long ledgerId, long entryId, long offset, int entrySize) {
+                fail("The entry log has no footer index");
+            }
+        }));
+        assertEquals(locations.size(), scanEntries(entryLogger, logId).size());
+        entryLogger.shutdown();
+    }
+
+    private void testTransferEntryLog(boolean compression) throws Exception {
+        if (compression) {
+            conf.setEntryLogCompressionCodec("snappy");
+        }
+        EntryLogger entryLogger = new EntryLogger(conf);
+        // Blocks of consecutive entries of each ledger, some of them larger than a single transfer
+        Map<String, Long> locations = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        Random random = new Random(2);
+        long[] nextEntryIds = new long[4];
+        for (int block = 0; block < 40; block++) {
+            int ledgerId = 1 + block % nextEntryIds.length;
+            int blockSize = 1 + random.nextInt(40);
+            for (int i = 0; i < blockSize; i++) {
+                long entryId = nextEntryIds[ledgerId - 1]++;
+                int size = 16 + random.nextInt(i % 10 == 0 ? 300_000 : 2000);
+                ByteBuf entry = generateEntry(ledgerId, entryId, size);
+                locations.put(key(ledgerId, entryId), entryLogger.addEntry(ledgerId, entry, true));
+                sizes.put(key(ledgerId, entryId), size);
+                entry.release();
+            }
+        }
+        ((EntryLogManagerBase) entryLogger.getEntryLogManager()).createNewLog(EntryLogger.UNASSIGNED_LEDGERID);
+        entryLogger.flush();
+        long logId = locations.get(key(1, 0)) >> 32;
+
+        // Copy the entries of the ledgers 1 and 3 to the current entry log
+        Map<String, Long> newLocations = new HashMap<>();
+        assertTrue(entryLogger.transferEntryLog(logId, new EntryLogger.EntryLocationScanner() {
+            @Override
+            public boolean accept(long ledgerId) {
+                return ledgerId == 1 || ledgerId == 3;
+            }
+
+            @Override
+            public void process(long ledgerId, long entryId, long newLocation, int entrySize) {
+                assertTrue(accept(ledgerId));
+                newLocations.put(key(ledgerId, entryId), newLocation);
+            }
+        }));
+        ((EntryLogManagerBase) entryLogger.getEntryLogManager()).createNewLog(EntryLogger.UNASSIGNED_LEDGERID);
+        entryLogger.flush();
+
+        long copiedEntries = nextEntryIds[0] + nextEntryIds[2];
+        assertEquals(copiedEntries, newLocations.size());
+        long newLogId = newLocations.get(key(1, 0)) >> 32;
+        for (Map.Entry<String, Long> newLocation : newLocations.entrySet()) {
+            String[] ids = newLocation.getKey().split(":");
+            long ledgerId = Long.parseLong(ids[0]);
+            long entryId = Long.parseLong(ids[1]);
+            assertEquals(newLogId, newLocation.getValue() >> 32);
+            ByteBuf entry = entryLogger.readEntry(ledgerId, entryId, newLocation.getValue());
+            ByteBuf expected = generateEntry(ledgerId, entryId, sizes.get(newLocation.getKey()));
+            assertEquals(expected, entry);
+            entry.release();
+            expected.release();
+        }
+
+        // The copied entries are registered in the ledgers map and the footer index of the new entry log
+        Map<String, EntryInfo> indexed = scanFooter(entryLogger, newLogId);
+        if (!compression) {
+            // The full scan returns the entries uncompressed, while the footer index has their stored size
+            assertEquals(scanEntries(entryLogger, newLogId), indexed);
+        }
+        assertEquals(copiedEntries, indexed.size());
+        for (Map.Entry<String, Long> newLocation : newLocations.entrySet()) {
+            assertEquals(newLocation.getValue().longValue(), indexed.get(newLocation.getKey()).location);
+        }
+        EntryLogMetadata metadata = entryLogger.extractEntryLogMetadataFromIndex(newLogId);
+        assertEquals(2, metadata.getLedgersMap().size());
+        EntryLogMetadata oldMetadata = entryLogger.extractEntryLogMetadataFromIndex(logId);
+        assertEquals(oldMetadata.getLedgersMap().get(1), metadata.getLedgersMap().get(1));
+        assertEquals(oldMetadata.getLedgersMap().get(3), metadata.getLedgersMap().get(3));
+        entryLogger.shutdown();
+    }
+
+    @Test
+    public void testTransferEntryLog() throws Exception {
+        testTransferEntryLog(false);
+    }
+
+    @Test
+    public void testTransferEntryLogWithCompression() throws Exception {
+        testTransferEntryLog(true);
+    }
+
+    @Test
+    public void testTransferEntryLogWithoutFooterIndex() throws Exception {
+        conf.setEntryLogFooterIndexEnabled(false);
+        EntryLogger entryLogger = new EntryLogger(conf);
+        Map<String, Long> locations = addEntriesAndSealLog(entryLogger);
+        long logId = locations.get(key(1, 0)) >> 32;
+
+        assertFalse(entryLogger.transferEntryLog(logId, new EntryLogger.EntryLocationScanner() {
+            @Override
+            public boolean accept(long ledgerId) {
+                return true;
+            }
+
+            @Override
+            public void process(long ledgerId, long entryId, long newLocation, int entrySize) {
+                fail("The entries of a log without footer index can't be transferred");
+            }
+        }));
+        entryLogger.shutdown();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.test.TmpDirs;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link EntryLogTierMover}.
+ */
+public class EntryLogTierMoverTest {
+
+    private static final int NUM_ENTRIES = 200;
+    private static final int ENTRY_SIZE = 1000;
+
+    private final TmpDirs tmpDirs = new TmpDirs();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Counter counter = NullStatsLogger.INSTANCE.getCounter("moved");
+    private File hotDir;
+    private File coldDir;
+    private ServerConfiguration conf;
+    private LedgerDirsManager ledgerDirsManager;
+    private EntryLogger entryLogger;
+
+    @Before
+    public void setup() throws Exception {
+        File hotLedgerDir = tmpDirs.createNew("hot", ".dir");
+        File coldLedgerDir = tmpDirs.createNew("cold", ".dir");
+        hotDir = BookieImpl.getCurrentDirectory(hotLedgerDir);
+        coldDir = BookieImpl.getCurrentDirectory(coldLedgerDir);
+        BookieImpl.checkDirectoryStructure(hotDir);
+        BookieImpl.checkDirectoryStructure(coldDir);
+
+        conf = new ServerConfiguration();
+        conf.setLedgerDirNames(new String[] { hotLedgerDir.toString(), coldLedgerDir.toString() });
+        conf.setColdLedgerDirNames(new String[] { coldLedgerDir.toString() });
+        conf.setColdEntryLogAgeThreshold(0);
+        // Each entry log is copied in about a second
+        conf.setColdEntryLogMoveRateByBytes(NUM_ENTRIES * ENTRY_SIZE);
+        ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        entryLogger = new EntryLogger(conf, ledgerDirsManager);
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        executor.shutdownNow();
+        entryLogger.shutdown();
+        tmpDirs.cleanup();
+    }
+
+    private static ByteBuf generateEntry(long ledgerId, long entryId) {
+        ByteBuf entry = Unpooled.buffer(ENTRY_SIZE);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        while (entry.isWritable()) {
+            entry.writeByte((int) (ledgerId + entryId + entry.writerIndex()));
+        }
+        return entry;
+    }
+
+    /**
+     * Write an entry log holding the entries of a ledger, and seal it.
+     *
+     * @return the locations of the entries
+     */
+    private long[] writeEntryLog(long ledgerId) throws Exception {
+        long[] locations = new long[NUM_ENTRIES];
+        for (int i = 0; i < NUM_ENTRIES; i++) {
+            ByteBuf entry = generateEntry(ledgerId, i);
+            locations[i] = entryLogger.addEntry(ledgerId, entry);
+            entry.release();
+        }
+        ((EntryLogManagerBase) entryLogger.getEntryLogManager()).createNewLog(EntryLogger.UNASSIGNED_LEDGERID);
+        entryLogger.flush();
+        return locations;
+    }
+
+    private void assertEntries(long ledgerId, long[] locations) throws Exception {
+        for (int i = 0; i < locations.length; i++) {
+            ByteBuf expected = generateEntry(ledgerId, i);
+            ByteBuf entry = entryLogger.readEntry(ledgerId, i, locations[i]);
+            assertEquals(expected, entry);
+            expected.release();
+            entry.release();
+        }
+    }
+
+    private static long logId(long[] locations) {
+        return locations[0] >>> 32;
+    }
+
+    private static File logFile(File dir, long logId) {
+        return new File(dir, Long.toHexString(logId) + ".log");
+    }
+
+    @Test
+    public void testReadsDuringMove() throws Exception {
+        long[] locations1 = writeEntryLog(1);
+        long[] locations2 = writeEntryLog(2);
+        long logId1 = logId(locations1);
+        long logId2 = logId(locations2);
+        // The new entry logs are created in the hot ledger dir
+        assertEquals(hotDir, entryLogger.getDirForLogId(logId1));
+        assertEquals(hotDir, entryLogger.getDirForLogId(logId2));
+
+        // The first entry log is opened before the move
+        assertEntries(1, locations1);
+
+        EntryLogTierMover mover = new EntryLogTierMover(conf, entryLogger, ledgerDirsManager, counter, counter);
+        AtomicBoolean moving = new AtomicBoolean(true);
+        Future<?> move = executor.submit(() -> {
+            try {
+                mover.moveColdEntryLogs(Arrays.asList(logId1, logId2), () -> true);
+            } finally {
+                moving.set(false);
+            }
+        });
+        int reads = 0;
+        while (moving.get()) {
+            assertEntries(1, locations1);
+            assertEntries(2, locations2);
+            reads++;
+        }
+        move.get(30, TimeUnit.SECONDS);
+        assertTrue("Reads during the move: " + reads, reads > 0);
+
+        for (long logId : new long[] { logId1, logId2 }) {
+            assertEquals(coldDir, entryLogger.getDirForLogId(logId));
+            assertTrue(logFile(coldDir, logId).exists());
+            assertFalse(logFile(hotDir, logId).exists());
+        }
+        assertEquals(0, coldDir.listFiles((d, name) -> name.endsWith(EntryLogger.MOVING_SUFFIX)).length);
+        // The channels opened before the move still read the removed files
+        assertEntries(1, locations1);
+        assertEntries(2, locations2);
+
+        // The next run closes the channels, the entry logs are reopened in the cold ledger dir
+        mover.moveColdEntryLogs(Arrays.asList(logId1, logId2), () -> true);
+        assertEquals(coldDir, entryLogger.getDirForLogId(logId1));
+        assertEntries(1, locations1);
+        assertEntries(2, locations2);
+    }
+
+    @Test
+    public void testEntryLogsTooRecent() throws Exception {
+        conf.setColdEntryLogAgeThreshold(TimeUnit.HOURS.toSeconds(1));
+        long[] locations = writeEntryLog(1);
+        long logId = logId(locations);
+
+        EntryLogTierMover mover = new EntryLogTierMover(conf, entryLogger, ledgerDirsManager, counter, counter);
+        mover.moveColdEntryLogs(Arrays.asList(logId), () -> true);
+        assertEquals(hotDir, entryLogger.getDirForLogId(logId));
+        assertEntries(1, locations);
+    }
+
+    @Test
+    public void testCleanUpInterruptedMoves() throws Exception {
+        long[] locations = writeEntryLog(1);
+        long logId = logId(locations);
+
+        // A move interrupted after the rename: both copies are left
+        File hotCopy = logFile(hotDir, logId);
+        File coldCopy = logFile(coldDir, logId);
+        Files.copy(hotCopy.toPath(), coldCopy.toPath());
+        // A move interrupted during the copy
+        File partialCopy = new File(coldDir, Long.toHexString(logId + 1) + ".log" + EntryLogger.MOVING_SUFFIX);
+        assertTrue(partialCopy.createNewFile());
+
+        new EntryLogTierMover(conf, entryLogger, ledgerDirsManager, counter, counter);
+        assertFalse(hotCopy.exists());
+        assertFalse(partialCopy.exists());
+        assertTrue(coldCopy.exists());
+        entryLogger.removeFromChannelsAndClose(logId);
+        assertEntries(1, locations);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.test.TmpDirs;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link JournalGroupCommitController}.
+ */
+public class JournalGroupCommitControllerTest {
+
+    private static final long MAX_GROUP_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final TmpDirs tmpDirs = new TmpDirs();
+
+    @After
+    public void cleanup() throws Exception {
+        tmpDirs.cleanup();
+    }
+
+    private static JournalGroupCommitController newController() {
+        return new JournalGroupCommitController(MAX_GROUP_WAIT_NANOS, NullStatsLogger.INSTANCE);
+    }
+
+    /**
+     * Record force writes of a fixed latency and entries arriving at a fixed interval.
+     */
+    private static void feed(JournalGroupCommitController controller, long forceWriteNanos, long intervalNanos) {
+        long now = 1;
+        for (int i = 0; i < 100; i++) {
+            controller.recordForceWrite(forceWriteNanos);
+            controller.recordArrival(now);
+            now += intervalNanos;
+        }
+    }
+
+    @Test
+    public void testNoSamples() {
+        JournalGroupCommitController controller = newController();
+        // The configured window until both the force writes and the arrivals are sampled
+        assertEquals(MAX_GROUP_WAIT_NANOS, controller.getGroupWaitNanos());
+        assertEquals(Long.MAX_VALUE, controller.getTargetGroupEntries());
+
+        controller.recordArrival(1000);
+        controller.recordArrival(2000);
+        assertEquals(MAX_GROUP_WAIT_NANOS, controller.getGroupWaitNanos());
+        assertEquals(Long.MAX_VALUE, controller.getTargetGroupEntries());
+    }
+
+    @Test
+    public void testSlowArrivals() {
+        JournalGroupCommitController controller = newController();
+        // One entry every 5ms, the disk syncs in 1ms: waiting would only add latency
+        feed(controller, TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(0, controller.getGroupWaitNanos());
+        assertEquals(1, controller.getTargetGroupEntries());
+    }
+
+    @Test
+    public void testFastArrivals() {
+        JournalGroupCommitController controller = newController();
+        // One entry every 100us, the disk syncs in 2ms: a group of 20 entries per force write
+        feed(controller, TimeUnit.MILLISECONDS.toNanos(2), TimeUnit.MICROSECONDS.toNanos(100));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2), controller.getGroupWaitNanos());
+        assertEquals(20, controller.getTargetGroupEntries());
+
+        // The disk gets slower: the window follows, up to journalMaxGroupWaitMSec
+        feed(controller, TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MICROSECONDS.toNanos(100));
+        assertTrue(controller.getGroupWaitNanos() > TimeUnit.MILLISECONDS.toNanos(4));
+        assertTrue(controller.getGroupWaitNanos() <= TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    public void testWindowCappedByMaxGroupWait() {
+        JournalGroupCommitController controller = newController();
+        feed(controller, TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(MAX_GROUP_WAIT_NANOS, controller.getGroupWaitNanos());
+        // The target still reflects the entries expected during a whole force write
+        assertEquals(50, controller.getTargetGroupEntries());
+    }
+
+    @Test
+    public void testBatchedArrivals() {
+        JournalGroupCommitController controller = newController();
+        controller.recordForceWrite(TimeUnit.MILLISECONDS.toNanos(2));
+
+        // A single batch of entries, which all share the same enqueue time
+        for (int i = 0; i < 10; i++) {
+            controller.recordArrival(1000);
+        }
+        // Grouped for a whole force write, without a target size
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2), controller.getGroupWaitNanos());
+        assertEquals(Long.MAX_VALUE, controller.getTargetGroupEntries());
+
+        // Batches of 10 entries every 1ms, so one entry every 100us on average
+        long now = 1000;
+        for (int batch = 0; batch < 100; batch++) {
+            now += TimeUnit.MILLISECONDS.toNanos(1);
+            for (int i = 0; i < 10; i++) {
+                controller.recordArrival(now);
+            }
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2), controller.getGroupWaitNanos());
+        long target = controller.getTargetGroupEntries();
+        assertTrue("Target " + target, target > 1 && target < Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testOutOfOrderArrivals() {
+        JournalGroupCommitController controller = newController();
+        controller.recordForceWrite(TimeUnit.MILLISECONDS.toNanos(1));
+        controller.recordArrival(TimeUnit.MILLISECONDS.toNanos(10));
+        // Enqueued by another thread just before the previous entry
+        controller.recordArrival(TimeUnit.MILLISECONDS.toNanos(9));
+        controller.recordArrival(TimeUnit.MILLISECONDS.toNanos(30));
+        assertEquals(0, controller.getGroupWaitNanos());
+        assertEquals(1, controller.getTargetGroupEntries());
+    }
+
+    private Journal newJournal(boolean adaptiveGroupWrites, boolean adaptiveGroupWait) throws Exception {
+        File journalDir = tmpDirs.createNew("journal", "dir");
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(journalDir));
+        File ledgerDir = tmpDirs.createNew("ledger", "dir");
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(ledgerDir));
+
+        ServerConfiguration conf = new ServerConfiguration();
+        conf.setJournalDirName(journalDir.getPath());
+        conf.setLedgerDirNames(new String[] { ledgerDir.getPath() });
+        conf.setJournalAdaptiveGroupWrites(adaptiveGroupWrites);
+        conf.setJournalAdaptiveGroupWaitEnabled(adaptiveGroupWait);
+        LedgerDirsManager ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        return new Journal(0, BookieImpl.getCurrentDirectory(journalDir), conf, ledgerDirsManager);
+    }
+
+    @Test
+    public void testFallbackToStaticGroupCommit() throws Exception {
+        // The static journalMaxGroupWaitMSec / buffered thresholds are used unless both flags are on
+        assertNull(newJournal(false, false).getGroupCommitController());
+        assertNull(newJournal(true, false).getGroupCommitController());
+        assertNull(newJournal(false, true).getGroupCommitController());
+        assertNotNull(newJournal(true, true).getGroupCommitController());
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.bookkeeper.test.TmpDirs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link JournalWriteRing}.
+ */
+public class JournalWriteRingTest {
+
+    private static final int CAPACITY = 4096;
+
+    private final TmpDirs tmpDirs = new TmpDirs();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private File journalFile;
+    private BufferedChannel bc;
+    private JournalWriteRing ring;
+
+    @Before
+    public void setup() throws Exception {
+        journalFile = new File(tmpDirs.createNew("journal", "ring"), "journal");
+        bc = new BufferedChannel(UnpooledByteBufAllocator.DEFAULT,
+                new RandomAccessFile(journalFile, "rw").getChannel(), 1024);
+        ring = new JournalWriteRing(UnpooledByteBufAllocator.DEFAULT, CAPACITY);
+        assertEquals(CAPACITY, ring.capacity());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        executor.shutdownNow();
+        if (ring != null) {
+            ring.close();
+        }
+        bc.close();
+        tmpDirs.cleanup();
+    }
+
+    private static byte[] entry(int producer, int seq, int size) {
+        byte[] entry = new byte[size];
+        for (int i = 0; i < size; i++) {
+            entry[i] = (byte) (producer * 31 + seq + i);
+        }
+        if (size >= 8) {
+            entry[0] = (byte) producer;
+            entry[1] = (byte) (seq >>> 16);
+            entry[2] = (byte) (seq >>> 8);
+            entry[3] = (byte) seq;
+        }
+        return entry;
+    }
+
+    private int append(byte[] entry) {
+        ByteBuf buf = Unpooled.wrappedBuffer(entry);
+        try {
+            return ring.append(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Read the records written to the journal file.
+     */
+    private List<byte[]> readRecords() throws Exception {
+        bc.flush();
+        List<byte[]> records = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(journalFile))) {
+            while (in.available() > 0) {
+                byte[] record = new byte[in.readInt()];
+                in.readFully(record);
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static void assertBlocked(Future<?> future) throws Exception {
+        try {
+            future.get(200, TimeUnit.MILLISECONDS);
+            fail("The append should wait for room in the ring");
+        } catch (TimeoutException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentProducersAcrossWrap() throws Exception {
+        int producers = 4;
+        int recordsPerProducer = 500;
+        AtomicBoolean producing = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(producer);
+                for (int seq = 0; seq < recordsPerProducer; seq++) {
+                    append(entry(producer, seq, 8 + random.nextInt(300)));
+                }
+            }));
+        }
+        // The journal thread drains the ring while the producers wrap around it many times
+        Future<?> consumer = executor.submit(() -> {
+            while (producing.get()) {
+                ring.writeTo(bc);
+            }
+            ring.writeTo(bc);
+            return null;
+        });
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        producing.set(false);
+        consumer.get(30, TimeUnit.SECONDS);
+        assertEquals(0, ring.pendingBytes());
+
+        // All the records are replayed, each producer's records in order
+        int[] nextSeqs = new int[producers];
+        Random[] randoms = new Random[producers];
+        for (int p = 0; p < producers; p++) {
+            randoms[p] = new Random(p);
+        }
+        List<byte[]> records = readRecords();
+        assertEquals(producers * recordsPerProducer, records.size());
+        for (byte[] record : records) {
+            int producer = record[0];
+            int seq = nextSeqs[producer]++;
+            assertArrayEquals(entry(producer, seq, 8 + randoms[producer].nextInt(300)), record);
+        }
+    }
+
+    @Test
+    public void testFullRingBlocksUntilWriteTo() throws Exception {
+        assertEquals(2004, append(entry(0, 0, 2000)));
+        assertEquals(2004, append(entry(0, 1, 2000)));
+        assertEquals(4008, ring.pendingBytes());
+
+        Future<Integer> blocked = executor.submit(() -> append(entry(0, 2, 2000)));
+        assertBlocked(blocked);
+
+        assertEquals(4008, ring.writeTo(bc));
+        assertEquals(2004, (int) blocked.get(10, TimeUnit.SECONDS));
+        assertEquals(2004, ring.writeTo(bc));
+
+        List<byte[]> records = readRecords();
+        assertEquals(3, records.size());
+        for (int seq = 0; seq < 3; seq++) {
+            assertArrayEquals(entry(0, seq, 2000), records.get(seq));
+        }
+    }
+
+    @Test
+    public void testRecordOfCapacitySize() throws Exception {
+        // Not aligned on the start of the ring, so that the record wraps around
+        append(entry(0, 0, 100));
+        ring.writeTo(bc);
+
+        assertEquals(CAPACITY, append(entry(0, 1, CAPACITY - 4)));
+        // A record of the ring size needs the whole ring
+        Future<Integer> blocked = executor.submit(() -> append(entry(0, 2, CAPACITY - 4)));
+        assertBlocked(blocked);
+        assertEquals(CAPACITY, ring.writeTo(bc));
+        assertEquals(CAPACITY, (int) blocked.get(10, TimeUnit.SECONDS));
+        assertEquals(CAPACITY, ring.writeTo(bc));
+
+        List<byte[]> records = readRecords();
+        assertEquals(3, records.size());
+        assertArrayEquals(entry(0, 1, CAPACITY - 4), records.get(1));
+        assertArrayEquals(entry(0, 2, CAPACITY - 4), records.get(2));
+    }
+
+    @Test
+    public void testRecordLargerThanCapacity() throws Exception {
+        try {
+            append(entry(0, 0, CAPACITY - 3));
+            fail("The record doesn't fit in the ring");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        // Nothing was reserved
+        assertEquals(CAPACITY, append(entry(0, 1, CAPACITY - 4)));
+        assertEquals(CAPACITY, ring.writeTo(bc));
+    }
+
+    @Test
+    public void testCloseReleasesWaitingProducers() throws Exception {
+        append(entry(0, 0, 4000));
+        Future<Integer> blocked = executor.submit(() -> append(entry(0, 1, 2000)));
+        assertBlocked(blocked);
+
+        CompletableFuture<Void> closed = CompletableFuture.runAsync(ring::close, executor);
+        try {
+            blocked.get(10, TimeUnit.SECONDS);
+            fail("The ring is closed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        closed.get(10, TimeUnit.SECONDS);
+
+        try {
+            append(entry(0, 2, 100));
+            fail("The ring is closed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        ring = null;
+    }
+}
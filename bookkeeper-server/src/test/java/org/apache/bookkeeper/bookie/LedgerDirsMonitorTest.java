@@ -0,0 +1,150 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.LedgerDirsManager.LedgerDirsListener;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.test.TmpDirs;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link LedgerDirsMonitor}.
+ */
+public class LedgerDirsMonitorTest {
+
+    private static final int LATENCY_THRESHOLD_MS = 100;
+
+    private final TmpDirs tmpDirs = new TmpDirs();
+    private final List<File> degraded = Collections.synchronizedList(new ArrayList<>());
+    private final List<File> recovered = Collections.synchronizedList(new ArrayList<>());
+    private File dir1;
+    private File dir2;
+    private LedgerDirsManager ledgerDirsManager;
+    private LedgerDirsMonitor monitor;
+
+    @Before
+    public void setup() throws Exception {
+        File ledgerDir1 = tmpDirs.createNew("ledger", "dir1");
+        File ledgerDir2 = tmpDirs.createNew("ledger", "dir2");
+        dir1 = BookieImpl.getCurrentDirectory(ledgerDir1);
+        dir2 = BookieImpl.getCurrentDirectory(ledgerDir2);
+        BookieImpl.checkDirectoryStructure(dir1);
+        BookieImpl.checkDirectoryStructure(dir2);
+
+        ServerConfiguration conf = new ServerConfiguration();
+        conf.setLedgerDirNames(new String[] { ledgerDir1.toString(), ledgerDir2.toString() });
+        conf.setDiskDegradedLatencyThresholdMs(LATENCY_THRESHOLD_MS);
+        DiskChecker diskChecker = new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold());
+        ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(), diskChecker);
+        ledgerDirsManager.addLedgerDirsListener(new LedgerDirsListener() {
+            @Override
+            public void diskDegraded(File disk) {
+                degraded.add(disk);
+            }
+
+            @Override
+            public void diskRecovered(File disk) {
+                recovered.add(disk);
+            }
+        });
+        monitor = new LedgerDirsMonitor(conf, diskChecker, Collections.singletonList(ledgerDirsManager));
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        tmpDirs.cleanup();
+    }
+
+    /**
+     * Record a write of the given latency in the dir.
+     */
+    private void write(File dir, long latencyMs) {
+        LedgerDirLoad load = ledgerDirsManager.getDirLoad(dir);
+        long startNanos = load.startIo();
+        load.writeCompleted(startNanos - TimeUnit.MILLISECONDS.toNanos(latencyMs));
+    }
+
+    /**
+     * Record the writes of an interval, and check the dirs at the end of the interval.
+     */
+    private void check(long dir1LatencyMs, long dir2LatencyMs) {
+        write(dir1, dir1LatencyMs);
+        write(dir2, dir2LatencyMs);
+        monitor.check();
+    }
+
+    @Test
+    public void testDegradedDirHysteresis() throws Exception {
+        check(10, 10);
+        assertTrue(ledgerDirsManager.getDegradedLedgerDirs().isEmpty());
+
+        // Above the threshold
+        check(2 * LATENCY_THRESHOLD_MS, 10);
+        assertEquals(Collections.singletonList(dir1), ledgerDirsManager.getDegradedLedgerDirs());
+        assertEquals(Collections.singletonList(dir1), degraded);
+        assertEquals(Collections.singletonList(dir2),
+                ledgerDirsManager.preferHealthyLedgerDirs(Arrays.asList(dir1, dir2)));
+
+        // Between half the threshold and the threshold: still degraded, without further notification
+        check(LATENCY_THRESHOLD_MS * 3 / 4, 10);
+        check(LATENCY_THRESHOLD_MS, 10);
+        assertTrue(ledgerDirsManager.isDirDegraded(dir1));
+        assertEquals(1, degraded.size());
+        assertTrue(recovered.isEmpty());
+
+        // Under half the threshold
+        check(LATENCY_THRESHOLD_MS / 4, 10);
+        assertFalse(ledgerDirsManager.isDirDegraded(dir1));
+        assertEquals(Collections.singletonList(dir1), recovered);
+        assertEquals(Arrays.asList(dir1, dir2), ledgerDirsManager.preferHealthyLedgerDirs(Arrays.asList(dir1, dir2)));
+
+        // Not degraded again until above the threshold
+        check(LATENCY_THRESHOLD_MS * 3 / 4, 10);
+        assertFalse(ledgerDirsManager.isDirDegraded(dir1));
+        assertEquals(1, degraded.size());
+    }
+
+    @Test
+    public void testAllDirsDegraded() throws Exception {
+        check(2 * LATENCY_THRESHOLD_MS, 2 * LATENCY_THRESHOLD_MS);
+        assertEquals(2, ledgerDirsManager.getDegradedLedgerDirs().size());
+        assertEquals(2, degraded.size());
+        // The new entry logs still have a dir to go to
+        assertEquals(Arrays.asList(dir1, dir2), ledgerDirsManager.preferHealthyLedgerDirs(Arrays.asList(dir1, dir2)));
+
+        check(10, 2 * LATENCY_THRESHOLD_MS);
+        assertEquals(Collections.singletonList(dir2), ledgerDirsManager.getDegradedLedgerDirs());
+        assertEquals(Collections.singletonList(dir1), recovered);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRange;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRangeIterator;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ScanAndCompareGarbageCollector}.
+ */
+public class ScanAndCompareGarbageCollectorTest {
+
+    private ServerConfiguration conf;
+    // Ledgers of the metadata store
+    private Set<Long> ledgersInMetadata;
+    // Ledgers stored on the bookie
+    private Set<Long> ledgersOnBookie;
+    private Map<Long, LedgerMetadataListener> listeners;
+    private int fullScans;
+    private LedgerManager ledgerManager;
+    private CompactableLedgerStorage ledgerStorage;
+    private List<Long> cleanedLedgers;
+
+    @Before
+    public void setup() throws Exception {
+        conf = new ServerConfiguration();
+        conf.setBookieId("bookie-0");
+        conf.setGcIncrementalLedgerScanEnabled(true);
+
+        ledgersInMetadata = new TreeSet<>(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        ledgersOnBookie = new TreeSet<>(ledgersInMetadata);
+        listeners = new ConcurrentHashMap<>();
+        fullScans = 0;
+        cleanedLedgers = new ArrayList<>();
+
+        ledgerManager = mock(LedgerManager.class);
+        when(ledgerManager.getLedgerRanges(anyLong())).thenAnswer(invocation -> {
+            fullScans++;
+            Iterator<LedgerRange> ranges =
+                    Collections.singletonList(new LedgerRange(new TreeSet<>(ledgersInMetadata))).iterator();
+            return new LedgerRangeIterator() {
+                @Override
+                public boolean hasNext() {
+                    return ranges.hasNext();
+                }
+
+                @Override
+                public LedgerRange next() {
+                    return ranges.next();
+                }
+            };
+        });
+        doAnswer(invocation -> {
+            long ledgerId = invocation.getArgument(0);
+            LedgerMetadataListener listener = invocation.getArgument(1);
+            listeners.put(ledgerId, listener);
+            // As the ledger managers do, the deletion of a ledger already deleted is notified on registration
+            if (!ledgersInMetadata.contains(ledgerId)) {
+                deleteLedger(ledgerId, true);
+            }
+            return null;
+        }).when(ledgerManager).registerLedgerMetadataListener(anyLong(), any(LedgerMetadataListener.class));
+        doAnswer(invocation -> listeners.remove((Long) invocation.getArgument(0)))
+                .when(ledgerManager).unregisterLedgerMetadataListener(anyLong(), any(LedgerMetadataListener.class));
+
+        ledgerStorage = mock(CompactableLedgerStorage.class);
+        when(ledgerStorage.getActiveLedgersInRange(anyLong(), anyLong()))
+                .thenAnswer(invocation -> new TreeSet<>(ledgersOnBookie));
+    }
+
+    private void deleteLedger(long ledgerId, boolean notify) {
+        ledgersInMetadata.remove(ledgerId);
+        LedgerMetadataListener listener = notify ? listeners.remove(ledgerId) : null;
+        if (listener != null) {
+            listener.onChanged(ledgerId, null);
+        }
+    }
+
+    private void gc(ScanAndCompareGarbageCollector collector) {
+        collector.gc(ledgerId -> {
+            cleanedLedgers.add(ledgerId);
+            ledgersOnBookie.remove(ledgerId);
+        });
+    }
+
+    @Test
+    public void testIncrementalScan() throws Exception {
+        ScanAndCompareGarbageCollector collector = new ScanAndCompareGarbageCollector(ledgerManager, ledgerStorage,
+                conf, NullStatsLogger.INSTANCE);
+
+        // The first gc scans all the ledgers, and watches the ledgers stored on the bookie
+        gc(collector);
+        assertEquals(1, fullScans);
+        assertTrue(cleanedLedgers.isEmpty());
+        assertEquals(ledgersOnBookie, listeners.keySet());
+
+        deleteLedger(2L, true);
+        deleteLedger(4L, true);
+        gc(collector);
+        assertEquals(1, fullScans);
+        assertEquals(Arrays.asList(2L, 4L), cleanedLedgers);
+        assertEquals(new TreeSet<>(Arrays.asList(1L, 3L, 5L)), listeners.keySet());
+
+        // A ledger stored on the bookie after its deletion is notified on registration, and cleaned on the next gc
+        ledgersOnBookie.add(6L);
+        gc(collector);
+        assertFalse(cleanedLedgers.contains(6L));
+        gc(collector);
+        assertEquals(Arrays.asList(2L, 4L, 6L), cleanedLedgers);
+        assertEquals(1, fullScans);
+        assertEquals(new TreeSet<>(Arrays.asList(1L, 3L, 5L)), listeners.keySet());
+    }
+
+    @Test
+    public void testMissedNotificationCaughtByFullScan() throws Exception {
+        conf.setGcLedgerFullScanWaitTime(500, TimeUnit.MILLISECONDS);
+        ScanAndCompareGarbageCollector collector = new ScanAndCompareGarbageCollector(ledgerManager, ledgerStorage,
+                conf, NullStatsLogger.INSTANCE);
+        gc(collector);
+        assertEquals(1, fullScans);
+
+        // The deletion of the ledger 3 is not notified
+        deleteLedger(3L, false);
+        gc(collector);
+        assertEquals(1, fullScans);
+        assertTrue(cleanedLedgers.isEmpty());
+
+        Thread.sleep(600);
+        gc(collector);
+        assertEquals(2, fullScans);
+        assertEquals(Collections.singletonList(3L), cleanedLedgers);
+        assertFalse(listeners.containsKey(3L));
+    }
+
+    @Test
+    public void testIncrementalScanDisabled() throws Exception {
+        conf.setGcIncrementalLedgerScanEnabled(false);
+        ScanAndCompareGarbageCollector collector = new ScanAndCompareGarbageCollector(ledgerManager, ledgerStorage,
+                conf, NullStatsLogger.INSTANCE);
+        gc(collector);
+        deleteLedger(2L, false);
+        gc(collector);
+
+        assertEquals(2, fullScans);
+        assertEquals(Collections.singletonList(2L), cleanedLedgers);
+        assertTrue(listeners.isEmpty());
+    }
+}
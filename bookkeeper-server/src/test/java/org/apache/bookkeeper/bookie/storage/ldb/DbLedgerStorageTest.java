@@ -0,0 +1,429 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
+import org.apache.bookkeeper.bookie.EntryLogger;
+import org.apache.bookkeeper.bookie.LedgerDirsManager;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.test.TmpDirs;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DbLedgerStorage}.
+ */
+public class DbLedgerStorageTest {
+
+    private final TmpDirs tmpDirs = new TmpDirs();
+    private ServerConfiguration conf;
+    private DbLedgerStorage storage;
+
+    @Before
+    public void setup() throws Exception {
+        File ledgerDir = tmpDirs.createNew("bkTest", ".dir");
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(ledgerDir));
+
+        conf = new ServerConfiguration();
+        conf.setLedgerDirNames(new String[] { ledgerDir.toString() });
+        conf.setAllowLoopback(true);
+        conf.setEntryLogSizeLimit(1024 * 1024);
+        conf.setProperty(DbLedgerStorage.WRITE_CACHE_MAX_SIZE_MB, 16);
+        conf.setProperty(DbLedgerStorage.READ_AHEAD_CACHE_MAX_SIZE_MB, 16);
+        // Only the entries read with getEntry() are inserted in the read cache
+        conf.setProperty(DbLedgerStorage.READ_AHEAD_CACHE_BATCH_SIZE, 0);
+    }
+
+    private void startStorage() throws Exception {
+        LedgerDirsManager ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        storage = new DbLedgerStorage();
+        storage.initialize(conf, null, ledgerDirsManager, ledgerDirsManager, NullStatsLogger.INSTANCE,
+                UnpooledByteBufAllocator.DEFAULT);
+        storage.setMasterKey(1, "key".getBytes());
+        storage.setMasterKey(2, "key".getBytes());
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        if (storage != null) {
+            storage.shutdown();
+        }
+        tmpDirs.cleanup();
+    }
+
+    private static ByteBuf generateEntry(long ledgerId, long entryId, int size) {
+        ByteBuf entry = Unpooled.buffer(size);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        while (entry.isWritable()) {
+            entry.writeByte((int) (ledgerId + entryId + entry.writerIndex()));
+        }
+        return entry;
+    }
+
+    private void addEntry(long ledgerId, long entryId, int size) throws Exception {
+        ByteBuf entry = generateEntry(ledgerId, entryId, size);
+        storage.addEntry(entry);
+        entry.release();
+    }
+
+    /**
+     * Check that a batch holds the same entries as the ones read one by one with getEntry().
+     */
+    private void assertEntries(long ledgerId, long firstEntryId, long lastEntryId, List<ByteBuf> entries)
+            throws Exception {
+        try {
+            assertEquals(lastEntryId - firstEntryId + 1, entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                ByteBuf expected = storage.getEntry(ledgerId, firstEntryId + i);
+                assertEquals("Entry " + ledgerId + ":" + (firstEntryId + i), expected, entries.get(i));
+                expected.release();
+            }
+        } finally {
+            entries.forEach(ByteBuf::release);
+        }
+    }
+
+    @Test
+    public void testGetEntriesAcrossCachesAndEntryLogs() throws Exception {
+        startStorage();
+        for (long entryId = 0; entryId < 10; entryId++) {
+            addEntry(1, entryId, 1000);
+        }
+        storage.flush();
+
+        // Entries 4 and 5 in the read cache, the others in the entry log
+        storage.getEntry(1, 4).release();
+        storage.getEntry(1, 5).release();
+
+        // Entries 10 to 14 still in the write cache
+        for (long entryId = 10; entryId < 15; entryId++) {
+            addEntry(1, entryId, 1000);
+        }
+
+        assertEntries(1, 0, 14, storage.getEntries(1, 0, 100, Long.MAX_VALUE));
+        assertEntries(1, 3, 11, storage.getEntries(1, 3, 9, Long.MAX_VALUE));
+        assertEntries(1, 6, 14, storage.getEntries(1, 6, 100, Long.MAX_VALUE));
+
+        // The size limit stops the batch before the entry that doesn't fit, but always returns the first entry
+        assertEntries(1, 2, 4, storage.getEntries(1, 2, 100, 3500));
+        assertEntries(1, 2, 2, storage.getEntries(1, 2, 100, 10));
+    }
+
+    @Test
+    public void testGetEntriesWithGap() throws Exception {
+        startStorage();
+        for (long entryId = 0; entryId < 10; entryId++) {
+            if (entryId != 5) {
+                addEntry(1, entryId, 1000);
+            }
+        }
+        storage.flush();
+        addEntry(1, 12, 1000);
+
+        // The batch ends at the first missing entry
+        assertEntries(1, 0, 4, storage.getEntries(1, 0, 100, Long.MAX_VALUE));
+        assertEntries(1, 6, 9, storage.getEntries(1, 6, 100, Long.MAX_VALUE));
+        assertEntries(1, 12, 12, storage.getEntries(1, 12, 100, Long.MAX_VALUE));
+
+        try {
+            storage.getEntries(1, 5, 100, Long.MAX_VALUE);
+            fail("The first entry of the batch doesn't exist");
+        } catch (Bookie.NoEntryException e) {
+            // expected
+        }
+        try {
+            storage.getEntries(1, 10, 100, Long.MAX_VALUE);
+            fail("The first entry of the batch doesn't exist");
+        } catch (Bookie.NoEntryException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGetEntriesAcrossSpanStrideAndEntryLogs() throws Exception {
+        startStorage();
+        long entryId = 0;
+        for (int i = 0; i < 5; i++) {
+            // A run of adjacent entries, followed by an entry larger than the span stride
+            for (int j = 0; j < 5; j++) {
+                addEntry(1, entryId++, 2000);
+            }
+            addEntry(1, entryId++, 100 * 1024);
+            storage.flush();
+
+            // Entries of another ledger stored between two consecutive entries
+            for (int j = 0; j < 10; j++) {
+                addEntry(2, i * 10 + j, 10 * 1024);
+            }
+            storage.flush();
+        }
+
+        // The entries are spread over several entry logs
+        EntryLogger entryLogger = storage.getLedgerStorageList().get(0).getEntryLogger();
+        assertTrue(entryLogger.getEntryLogsSet().size() > 1);
+
+        assertEntries(1, 0, entryId - 1, storage.getEntries(1, 0, 1000, Long.MAX_VALUE));
+        assertEntries(1, 3, entryId - 1, storage.getEntries(1, 3, 1000, Long.MAX_VALUE));
+        assertEntries(2, 0, 49, storage.getEntries(2, 0, 1000, Long.MAX_VALUE));
+        assertEntries(2, 7, 26, storage.getEntries(2, 7, 20, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testGetEntriesWithRunLengthIndex() throws Exception {
+        conf.setProperty(DbLedgerStorage.LOCATION_INDEX_RUN_LENGTH_ENABLED, true);
+        // The locations are read from the index, not from the location cache
+        conf.setProperty(DbLedgerStorage.LOCATION_CACHE_MAX_SIZE_MB, 0);
+        startStorage();
+        for (long entryId = 0; entryId < 30; entryId++) {
+            if (entryId == 25) {
+                continue;
+            }
+            // Entries of various sizes, a run broken by another ledger, and a run split across two flushes
+            addEntry(1, entryId, 1000 + (int) (entryId % 3) * 500);
+            if (entryId % 10 == 9) {
+                addEntry(2, entryId, 1000);
+            }
+            if (entryId == 14) {
+                storage.flush();
+            }
+        }
+        storage.flush();
+
+        // Read everything from the entry logs
+        storage.shutdown();
+        startStorage();
+        for (long entryId = 0; entryId < 30; entryId++) {
+            if (entryId != 25) {
+                ByteBuf expected = generateEntry(1, entryId, 1000 + (int) (entryId % 3) * 500);
+                ByteBuf entry = storage.getEntry(1, entryId);
+                assertEquals(expected, entry);
+                expected.release();
+                entry.release();
+            }
+        }
+        assertEntries(1, 0, 24, storage.getEntries(1, 0, 100, Long.MAX_VALUE));
+        assertEntries(1, 12, 16, storage.getEntries(1, 12, 5, Long.MAX_VALUE));
+        assertEntries(1, 26, 29, storage.getEntries(1, 26, 100, Long.MAX_VALUE));
+        assertEntries(2, 9, 9, storage.getEntries(2, 9, 100, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testParallelFlush() throws Exception {
+        File secondLedgerDir = tmpDirs.createNew("bkTest", ".dir");
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(secondLedgerDir));
+        conf.setLedgerDirNames(new String[] { conf.getLedgerDirNames()[0], secondLedgerDir.toString() });
+        conf.setProperty(DbLedgerStorage.FLUSH_PARALLELISM, 3);
+        startStorage();
+        assertEquals(2, storage.getLedgerStorageList().size());
+
+        // Ledgers of both directories, and of all the shards of each directory
+        for (long ledgerId = 1; ledgerId <= 12; ledgerId++) {
+            storage.setMasterKey(ledgerId, "key".getBytes());
+        }
+        for (long entryId = 0; entryId < 20; entryId++) {
+            for (long ledgerId = 1; ledgerId <= 12; ledgerId++) {
+                addEntry(ledgerId, entryId, 1000);
+            }
+        }
+        storage.flush();
+        for (long ledgerId = 1; ledgerId <= 12; ledgerId++) {
+            addEntry(ledgerId, 20, 1000);
+        }
+        storage.checkpoint(Checkpoint.MAX);
+
+        storage.shutdown();
+        startStorage();
+        for (long ledgerId = 1; ledgerId <= 12; ledgerId++) {
+            for (long entryId = 0; entryId <= 20; entryId++) {
+                ByteBuf expected = generateEntry(ledgerId, entryId, 1000);
+                ByteBuf entry = storage.getEntry(ledgerId, entryId);
+                assertEquals(expected, entry);
+                expected.release();
+                entry.release();
+            }
+        }
+    }
+
+    private static ByteBuf generateMixedEntry(long ledgerId, long entryId) {
+        ByteBuf entry = Unpooled.buffer(entryId % 3 == 0 ? 100 : 5000);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        if (entryId % 3 == 2) {
+            // Doesn't compress, stored as is
+            byte[] payload = new byte[entry.writableBytes()];
+            new Random(entryId).nextBytes(payload);
+            entry.writeBytes(payload);
+        }
+        while (entry.isWritable()) {
+            entry.writeByte((int) (entryId + entry.writerIndex() % 64));
+        }
+        return entry;
+    }
+
+    @Test
+    public void testReadAheadOfCompressedEntries() throws Exception {
+        conf.setEntryLogCompressionCodec("SNAPPY");
+        conf.setEntryLogCompressionMinEntrySize(512);
+        conf.setProperty(DbLedgerStorage.READ_AHEAD_CACHE_BATCH_SIZE, 100);
+        startStorage();
+        // Small raw entries, compressed entries and incompressible raw entries, next to each other in the entry log
+        int numEntries = 60;
+        for (long entryId = 0; entryId < numEntries; entryId++) {
+            ByteBuf entry = generateMixedEntry(1, entryId);
+            storage.addEntry(entry);
+            entry.release();
+        }
+        storage.flush();
+
+        SingleDirectoryDbLedgerStorage singleDirStorage = storage.getLedgerStorageList().get(0);
+        ByteBuf expected = generateMixedEntry(1, 0);
+        ByteBuf entry = storage.getEntry(1, 0);
+        assertEquals(expected, entry);
+        expected.release();
+        entry.release();
+
+        // The read-ahead hops over the entries by their stored size, so it finds all the following ones
+        for (long entryId = 1; entryId < numEntries; entryId++) {
+            assertTrue("Entry " + entryId, singleDirStorage.isInReadCache(1, entryId));
+            expected = generateMixedEntry(1, entryId);
+            entry = storage.getEntry(1, entryId);
+            assertEquals(expected, entry);
+            expected.release();
+            entry.release();
+        }
+    }
+
+    @Test
+    public void testReadExecutor() throws Exception {
+        startStorage();
+        addEntry(1, 0, 1000);
+        storage.flush();
+        // No read threads by default
+        assertNull(storage.getReadExecutor(1, 0));
+        storage.shutdown();
+
+        conf.setProperty(DbLedgerStorage.READ_THREADS_PER_DIRECTORY, 1);
+        startStorage();
+        addEntry(1, 1, 1000);
+        Executor executor = storage.getReadExecutor(1, 0);
+        assertNotNull(executor);
+        // Read inline: in the write cache, the last add confirmed
+        assertNull(storage.getReadExecutor(1, 1));
+        assertNull(storage.getReadExecutor(1, BookieProtocol.LAST_ADD_CONFIRMED));
+
+        CompletableFuture<String> read = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                ByteBuf entry = storage.getEntry(1, 0);
+                ByteBuf expected = generateEntry(1, 0, 1000);
+                assertEquals(expected, entry);
+                expected.release();
+                entry.release();
+                read.complete(Thread.currentThread().getName());
+            } catch (Throwable t) {
+                read.completeExceptionally(t);
+            }
+        });
+        assertTrue(read.get(10, TimeUnit.SECONDS).startsWith("db-storage-read"));
+        // Now in the read cache
+        assertNull(storage.getReadExecutor(1, 0));
+    }
+
+    @Test
+    public void testReadQueueFull() throws Exception {
+        conf.setProperty(DbLedgerStorage.READ_THREADS_PER_DIRECTORY, 1);
+        conf.setProperty(DbLedgerStorage.READ_QUEUE_DEPTH_PER_DIRECTORY, 1);
+        startStorage();
+        addEntry(1, 0, 1000);
+        storage.flush();
+        Executor executor = storage.getReadExecutor(1, 0);
+
+        // The read thread is busy and the queue is full
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<Thread> threads = new ArrayBlockingQueue<>(3);
+        executor.execute(() -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            threads.add(Thread.currentThread());
+        });
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        executor.execute(() -> threads.add(Thread.currentThread()));
+
+        // Run by the calling thread rather than failed
+        executor.execute(() -> threads.add(Thread.currentThread()));
+        assertEquals(Thread.currentThread(), threads.poll());
+
+        release.countDown();
+        assertTrue(threads.poll(10, TimeUnit.SECONDS).getName().startsWith("db-storage-read"));
+        assertTrue(threads.poll(10, TimeUnit.SECONDS).getName().startsWith("db-storage-read"));
+    }
+
+    @Test
+    public void testReadAfterShutdown() throws Exception {
+        conf.setProperty(DbLedgerStorage.READ_THREADS_PER_DIRECTORY, 1);
+        startStorage();
+        addEntry(1, 0, 1000);
+        storage.flush();
+        Executor executor = storage.getReadExecutor(1, 0);
+        storage.shutdown();
+        storage = null;
+
+        // Not run by the calling thread on the closed storage
+        try {
+            executor.execute(() -> fail("The storage is shut down"));
+            fail("The storage is shut down");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+}
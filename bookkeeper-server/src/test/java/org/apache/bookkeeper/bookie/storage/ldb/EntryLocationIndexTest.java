@@ -0,0 +1,326 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.EntryLocation;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.Batch;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.CloseableIterator;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorageFactory.DbConfigType;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.test.TmpDirs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link EntryLocationIndex}.
+ */
+public class EntryLocationIndexTest {
+
+    private final TmpDirs tmpDirs = new TmpDirs();
+    private ServerConfiguration classicConf;
+    private ServerConfiguration runLengthConf;
+    private String basePath;
+
+    @Before
+    public void setup() throws Exception {
+        File ledgerDir = tmpDirs.createNew("bkTest", ".dir");
+        File currentDir = BookieImpl.getCurrentDirectory(ledgerDir);
+        BookieImpl.checkDirectoryStructure(currentDir);
+        basePath = currentDir.toString();
+
+        classicConf = new ServerConfiguration();
+        classicConf.setLedgerDirNames(new String[] { ledgerDir.toString() });
+        runLengthConf = new ServerConfiguration(classicConf);
+        runLengthConf.setProperty(DbLedgerStorage.LOCATION_INDEX_RUN_LENGTH_ENABLED, true);
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        tmpDirs.cleanup();
+    }
+
+    @Test
+    public void testLocationCacheEviction() throws Exception {
+        // A single bucket of 4 slots
+        EntryLocationCache cache = new EntryLocationCache(4 * 3 * Long.BYTES);
+        for (long entryId = 0; entryId < 4; entryId++) {
+            cache.put(1, entryId, 100 + entryId);
+        }
+        // Updating a cached entry doesn't take another slot
+        cache.put(1, 0, 200);
+        for (long entryId = 0; entryId < 4; entryId++) {
+            assertEquals(entryId == 0 ? 200 : 100 + entryId, cache.get(1, entryId));
+        }
+
+        // The oldest slots are overwritten first
+        cache.put(2, 0, 300);
+        cache.put(2, 1, 301);
+        assertEquals(0, cache.get(1, 0));
+        assertEquals(0, cache.get(1, 1));
+        assertEquals(102, cache.get(1, 2));
+        assertEquals(300, cache.get(2, 0));
+        assertEquals(301, cache.get(2, 1));
+
+        // Only the cached entries are updated
+        cache.updateIfPresent(1, 2, 400);
+        cache.updateIfPresent(1, 0, 400);
+        assertEquals(400, cache.get(1, 2));
+        assertEquals(0, cache.get(1, 0));
+
+        cache.removeLedgers(ledgerId -> ledgerId == 2);
+        assertEquals(0, cache.get(2, 0));
+        assertEquals(0, cache.get(2, 1));
+        assertEquals(400, cache.get(1, 2));
+        // The removed entries left free slots
+        cache.put(3, 0, 500);
+        cache.put(3, 1, 501);
+        assertEquals(400, cache.get(1, 2));
+        assertEquals(103, cache.get(1, 3));
+        cache.close();
+    }
+
+    @Test
+    public void testLocationCache() throws Exception {
+        EntryLocationIndex index = new EntryLocationIndex(classicConf, KeyValueStorageRocksDB.factory, basePath,
+                NullStatsLogger.INSTANCE, 1024 * 1024);
+
+        // The recent locations are served by the cache before the batch reaches the index
+        Batch batch = index.newBatch();
+        for (long entryId = 0; entryId < 10; entryId++) {
+            index.addRecentLocation(batch, 1, entryId, 1000 + entryId);
+            index.addRecentLocation(batch, 2, entryId, 2000 + entryId);
+        }
+        assertEquals(1005, index.getLocation(1, 5));
+        long[] locations = new long[20];
+        assertEquals(10, index.getLocations(1, 0, 20, locations));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1000 + i, locations[i]);
+        }
+        batch.flush();
+        batch.close();
+
+        // The cached locations follow the entries moved by the compaction
+        index.updateLocations(Collections.singletonList(new EntryLocation(1, 5, 5005)));
+        assertEquals(5005, index.getLocation(1, 5));
+        assertEquals(1004, index.getLocation(1, 4));
+
+        // The deleted ledgers are purged from the cache, even the entries that never reached the index
+        batch = index.newBatch();
+        index.addRecentLocation(batch, 2, 10, 2010);
+        batch.close();
+        assertEquals(2010, index.getLocation(2, 10));
+        index.delete(2);
+        index.removeOffsetFromDeletedLedgers();
+        assertEquals(0, index.getLocation(2, 5));
+        assertEquals(0, index.getLocation(2, 10));
+        assertEquals(1009, index.getLocation(1, 9));
+
+        index.close();
+    }
+    private EntryLocationIndex newIndex(ServerConfiguration conf) throws IOException {
+        return new EntryLocationIndex(conf, KeyValueStorageRocksDB.factory, basePath, NullStatsLogger.INSTANCE);
+    }
+
+    private long countRecords() throws IOException {
+        KeyValueStorage locationsDb = KeyValueStorageRocksDB.factory.newKeyValueStorage(basePath, "locations",
+                DbConfigType.Default, classicConf);
+        // Not using count(), which is only an estimate with RocksDB
+        long records = 0;
+        try (CloseableIterator<byte[]> keys = locationsDb.keys()) {
+            while (keys.hasNext()) {
+                keys.next();
+                records++;
+            }
+        } finally {
+            locationsDb.close();
+        }
+        return records;
+    }
+
+    // Location of the entries written back to back in the entry log 1, with a varying size
+    private static long location(long ledgerId, long entryId) {
+        return (1L << 32) + ledgerId * 1_000_000 + entryId * 100 + entryId % 7;
+    }
+
+    private static void addLocations(EntryLocationIndex index, long ledgerId, long firstEntryId, long lastEntryId)
+            throws IOException {
+        Batch batch = index.newBatch();
+        for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+            index.addLocation(batch, ledgerId, entryId, location(ledgerId, entryId));
+        }
+        batch.flush();
+        batch.close();
+    }
+
+    private static void assertLocations(EntryLocationIndex index, long ledgerId, long firstEntryId,
+                                        long lastEntryId) throws IOException {
+        for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+            assertEquals(location(ledgerId, entryId), index.getLocation(ledgerId, entryId));
+        }
+        long[] locations = new long[(int) (lastEntryId - firstEntryId + 1)];
+        assertEquals(locations.length, index.getLocations(ledgerId, firstEntryId, locations.length, locations));
+        for (int i = 0; i < locations.length; i++) {
+            assertEquals(location(ledgerId, firstEntryId + i), locations[i]);
+        }
+    }
+
+    @Test
+    public void testRunLengthLocations() throws Exception {
+        EntryLocationIndex index = newIndex(runLengthConf);
+        // More entries than fit in a single run, then a gap
+        addLocations(index, 1, 0, 599);
+        addLocations(index, 1, 700, 709);
+        addLocations(index, 2, 0, 9);
+
+        assertLocations(index, 1, 0, 599);
+        assertLocations(index, 1, 700, 709);
+        assertLocations(index, 2, 0, 9);
+        assertEquals(0, index.getLocation(1, 600));
+        assertEquals(0, index.getLocation(1, 650));
+        assertEquals(0, index.getLocation(1, 710));
+        assertEquals(0, index.getLocation(3, 0));
+        assertEquals(709, index.getLastEntryInLedger(1));
+        assertEquals(9, index.getLastEntryInLedger(2));
+
+        // The range reads stop at the gap
+        long[] locations = new long[200];
+        assertEquals(100, index.getLocations(1, 500, 200, locations));
+        assertEquals(0, index.getLocations(1, 650, 200, locations));
+        index.close();
+
+        // 3 runs for the 600 first entries of ledger 1, 1 run for its last entries, 1 run for ledger 2
+        assertEquals(5, countRecords());
+    }
+
+    @Test
+    public void testRunLengthMergeAcrossBatches() throws Exception {
+        EntryLocationIndex index = newIndex(runLengthConf);
+        for (long entryId = 0; entryId < 100; entryId += 10) {
+            addLocations(index, 1, entryId, entryId + 9);
+        }
+        // Add entries again in the middle of a run, and before the first one
+        addLocations(index, 1, 45, 54);
+        assertLocations(index, 1, 0, 99);
+        assertEquals(99, index.getLastEntryInLedger(1));
+        index.close();
+
+        // The runs continuing the previous ones are merged
+        assertEquals(1, countRecords());
+    }
+
+    @Test
+    public void testRunLengthUpdateLocations() throws Exception {
+        EntryLocationIndex index = newIndex(runLengthConf);
+        addLocations(index, 1, 0, 99);
+
+        // Relocate some entries of the run to another entry log, as the compaction does
+        List<EntryLocation> newLocations = new ArrayList<>();
+        for (long entryId = 20; entryId < 30; entryId++) {
+            newLocations.add(new EntryLocation(1, entryId, (2L << 32) + entryId * 10));
+        }
+        newLocations.add(new EntryLocation(1, 99, 2L << 32));
+        index.updateLocations(newLocations);
+
+        for (long entryId = 0; entryId < 100; entryId++) {
+            long expected = entryId == 99 ? 2L << 32
+                    : entryId >= 20 && entryId < 30 ? (2L << 32) + entryId * 10
+                    : location(1, entryId);
+            assertEquals(expected, index.getLocation(1, entryId));
+        }
+        assertEquals(99, index.getLastEntryInLedger(1));
+        index.close();
+    }
+
+    @Test
+    public void testRunLengthDelete() throws Exception {
+        EntryLocationIndex index = newIndex(runLengthConf);
+        addLocations(index, 1, 0, 299);
+        addLocations(index, 2, 0, 9);
+
+        index.delete(1);
+        index.removeOffsetFromDeletedLedgers();
+
+        assertEquals(0, index.getLocation(1, 0));
+        assertEquals(0, index.getLocation(1, 299));
+        try {
+            index.getLastEntryInLedger(1);
+            fail("Ledger 1 should be deleted");
+        } catch (Bookie.NoEntryException e) {
+            // expected
+        }
+        assertLocations(index, 2, 0, 9);
+        index.close();
+
+        assertEquals(1, countRecords());
+    }
+
+    @Test
+    public void testRunLengthReadsClassicRecords() throws Exception {
+        EntryLocationIndex index = newIndex(classicConf);
+        addLocations(index, 1, 0, 99);
+        index.close();
+
+        index = newIndex(runLengthConf);
+        assertLocations(index, 1, 0, 99);
+        assertEquals(99, index.getLastEntryInLedger(1));
+
+        // The new entries are added as runs next to the classic records
+        addLocations(index, 1, 100, 199);
+        assertLocations(index, 1, 0, 199);
+        assertEquals(199, index.getLastEntryInLedger(1));
+        index.close();
+    }
+
+    @Test
+    public void testMigration() throws Exception {
+        EntryLocationIndex index = newIndex(classicConf);
+        addLocations(index, 1, 0, 299);
+        addLocations(index, 2, 0, 9);
+        index.close();
+        assertEquals(310, countRecords());
+
+        new LocationsIndexMigrationOp(classicConf, true).initiate();
+        assertEquals(3, countRecords());
+        index = newIndex(runLengthConf);
+        assertLocations(index, 1, 0, 299);
+        assertLocations(index, 2, 0, 9);
+        index.close();
+
+        new LocationsIndexMigrationOp(classicConf, false).initiate();
+        assertEquals(310, countRecords());
+        index = newIndex(classicConf);
+        assertLocations(index, 1, 0, 299);
+        assertLocations(index, 2, 0, 9);
+        index.close();
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ReadCache}.
+ */
+public class ReadCacheTest {
+
+    private static ByteBuf entry(long ledgerId, long entryId, int size) {
+        ByteBuf entry = Unpooled.buffer(size, size);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        while (entry.isWritable()) {
+            entry.writeByte((int) (ledgerId + entryId + entry.writerIndex()));
+        }
+        return entry;
+    }
+
+    private static void put(ReadCache cache, long ledgerId, long entryId) {
+        ByteBuf entry = entry(ledgerId, entryId, 100);
+        cache.put(ledgerId, entryId, entry);
+        entry.release();
+    }
+
+    private static void assertCached(ReadCache cache, long ledgerId, long entryId) {
+        ByteBuf cached = cache.get(ledgerId, entryId);
+        assertNotNull("Entry " + ledgerId + ":" + entryId + " should be cached", cached);
+        ByteBuf expected = entry(ledgerId, entryId, 100);
+        assertEquals(expected, cached);
+        expected.release();
+        cached.release();
+    }
+
+    @Test
+    public void testFifoWithoutProtectedRing() {
+        // 10 segments of 1024 bytes, each holding 8 entries of 100 bytes once aligned
+        ReadCache cache = new ReadCache(UnpooledByteBufAllocator.DEFAULT, 10 * 1024, 1024, 0.0, 2);
+        for (long entryId = 0; entryId < 100; entryId++) {
+            put(cache, 1, entryId);
+            if (entryId < 8) {
+                // Reading the first entries again doesn't keep them in the cache
+                assertCached(cache, 1, entryId);
+                assertCached(cache, 1, entryId);
+            }
+        }
+
+        // The 3 oldest segments were cleared to make room for the last 20 entries
+        for (long entryId = 0; entryId < 24; entryId++) {
+            assertNull(cache.get(1, entryId));
+        }
+        for (long entryId = 24; entryId < 100; entryId++) {
+            assertCached(cache, 1, entryId);
+        }
+        assertEquals(76, cache.count());
+        assertEquals(0, cache.getPromotionCount());
+        assertEquals(0, cache.getAdmissionRejectionCount());
+        cache.close();
+    }
+
+    @Test
+    public void testScanDoesNotEvictProtectedEntries() {
+        ReadCache cache = new ReadCache(UnpooledByteBufAllocator.DEFAULT, 20 * 1024, 1024, 0.5, 2);
+        for (long entryId = 0; entryId < 4; entryId++) {
+            put(cache, 1, entryId);
+            // The first read is rejected, the second one promotes the entry
+            assertCached(cache, 1, entryId);
+            assertCached(cache, 1, entryId);
+        }
+        assertEquals(4, cache.getPromotionCount());
+        assertEquals(4, cache.getAdmissionRejectionCount());
+
+        // A sequential scan reading each entry once, much larger than the cache
+        for (long entryId = 0; entryId < 1000; entryId++) {
+            put(cache, 2, entryId);
+            assertCached(cache, 2, entryId);
+        }
+        assertEquals(4, cache.getPromotionCount());
+
+        for (long entryId = 0; entryId < 4; entryId++) {
+            assertCached(cache, 1, entryId);
+        }
+        // The scan only rotated the probation ring
+        assertNull(cache.get(2, 0));
+        assertCached(cache, 2, 999);
+        cache.close();
+    }
+
+    @Test
+    public void testPromotedEntryNotDuplicated() {
+        ReadCache cache = new ReadCache(UnpooledByteBufAllocator.DEFAULT, 20 * 1024, 1024, 0.5, 2);
+        put(cache, 1, 0);
+        assertCached(cache, 1, 0);
+        assertCached(cache, 1, 0);
+        assertEquals(1, cache.count());
+
+        // Read-ahead inserting the entry again
+        put(cache, 1, 0);
+        assertEquals(1, cache.count());
+        cache.close();
+    }
+
+    @Test
+    public void testInvalidAdmissionSettings() {
+        try {
+            new ReadCache(UnpooledByteBufAllocator.DEFAULT, 20 * 1024, 1024, 1.0, 2);
+            fail("The probation ring can't be empty");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new ReadCache(UnpooledByteBufAllocator.DEFAULT, 20 * 1024, 1024, 0.5,
+                    ReadCacheFrequencySketch.MAX_FREQUENCY + 1);
+            fail("The sketch can't count up to the promotion frequency");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void testConcurrentRollOvers(double protectedRatio) throws Exception {
+        // Small segments, so that the ring is rolled over thousands of times
+        ReadCache cache = new ReadCache(UnpooledByteBufAllocator.DEFAULT, 64 * 1024, 4 * 1024, protectedRatio, 2);
+        int numWriters = 2;
+        int numReaders = 4;
+        int entriesPerWriter = 20_000;
+        AtomicLong[] lastEntryIds = new AtomicLong[numWriters];
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        CountDownLatch writersDone = new CountDownLatch(numWriters);
+        AtomicLong hits = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < numWriters; w++) {
+            long ledgerId = w;
+            lastEntryIds[w] = new AtomicLong(-1);
+            threads.add(new Thread(() -> {
+                try {
+                    for (long entryId = 0; entryId < entriesPerWriter; entryId++) {
+                        // Entries of different sizes, so that a torn or misplaced entry can't go unnoticed
+                        ByteBuf entry = entry(ledgerId, entryId, 16 + (int) (entryId * 37 % 500));
+                        cache.put(ledgerId, entryId, entry);
+                        entry.release();
+                        lastEntryIds[(int) ledgerId].set(entryId);
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                } finally {
+                    writersDone.countDown();
+                }
+            }));
+        }
+        for (int r = 0; r < numReaders; r++) {
+            Random random = new Random(r);
+            threads.add(new Thread(() -> {
+                try {
+                    while (writersDone.getCount() > 0) {
+                        long ledgerId = random.nextInt(numWriters);
+                        long lastEntryId = lastEntryIds[(int) ledgerId].get();
+                        if (lastEntryId < 0) {
+                            continue;
+                        }
+                        // Mostly the recent entries, that are likely to still be cached
+                        long entryId = Math.max(0, lastEntryId - random.nextInt(200));
+                        ByteBuf cached = cache.get(ledgerId, entryId);
+                        if (cached != null) {
+                            ByteBuf expected = entry(ledgerId, entryId, 16 + (int) (entryId * 37 % 500));
+                            if (!expected.equals(cached)) {
+                                failures.add(new AssertionError("Wrong content for entry " + ledgerId + ":"
+                                        + entryId));
+                            }
+                            expected.release();
+                            cached.release();
+                            hits.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue("Unexpected failures: " + failures, failures.isEmpty());
+        assertTrue(hits.get() > 0);
+        // Without concurrent writers, no insertion is dropped anymore
+        long droppedInserts = cache.getDroppedInsertCount();
+        for (long ledgerId = 0; ledgerId < numWriters; ledgerId++) {
+            long entryId = entriesPerWriter;
+            ByteBuf expected = entry(ledgerId, entryId, 16 + (int) (entryId * 37 % 500));
+            cache.put(ledgerId, entryId, expected);
+            ByteBuf cached = cache.get(ledgerId, entryId);
+            assertEquals(expected, cached);
+            expected.release();
+            cached.release();
+        }
+        assertEquals(droppedInserts, cache.getDroppedInsertCount());
+        cache.close();
+    }
+
+    @Test
+    public void testConcurrentRollOvers() throws Exception {
+        testConcurrentRollOvers(0.0);
+    }
+
+    @Test
+    public void testConcurrentRollOversWithProtectedRing() throws Exception {
+        testConcurrentRollOvers(0.5);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link WriteCache}.
+ */
+public class WriteCacheTest {
+
+    private static final int LEDGERS = 20;
+    private static final int ENTRIES_PER_LEDGER = 50;
+
+    private final ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+    private WriteCache cache;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        // Several segments, so that the shards read from all of them
+        cache = new WriteCache(allocator, 10 * 1024 * 1024, 64 * 1024);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+        cache.close();
+    }
+
+    private static ByteBuf generateEntry(long ledgerId, long entryId) {
+        ByteBuf entry = Unpooled.buffer(100 + (int) (entryId % 7) * 50);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        while (entry.isWritable()) {
+            entry.writeByte((int) (ledgerId + entryId + entry.writerIndex()));
+        }
+        return entry;
+    }
+
+    private void fillCache() {
+        List<long[]> keys = new ArrayList<>();
+        for (long ledgerId = 1; ledgerId <= LEDGERS; ledgerId++) {
+            for (long entryId = 0; entryId < ENTRIES_PER_LEDGER; entryId++) {
+                keys.add(new long[] { ledgerId, entryId });
+            }
+        }
+        // The entries are not added in order
+        Collections.shuffle(keys);
+        for (long[] key : keys) {
+            ByteBuf entry = generateEntry(key[0], key[1]);
+            assertTrue(cache.put(key[0], key[1], entry));
+            entry.release();
+        }
+    }
+
+    /**
+     * Records the entries passed to a consumer.
+     */
+    private static class RecordingConsumer implements WriteCache.EntryConsumer {
+        final List<long[]> entries = new ArrayList<>();
+
+        @Override
+        public void accept(long ledgerId, long entryId, ByteBuf entry) {
+            ByteBuf expected = generateEntry(ledgerId, entryId);
+            assertEquals(expected, entry);
+            expected.release();
+            entries.add(new long[] { ledgerId, entryId });
+        }
+    }
+
+    @Test
+    public void testParallelForEach() throws Exception {
+        fillCache();
+        cache.deleteLedger(5);
+
+        RecordingConsumer[] consumers = new RecordingConsumer[4];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new RecordingConsumer();
+        }
+        cache.forEach(consumers, executor);
+
+        Set<String> consumed = new HashSet<>();
+        Map<Long, Integer> ledgerShards = new HashMap<>();
+        for (int shard = 0; shard < consumers.length; shard++) {
+            long previousLedgerId = -1;
+            long previousEntryId = -1;
+            for (long[] key : consumers[shard].entries) {
+                // Each entry is passed once
+                assertTrue(consumed.add(key[0] + ":" + key[1]));
+                // All the entries of a ledger are passed to the same consumer
+                Integer ledgerShard = ledgerShards.putIfAbsent(key[0], shard);
+                assertTrue(ledgerShard == null || ledgerShard == shard);
+                // In order within each shard
+                assertTrue(key[0] > previousLedgerId || (key[0] == previousLedgerId && key[1] > previousEntryId));
+                previousLedgerId = key[0];
+                previousEntryId = key[1];
+            }
+        }
+
+        // The deleted ledger is skipped
+        assertEquals((LEDGERS - 1) * ENTRIES_PER_LEDGER, consumed.size());
+        assertNull(ledgerShards.get(5L));
+        // The ledgers are spread over the shards
+        assertEquals(consumers.length, new HashSet<>(ledgerShards.values()).size());
+    }
+
+    @Test
+    public void testParallelForEachFailure() throws Exception {
+        fillCache();
+
+        RecordingConsumer[] consumers = new RecordingConsumer[4];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new RecordingConsumer();
+        }
+        WriteCache.EntryConsumer[] failingConsumers = new WriteCache.EntryConsumer[consumers.length];
+        System.arraycopy(consumers, 0, failingConsumers, 0, consumers.length);
+        failingConsumers[2] = (ledgerId, entryId, entry) -> {
+            throw new IllegalStateException("Failed to write " + ledgerId + "@" + entryId);
+        };
+        try {
+            cache.forEach(failingConsumers, executor);
+            fail("The failure of a consumer should be propagated");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Failed to write"));
+        }
+        // The other shards are still consumed
+        assertFalse(consumers[0].entries.isEmpty());
+
+        // The cache can still be iterated after the failure
+        RecordingConsumer consumer = new RecordingConsumer();
+        cache.forEach(consumer);
+        assertEquals(LEDGERS * ENTRIES_PER_LEDGER, consumer.entries.size());
+    }
+}
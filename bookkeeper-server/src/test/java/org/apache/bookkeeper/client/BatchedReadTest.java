@@ -0,0 +1,219 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage;
+import org.apache.bookkeeper.client.BookKeeper.DigestType;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.test.ZooKeeperUtil;
+import org.apache.bookkeeper.util.LocalBookKeeper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * End-to-end test of {@link LedgerHandle#batchReadAsync(long, int, long)} against a cluster of bookies.
+ */
+public class BatchedReadTest {
+
+    private static final byte[] PASSWORD = "password".getBytes();
+    private static final int NUM_BOOKIES = 3;
+    private static final int NUM_ENTRIES = 20;
+    private static final int ENTRY_SIZE = 1000;
+
+    private final ZooKeeperUtil zkUtil = new ZooKeeperUtil();
+    private LocalBookKeeper cluster;
+    private String metadataServiceUri;
+    private BookKeeper bk;
+
+    @Before
+    @SuppressWarnings("deprecation")
+    public void setup() throws Exception {
+        zkUtil.startCluster();
+        String[] zkAddress = zkUtil.getZooKeeperConnectString().split(":");
+
+        ServerConfiguration serverConf = new ServerConfiguration();
+        serverConf.setAllowLoopback(true);
+        serverConf.setLedgerStorageClass(DbLedgerStorage.class.getName());
+        serverConf.setProperty(DbLedgerStorage.WRITE_CACHE_MAX_SIZE_MB, 16);
+        serverConf.setProperty(DbLedgerStorage.READ_AHEAD_CACHE_MAX_SIZE_MB, 16);
+        // The root path created by ZooKeeperUtil is not reused, LocalBookKeeper creates its own
+        serverConf.setZkLedgersRootPath("/batched-read");
+        cluster = LocalBookKeeper.getLocalBookies(zkAddress[0], Integer.parseInt(zkAddress[1]), NUM_BOOKIES, false,
+                serverConf);
+        cluster.start();
+        metadataServiceUri = serverConf.getMetadataServiceUri();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (bk != null) {
+            bk.close();
+        }
+        if (cluster != null) {
+            cluster.close();
+        }
+        zkUtil.killCluster();
+    }
+
+    private BookKeeper newClient(boolean useV2WireProtocol, boolean batchReadEnabled) throws Exception {
+        ClientConfiguration conf = new ClientConfiguration();
+        conf.setMetadataServiceUri(metadataServiceUri);
+        conf.setUseV2WireProtocol(useV2WireProtocol);
+        conf.setBatchReadEnabled(batchReadEnabled);
+        conf.setReorderReadSequenceEnabled(false);
+        return new BookKeeper(conf);
+    }
+
+    private static byte[] entryData(long entryId) {
+        byte[] data = new byte[ENTRY_SIZE];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (entryId + i);
+        }
+        return data;
+    }
+
+    private long createLedger(int ensembleSize, int writeQuorumSize) throws Exception {
+        try (LedgerHandle lh = bk.createLedger(ensembleSize, writeQuorumSize, writeQuorumSize, DigestType.CRC32,
+                PASSWORD)) {
+            for (long entryId = 0; entryId < NUM_ENTRIES; entryId++) {
+                lh.addEntry(entryData(entryId));
+            }
+            return lh.getId();
+        }
+    }
+
+    /**
+     * Read a batch, and check that its entries are the same as the ones read one by one.
+     *
+     * @return the number of entries of the batch
+     */
+    private static int batchReadAndCompare(LedgerHandle lh, long startEntry, int maxCount, long maxSize)
+            throws Exception {
+        List<Long> entryIds = new ArrayList<>();
+        try (LedgerEntries entries = lh.batchReadAsync(startEntry, maxCount, maxSize).get()) {
+            for (LedgerEntry entry : entries) {
+                long entryId = entry.getEntryId();
+                entryIds.add(entryId);
+                assertEquals(lh.getId(), entry.getLedgerId());
+                assertArrayEquals(entryData(entryId), entry.getEntryBytes());
+
+                Enumeration<org.apache.bookkeeper.client.LedgerEntry> single = lh.readEntries(entryId, entryId);
+                assertArrayEquals(single.nextElement().getEntry(), entry.getEntryBytes());
+            }
+        }
+
+        assertTrue("Empty batch", entryIds.size() > 0);
+        for (int i = 0; i < entryIds.size(); i++) {
+            assertEquals(startEntry + i, (long) entryIds.get(i));
+        }
+        return entryIds.size();
+    }
+
+    private void testBatchRead(boolean useV2WireProtocol) throws Exception {
+        bk = newClient(useV2WireProtocol, true);
+        long ledgerId = createLedger(NUM_BOOKIES, NUM_BOOKIES);
+        try (LedgerHandle lh = bk.openLedger(ledgerId, DigestType.CRC32, PASSWORD)) {
+            assertEquals(NUM_ENTRIES, batchReadAndCompare(lh, 0, NUM_ENTRIES, Long.MAX_VALUE));
+            assertEquals(NUM_ENTRIES - 7, batchReadAndCompare(lh, 7, 100, Long.MAX_VALUE));
+
+            // Count limit
+            assertEquals(5, batchReadAndCompare(lh, 3, 5, Long.MAX_VALUE));
+            assertEquals(1, batchReadAndCompare(lh, 3, 1, Long.MAX_VALUE));
+
+            // Size limit: the batch stops before the entry that doesn't fit, but always holds the first entry
+            int count = batchReadAndCompare(lh, 2, NUM_ENTRIES, 5 * ENTRY_SIZE);
+            assertTrue("Unexpected batch of " + count + " entries", count >= 1 && count <= 5);
+            assertEquals(1, batchReadAndCompare(lh, 2, NUM_ENTRIES, 10));
+        }
+    }
+
+    @Test
+    public void testBatchReadV3() throws Exception {
+        testBatchRead(false);
+    }
+
+    @Test
+    public void testBatchReadV2() throws Exception {
+        testBatchRead(true);
+    }
+
+    @Test
+    public void testFallbackWhenEnsembleLargerThanWriteQuorum() throws Exception {
+        bk = newClient(false, true);
+        long ledgerId = createLedger(NUM_BOOKIES, 2);
+        try (LedgerHandle lh = bk.openLedger(ledgerId, DigestType.CRC32, PASSWORD)) {
+            // The regular reads ignore the size limit
+            assertEquals(10, batchReadAndCompare(lh, 2, 10, 10));
+        }
+    }
+
+    @Test
+    public void testFallbackWhenBatchReadDisabled() throws Exception {
+        bk = newClient(false, false);
+        long ledgerId = createLedger(NUM_BOOKIES, NUM_BOOKIES);
+        try (LedgerHandle lh = bk.openLedger(ledgerId, DigestType.CRC32, PASSWORD)) {
+            assertEquals(10, batchReadAndCompare(lh, 2, 10, 10));
+        }
+    }
+
+    @Test
+    public void testFallbackOnError() throws Exception {
+        bk = newClient(false, true);
+        long ledgerId = createLedger(NUM_BOOKIES, NUM_BOOKIES);
+
+        cluster.removeBookie();
+        List<BookieId> ensemble;
+        try (LedgerHandle lh = bk.openLedger(ledgerId, DigestType.CRC32, PASSWORD)) {
+            ensemble = lh.getLedgerMetadata().getEnsembleAt(0);
+        }
+        while (bk.getBookieWatcher().getBookies().size() == NUM_BOOKIES) {
+            Thread.sleep(100);
+        }
+        int stoppedBookieIndex = -1;
+        for (int i = 0; i < ensemble.size(); i++) {
+            if (!bk.getBookieWatcher().getBookies().contains(ensemble.get(i))) {
+                stoppedBookieIndex = i;
+            }
+        }
+        assertTrue(stoppedBookieIndex >= 0);
+
+        try (LedgerHandle lh = bk.openLedgerNoRecovery(ledgerId, DigestType.CRC32, PASSWORD)) {
+            // Without reordering, the batch starting at this entry is sent to the stopped bookie first: the batch
+            // is then read with regular reads from the other bookies, which ignore the size limit
+            assertEquals(10, batchReadAndCompare(lh, stoppedBookieIndex, 10, 10));
+
+            // Batches sent to the other bookies are still limited
+            assertEquals(1, batchReadAndCompare(lh, (stoppedBookieIndex + 1) % NUM_BOOKIES, 10, 10));
+        }
+    }
+}
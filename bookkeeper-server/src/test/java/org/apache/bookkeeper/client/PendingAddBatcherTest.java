@@ -0,0 +1,214 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeWriteCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.proto.MockBookieClient;
+import org.apache.bookkeeper.proto.MockBookies;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link PendingAddBatcher}.
+ */
+public class PendingAddBatcherTest {
+
+    private static final long LEDGER_ID = 10L;
+
+    private final List<BookieId> ensemble = Lists.newArrayList(BookieId.parse("bookie1:3181"),
+            BookieId.parse("bookie2:3181"), BookieId.parse("bookie3:3181"));
+    private final MockBookies mockBookies = new MockBookies();
+    private MockClientContext clientCtx;
+    private CountingBookieClient bookieClient;
+
+    /**
+     * Records the write requests sent to the bookies.
+     */
+    private static class CountingBookieClient extends MockBookieClient {
+        final AtomicInteger singleAdds = new AtomicInteger();
+        final List<Integer> rangeAdds = new CopyOnWriteArrayList<>();
+        final List<Long> rangeAddStartEntryIds = new CopyOnWriteArrayList<>();
+
+        CountingBookieClient(OrderedExecutor executor, MockBookies mockBookies) {
+            super(executor, mockBookies);
+        }
+
+        @Override
+        public void addEntry(BookieId addr, long ledgerId, byte[] masterKey, long entryId, ByteBufList toSend,
+                             WriteCallback cb, Object ctx, int options, boolean allowFastFail,
+                             EnumSet<WriteFlag> writeFlags) {
+            singleAdds.incrementAndGet();
+            super.addEntry(addr, ledgerId, masterKey, entryId, toSend, cb, ctx, options, allowFastFail, writeFlags);
+        }
+
+        @Override
+        public void addEntries(BookieId addr, long ledgerId, byte[] masterKey, long startEntryId,
+                               List<ByteBufList> toSend, RangeWriteCallback cb, Object ctx, int options,
+                               boolean allowFastFail, EnumSet<WriteFlag> writeFlags) {
+            rangeAdds.add(toSend.size());
+            rangeAddStartEntryIds.add(startEntryId);
+            // The mock sends each entry of the batch as a single add
+            singleAdds.addAndGet(-toSend.size());
+            super.addEntries(addr, ledgerId, masterKey, startEntryId, toSend, cb, ctx, options, allowFastFail,
+                    writeFlags);
+        }
+    }
+
+    private LedgerHandle newLedgerHandle(int batchAddMaxEntries) throws Exception {
+        clientCtx = MockClientContext.create(mockBookies);
+        clientCtx.setConf(ClientInternalConf.fromConfig(new ClientConfiguration()
+                .setBatchAddEnabled(true)
+                .setBatchAddMaxEntries(batchAddMaxEntries)));
+        bookieClient = new CountingBookieClient(clientCtx.getMainWorkerPool(), mockBookies);
+        clientCtx.setBookieClient(bookieClient);
+
+        Versioned<LedgerMetadata> md = ClientUtil.setupLedger(clientCtx, LEDGER_ID,
+                LedgerMetadataBuilder.create()
+                        .withEnsembleSize(3).withWriteQuorumSize(3).withAckQuorumSize(2)
+                        .newEnsembleEntry(0L, ensemble));
+        LedgerHandle lh = new LedgerHandle(clientCtx, LEDGER_ID, md, BookKeeper.DigestType.CRC32C,
+                ClientUtil.PASSWD, WriteFlag.NONE);
+        assertNotNull(lh.pendingAddBatcher);
+        return lh;
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (clientCtx != null) {
+            clientCtx.getMainWorkerPool().shutdown();
+        }
+    }
+
+    /**
+     * Add entries while the ordered executor thread of the ledger is busy, so that all the pending adds are
+     * queued before the first one runs.
+     *
+     * @return the ids of the entries, in the order of the add callbacks
+     */
+    private List<Long> addEntriesWhileExecutorBusy(LedgerHandle lh, int numEntries) throws Exception {
+        CountDownLatch executorBlocked = new CountDownLatch(1);
+        CountDownLatch releaseExecutor = new CountDownLatch(1);
+        clientCtx.getMainWorkerPool().executeOrdered(LEDGER_ID, () -> {
+            executorBlocked.countDown();
+            try {
+                releaseExecutor.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(executorBlocked.await(10, TimeUnit.SECONDS));
+
+        List<Long> completedEntryIds = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch completed = new CountDownLatch(numEntries);
+        for (int i = 0; i < numEntries; i++) {
+            lh.asyncAddEntry(("entry-" + i).getBytes(), (rc, handle, entryId, ctx) -> {
+                if (rc == BKException.Code.OK) {
+                    completedEntryIds.add(entryId);
+                }
+                completed.countDown();
+            }, null);
+        }
+        releaseExecutor.countDown();
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        return completedEntryIds;
+    }
+
+    private void assertEntriesStored(int numEntries) throws Exception {
+        for (BookieId bookie : ensemble) {
+            for (long entryId = 0; entryId < numEntries; entryId++) {
+                assertNotNull(mockBookies.readEntry(bookie, 0, LEDGER_ID, entryId));
+            }
+        }
+    }
+
+    private static List<Long> entryIds(int numEntries) {
+        List<Long> entryIds = new ArrayList<>();
+        for (long entryId = 0; entryId < numEntries; entryId++) {
+            entryIds.add(entryId);
+        }
+        return entryIds;
+    }
+
+    @Test
+    public void testFlushAfterQueuedPendingAdds() throws Exception {
+        LedgerHandle lh = newLedgerHandle(100);
+        assertEquals(entryIds(10), addEntriesWhileExecutorBusy(lh, 10));
+
+        // The flush task runs on the ordered executor after the queued pending adds: each bookie gets all the
+        // entries with a single range add
+        assertEquals(Lists.newArrayList(10, 10, 10), bookieClient.rangeAdds);
+        assertEquals(Lists.newArrayList(0L, 0L, 0L), bookieClient.rangeAddStartEntryIds);
+        assertEquals(0, bookieClient.singleAdds.get());
+        assertEquals(9, lh.getLastAddConfirmed());
+        assertEntriesStored(10);
+    }
+
+    @Test
+    public void testBatchSizeLimit() throws Exception {
+        LedgerHandle lh = newLedgerHandle(4);
+        assertEquals(entryIds(10), addEntriesWhileExecutorBusy(lh, 10));
+
+        // 10 entries are sent to each bookie in batches of 4, 4 and 2 entries
+        List<Integer> batchSizes = new ArrayList<>(bookieClient.rangeAdds);
+        Collections.sort(batchSizes);
+        assertEquals(Lists.newArrayList(2, 2, 2, 4, 4, 4, 4, 4, 4), batchSizes);
+        List<Long> startEntryIds = new ArrayList<>(bookieClient.rangeAddStartEntryIds);
+        Collections.sort(startEntryIds);
+        assertEquals(Lists.newArrayList(0L, 0L, 0L, 4L, 4L, 4L, 8L, 8L, 8L), startEntryIds);
+        assertEquals(0, bookieClient.singleAdds.get());
+        assertEntriesStored(10);
+    }
+
+    @Test
+    public void testSingleAddNotBatched() throws Exception {
+        LedgerHandle lh = newLedgerHandle(100);
+        for (int i = 0; i < 3; i++) {
+            // Without concurrent adds, the flush sends each entry right away
+            lh.addEntry(("entry-" + i).getBytes());
+        }
+
+        assertTrue(bookieClient.rangeAdds.isEmpty());
+        assertEquals(9, bookieClient.singleAdds.get());
+        assertEquals(2, lh.getLastAddConfirmed());
+        assertEntriesStored(3);
+    }
+}
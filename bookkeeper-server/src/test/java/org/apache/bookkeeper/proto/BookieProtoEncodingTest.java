@@ -0,0 +1,301 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.protobuf.ExtensionRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.bookkeeper.proto.BookieProtoEncoding.RequestEnDeCoderPreV3;
+import org.apache.bookkeeper.proto.BookieProtoEncoding.ResponseEnDeCoderPreV3;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.FileRegionFrame;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the encoding and decoding of the bookie protocol packets.
+ */
+public class BookieProtoEncodingTest {
+
+    private final ByteBufAllocator allocator = UnpooledByteBufAllocator.DEFAULT;
+    private final byte[] masterKey = "test-master-key-0000".getBytes(UTF_8);
+    private RequestEnDeCoderPreV3 requestCodec;
+    private ResponseEnDeCoderPreV3 responseCodec;
+
+    @Before
+    public void setup() {
+        ExtensionRegistry extensionRegistry = ExtensionRegistry.newInstance();
+        requestCodec = new RequestEnDeCoderPreV3(extensionRegistry);
+        responseCodec = new ResponseEnDeCoderPreV3(extensionRegistry);
+    }
+
+    private static ByteBuf toPacket(Object encoded) {
+        if (encoded instanceof ByteBufList) {
+            ByteBufList list = (ByteBufList) encoded;
+            ByteBuf packet = ByteBufList.coalesce(list);
+            list.release();
+            return packet;
+        }
+        return (ByteBuf) encoded;
+    }
+
+    private static List<ByteBuf> entries(String... contents) {
+        List<ByteBuf> entries = new ArrayList<>();
+        for (String content : contents) {
+            entries.add(Unpooled.copiedBuffer(content, UTF_8));
+        }
+        return entries;
+    }
+
+    private static void assertEntries(List<ByteBuf> entries, String... contents) {
+        assertEquals(contents.length, entries.size());
+        for (int i = 0; i < contents.length; i++) {
+            assertEquals(contents[i], entries.get(i).toString(UTF_8));
+        }
+    }
+
+    @Test
+    public void testRangeReadRequest() throws Exception {
+        BookieProtocol.RangeReadRequest request = new BookieProtocol.RangeReadRequest(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, 1L, 10L, 100, 1024 * 1024L, BookieProtocol.FLAG_NONE);
+        ByteBuf packet = toPacket(requestCodec.encode(request, allocator));
+        try {
+            BookieProtocol.RangeReadRequest decoded = (BookieProtocol.RangeReadRequest) requestCodec.decode(packet);
+            assertEquals(BookieProtocol.RANGE_READ_ENTRY, decoded.getOpCode());
+            assertEquals(1L, decoded.getLedgerId());
+            assertEquals(10L, decoded.getEntryId());
+            assertEquals(100, decoded.getMaxCount());
+            assertEquals(1024 * 1024L, decoded.getMaxSize());
+        } finally {
+            packet.release();
+        }
+    }
+
+    @Test
+    public void testRangeReadResponse() throws Exception {
+        BookieProtocol.RangeReadResponse response = new BookieProtocol.RangeReadResponse(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, BookieProtocol.EOK, 1L, 10L,
+                entries("entry-10", "", "entry-12"));
+        ByteBuf packet = toPacket(responseCodec.encode(response, allocator));
+        try {
+            BookieProtocol.RangeReadResponse decoded = (BookieProtocol.RangeReadResponse) responseCodec.decode(packet);
+            assertEquals(BookieProtocol.EOK, decoded.getErrorCode());
+            assertEquals(1L, decoded.getLedgerId());
+            assertEquals(10L, decoded.getEntryId());
+            assertEntries(decoded.getData(), "entry-10", "", "entry-12");
+            decoded.release();
+        } finally {
+            packet.release();
+        }
+    }
+
+    @Test
+    public void testRangeReadErrorResponse() throws Exception {
+        BookieProtocol.RangeReadResponse response = new BookieProtocol.RangeReadResponse(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, BookieProtocol.ENOENTRY, 1L, 10L, Collections.emptyList());
+        ByteBuf packet = toPacket(responseCodec.encode(response, allocator));
+        try {
+            BookieProtocol.RangeReadResponse decoded = (BookieProtocol.RangeReadResponse) responseCodec.decode(packet);
+            assertEquals(BookieProtocol.ENOENTRY, decoded.getErrorCode());
+            assertTrue(decoded.getData().isEmpty());
+        } finally {
+            packet.release();
+        }
+    }
+
+    @Test
+    public void testRangeReadResponseWithInvalidLength() throws Exception {
+        BookieProtocol.RangeReadResponse response = new BookieProtocol.RangeReadResponse(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, BookieProtocol.EOK, 1L, 10L,
+                entries("entry-10", "entry-11"));
+        ByteBuf packet = toPacket(responseCodec.encode(response, allocator));
+        // Drop the end of the last entry
+        packet.writerIndex(packet.writerIndex() - 2);
+        try {
+            responseCodec.decode(packet);
+            fail("Should fail to decode a truncated entry");
+        } catch (CorruptedFrameException e) {
+            // expected
+        } finally {
+            assertEquals(1, packet.refCnt());
+            packet.release();
+        }
+    }
+
+    private BookieProtocol.RangeAddRequest rangeAddRequest(String... contents) {
+        List<ByteBufList> data = new ArrayList<>();
+        for (String content : contents) {
+            // Split each entry in two buffers, as the client sends the checksum header apart from the payload
+            int half = content.length() / 2;
+            data.add(ByteBufList.get(Unpooled.copiedBuffer(content.substring(0, half), UTF_8),
+                    Unpooled.copiedBuffer(content.substring(half), UTF_8)));
+        }
+        BookieProtocol.RangeAddRequest request = new BookieProtocol.RangeAddRequest(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, 1L, 10L, BookieProtocol.FLAG_RECOVERY_ADD, masterKey, data);
+        // The request holds its own reference of the entries
+        data.forEach(ByteBufList::release);
+        return request;
+    }
+
+    @Test
+    public void testRangeAddRequest() throws Exception {
+        ByteBuf packet = toPacket(requestCodec.encode(rangeAddRequest("entry-10", "", "entry-12"), allocator));
+        try {
+            BookieProtocol.ParsedRangeAddRequest decoded =
+                    (BookieProtocol.ParsedRangeAddRequest) requestCodec.decode(packet);
+            assertEquals(BookieProtocol.RANGE_ADD_ENTRY, decoded.getOpCode());
+            assertEquals(1L, decoded.getLedgerId());
+            assertEquals(10L, decoded.getEntryId());
+            assertTrue(decoded.isRecoveryAdd());
+            assertArrayEquals(masterKey, decoded.getMasterKey());
+            assertEquals(3, decoded.getCount());
+            assertEntries(decoded.getData(), "entry-10", "", "entry-12");
+            decoded.release();
+        } finally {
+            assertEquals(1, packet.refCnt());
+            packet.release();
+        }
+    }
+
+    private void assertCorruptedRangeAddRequest(ByteBuf packet) throws Exception {
+        try {
+            requestCodec.decode(packet);
+            fail("Should fail to decode a corrupted range add request");
+        } catch (CorruptedFrameException e) {
+            // expected
+        } finally {
+            assertEquals(1, packet.refCnt());
+            packet.release();
+        }
+    }
+
+    @Test
+    public void testRangeAddRequestWithInvalidCount() throws Exception {
+        // The count field follows the header, the master key, the ledger id and the start entry id
+        int countOffset = 4 + BookieProtocol.MASTER_KEY_LENGTH + 8 + 8;
+
+        ByteBuf packet = toPacket(requestCodec.encode(rangeAddRequest("entry-10", "entry-11"), allocator));
+        packet.setInt(countOffset, -1);
+        assertCorruptedRangeAddRequest(packet);
+
+        packet = toPacket(requestCodec.encode(rangeAddRequest("entry-10", "entry-11"), allocator));
+        packet.setInt(countOffset, Integer.MAX_VALUE);
+        assertCorruptedRangeAddRequest(packet);
+
+        // More entries announced than sent
+        packet = toPacket(requestCodec.encode(rangeAddRequest("entry-10", "entry-11"), allocator));
+        packet.setInt(countOffset, 3);
+        assertCorruptedRangeAddRequest(packet);
+    }
+
+    @Test
+    public void testRangeAddRequestWithInvalidLength() throws Exception {
+        int firstLengthOffset = 4 + BookieProtocol.MASTER_KEY_LENGTH + 8 + 8 + 4;
+
+        ByteBuf packet = toPacket(requestCodec.encode(rangeAddRequest("entry-10", "entry-11"), allocator));
+        packet.setInt(firstLengthOffset, -1);
+        assertCorruptedRangeAddRequest(packet);
+
+        packet = toPacket(requestCodec.encode(rangeAddRequest("entry-10", "entry-11"), allocator));
+        packet.setInt(firstLengthOffset, packet.readableBytes());
+        assertCorruptedRangeAddRequest(packet);
+    }
+
+    @Test
+    public void testRangeAddResponse() throws Exception {
+        BookieProtocol.RangeAddResponse response = new BookieProtocol.RangeAddResponse(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, BookieProtocol.EOK, 1L, 10L, 3);
+        ByteBuf packet = toPacket(responseCodec.encode(response, allocator));
+        try {
+            BookieProtocol.RangeAddResponse decoded = (BookieProtocol.RangeAddResponse) responseCodec.decode(packet);
+            assertEquals(BookieProtocol.RANGE_ADD_ENTRY, decoded.getOpCode());
+            assertEquals(BookieProtocol.EOK, decoded.getErrorCode());
+            assertEquals(1L, decoded.getLedgerId());
+            assertEquals(10L, decoded.getEntryId());
+            assertEquals(3, decoded.getCount());
+        } finally {
+            packet.release();
+        }
+    }
+
+    @Test
+    public void testReadRegionResponse() throws Exception {
+        File file = File.createTempFile("entrylog", ".log");
+        try {
+            Files.write(file.toPath(), "header|entry-10|trailer".getBytes(UTF_8));
+            FileRegion region = new DefaultFileRegion(file, 7, 8);
+            BookieProtocol.ReadRegionResponse response = new BookieProtocol.ReadRegionResponse(
+                    BookieProtocol.CURRENT_PROTOCOL_VERSION, 1L, 10L, region);
+            FileRegionFrame frame = (FileRegionFrame) responseCodec.encode(response, allocator);
+            assertEquals(frame.getHeader().readableBytes() + 8, frame.size());
+
+            // The frame is written as the size, the response header and the file region
+            EmbeddedChannel channel = new EmbeddedChannel(ByteBufList.ENCODER_WITH_SIZE);
+            channel.writeOutbound(frame);
+            assertEquals(0, frame.refCnt());
+            ByteBuf size = channel.readOutbound();
+            ByteBuf header = channel.readOutbound();
+            FileRegion written = channel.readOutbound();
+            assertEquals(frame.size(), size.readInt());
+            size.release();
+
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            assertEquals(8, written.transferTo(Channels.newChannel(content), 0));
+            written.release();
+            assertEquals(0, region.refCnt());
+
+            // It's decoded as a regular read response
+            ByteBuf packet = Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(content.toByteArray()));
+            try {
+                BookieProtocol.ReadResponse decoded = (BookieProtocol.ReadResponse) responseCodec.decode(packet);
+                assertEquals(BookieProtocol.READENTRY, decoded.getOpCode());
+                assertEquals(BookieProtocol.EOK, decoded.getErrorCode());
+                assertEquals(1L, decoded.getLedgerId());
+                assertEquals(10L, decoded.getEntryId());
+                assertEquals("entry-10", decoded.getData().toString(UTF_8));
+                decoded.release();
+            } finally {
+                packet.release();
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+}
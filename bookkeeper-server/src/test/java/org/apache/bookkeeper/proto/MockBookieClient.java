@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.api.WriteFlag;
@@ -42,6 +43,8 @@ import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.FutureGetListOfEntriesOfLedger;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeReadEntryCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.RangeWriteCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
@@ -195,6 +198,25 @@ public class MockBookieClient implements BookieClient {
                 }, executor.chooseThread(ledgerId));
     }
 
+    @Override
+    public void addEntries(BookieId addr, long ledgerId, byte[] masterKey,
+                           long startEntryId, List<ByteBufList> toSend, RangeWriteCallback cb, Object ctx,
+                           int options, boolean allowFastFail, EnumSet<WriteFlag> writeFlags) {
+        AtomicInteger pending = new AtomicInteger(toSend.size());
+        AtomicInteger firstError = new AtomicInteger(BKException.Code.OK);
+        for (int i = 0; i < toSend.size(); i++) {
+            addEntry(addr, ledgerId, masterKey, startEntryId + i, toSend.get(i),
+                    (rc, ledgerId1, entryId1, addr1, ctx1) -> {
+                        if (rc != BKException.Code.OK) {
+                            firstError.compareAndSet(BKException.Code.OK, rc);
+                        }
+                        if (pending.decrementAndGet() == 0) {
+                            cb.rangeWriteComplete(firstError.get(), ledgerId, startEntryId, toSend.size(), addr, ctx);
+                        }
+                    }, null, options, allowFastFail, writeFlags);
+        }
+    }
+
     @Override
     public void readLac(BookieId addr, long ledgerId, ReadLacCallback cb, Object ctx) {
         executor.executeOrdered(ledgerId,
@@ -235,6 +257,16 @@ public class MockBookieClient implements BookieClient {
                 }, executor.chooseThread(ledgerId));
     }
 
+    @Override
+    public void rangeReadEntries(BookieId addr, long ledgerId, long startEntryId, int maxCount, long maxSize,
+                                 RangeReadEntryCallback cb, Object ctx, int flags) {
+        executor.executeOrdered(ledgerId,
+                safeRun(() -> {
+                    cb.rangeReadEntryComplete(BKException.Code.IllegalOpException,
+                            ledgerId, startEntryId, null, ctx);
+                }));
+    }
+
     @Override
     public void readEntryWaitForLACUpdate(BookieId addr,
                                           long ledgerId,
@@ -0,0 +1,183 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.proto.BookieProtocol.ParsedRangeAddRequest;
+import org.apache.bookkeeper.proto.BookieProtocol.RangeAddResponse;
+import org.apache.bookkeeper.proto.BookieProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link RangeWriteEntryProcessor}.
+ */
+public class RangeWriteEntryProcessorTest {
+
+    private static final int COUNT = 5;
+
+    private Bookie bookie;
+    private BookieRequestProcessor requestProcessor;
+    private Channel channel;
+    private final List<Object> responses = new ArrayList<>();
+    private final AtomicReference<WriteCallback> writeCallback = new AtomicReference<>();
+
+    @Before
+    public void setup() throws Exception {
+        bookie = mock(Bookie.class);
+        requestProcessor = mock(BookieRequestProcessor.class);
+        when(requestProcessor.getBookie()).thenReturn(bookie);
+        when(requestProcessor.getRequestStats()).thenReturn(new RequestStats(NullStatsLogger.INSTANCE));
+
+        channel = mock(Channel.class);
+        when(channel.isActive()).thenReturn(true);
+        doAnswer(invocation -> {
+            responses.add(invocation.getArgument(0));
+            return null;
+        }).when(channel).writeAndFlush(any(), any());
+
+        doAnswer(invocation -> {
+            writeCallback.set(invocation.getArgument(2));
+            return null;
+        }).when(bookie).addEntries(anyList(), anyBoolean(), any(WriteCallback.class), any(), any());
+        doAnswer(invocation -> {
+            writeCallback.set(invocation.getArgument(1));
+            return null;
+        }).when(bookie).recoveryAddEntries(anyList(), any(WriteCallback.class), any(), any());
+    }
+
+    private static ParsedRangeAddRequest newRequest(short flags) {
+        List<ByteBuf> entries = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            ByteBuf entry = Unpooled.buffer();
+            entry.writeLong(1);
+            entry.writeLong(10 + i);
+            entry.writeBytes(new byte[100]);
+            entries.add(entry);
+        }
+        return new ParsedRangeAddRequest(BookieProtocol.CURRENT_PROTOCOL_VERSION, 1, 10, flags, new byte[0],
+                entries);
+    }
+
+    private Response singleResponse() {
+        assertEquals(1, responses.size());
+        return (Response) responses.get(0);
+    }
+
+    @Test
+    public void testAggregatePerEntryCallbacks() throws Exception {
+        RangeWriteEntryProcessor processor = RangeWriteEntryProcessor.create(newRequest(BookieProtocol.FLAG_NONE),
+                channel, requestProcessor);
+        processor.safeRun();
+        verify(bookie).addEntries(anyList(), anyBoolean(), any(WriteCallback.class), any(), any());
+
+        // The response is only sent once all the entries are persisted
+        for (int i = 0; i < COUNT; i++) {
+            assertTrue(responses.isEmpty());
+            writeCallback.get().writeComplete(BookieProtocol.EOK, 1, 10 + i, null, channel);
+        }
+
+        Response response = singleResponse();
+        assertTrue(response instanceof RangeAddResponse);
+        assertEquals(BookieProtocol.EOK, response.getErrorCode());
+        assertEquals(1, response.getLedgerId());
+        assertEquals(10, response.getEntryId());
+        assertEquals(COUNT, ((RangeAddResponse) response).getCount());
+    }
+
+    @Test
+    public void testFailedEntryFailsTheBatch() throws Exception {
+        RangeWriteEntryProcessor processor = RangeWriteEntryProcessor.create(newRequest(BookieProtocol.FLAG_NONE),
+                channel, requestProcessor);
+        processor.safeRun();
+
+        for (int i = 0; i < COUNT; i++) {
+            assertTrue(responses.isEmpty());
+            writeCallback.get().writeComplete(i == 2 ? BookieProtocol.EIO : BookieProtocol.EOK, 1, 10 + i, null,
+                    channel);
+        }
+
+        Response response = singleResponse();
+        assertEquals(BookieProtocol.EIO, response.getErrorCode());
+        assertEquals(10, response.getEntryId());
+    }
+
+    @Test
+    public void testRecoveryAdd() throws Exception {
+        RangeWriteEntryProcessor processor = RangeWriteEntryProcessor.create(
+                newRequest(BookieProtocol.FLAG_RECOVERY_ADD), channel, requestProcessor);
+        processor.safeRun();
+        verify(bookie).recoveryAddEntries(anyList(), any(WriteCallback.class), any(), any());
+        verify(bookie, never()).addEntries(anyList(), anyBoolean(), any(WriteCallback.class), any(), any());
+
+        for (int i = 0; i < COUNT; i++) {
+            writeCallback.get().writeComplete(BookieProtocol.EOK, 1, 10 + i, null, channel);
+        }
+        assertEquals(BookieProtocol.EOK, singleResponse().getErrorCode());
+    }
+
+    @Test
+    public void testFencedLedger() throws Exception {
+        doThrow(BookieException.create(BookieException.Code.LedgerFencedException))
+                .when(bookie).addEntries(anyList(), anyBoolean(), any(WriteCallback.class), any(), any());
+
+        RangeWriteEntryProcessor processor = RangeWriteEntryProcessor.create(newRequest(BookieProtocol.FLAG_NONE),
+                channel, requestProcessor);
+        processor.safeRun();
+
+        assertNull(writeCallback.get());
+        assertEquals(BookieProtocol.EFENCED, singleResponse().getErrorCode());
+    }
+
+    @Test
+    public void testReadOnlyBookie() throws Exception {
+        when(bookie.isReadOnly()).thenReturn(true);
+
+        RangeWriteEntryProcessor processor = RangeWriteEntryProcessor.create(newRequest(BookieProtocol.FLAG_NONE),
+                channel, requestProcessor);
+        processor.safeRun();
+
+        verify(bookie, never()).addEntries(anyList(), anyBoolean(), any(WriteCallback.class), any(), any());
+        assertEquals(BookieProtocol.EREADONLY, singleResponse().getErrorCode());
+    }
+}
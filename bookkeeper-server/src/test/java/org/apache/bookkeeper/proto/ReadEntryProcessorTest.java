@@ -0,0 +1,155 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.FileRegion;
+import io.netty.channel.socket.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.proto.BookieProtocol.ReadRegionResponse;
+import org.apache.bookkeeper.proto.BookieProtocol.ReadRequest;
+import org.apache.bookkeeper.proto.BookieProtocol.ReadResponse;
+import org.apache.bookkeeper.proto.BookieProtocol.Response;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for the zero-copy reads of {@link ReadEntryProcessor}.
+ */
+public class ReadEntryProcessorTest {
+
+    private static final int MIN_REGION_SIZE = 1024;
+
+    private Bookie bookie;
+    private BookieRequestProcessor requestProcessor;
+    private SocketChannel channel;
+    private ChannelPipeline pipeline;
+    private FileRegion region;
+    private final List<Object> responses = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        bookie = mock(Bookie.class);
+        requestProcessor = mock(BookieRequestProcessor.class);
+        when(requestProcessor.getBookie()).thenReturn(bookie);
+        when(requestProcessor.getRequestStats()).thenReturn(new RequestStats(NullStatsLogger.INSTANCE));
+
+        channel = mock(SocketChannel.class);
+        pipeline = mock(ChannelPipeline.class);
+        when(channel.pipeline()).thenReturn(pipeline);
+        when(channel.isActive()).thenReturn(true);
+        doAnswer(invocation -> {
+            responses.add(invocation.getArgument(0));
+            return null;
+        }).when(channel).writeAndFlush(any(), any());
+
+        region = mock(FileRegion.class);
+        when(bookie.readEntryForTransfer(anyLong(), anyLong(), anyInt())).thenReturn(region);
+        when(bookie.readEntry(anyLong(), anyLong())).thenAnswer(invocation -> Unpooled.wrappedBuffer(new byte[10]));
+    }
+
+    private void processRead(int zeroCopyReadMinEntrySize) {
+        ReadRequest request = new ReadRequest(BookieProtocol.CURRENT_PROTOCOL_VERSION, 1, 10,
+                BookieProtocol.FLAG_NONE, null);
+        ReadEntryProcessor processor = ReadEntryProcessor.create(request, channel, requestProcessor, null, false,
+                zeroCopyReadMinEntrySize);
+        processor.safeRun();
+    }
+
+    private Response singleResponse() {
+        assertEquals(1, responses.size());
+        Response response = (Response) responses.get(0);
+        assertEquals(BookieProtocol.EOK, response.getErrorCode());
+        assertEquals(1, response.getLedgerId());
+        assertEquals(10, response.getEntryId());
+        return response;
+    }
+
+    @Test
+    public void testZeroCopyRead() throws Exception {
+        processRead(MIN_REGION_SIZE);
+
+        verify(bookie).readEntryForTransfer(1, 10, MIN_REGION_SIZE);
+        verify(bookie, never()).readEntry(anyLong(), anyLong());
+        Response response = singleResponse();
+        assertTrue(response instanceof ReadRegionResponse);
+        assertSame(region, ((ReadRegionResponse) response).getRegion());
+        verify(region, never()).release();
+    }
+
+    @Test
+    public void testSmallEntry() throws Exception {
+        // The entries smaller than the min size are returned in a buffer
+        when(bookie.readEntryForTransfer(anyLong(), anyLong(), anyInt()))
+                .thenReturn(Unpooled.wrappedBuffer(new byte[10]));
+        processRead(MIN_REGION_SIZE);
+
+        assertTrue(singleResponse() instanceof ReadResponse);
+    }
+
+    @Test
+    public void testTlsFallback() throws Exception {
+        when(pipeline.get("tls")).thenReturn(mock(ChannelHandler.class));
+        processRead(MIN_REGION_SIZE);
+
+        verify(bookie, never()).readEntryForTransfer(anyLong(), anyLong(), anyInt());
+        verify(bookie).readEntry(1, 10);
+        ByteBuf data = ((ReadResponse) singleResponse()).getData();
+        assertEquals(10, data.readableBytes());
+        data.release();
+    }
+
+    @Test
+    public void testZeroCopyDisabled() throws Exception {
+        processRead(-1);
+
+        verify(bookie, never()).readEntryForTransfer(anyLong(), anyLong(), anyInt());
+        assertTrue(singleResponse() instanceof ReadResponse);
+    }
+
+    @Test
+    public void testInactiveChannel() throws Exception {
+        when(channel.isActive()).thenReturn(false);
+        processRead(MIN_REGION_SIZE);
+
+        // The file handle of the region is closed right away
+        assertTrue(responses.isEmpty());
+        verify(region).release();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bookkeeper.bookie.EntryLogCompression.Codec;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks for the compression and the decompression of the entries stored in the entry logs, with payloads
+ * that compress well (JSON records) and payloads that don't (random bytes).
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class EntryLogCompressionBenchmark {
+
+    /**
+     * State holder of the entries to compress.
+     */
+    @State(Scope.Thread)
+    public static class CompressionState {
+        @Param({"1024", "16384", "131072"})
+        private int entrySize;
+
+        @Param({"json", "random"})
+        private String payload;
+
+        private EntryLogCompression compression;
+        private ByteBuf entry;
+        private ByteBuf compressed;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            compression = new EntryLogCompression(Codec.SNAPPY, 0, PooledByteBufAllocator.DEFAULT,
+                    NullStatsLogger.INSTANCE);
+            entry = Unpooled.directBuffer(entrySize);
+            entry.writeLong(1L);
+            entry.writeLong(2L);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (entry.isWritable()) {
+                if ("json".equals(payload)) {
+                    byte[] record = ("{\"id\":" + random.nextInt(1000000) + ",\"name\":\"user-" + random.nextInt(1000)
+                            + "\",\"status\":\"active\",\"score\":" + random.nextDouble() + "}\n").getBytes(UTF_8);
+                    entry.writeBytes(record, 0, Math.min(record.length, entry.writableBytes()));
+                } else {
+                    entry.writeByte(random.nextInt());
+                }
+            }
+            // The random payloads don't compress well enough, and they are stored as is
+            compressed = compression.compress(entry);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            entry.release();
+            if (compressed != null) {
+                compressed.release();
+            }
+        }
+    }
+
+    @Benchmark
+    public int compress(CompressionState s) {
+        ByteBuf compressed = s.compression.compress(s.entry);
+        if (compressed == null) {
+            return 0;
+        }
+        int size = compressed.readableBytes();
+        compressed.release();
+        return size;
+    }
+
+    @Benchmark
+    public int decompress(CompressionState s) throws IOException {
+        if (s.compressed == null) {
+            // The entry is stored as is, there's nothing to decompress
+            return 0;
+        }
+        ByteBuf entry = s.compression.decompress(s.compressed);
+        int size = entry.readableBytes();
+        entry.release();
+        return size;
+    }
+}
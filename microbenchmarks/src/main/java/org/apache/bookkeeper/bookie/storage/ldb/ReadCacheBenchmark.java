@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks for the {@link ReadCache} put/get throughput with an increasing number of threads.
+ *
+ * <p>The cache is small compared to the amount of data inserted, so that the segments are continuously rolled over
+ * while the readers are probing the indexes.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class ReadCacheBenchmark {
+
+    private static final long LEDGERS_COUNT = 64;
+    private static final int CACHE_SIZE = 256 * 1024 * 1024;
+
+    /**
+     * State holder of the read cache shared by all the threads.
+     */
+    @State(Scope.Benchmark)
+    public static class CacheState {
+        @Param({"100", "1024", "16384"})
+        private int entrySize;
+
+        @Param({"0.0", "0.5"})
+        private double protectedRatio;
+
+        private ReadCache cache;
+        private ByteBuf entry;
+        private final AtomicLong lastEntryId = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            cache = new ReadCache(ByteBufAllocator.DEFAULT, CACHE_SIZE, 16 * 1024 * 1024, protectedRatio,
+                    ReadCache.DEFAULT_PROMOTION_FREQUENCY);
+            byte[] data = new byte[entrySize];
+            ThreadLocalRandom.current().nextBytes(data);
+            entry = Unpooled.directBuffer(entrySize);
+            entry.writeBytes(data);
+
+            // Pre-fill the cache so that the readers find entries from the start
+            for (int i = 0; i < CACHE_SIZE / entrySize; i++) {
+                put();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            cache.close();
+            entry.release();
+        }
+
+        void put() {
+            long entryId = lastEntryId.incrementAndGet();
+            cache.put(entryId % LEDGERS_COUNT, entryId / LEDGERS_COUNT, entry);
+        }
+
+        void get() {
+            // Read recent entries, like tailing readers do, within the most recent half of the cache
+            long last = lastEntryId.get();
+            long entryId = Math.max(0, last - ThreadLocalRandom.current().nextLong(CACHE_SIZE / entrySize / 2));
+            ByteBuf res = cache.get(entryId % LEDGERS_COUNT, entryId / LEDGERS_COUNT);
+            if (res != null) {
+                res.release();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void put1Thread(CacheState s) {
+        s.put();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void put4Threads(CacheState s) {
+        s.put();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void put16Threads(CacheState s) {
+        s.put();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void get1Thread(CacheState s) {
+        s.get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void get4Threads(CacheState s) {
+        s.get();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void get16Threads(CacheState s) {
+        s.get();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void putAndGet16Threads(CacheState s) {
+        if (ThreadLocalRandom.current().nextInt(10) == 0) {
+            s.put();
+        } else {
+            s.get();
+        }
+    }
+}
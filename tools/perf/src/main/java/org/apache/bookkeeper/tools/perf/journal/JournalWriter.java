@@ -175,6 +175,23 @@ public class JournalWriter implements Runnable {
         )
         public int numJournalCallbackThreads = 8;
 
+        @Parameter(
+            names = {
+                "-wr", "--write-ring"
+            },
+            description = "Serialize the entries in the journal write ring from the test threads,"
+                + " instead of in the journal thread"
+        )
+        public boolean journalWriteRingEnabled = false;
+
+        @Parameter(
+            names = {
+                "-wrs", "--write-ring-size-mb"
+            },
+            description = "Journal write ring size in MB"
+        )
+        public int journalWriteRingSizeMb = 64;
+
     }
 
 
@@ -474,6 +491,8 @@ public class JournalWriter implements Runnable {
         conf.setNumJournalCallbackThreads(flags.numJournalCallbackThreads);
         conf.setJournalQueueSize(flags.journalQueueSize);
         conf.setJournalSyncData(flags.journalSyncEnabled);
+        conf.setJournalWriteRingEnabled(flags.journalWriteRingEnabled);
+        conf.setJournalWriteRingSizeMb(flags.journalWriteRingSizeMb);
         conf.setLedgerDirNames(flags.journalDirs.toArray(new String[0]));
         conf.setStatsProviderClass(PrometheusMetricsProvider.class);
         File[] currentDirs = BookieImpl.getCurrentDirectories(conf.getLedgerDirs());